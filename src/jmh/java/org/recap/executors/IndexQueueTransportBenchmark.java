@@ -0,0 +1,99 @@
+package org.recap.executors;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares handing document batches from the index threads to one Solr sender through the seda route, as
+ * SolrIndexQueue does by default, with the IndexRingBuffer of the ringBuffer transport, at 1, 4 and 16 producers. The
+ * sender only counts the batches, so the score is the cost of the hand-off itself. Run with gradlew jmh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IndexQueueTransportBenchmark {
+
+    private static final String SEDA_URI = "seda:indexQueueTransportBenchmark?size=10&blockWhenFull=true";
+
+    @Param({"100"})
+    int batchSize;
+
+    private final AtomicLong sentBatches = new AtomicLong();
+    private List<Object> documents;
+    private CamelContext camelContext;
+    private ProducerTemplate producerTemplate;
+    private IndexRingBuffer indexRingBuffer;
+
+    @Setup
+    public void setUp() throws Exception {
+        documents = new ArrayList<>();
+        for (int document = 0; document < batchSize; document++) {
+            documents.add(document);
+        }
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+                from(SEDA_URI).process(exchange -> sentBatches.incrementAndGet());
+            }
+        });
+        camelContext.start();
+        producerTemplate = camelContext.createProducerTemplate();
+        indexRingBuffer = new IndexRingBuffer(10, (coreName, batch, batchSettings, batchSequence) -> sentBatches.incrementAndGet());
+        indexRingBuffer.start("indexQueueTransportBenchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        indexRingBuffer.stop();
+        producerTemplate.stop();
+        camelContext.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void seda1() {
+        producerTemplate.sendBody(SEDA_URI, documents);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void seda4() {
+        producerTemplate.sendBody(SEDA_URI, documents);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void seda16() {
+        producerTemplate.sendBody(SEDA_URI, documents);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void ringBuffer1() {
+        indexRingBuffer.publish(null, documents, 0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void ringBuffer4() {
+        indexRingBuffer.publish(null, documents, 0);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void ringBuffer16() {
+        indexRingBuffer.publish(null, documents, 0);
+    }
+}
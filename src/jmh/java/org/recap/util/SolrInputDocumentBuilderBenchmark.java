@@ -0,0 +1,114 @@
+package org.recap.util;
+
+import org.apache.solr.client.solrj.beans.DocumentObjectBinder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.recap.model.solr.Bib;
+import org.recap.model.solr.Holdings;
+import org.recap.model.solr.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares turning a Bib+Items page of solr beans into SolrInputDocuments through SolrJ's DocumentObjectBinder, as
+ * SolrBatchWriter does without solr.writer.direct.documents, with SolrInputDocumentBuilder. Run with gradlew jmh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SolrInputDocumentBuilderBenchmark {
+
+    @Param({"1000"})
+    int pageSize;
+
+    private final DocumentObjectBinder documentObjectBinder = new DocumentObjectBinder();
+    private List<Object> documents;
+
+    @Setup
+    public void setUp() {
+        documents = new ArrayList<>();
+        for (int bibId = 1; bibId <= pageSize; bibId++) {
+            documents.add(getBib(bibId));
+            documents.add(getHoldings(bibId));
+            documents.add(getItem(bibId));
+        }
+    }
+
+    @Benchmark
+    public void binder(Blackhole blackhole) {
+        for (Object document : documents) {
+            blackhole.consume(documentObjectBinder.toSolrInputDocument(document));
+        }
+    }
+
+    @Benchmark
+    public void builder(Blackhole blackhole) {
+        for (Object document : documents) {
+            blackhole.consume(SolrInputDocumentBuilder.build(document));
+        }
+    }
+
+    private Bib getBib(int bibId) {
+        Bib bib = new Bib();
+        bib.setId(String.valueOf(bibId));
+        bib.setBibId(bibId);
+        bib.setDocType("Bib");
+        bib.setTitle("Middleware for ReCAP " + bibId);
+        bib.setTitleDisplay("Middleware for ReCAP " + bibId);
+        bib.setTitleStartsWith("Middleware");
+        bib.setTitleSort("middleware for recap " + bibId);
+        bib.setAuthorDisplay("Chandrashekhar");
+        bib.setAuthorSearch(Arrays.asList("Chandrashekhar", "Sheik"));
+        bib.setOwningInstitution("PUL");
+        bib.setPublisher("McGraw-Hill");
+        bib.setPublicationPlace("New York");
+        bib.setPublicationDate("2016");
+        bib.setSubject("Indexing");
+        bib.setIsbn(Arrays.asList("9780071833783"));
+        bib.setIssn(new ArrayList<>());
+        bib.setOclcNumber(Arrays.asList("ocm0000" + bibId));
+        bib.setMaterialType("Monograph");
+        bib.setLccn("2016000" + bibId);
+        bib.setImprint("New York : McGraw-Hill, 2016");
+        bib.setHoldingsIdList(Arrays.asList(bibId));
+        bib.setOwningInstHoldingsIdList(Arrays.asList(bibId));
+        bib.setBibItemIdList(Arrays.asList(bibId));
+        bib.setOwningInstitutionBibId(".b" + bibId);
+        bib.setLeaderMaterialType("Monograph");
+        return bib;
+    }
+
+    private Holdings getHoldings(int holdingsId) {
+        Holdings holdings = new Holdings();
+        holdings.setId("H" + holdingsId);
+        holdings.setHoldingsId(holdingsId);
+        holdings.setDocType("Holdings");
+        holdings.setSummaryHoldings("v. 1-" + holdingsId);
+        holdings.setOwningInstitution("PUL");
+        return holdings;
+    }
+
+    private Item getItem(int itemId) {
+        Item item = new Item();
+        item.setId("I" + itemId);
+        item.setItemId(itemId);
+        item.setBarcode("32101" + itemId);
+        item.setAvailability("Available");
+        item.setCollectionGroupDesignation("Shared");
+        item.setDocType("Item");
+        item.setCustomerCode("PA");
+        item.setUseRestriction("In Library Use");
+        item.setVolumePartYear("v. 1");
+        item.setCallNumber("QA76.9 .M" + itemId);
+        item.setOwningInstitution("PUL");
+        item.setItemBibIdList(Arrays.asList(itemId));
+        item.setHoldingsIdList(Arrays.asList(itemId));
+        return item;
+    }
+}
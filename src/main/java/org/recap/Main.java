@@ -1,8 +1,14 @@
 package org.recap;
 
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.camel.component.ActiveMQComponent;
+import org.apache.activemq.pool.PooledConnectionFactory;
 import org.apache.catalina.connector.Connector;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.recap.util.IndexMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -12,11 +18,14 @@ import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletCon
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.solr.core.SolrTemplate;
 import org.springframework.data.solr.repository.config.EnableSolrRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 @SpringBootApplication
 @EnableSolrRepositories(value = "org.recap.repository.solr.main", multicoreSupport = true)
+@EnableScheduling
 public class Main {
 
 	@Value("${solr.server.protocol}")
@@ -31,6 +40,9 @@ public class Main {
 	@Value("${tomcat.maxParameterCount}")
 	Integer tomcatMaxParameterCount;
 
+	@Value("${activemq.broker.url}")
+	String activemqBrokerUrl;
+
 	@Bean
 	public SolrClient solrAdminClient() {
 		return new HttpSolrClient(solrServerProtocol + solrUrl);
@@ -48,6 +60,29 @@ public class Main {
 		return solrTemplate;
 	}
 
+	@Bean(destroyMethod = "stop")
+	public PooledConnectionFactory pooledConnectionFactory() {
+		return new PooledConnectionFactory(new ActiveMQConnectionFactory(activemqBrokerUrl));
+	}
+
+	@Bean(name = RecapConstants.ACTIVEMQ)
+	public ActiveMQComponent activemqComponent(PooledConnectionFactory pooledConnectionFactory) {
+		ActiveMQComponent activeMQComponent = new ActiveMQComponent();
+		activeMQComponent.setConnectionFactory(pooledConnectionFactory);
+		return activeMQComponent;
+	}
+
+	@Bean
+	public MetricRegistry metricRegistry() {
+		return IndexMetrics.getRegistry();
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	public JmxReporter jmxReporter(MetricRegistry metricRegistry) {
+		return JmxReporter.forRegistry(metricRegistry).inDomain("org.recap.metrics")
+				.convertDurationsTo(TimeUnit.MILLISECONDS).convertRatesTo(TimeUnit.SECONDS).build();
+	}
+
 	@Bean
 	public EmbeddedServletContainerFactory servletContainerFactory() {
 		TomcatEmbeddedServletContainerFactory factory = new TomcatEmbeddedServletContainerFactory();
@@ -11,6 +11,8 @@ public class RecapConstants {
     public static final String DOCTYPE = "DocType";
     public static final String BIB = "Bib";
     public static final String ITEM = "Item";
+    public static final String HOLDINGS = "Holdings";
+    public static final String BIB_ID = "BibId";
     public static final String HOLDINGS_ID = "HoldingsId";
     public static final String HOLDING_ID = "HoldingId";
     public static final String ITEM_ID = "ItemId";
@@ -36,6 +38,41 @@ public class RecapConstants {
 
     public static final String INCREMENTAL_DATE_FORMAT = "dd-MM-yyyy hh:mm";
 
+    public static final String SOLR_QUEUE = "seda:solrQ";
+    public static final String SOLR_CORE = "solrCore";
+    public static final String SOLR_BATCH_SEQUENCE = "solrBatchSequence";
+    public static final String SOLR_BATCH_SETTINGS = "solrBatchSettings";
+
+    //Index Fetch Modes
+    public static final String FETCH_MODE_PAGED = "Paged";
+    public static final String FETCH_MODE_KEYSET = "Keyset";
+    public static final String FETCH_MODE_STREAM = "Stream";
+
+    //Index Commit Policies
+    public static final String COMMIT_POLICY_HARD = "HardCommit";
+    public static final String COMMIT_POLICY_SOFT = "SoftCommit";
+    public static final String COMMIT_POLICY_COMMIT_WITHIN = "CommitWithin";
+    public static final String COMMIT_POLICY_END_OF_RUN = "EndOfRun";
+
+    //Index Partition Scheduling
+    public static final String PARTITION_SCHEDULING_FAIR = "Fair";
+    public static final String PARTITION_SCHEDULING_WEIGHTED = "Weighted";
+
+    //Index Job Statuses
+    public static final String INDEX_JOB_QUEUED = "Queued";
+    public static final String INDEX_JOB_RUNNING = "Running";
+    public static final String INDEX_JOB_COMPLETED = "Completed";
+    public static final String INDEX_JOB_INCOMPLETE = "Incomplete";
+    public static final String INDEX_JOB_FAILED = "Failed";
+
+    //Index Dead Letter Statuses
+    public static final String DEAD_LETTER_PENDING = "Pending";
+    public static final String DEAD_LETTER_REPLAYED = "Replayed";
+
+    //Index Quarantine Statuses
+    public static final String QUARANTINED = "Quarantined";
+    public static final String QUARANTINE_REPROCESSED = "Reprocessed";
+
     //Matching Algorithm Constants
     public static final String CSV_MATCHING_ALGO_REPORT_Q = "seda:csvMatchingAlgoReportQ";
     public static final String CSV_SUMMARY_ALGO_REPORT_Q = "seda:csvSummaryAlgoReportQ";
@@ -47,6 +84,14 @@ public class RecapConstants {
     public static final String FTP_MATCHING_ALGO_REPORT_ROUTE_ID = "ftpMatchingAlgoReportRoute";
     public static final String FTP_SUMMARY_ALGO_REPORT_ROUTE_ID = "ftpSummaryAlgoReportRoute";
 
+    public static final String ACTIVEMQ = "activemq";
+    public static final String CHANGE_FEED_ROUTE_ID = "changeFeedRoute";
+    public static final String CHANGE_FEED = "Change Feed";
+    public static final String CHANGE_TYPE_DELETE = "Delete";
+
+    public static final String INDEX_QUEUE_TRANSPORT_SEDA = "seda";
+    public static final String INDEX_QUEUE_TRANSPORT_RING_BUFFER = "ringBuffer";
+
     public static final String MATCHING_ALGO_FULL_FILE_NAME = "Matching_Algo_Phase1";
     public static final String MATCHING_ALGO_OCLC_FILE_NAME = "Matching_Algo_OCLC";
     public static final String MATCHING_ALGO_ISBN_FILE_NAME = "Matching_Algo_ISBN";
@@ -1,6 +1,7 @@
 package org.recap.admin;
 
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.response.CoreAdminResponse;
@@ -13,7 +14,10 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -25,6 +29,8 @@ public class SolrAdmin {
 
     Logger logger = LoggerFactory.getLogger(SolrAdmin.class);
 
+    private static final String BUILD_CORE_DATE_FORMAT = "yyyyMMddHHmmssSSS";
+
     @Value("${solr.configsets.dir}")
     String configSetsDir;
 
@@ -77,26 +83,15 @@ public class SolrAdmin {
         return coreAdminResponse;
     }
 
-    public void mergeCores(List<String> coreNames) {
-        List<String> tempCores = new ArrayList();
-        List<String> tempCoreNames = new ArrayList();
-
-        for (Iterator<String> iterator = coreNames.iterator(); iterator.hasNext(); ) {
-            String coreName = iterator.next();
-            tempCores.add(solrHome + File.separator + coreName + File.separator + "data" + File.separator + "index");
-            tempCoreNames.add(coreName);
-        }
-
-        String[] indexDirs = tempCores.toArray(new String[tempCores.size()]);
-        String[] tempCoreNamesObjectArray = tempCoreNames.toArray(new String[tempCores.size()]);
-        try {
-            getCoreAdminRequest().mergeIndexes(solrParentCore, indexDirs, tempCoreNamesObjectArray, solrAdminClient);
-            solrClient.commit();
-        } catch (SolrServerException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Merges the given cores into the parent core. The cores are passed as source cores only; passing their index
+     * directories as well would make Solr merge every document twice. A failed merge is thrown, so the caller can keep the
+     * cores it has not merged.
+     */
+    public void mergeCores(List<String> coreNames) throws IOException, SolrServerException {
+        String[] tempCoreNamesObjectArray = coreNames.toArray(new String[coreNames.size()]);
+        getCoreAdminRequest().mergeIndexes(solrParentCore, new String[0], tempCoreNamesObjectArray, solrAdminClient);
+        solrClient.commit();
     }
 
     public void unLoadCores(List<String> coreNames){
@@ -115,20 +110,109 @@ public class SolrAdmin {
 
 
     public void unloadTempCores() throws IOException, SolrServerException {
+        List<String> coreList = new ArrayList<String>();
+        for (String name : getCoreNames()) {
+            if (name.contains("temp")) {
+                coreList.add(name);
+            }
+        }
+
+        unLoadCores(coreList);
+    }
+
+    public List<String> getCoreNames() throws IOException, SolrServerException {
         CoreAdminRequest coreAdminRequest = getCoreAdminRequest();
 
         coreAdminRequest.setAction(CoreAdminParams.CoreAdminAction.STATUS);
         CoreAdminResponse cores = coreAdminRequest.process(solrAdminClient);
 
-        List<String> coreList = new ArrayList<String>();
+        List<String> coreNames = new ArrayList<String>();
         for (int i = 0; i < cores.getCoreStatus().size(); i++) {
-            String name = cores.getCoreStatus().getName(i);
-            if (name.contains("temp")) {
-                coreList.add(name);
+            coreNames.add(cores.getCoreStatus().getName(i));
+        }
+        return coreNames;
+    }
+
+    /**
+     * Names of the build cores of swap builds, oldest first. A build core is named after the time it was created, since
+     * a swap moves core names but not their directories: once swapped, the parent core runs from the build core's
+     * directory, so no later build core may reuse that name.
+     */
+    public List<String> getBuildCoreNames() throws IOException, SolrServerException {
+        List<String> buildCoreNames = new ArrayList<>();
+        for (String coreName : getCoreNames()) {
+            if (coreName.startsWith(getBuildCorePrefix())) {
+                buildCoreNames.add(coreName);
             }
         }
+        Collections.sort(buildCoreNames);
+        return buildCoreNames;
+    }
 
-        unLoadCores(coreList);
+    /**
+     * Creates an empty build core with a name and directory of its own. The build cores of earlier swap builds are left
+     * alone, so the index the last swap replaced can still be swapped back while this one is built.
+     */
+    public String createBuildCore() throws IOException, SolrServerException {
+        String buildCoreName = getBuildCorePrefix() + new SimpleDateFormat(BUILD_CORE_DATE_FORMAT).format(new Date());
+        CoreAdminResponse coreAdminResponse = createSolrCores(Collections.singletonList(buildCoreName));
+        if (null == coreAdminResponse || coreAdminResponse.getStatus() != 0) {
+            throw new IllegalStateException("Unable to create build core " + buildCoreName);
+        }
+        return buildCoreName;
+    }
+
+    /**
+     * Swaps the build core with the parent core, so the build core's index becomes the parent core and the replaced
+     * index is left under the build core's name to swap back to. Only then are the build cores of earlier swap builds,
+     * which held the indexes replaced before, unloaded.
+     */
+    public void swapInBuildCore(String buildCoreName) throws IOException, SolrServerException {
+        swapCores(solrParentCore, buildCoreName);
+        List<String> earlierBuildCoreNames = getBuildCoreNames();
+        earlierBuildCoreNames.remove(buildCoreName);
+        unLoadCores(earlierBuildCoreNames);
+    }
+
+    /**
+     * Unloads a build core that was not swapped in, deleting the index built in it.
+     */
+    public void dropBuildCore(String buildCoreName) {
+        unLoadCores(Collections.singletonList(buildCoreName));
+        logger.info("Dropped build core " + buildCoreName);
+    }
+
+    /**
+     * Swaps the names of the two cores in one CoreAdmin request, so searches move from one index to the other at once.
+     */
+    public void swapCores(String coreName, String otherCoreName) throws IOException, SolrServerException {
+        CoreAdminRequest coreAdminRequest = new CoreAdminRequest();
+        coreAdminRequest.setAction(CoreAdminParams.CoreAdminAction.SWAP);
+        coreAdminRequest.setCoreName(coreName);
+        coreAdminRequest.setOtherCoreName(otherCoreName);
+        coreAdminRequest.process(solrAdminClient);
+        logger.info("Swapped Solr cores " + coreName + " and " + otherCoreName);
+    }
+
+    /**
+     * Swaps the parent core with the latest build core again, putting back the index the last swap build replaced.
+     */
+    public void swapBack() throws IOException, SolrServerException {
+        List<String> buildCoreNames = getBuildCoreNames();
+        if (buildCoreNames.isEmpty()) {
+            throw new IllegalStateException("No build core to swap back to");
+        }
+        swapCores(solrParentCore, buildCoreNames.get(buildCoreNames.size() - 1));
+    }
+
+    private String getBuildCorePrefix() {
+        return solrParentCore + "_build_";
+    }
+
+    public long getDocCount(String coreName, String query) throws IOException, SolrServerException {
+        SolrQuery solrQuery = new SolrQuery(query);
+        solrQuery.setRows(0);
+        return solrAdminClient.query(coreName, solrQuery).getResults().getNumFound();
     }
 
     public CoreAdminRequest.Create getCoreAdminCreateRequest() {
@@ -1,39 +1,41 @@
 package org.recap.camel.processor;
 
 import org.apache.camel.*;
-import org.apache.camel.component.solr.SolrConstants;
-import org.apache.camel.impl.DefaultExchange;
+import org.recap.RecapConstants;
+import org.recap.executors.SolrBatchSettings;
+import org.recap.executors.SolrBatchWriter;
+import org.recap.executors.SolrIndexQueue;
+
+import java.util.List;
 
 /**
  * Created by rajeshbabuk on 30/8/16.
  */
 public class SolrPayloadProcessor implements Processor {
 
-    private String solrUri;
     private String solrCore;
-    private String solrRouterURI;
-    private ProducerTemplate producerTemplate;
-    private CamelContext camelContext;
+    private SolrBatchWriter solrBatchWriter;
+    private SolrIndexQueue solrIndexQueue;
 
-    public SolrPayloadProcessor(String solrUri, String solrCore, String solrRouterURI, ProducerTemplate producerTemplate, CamelContext camelContext) {
-        this.solrUri = solrUri;
+    public SolrPayloadProcessor(String solrCore, SolrBatchWriter solrBatchWriter, SolrIndexQueue solrIndexQueue) {
         this.solrCore = solrCore;
-        this.solrRouterURI = solrRouterURI;
-        this.producerTemplate = producerTemplate;
-        this.camelContext = camelContext;
+        this.solrBatchWriter = solrBatchWriter;
+        this.solrIndexQueue = solrIndexQueue;
     }
 
     @Override
     public void process(Exchange exchange) throws Exception {
-        Exchange exchangeWithBody = createExchangeWithBody(camelContext, exchange.getIn().getBody());
-        exchangeWithBody.getIn().setHeader(SolrConstants.OPERATION, SolrConstants.OPERATION_ADD_BEANS);
-        producerTemplate.send("solr:" + solrUri + "/" + solrCore, exchangeWithBody);
-    }
-
-    protected Exchange createExchangeWithBody(CamelContext camelContext, Object body) {
-        DefaultExchange exchange = new DefaultExchange(camelContext);
-        Message message = exchange.getIn();
-        message.setBody(body);
-        return exchange;
+        try {
+            String coreName = exchange.getIn().getHeader(RecapConstants.SOLR_CORE, solrCore, String.class);
+            SolrBatchSettings batchSettings = exchange.getIn().getHeader(RecapConstants.SOLR_BATCH_SETTINGS, SolrBatchSettings.class);
+            solrBatchWriter.add(coreName, exchange.getIn().getBody(List.class), batchSettings);
+        } finally {
+            Long batchSequence = exchange.getIn().getHeader(RecapConstants.SOLR_BATCH_SEQUENCE, Long.class);
+            if (null != batchSequence) {
+                solrIndexQueue.acknowledge(batchSequence);
+            } else {
+                solrIndexQueue.acknowledge();
+            }
+        }
     }
 }
@@ -0,0 +1,50 @@
+package org.recap.camel.route;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.builder.RouteBuilder;
+import org.recap.RecapConstants;
+import org.recap.executors.ChangeFeedIndexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes bib, holdings and item change events from the change.feed.queue ActiveMQ queue. Events are coalesced for
+ * change.feed.coalesce.millis, or until change.feed.batch.size have arrived, keeping the last event per record, and
+ * the batch is then indexed by the ChangeFeedIndexer. A message that is not a change event is redelivered by the
+ * broker and ends up on its dead letter queue.
+ */
+@Component
+public class ChangeFeedRouteBuilder {
+
+    Logger logger = LoggerFactory.getLogger(ChangeFeedRouteBuilder.class);
+
+    @Autowired
+    public ChangeFeedRouteBuilder(CamelContext camelContext, ChangeFeedIndexer changeFeedIndexer,
+                                  @Value("${change.feed.enabled}") Boolean enabled,
+                                  @Value("${change.feed.queue}") String queue,
+                                  @Value("${change.feed.coalesce.millis}") Long coalesceMillis,
+                                  @Value("${change.feed.batch.size}") Integer batchSize) {
+        if (!Boolean.TRUE.equals(enabled)) {
+            return;
+        }
+        try {
+            camelContext.addRoutes(new RouteBuilder() {
+                @Override
+                public void configure() throws Exception {
+                    from(RecapConstants.ACTIVEMQ + ":queue:" + queue)
+                            .routeId(RecapConstants.CHANGE_FEED_ROUTE_ID)
+                            .process(exchange -> exchange.getIn().setBody(ChangeFeedIndexer.parse(exchange.getIn().getBody(String.class))))
+                            .aggregate(constant(true), ChangeFeedIndexer::coalesce)
+                                .completionTimeout(coalesceMillis)
+                                .completionSize(batchSize)
+                            .process(exchange -> changeFeedIndexer.index(exchange.getIn().getBody(ChangeFeedIndexer.CoalescedChangeEvents.class).values()));
+                }
+            });
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.recap.camel.route;
 
 import org.apache.camel.CamelContext;
-import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.RouteBuilder;
 import org.recap.camel.processor.SolrPayloadProcessor;
+import org.recap.executors.SolrBatchWriter;
+import org.recap.executors.SolrIndexQueue;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,17 +21,18 @@ public class SolrRouteBuilder {
     Logger logger = LoggerFactory.getLogger(SolrRouteBuilder.class);
 
     @Autowired
-    public SolrRouteBuilder(CamelContext camelContext, ProducerTemplate producerTemplate,
-                            @Value("${solr.url}") String solrUri,
-                            @Value("${solr.router.uri.type}") String solrRouterURI,
+    public SolrRouteBuilder(CamelContext camelContext, SolrBatchWriter solrBatchWriter, SolrIndexQueue solrIndexQueue,
                             @Value("${solr.parent.core}") String solrCore) {
 
         try {
             camelContext.addRoutes(new RouteBuilder() {
                 @Override
                 public void configure() throws Exception {
-                    SolrPayloadProcessor solrPayloadProcessor = new SolrPayloadProcessor(solrUri, solrCore, solrRouterURI, producerTemplate, camelContext);
-                    from("seda:solrQ").process(solrPayloadProcessor);
+                    SolrPayloadProcessor solrPayloadProcessor = new SolrPayloadProcessor(solrCore, solrBatchWriter, solrIndexQueue);
+                    from(solrIndexQueue.getEndpointUri())
+                            .to("metrics:timer:" + IndexMetrics.SOLR_ADD + "?action=start")
+                            .process(solrPayloadProcessor)
+                            .to("metrics:timer:" + IndexMetrics.SOLR_ADD + "?action=stop");
                 }
             });
         } catch (Exception e) {
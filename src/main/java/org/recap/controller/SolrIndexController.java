@@ -7,18 +7,32 @@ import org.recap.admin.SolrAdmin;
 import org.recap.executors.BibIndexExecutorService;
 import org.recap.executors.BibItemIndexExecutorService;
 import org.recap.executors.HoldingsIndexExecutorService;
+import org.recap.executors.IndexDeadLetterStore;
+import org.recap.executors.IndexExecutorService;
+import org.recap.executors.IndexJobLauncher;
+import org.recap.executors.IndexProgress;
+import org.recap.executors.IndexQuarantine;
 import org.recap.executors.ItemIndexExecutorService;
+import org.recap.executors.ItemStatusUpdater;
+import org.recap.executors.SolrOrphanSweeper;
+import org.recap.model.jpa.IndexDeadLetterEntity;
+import org.recap.model.jpa.IndexQuarantineEntity;
 import org.recap.model.solr.SolrIndexRequest;
 import org.recap.repository.solr.main.BibSolrCrudRepository;
 import org.recap.repository.solr.main.ItemCrudRepository;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -26,7 +40,10 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Sheik on 6/18/2016.
@@ -57,6 +74,21 @@ public class SolrIndexController {
     @Autowired
     SolrAdmin solrAdmin;
 
+    @Autowired
+    IndexJobLauncher indexJobLauncher;
+
+    @Autowired
+    IndexDeadLetterStore indexDeadLetterStore;
+
+    @Autowired
+    IndexQuarantine indexQuarantine;
+
+    @Autowired
+    SolrOrphanSweeper solrOrphanSweeper;
+
+    @Autowired
+    ItemStatusUpdater itemStatusUpdater;
+
     @Value("${commit.indexes.interval}")
     public Integer commitIndexesInterval;
 
@@ -66,11 +98,14 @@ public class SolrIndexController {
         return "solrIndexer";
     }
 
+    /**
+     * Queues a job that runs the index request and returns the job id, whose progress is at /solrIndexer/jobs/{id}.
+     */
     @ResponseBody
     @RequestMapping(value = "/solrIndexer/fullIndex", method = RequestMethod.POST)
-    public String fullIndex(@Valid @ModelAttribute("solrIndexRequest") SolrIndexRequest solrIndexRequest,
-                            BindingResult result,
-                            Model model) throws Exception {
+    public Integer fullIndex(@Valid @ModelAttribute("solrIndexRequest") SolrIndexRequest solrIndexRequest,
+                             BindingResult result,
+                             Model model) throws Exception {
         String docType = solrIndexRequest.getDocType();
         Integer numberOfThread = solrIndexRequest.getNumberOfThreads();
         Integer numberOfDoc = solrIndexRequest.getNumberOfDocs();
@@ -83,15 +118,52 @@ public class SolrIndexController {
                 + "   Number of Threads : " + numberOfThread
                 + "   Number of Docs :" + numberOfDoc
                 + "   Commit Interval :" + commitInterval
-                + "   From Date : " + solrIndexRequest.getDateFrom());
+                + "   Fetch Mode : " + solrIndexRequest.getFetchMode()
+                + "   Commit Policy : " + solrIndexRequest.getCommitPolicy()
+                + "   From Date : " + solrIndexRequest.getDateFrom()
+                + "   Incremental : " + solrIndexRequest.isIncremental()
+                + "   Sharded Build : " + solrIndexRequest.isShardedBuild()
+                + "   Swap Build : " + solrIndexRequest.isSwapBuild()
+                + "   Resume : " + solrIndexRequest.isResume()
+                + "   Auto Tune : " + solrIndexRequest.isAutoTune()
+                + "   Dry Run : " + solrIndexRequest.isDryRun()
+                + "   Partition Scheduling : " + solrIndexRequest.getPartitionScheduling());
 
         Date fromDate = null;
         if (StringUtils.isNotBlank(solrIndexRequest.getDateFrom())) {
             SimpleDateFormat dateFormatter = new SimpleDateFormat(RecapConstants.INCREMENTAL_DATE_FORMAT);
             fromDate = dateFormatter.parse(solrIndexRequest.getDateFrom());
         }
+        solrIndexRequest.setFromDate(fromDate);
 
-        if (solrIndexRequest.isDoClean()) {
+        Integer jobId = isExclusive(solrIndexRequest)
+                ? indexJobLauncher.submitExclusive(docType, indexProgress -> runIndex(solrIndexRequest, indexProgress))
+                : indexJobLauncher.submit(docType, indexProgress -> runIndex(solrIndexRequest, indexProgress));
+        logger.info("Index job id : " + jobId);
+        return jobId;
+    }
+
+    /**
+     * Whether the request must run alone: a clean, a swap build and a sharded build replace or merge whole cores, which
+     * would lose or duplicate the documents of a job running next to them.
+     */
+    private boolean isExclusive(SolrIndexRequest solrIndexRequest) {
+        boolean clean = solrIndexRequest.isDoClean() && !solrIndexRequest.isDryRun() && !solrIndexRequest.isResume()
+                && !solrIndexRequest.isSwapBuild();
+        return clean || solrIndexRequest.isSwapBuild() || solrIndexRequest.isShardedBuild();
+    }
+
+    /**
+     * Runs on the index job thread, so that a clean never removes documents of a job queued before it.
+     */
+    private void runIndex(SolrIndexRequest solrIndexRequest, IndexProgress indexProgress) {
+        if (solrIndexRequest.isDoClean() && solrIndexRequest.isDryRun()) {
+            logger.info("Clean is ignored on a dry run, a dry run does not change Solr");
+        } else if (solrIndexRequest.isDoClean() && solrIndexRequest.isResume()) {
+            logger.info("Clean is ignored when resuming, the resumed job relies on the documents already indexed");
+        } else if (solrIndexRequest.isDoClean() && solrIndexRequest.isSwapBuild()) {
+            logger.info("Clean is ignored with a swap build, the build core starts empty and the parent core stays searchable");
+        } else if (solrIndexRequest.isDoClean()) {
             bibSolrCrudRepository.deleteAll();
             itemCrudRepository.deleteAll();
             try {
@@ -103,29 +175,153 @@ public class SolrIndexController {
             }
         }
 
-        String totalTimeTaken = null;
         if (solrIndexRequest.getDocType().equalsIgnoreCase("Bibs")) {
-            bibIndexExecutorService.index(solrIndexRequest);
-            totalTimeTaken = bibIndexExecutorService.getStopWatch().getTotalTimeSeconds() + " secs";
+            bibIndexExecutorService.index(solrIndexRequest, indexProgress);
         } else if (solrIndexRequest.getDocType().equalsIgnoreCase("Holdings")) {
-            holdingsIndexExecutorService.index(solrIndexRequest);
-            totalTimeTaken = holdingsIndexExecutorService.getStopWatch().getTotalTimeSeconds() + " secs";
+            holdingsIndexExecutorService.index(solrIndexRequest, indexProgress);
         } else if (solrIndexRequest.getDocType().equalsIgnoreCase("Items")) {
-            itemIndexExecutorService.index(solrIndexRequest);
-            totalTimeTaken = itemIndexExecutorService.getStopWatch().getTotalTimeSeconds() + " secs";
+            itemIndexExecutorService.index(solrIndexRequest, indexProgress);
         } else {
-            bibItemIndexExecutorService.index(solrIndexRequest);
-            totalTimeTaken = bibItemIndexExecutorService.getStopWatch().getTotalTimeSeconds() + " secs";
+            bibItemIndexExecutorService.index(solrIndexRequest, indexProgress);
         }
+    }
 
-        logger.info("Total time taken:" + totalTimeTaken);
-
-        return solrIndexer(model);
+    /**
+     * Queues a job that indexes the records changed since the last successful run of the same document type, and
+     * returns the job id. Meant to be called by a scheduler, for example nightly.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/incrementalIndex", method = RequestMethod.POST)
+    public Integer incrementalIndex(@Valid @ModelAttribute("solrIndexRequest") SolrIndexRequest solrIndexRequest,
+                                    BindingResult result,
+                                    Model model) throws Exception {
+        solrIndexRequest.setIncremental(true);
+        solrIndexRequest.setDoClean(false);
+        return fullIndex(solrIndexRequest, result, model);
     }
 
+    /**
+     * Progress of the most recently submitted index job as text, for the status box of the index page.
+     */
     @ResponseBody
     @RequestMapping(value = "/solrIndexer/report", method = RequestMethod.GET)
     public String report() {
-        return "Index process initiated!";
+        IndexProgress indexProgress = indexJobLauncher.getLatestJob();
+        return null != indexProgress ? indexProgress.getSummary() : "No index job has been submitted";
+    }
+
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/jobs", method = RequestMethod.GET)
+    public List<IndexProgress> jobs() {
+        return indexJobLauncher.getJobs();
+    }
+
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/jobs/{jobId}", method = RequestMethod.GET)
+    public ResponseEntity<IndexProgress> job(@PathVariable("jobId") Integer jobId) {
+        IndexProgress indexProgress = indexJobLauncher.getJob(jobId);
+        return null != indexProgress ? new ResponseEntity<>(indexProgress, HttpStatus.OK) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Timers and histograms of each indexing stage since startup. The same metrics are published over JMX.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/metrics", method = RequestMethod.GET)
+    public Map<String, Map<String, Number>> metrics() {
+        return IndexMetrics.getSnapshot();
+    }
+
+    /**
+     * Solr batches that failed every retry and have not been replayed yet, without their documents.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/deadLetters", method = RequestMethod.GET)
+    public List<IndexDeadLetterEntity> deadLetters() {
+        return indexDeadLetterStore.getPendingDeadLetters();
+    }
+
+    /**
+     * Sends the pending dead letters to Solr again and commits them.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/deadLetters/replay", method = RequestMethod.POST)
+    public String replayDeadLetters() {
+        int pendingCount = indexDeadLetterStore.getPendingDeadLetters().size();
+        int replayed = indexDeadLetterStore.replay();
+        return "Replayed " + replayed + " of " + pendingCount + " dead letters";
+    }
+
+    /**
+     * Records that could not be transformed by an index run and are left out of the index.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/quarantine", method = RequestMethod.GET)
+    public List<IndexQuarantineEntity> quarantine() {
+        return indexQuarantine.getQuarantinedRecords();
+    }
+
+    /**
+     * Queues a job that indexes the quarantined records again, for example after their MARC has been corrected, and
+     * returns the job id.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/quarantine/reprocess", method = RequestMethod.POST)
+    public Integer reprocessQuarantine() {
+        return indexJobLauncher.submit("Quarantine", indexProgress -> {
+            indexProgress.start();
+            int reprocessed = 0;
+            for (IndexExecutorService indexExecutorService : Arrays.asList(bibIndexExecutorService, holdingsIndexExecutorService,
+                    itemIndexExecutorService, bibItemIndexExecutorService)) {
+                try {
+                    reprocessed += indexExecutorService.reprocessQuarantined(indexProgress);
+                } catch (Exception e) {
+                    logger.error("Unable to reprocess quarantined records : " + e.getMessage());
+                    indexProgress.fail();
+                    return;
+                }
+            }
+            logger.info("Reprocessed " + reprocessed + " quarantined records");
+            indexProgress.finish(true);
+        });
+    }
+
+    /**
+     * Queues a job that deletes the documents whose bib, holdings or item row is gone from the database, and returns
+     * the job id.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/sweepOrphans", method = RequestMethod.POST)
+    public Integer sweepOrphans() {
+        return solrOrphanSweeper.submit();
+    }
+
+    /**
+     * Sets the availability, collection group and use restriction of the documents of the given items from the
+     * database, without reindexing them, and returns the number of documents updated.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/updateItemStatus", method = RequestMethod.POST)
+    public Integer updateItemStatus(@RequestBody List<Integer> itemIds) throws Exception {
+        return itemStatusUpdater.update(itemIds);
+    }
+
+    /**
+     * Queues a job that swaps the parent core with the build core again, putting back the index the last swap build
+     * replaced, and returns the job id.
+     */
+    @ResponseBody
+    @RequestMapping(value = "/solrIndexer/swapBack", method = RequestMethod.POST)
+    public Integer swapBack() {
+        return indexJobLauncher.submitExclusive("Swap Back", indexProgress -> {
+            indexProgress.start();
+            try {
+                solrAdmin.swapBack();
+                indexProgress.finish(true);
+            } catch (Exception e) {
+                logger.error("Unable to swap back the build core : " + e.getMessage());
+                indexProgress.fail();
+            }
+        });
     }
 }
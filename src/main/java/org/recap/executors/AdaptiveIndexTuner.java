@@ -0,0 +1,284 @@
+package org.recap.executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.recap.util.IndexMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Tunes the number of callables of an index run that may run at once and the Solr update batch size of the run's
+ * {@link SolrBatchSettings} while the run is going, AIMD style. Every interval the docs sent per second and the mean Solr update and database fetch latencies of
+ * the interval are compared with earlier intervals:
+ *
+ * - when either latency has climbed past latencyFactor times the best seen, concurrency is halved, and so is the batch
+ *   size when Solr is the stage that slowed down;
+ * - when the last step up made throughput worse, it is taken back and the settings are held for an interval;
+ * - otherwise one more callable may run and the batch grows by a step, up to the configured maximums.
+ *
+ * The index thread pool must be sized for the maximum concurrency; callables wrapped by the tuner wait for a permit
+ * before they start. The settings of the interval with the best throughput are logged when the tuner stops.
+ */
+public class AdaptiveIndexTuner {
+
+    Logger logger = LoggerFactory.getLogger(AdaptiveIndexTuner.class);
+
+    static final double THROUGHPUT_TOLERANCE = 0.05;
+
+    private final int maxConcurrency;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int batchStep;
+    private final double latencyFactor;
+    private final IndexProgress indexProgress;
+    private final SolrBatchSettings batchSettings;
+    private final ConcurrencyLimit concurrencyLimit;
+
+    private int concurrency;
+    private int batchSize;
+    private boolean steppedUp;
+    private boolean holding;
+    private double lastDocsPerSecond;
+    private double bestSolrLatency;
+    private double bestDbLatency;
+    private double bestDocsPerSecond;
+    private int bestConcurrency;
+    private int bestBatchSize;
+
+    private long lastSampleTime;
+    private long lastDocsSent;
+    private IntervalLatency solrUpdateLatency;
+    private IntervalLatency dbFetchLatency;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * A tuner starting from the given concurrency and the batch size of the run's batch settings.
+     */
+    public AdaptiveIndexTuner(int concurrency, int maxConcurrency, int maxBatchSize, double latencyFactor,
+                              IndexProgress indexProgress, SolrBatchSettings batchSettings) {
+        int batchSize = batchSettings.getBatchSize();
+        this.maxConcurrency = Math.max(maxConcurrency, 1);
+        this.concurrency = Math.min(Math.max(concurrency, 1), this.maxConcurrency);
+        this.batchSize = batchSize;
+        this.minBatchSize = Math.max(batchSize / 4, 1);
+        this.maxBatchSize = Math.max(maxBatchSize, batchSize);
+        this.batchStep = Math.max(batchSize / 2, 1);
+        this.latencyFactor = latencyFactor;
+        this.indexProgress = indexProgress;
+        this.batchSettings = batchSettings;
+        this.concurrencyLimit = new ConcurrencyLimit(this.concurrency);
+        this.bestConcurrency = this.concurrency;
+        this.bestBatchSize = batchSize;
+    }
+
+    /**
+     * Starts re-evaluating the settings every intervalMillis.
+     */
+    public synchronized void start(long intervalMillis) {
+        lastSampleTime = System.currentTimeMillis();
+        lastDocsSent = indexProgress.getDocsSent();
+        solrUpdateLatency = new IntervalLatency(IndexMetrics.SOLR_UPDATE);
+        dbFetchLatency = new IntervalLatency(IndexMetrics.DB_FETCH);
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("indexTuner-%d").setDaemon(true).build());
+        scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Auto-tuning from " + concurrency + " concurrent callables and Solr batch size " + batchSize
+                + ", up to " + maxConcurrency + " callables and batch size " + maxBatchSize);
+    }
+
+    /**
+     * Stops tuning and logs the best settings seen. Safe to call twice.
+     */
+    public synchronized void stop() {
+        if (null == scheduler) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        logger.info("Auto-tuning settled on " + concurrency + " concurrent callables and Solr batch size " + batchSize
+                + ". Best throughput was " + String.format("%.1f", bestDocsPerSecond) + " docs/sec with "
+                + bestConcurrency + " callables (numberOfThreads) and Solr batch size " + bestBatchSize);
+    }
+
+    public <T> List<Callable<T>> wrap(List<Callable<T>> callables) {
+        List<Callable<T>> wrappedCallables = new ArrayList<>();
+        for (Callable<T> callable : callables) {
+            wrappedCallables.add(wrap(callable));
+        }
+        return wrappedCallables;
+    }
+
+    /**
+     * Makes the callable wait until fewer than the current concurrency of the wrapped callables are running.
+     */
+    public <T> Callable<T> wrap(Callable<T> callable) {
+        return () -> {
+            concurrencyLimit.acquire();
+            try {
+                return callable.call();
+            } finally {
+                concurrencyLimit.release();
+            }
+        };
+    }
+
+    void sample() {
+        try {
+            long now = System.currentTimeMillis();
+            long docsSent = indexProgress.getDocsSent();
+            long elapsed = Math.max(now - lastSampleTime, 1);
+            double docsPerSecond = (docsSent - lastDocsSent) * 1000.0 / elapsed;
+            double solrLatency = solrUpdateLatency.next();
+            double dbLatency = dbFetchLatency.next();
+            lastSampleTime = now;
+            lastDocsSent = docsSent;
+            // Nothing was sent, e.g. while the run waits on a commit, so there is nothing to compare.
+            if (docsPerSecond > 0) {
+                adjust(docsPerSecond, solrLatency, dbLatency);
+            }
+        } catch (Exception e) {
+            logger.error("Auto-tuning sample failed : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies one tuning step for an interval with the given throughput and latencies. A latency of 0 or less is
+     * unknown and never counts as climbing.
+     */
+    synchronized void adjust(double docsPerSecond, double solrLatency, double dbLatency) {
+        if (docsPerSecond > bestDocsPerSecond) {
+            bestDocsPerSecond = docsPerSecond;
+            bestConcurrency = concurrency;
+            bestBatchSize = batchSize;
+        }
+        boolean solrSlowed = hasClimbed(solrLatency, bestSolrLatency);
+        boolean dbSlowed = hasClimbed(dbLatency, bestDbLatency);
+        bestSolrLatency = getLowest(solrLatency, bestSolrLatency);
+        bestDbLatency = getLowest(dbLatency, bestDbLatency);
+
+        if (solrSlowed || dbSlowed) {
+            setConcurrency(concurrency / 2);
+            if (solrSlowed) {
+                setBatchSize(batchSize / 2);
+            }
+            steppedUp = false;
+            logger.info("Auto-tuning backed off to " + concurrency + " callables and Solr batch size " + batchSize
+                    + " (Solr update " + String.format("%.1f", solrLatency) + " ms, DB fetch " + String.format("%.1f", dbLatency) + " ms)");
+        } else if (steppedUp && docsPerSecond < lastDocsPerSecond * (1 - THROUGHPUT_TOLERANCE)) {
+            setConcurrency(concurrency - 1);
+            setBatchSize(batchSize - batchStep);
+            steppedUp = false;
+            holding = true;
+            logger.info("Auto-tuning stepped back to " + concurrency + " callables and Solr batch size " + batchSize
+                    + " as throughput fell to " + String.format("%.1f", docsPerSecond) + " docs/sec");
+        } else if (holding) {
+            holding = false;
+        } else {
+            int previousConcurrency = concurrency;
+            int previousBatchSize = batchSize;
+            setConcurrency(concurrency + 1);
+            setBatchSize(batchSize + batchStep);
+            steppedUp = concurrency != previousConcurrency || batchSize != previousBatchSize;
+            if (steppedUp) {
+                logger.info("Auto-tuning stepped up to " + concurrency + " callables and Solr batch size " + batchSize
+                        + " at " + String.format("%.1f", docsPerSecond) + " docs/sec");
+            }
+        }
+        lastDocsPerSecond = docsPerSecond;
+    }
+
+    private boolean hasClimbed(double latency, double bestLatency) {
+        return latency > 0 && bestLatency > 0 && latency > bestLatency * latencyFactor;
+    }
+
+    private double getLowest(double latency, double bestLatency) {
+        if (latency <= 0) {
+            return bestLatency;
+        }
+        return bestLatency <= 0 ? latency : Math.min(latency, bestLatency);
+    }
+
+    private void setConcurrency(int newConcurrency) {
+        newConcurrency = Math.min(Math.max(newConcurrency, 1), maxConcurrency);
+        if (newConcurrency > concurrency) {
+            concurrencyLimit.release(newConcurrency - concurrency);
+        } else if (newConcurrency < concurrency) {
+            concurrencyLimit.reduce(concurrency - newConcurrency);
+        }
+        concurrency = newConcurrency;
+    }
+
+    private void setBatchSize(int newBatchSize) {
+        newBatchSize = Math.min(Math.max(newBatchSize, minBatchSize), maxBatchSize);
+        if (newBatchSize != batchSize) {
+            batchSize = newBatchSize;
+            batchSettings.setBatchSize(batchSize);
+        }
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    public synchronized int getBestConcurrency() {
+        return bestConcurrency;
+    }
+
+    public synchronized int getBestBatchSize() {
+        return bestBatchSize;
+    }
+
+    /**
+     * Mean latency of a timed stage over each tuning interval, from the change in the timer's count and total time.
+     * The timer's snapshot median comes from a decaying reservoir that still holds the calls of earlier intervals, so
+     * a step in latency would only show there intervals later.
+     */
+    private static class IntervalLatency {
+
+        private final String timerName;
+        private long lastCount;
+        private long lastTotalNanos;
+
+        IntervalLatency(String timerName) {
+            this.timerName = timerName;
+            this.lastCount = IndexMetrics.timer(timerName).getCount();
+            this.lastTotalNanos = IndexMetrics.getTotalNanos(timerName);
+        }
+
+        /**
+         * Mean latency in milliseconds of the stage's calls since the last call, or 0 when it had none.
+         */
+        double next() {
+            long totalNanos = IndexMetrics.getTotalNanos(timerName);
+            long count = IndexMetrics.timer(timerName).getCount();
+            long calls = count - lastCount;
+            double latency = calls > 0 ? (double) (totalNanos - lastTotalNanos) / calls / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+            lastCount = count;
+            lastTotalNanos = totalNanos;
+            return latency;
+        }
+    }
+
+    /**
+     * A semaphore whose permits can be taken away while they are held; releases then bring it back down first.
+     */
+    private static class ConcurrencyLimit extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        ConcurrencyLimit(int permits) {
+            super(permits, true);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.recap.executors;
+
+import com.google.common.collect.Lists;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.jpa.HoldingsEntity;
+import org.recap.model.jpa.ItemEntity;
+import org.recap.util.IndexMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceUnit;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Loads the associations the JSON utils walk for a whole page of records with a few IN queries. Without it every
+ * association of every record is fetched lazily, one session and one query at a time.
+ *
+ * The loaded lists are set directly on the given entities, so they must be detached, as they are once the repository
+ * call that read them has returned. Records that are only referenced by id in the Solr documents (the bibs of an item,
+ * the holdings of an item, and the items and holdings of a bib in a bib only index) are set as id-only entities.
+ */
+@Component
+public class AssociationBatchLoader {
+
+    Logger logger = LoggerFactory.getLogger(AssociationBatchLoader.class);
+
+    private static final String BIB_ITEMS_QUERY = "select bib.bibliographicId, item from BibliographicEntity bib join bib.itemEntities item " +
+            "left join fetch item.itemStatusEntity left join fetch item.collectionGroupEntity left join fetch item.institutionEntity " +
+            "where bib.bibliographicId in (:ids)";
+    private static final String BIB_HOLDINGS_QUERY = "select bib.bibliographicId, holdings from BibliographicEntity bib join bib.holdingsEntities holdings " +
+            "left join fetch holdings.institutionEntity where bib.bibliographicId in (:ids)";
+    private static final String BIB_ITEM_IDS_QUERY = "select bib.bibliographicId, item.itemId from BibliographicEntity bib join bib.itemEntities item " +
+            "where bib.bibliographicId in (:ids)";
+    private static final String BIB_HOLDINGS_IDS_QUERY = "select bib.bibliographicId, holdings.holdingsId from BibliographicEntity bib join bib.holdingsEntities holdings " +
+            "where bib.bibliographicId in (:ids)";
+    private static final String ITEM_BIB_IDS_QUERY = "select item.itemId, bib.bibliographicId from BibliographicEntity bib join bib.itemEntities item " +
+            "where item.itemId in (:ids)";
+    private static final String ITEM_HOLDINGS_IDS_QUERY = "select item.itemId, holdings.holdingsId from HoldingsEntity holdings join holdings.itemEntities item " +
+            "where item.itemId in (:ids)";
+
+    @PersistenceUnit
+    EntityManagerFactory entityManagerFactory;
+
+    @Value("${solr.index.association.batch.size}")
+    Integer idBatchSize;
+
+    /**
+     * Sets items with their status, collection group and institution, and holdings with their institution, on each bib.
+     * The bibs and holdings of the loaded items are set as id-only entities.
+     */
+    public void loadBibAssociations(List<BibliographicEntity> bibliographicEntities) {
+        Map<Integer, BibliographicEntity> bibsById = mapById(bibliographicEntities, BibliographicEntity::getBibliographicId);
+        if (bibsById.isEmpty()) {
+            return;
+        }
+        EntityManager entityManager = createEntityManager();
+        try {
+            Map<Integer, List<ItemEntity>> itemsByBibId = findGrouped(entityManager, BIB_ITEMS_QUERY, bibsById.keySet());
+            Map<Integer, List<HoldingsEntity>> holdingsByBibId = findGrouped(entityManager, BIB_HOLDINGS_QUERY, bibsById.keySet());
+            for (Map.Entry<Integer, BibliographicEntity> entry : bibsById.entrySet()) {
+                entry.getValue().setItemEntities(itemsByBibId.getOrDefault(entry.getKey(), new ArrayList<>()));
+                entry.getValue().setHoldingsEntities(holdingsByBibId.getOrDefault(entry.getKey(), new ArrayList<>()));
+            }
+            Map<Integer, ItemEntity> itemsById = new LinkedHashMap<>();
+            for (List<ItemEntity> itemEntities : itemsByBibId.values()) {
+                itemsById.putAll(mapById(itemEntities, ItemEntity::getItemId));
+            }
+            loadItemAssociations(entityManager, itemsById);
+            logger.info("Loaded " + itemsById.size() + " items and associations for " + bibsById.size() + " bibs");
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Sets the ids of the items and holdings of each bib, which is all a bib document needs from them.
+     */
+    public void loadBibAssociationIds(List<BibliographicEntity> bibliographicEntities) {
+        Map<Integer, BibliographicEntity> bibsById = mapById(bibliographicEntities, BibliographicEntity::getBibliographicId);
+        if (bibsById.isEmpty()) {
+            return;
+        }
+        EntityManager entityManager = createEntityManager();
+        try {
+            Map<Integer, List<Integer>> itemIdsByBibId = findGrouped(entityManager, BIB_ITEM_IDS_QUERY, bibsById.keySet());
+            Map<Integer, List<Integer>> holdingsIdsByBibId = findGrouped(entityManager, BIB_HOLDINGS_IDS_QUERY, bibsById.keySet());
+            for (Map.Entry<Integer, BibliographicEntity> entry : bibsById.entrySet()) {
+                entry.getValue().setItemEntities(toItemEntities(itemIdsByBibId.get(entry.getKey())));
+                entry.getValue().setHoldingsEntities(toHoldingsEntities(holdingsIdsByBibId.get(entry.getKey())));
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Sets the bibs and holdings of each item as id-only entities. Status, collection group and institution are
+     * many-to-one references the item query already resolves.
+     */
+    public void loadItemAssociations(List<ItemEntity> itemEntities) {
+        Map<Integer, ItemEntity> itemsById = mapById(itemEntities, ItemEntity::getItemId);
+        if (itemsById.isEmpty()) {
+            return;
+        }
+        EntityManager entityManager = createEntityManager();
+        try {
+            loadItemAssociations(entityManager, itemsById);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private EntityManager createEntityManager() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        // The lists set on loaded items must never be written back.
+        entityManager.setFlushMode(FlushModeType.COMMIT);
+        return entityManager;
+    }
+
+    private void loadItemAssociations(EntityManager entityManager, Map<Integer, ItemEntity> itemsById) {
+        if (itemsById.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<Integer>> bibIdsByItemId = findGrouped(entityManager, ITEM_BIB_IDS_QUERY, itemsById.keySet());
+        Map<Integer, List<Integer>> holdingsIdsByItemId = findGrouped(entityManager, ITEM_HOLDINGS_IDS_QUERY, itemsById.keySet());
+        for (Map.Entry<Integer, ItemEntity> entry : itemsById.entrySet()) {
+            entry.getValue().setBibliographicEntities(toBibliographicEntities(bibIdsByItemId.get(entry.getKey())));
+            entry.getValue().setHoldingsEntities(toHoldingsEntities(holdingsIdsByItemId.get(entry.getKey())));
+        }
+    }
+
+    /**
+     * Runs a query selecting (owner id, value) pairs for the given owner ids, in chunks of idBatchSize ids, and groups
+     * the values by owner id.
+     */
+    private <T> Map<Integer, List<T>> findGrouped(EntityManager entityManager, String query, Collection<Integer> ids) {
+        Map<Integer, List<T>> valuesById = new HashMap<>();
+        for (List<Integer> idBatch : Lists.partition(new ArrayList<>(ids), idBatchSize)) {
+            List<Object[]> rows = IndexMetrics.time(IndexMetrics.ASSOCIATION_LOAD,
+                    () -> entityManager.createQuery(query, Object[].class).setParameter("ids", idBatch).getResultList());
+            for (Object[] row : rows) {
+                List<T> values = valuesById.computeIfAbsent((Integer) row[0], id -> new ArrayList<>());
+                T value = (T) row[1];
+                if (!values.contains(value)) {
+                    values.add(value);
+                }
+            }
+        }
+        return valuesById;
+    }
+
+    private <T> Map<Integer, T> mapById(List<T> entities, Function<T, Integer> idFunction) {
+        Map<Integer, T> entitiesById = new LinkedHashMap<>();
+        if (!CollectionUtils.isEmpty(entities)) {
+            for (T entity : entities) {
+                entitiesById.put(idFunction.apply(entity), entity);
+            }
+        }
+        return entitiesById;
+    }
+
+    private List<BibliographicEntity> toBibliographicEntities(List<Integer> bibliographicIds) {
+        List<BibliographicEntity> bibliographicEntities = new ArrayList<>();
+        if (null != bibliographicIds) {
+            for (Integer bibliographicId : bibliographicIds) {
+                BibliographicEntity bibliographicEntity = new BibliographicEntity();
+                bibliographicEntity.setBibliographicId(bibliographicId);
+                bibliographicEntities.add(bibliographicEntity);
+            }
+        }
+        return bibliographicEntities;
+    }
+
+    private List<ItemEntity> toItemEntities(List<Integer> itemIds) {
+        List<ItemEntity> itemEntities = new ArrayList<>();
+        if (null != itemIds) {
+            for (Integer itemId : itemIds) {
+                ItemEntity itemEntity = new ItemEntity();
+                itemEntity.setItemId(itemId);
+                itemEntities.add(itemEntity);
+            }
+        }
+        return itemEntities;
+    }
+
+    private List<HoldingsEntity> toHoldingsEntities(List<Integer> holdingsIds) {
+        List<HoldingsEntity> holdingsEntities = new ArrayList<>();
+        if (null != holdingsIds) {
+            for (Integer holdingsId : holdingsIds) {
+                HoldingsEntity holdingsEntity = new HoldingsEntity();
+                holdingsEntity.setHoldingsId(holdingsId);
+                holdingsEntities.add(holdingsEntity);
+            }
+        }
+        return holdingsEntities;
+    }
+}
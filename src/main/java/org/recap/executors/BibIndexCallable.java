@@ -1,22 +1,16 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import com.codahale.metrics.Timer;
 import org.recap.model.jpa.BibliographicEntity;
-import org.recap.model.solr.Bib;
 import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Created by pvsubrah on 6/13/16.
@@ -27,58 +21,110 @@ public class BibIndexCallable implements Callable {
 
     Logger logger = LoggerFactory.getLogger(BibIndexCallable.class);
 
-    private final int pageNum;
-    private final int docsPerPage;
+    private int pageNum;
+    private int docsPerPage;
+    private List<Integer> bibliographicIds;
+    private Integer fromBibliographicId;
+    private Integer toBibliographicId;
+    private List<BibliographicEntity> bibliographicEntities;
     private String coreName;
     private String solrURL;
     private Integer owningInstitutionId;
     private BibliographicDetailsRepository bibliographicDetailsRepository;
-    private ProducerTemplate producerTemplate;
+    private IndexPipeline indexPipeline;
+    private AssociationBatchLoader associationBatchLoader;
+    private IndexProgress indexProgress;
 
-    public BibIndexCallable(String solrURL, String coreName, int pageNum, int docsPerPage, BibliographicDetailsRepository bibliographicDetailsRepository, Integer owningInstitutionId, ProducerTemplate producerTemplate) {
+    public BibIndexCallable(String solrURL, String coreName, int pageNum, int docsPerPage, BibliographicDetailsRepository bibliographicDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
         this.coreName = coreName;
         this.solrURL = solrURL;
         this.pageNum = pageNum;
         this.docsPerPage = docsPerPage;
         this.bibliographicDetailsRepository = bibliographicDetailsRepository;
         this.owningInstitutionId = owningInstitutionId;
-        this.producerTemplate = producerTemplate;
+        this.indexPipeline = indexPipeline;
+        this.associationBatchLoader = associationBatchLoader;
+        this.indexProgress = indexProgress;
     }
 
-    @Override
-    public Object call() throws Exception {
-
-        Page<BibliographicEntity> bibliographicEntities = owningInstitutionId == null ?
-                bibliographicDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
-                bibliographicDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId);
+    public BibIndexCallable(String solrURL, String coreName, Integer fromBibliographicId, Integer toBibliographicId, int docsPerPage, BibliographicDetailsRepository bibliographicDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, indexPipeline, associationBatchLoader, indexProgress);
+        this.fromBibliographicId = fromBibliographicId;
+        this.toBibliographicId = toBibliographicId;
+    }
 
-        logger.info("Num Bibs Fetched : " + bibliographicEntities.getNumberOfElements());
-        List<Bib> bibsToIndex = new ArrayList<>();
+    public BibIndexCallable(String solrURL, String coreName, List<Integer> bibliographicIds, BibliographicDetailsRepository bibliographicDetailsRepository, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, bibliographicIds.size(), bibliographicDetailsRepository, null, indexPipeline, associationBatchLoader, indexProgress);
+        this.bibliographicIds = bibliographicIds;
+    }
 
-        Iterator<BibliographicEntity> iterator = bibliographicEntities.iterator();
+    public BibIndexCallable(String solrURL, String coreName, List<BibliographicEntity> bibliographicEntities, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, bibliographicEntities.size(), null, null, indexPipeline, associationBatchLoader, indexProgress);
+        this.bibliographicEntities = bibliographicEntities;
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(50);
-        List<Future> futures = new ArrayList<>();
-        while(iterator.hasNext()){
-            BibliographicEntity bibliographicEntity = iterator.next();
-            Future submit = executorService.submit(new BibRecordSetupCallable(bibliographicEntity));
-            futures.add(submit);
+    @Override
+    public Object call() throws Exception {
+        if (null != bibliographicEntities) {
+            indexBibliographicEntities(bibliographicEntities);
+            return bibliographicEntities.size();
         }
 
-        for (Iterator<Future> futureIterator = futures.iterator(); futureIterator.hasNext(); ) {
-            Future future = futureIterator.next();
+        if (null != bibliographicIds) {
+            List<BibliographicEntity> bibliographicEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> bibliographicDetailsRepository.findByBibliographicIdIn(bibliographicIds));
+            indexBibliographicEntities(bibliographicEntities);
+            return bibliographicEntities.size();
+        }
 
-            Bib bib = (Bib) future.get();
-            bibsToIndex.add(bib);
+        if (null != fromBibliographicId) {
+            return indexByBibliographicIdRange();
         }
 
-        executorService.shutdown();
+        Page<BibliographicEntity> bibliographicEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> owningInstitutionId == null ?
+                bibliographicDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
+                bibliographicDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId));
 
-        logger.info("No of Bibs to index : " + bibsToIndex.size());
+        indexBibliographicEntities(bibliographicEntities.getContent());
+        return bibliographicEntities.getNumberOfElements();
+    }
 
-        if (!CollectionUtils.isEmpty(bibsToIndex)) {
-            producerTemplate.sendBody("seda:solrQ", bibsToIndex);
+    private Integer indexByBibliographicIdRange() throws Exception {
+        int numberOfBibsFetched = indexPipeline.indexPages(fromBibliographicId - 1, docsPerPage, this::readNextPage,
+                BibliographicEntity::getBibliographicId, BibRecordSetupCallable::new);
+        indexPipeline.flush();
+        return numberOfBibsFetched;
+    }
+
+    /**
+     * Reads the page of the key range after the given id. Runs on the page reader pool while the previous page is
+     * transformed.
+     */
+    private List<BibliographicEntity> readNextPage(Integer lastBibliographicId) {
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.DB_FETCH).time();
+        List<BibliographicEntity> bibliographicEntities;
+        try {
+            bibliographicEntities = owningInstitutionId == null ?
+                    bibliographicDetailsRepository.findNextPageByBibliographicIdRange(new PageRequest(0, docsPerPage), lastBibliographicId, toBibliographicId) :
+                    bibliographicDetailsRepository.findNextPageByBibliographicIdRangeAndOwningInstitutionId(new PageRequest(0, docsPerPage), lastBibliographicId, toBibliographicId, owningInstitutionId);
+        } finally {
+            context.stop();
         }
-        return bibliographicEntities.getNumberOfElements();
+        prepareBibliographicEntities(bibliographicEntities);
+        return bibliographicEntities;
+    }
+
+    private void indexBibliographicEntities(List<BibliographicEntity> bibliographicEntities) throws Exception {
+        prepareBibliographicEntities(bibliographicEntities);
+        for (BibliographicEntity bibliographicEntity : bibliographicEntities) {
+            indexPipeline.submit(new BibRecordSetupCallable(bibliographicEntity), bibliographicEntity);
+        }
+        indexPipeline.flush();
+    }
+
+    private void prepareBibliographicEntities(List<BibliographicEntity> bibliographicEntities) {
+        logger.info("Num Bibs Fetched : " + bibliographicEntities.size());
+        indexProgress.addRecordsFetched(bibliographicEntities.size());
+        IndexMetrics.histogram(IndexMetrics.DB_FETCH_SIZE).update(bibliographicEntities.size());
+        associationBatchLoader.loadBibAssociationIds(bibliographicEntities);
     }
 }
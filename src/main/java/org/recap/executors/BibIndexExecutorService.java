@@ -1,28 +1,81 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.BibliographicEntity;
 import org.recap.repository.jpa.BibliographicDetailsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * Created by pvsubrah on 6/15/16.
  */
 
 @Service
-public class BibIndexExecutorService extends IndexExecutorService {
+public class BibIndexExecutorService extends IndexExecutorService implements StreamingIndexExecutor<BibliographicEntity> {
 
     @Autowired
     BibliographicDetailsRepository bibliographicDetailsRepository;
 
     @Autowired
-    ProducerTemplate producerTemplate;
+    SolrIndexQueue solrIndexQueue;
 
     @Override
-    public Callable getCallable(String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
-        return new BibIndexCallable(solrUrl, coreName, pageNum, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, producerTemplate);
+    public Callable getCallable(IndexRun indexRun, String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
+        return new BibIndexCallable(solrUrl, coreName, pageNum, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getKeysetCallable(IndexRun indexRun, String coreName, Integer fromId, Integer toId, int docsPerPage, Integer owningInstitutionId) {
+        return new BibIndexCallable(solrUrl, coreName, fromId, toId, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getIdListCallable(IndexRun indexRun, String coreName, List<Integer> ids) {
+        return new BibIndexCallable(solrUrl, coreName, ids, bibliographicDetailsRepository, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Integer streamEntities(Integer owningInstitutionId, int batchSize, Consumer<List<BibliographicEntity>> batchConsumer) {
+        return bibliographicDetailsRepository.streamByOwningInstitutionId(owningInstitutionId, batchSize, batchConsumer);
+    }
+
+    @Override
+    public Callable<Integer> getStreamCallable(IndexRun indexRun, String coreName, List<BibliographicEntity> entities) {
+        BibIndexCallable bibIndexCallable = new BibIndexCallable(solrUrl, coreName, entities, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+        return () -> (Integer) bibIndexCallable.call();
+    }
+
+    @Override
+    protected List<Integer> getChangedIds(Date fromDate, Integer owningInstitutionId) {
+        Set<Integer> bibliographicIds = new TreeSet<>();
+        if (owningInstitutionId == null) {
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByLastUpdatedDate(fromDate));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByItemLastUpdatedDate(fromDate));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByHoldingsLastUpdatedDate(fromDate));
+        } else {
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByItemLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByHoldingsLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId));
+        }
+        return new ArrayList<>(bibliographicIds);
+    }
+
+    @Override
+    protected String getDocType() {
+        return "Bibs";
+    }
+
+    @Override
+    protected String getSolrDocType() {
+        return RecapConstants.BIB;
     }
 
     @Override
@@ -31,6 +84,16 @@ public class BibIndexExecutorService extends IndexExecutorService {
         return count.intValue();
     }
 
+    @Override
+    protected Integer getMinId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? bibliographicDetailsRepository.findMinBibliographicId() : bibliographicDetailsRepository.findMinBibliographicIdByOwningInstitutionId(owningInstitutionId);
+    }
+
+    @Override
+    protected Integer getMaxId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? bibliographicDetailsRepository.findMaxBibliographicId() : bibliographicDetailsRepository.findMaxBibliographicIdByOwningInstitutionId(owningInstitutionId);
+    }
+
     @Override
     protected String getResourceURL() {
         return bibResourceURL;
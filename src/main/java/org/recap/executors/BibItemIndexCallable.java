@@ -1,24 +1,17 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import com.codahale.metrics.Timer;
 import org.recap.model.jpa.BibliographicEntity;
-import org.recap.model.solr.Bib;
-import org.recap.model.solr.Item;
 import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.util.ConcurrentIdSet;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Created by chenchulakshmig on 21/6/16.
@@ -27,80 +20,118 @@ public class BibItemIndexCallable implements Callable {
 
     Logger logger = LoggerFactory.getLogger(BibItemIndexCallable.class);
 
-    private final int pageNum;
-    private final int docsPerPage;
+    private int pageNum;
+    private int docsPerPage;
+    private List<Integer> bibliographicIds;
+    private Integer fromBibliographicId;
+    private Integer toBibliographicId;
+    private List<BibliographicEntity> bibliographicEntities;
     private String coreName;
     private String solrURL;
     private Integer owningInstitutionId;
     private BibliographicDetailsRepository bibliographicDetailsRepository;
-    private ProducerTemplate producerTemplate;
+    private IndexPipeline indexPipeline;
+    private AssociationBatchLoader associationBatchLoader;
+    private ConcurrentIdSet emittedItemIds;
+    private ConcurrentIdSet emittedHoldingsIds;
+    private IndexProgress indexProgress;
 
-    public BibItemIndexCallable(String solrURL, String coreName, int pageNum, int docsPerPage, BibliographicDetailsRepository bibliographicDetailsRepository, Integer owningInstitutionId, ProducerTemplate producerTemplate) {
+    public BibItemIndexCallable(String solrURL, String coreName, int pageNum, int docsPerPage, BibliographicDetailsRepository bibliographicDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds, IndexProgress indexProgress) {
         this.coreName = coreName;
         this.solrURL = solrURL;
         this.pageNum = pageNum;
         this.docsPerPage = docsPerPage;
         this.bibliographicDetailsRepository = bibliographicDetailsRepository;
         this.owningInstitutionId = owningInstitutionId;
-        this.producerTemplate = producerTemplate;
+        this.indexPipeline = indexPipeline;
+        this.associationBatchLoader = associationBatchLoader;
+        this.emittedItemIds = emittedItemIds;
+        this.emittedHoldingsIds = emittedHoldingsIds;
+        this.indexProgress = indexProgress;
     }
 
-    @Override
-    public Object call() throws Exception {
+    public BibItemIndexCallable(String solrURL, String coreName, Integer fromBibliographicId, Integer toBibliographicId, int docsPerPage, BibliographicDetailsRepository bibliographicDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, indexPipeline, associationBatchLoader, emittedItemIds, emittedHoldingsIds, indexProgress);
+        this.fromBibliographicId = fromBibliographicId;
+        this.toBibliographicId = toBibliographicId;
+    }
 
-        Page<BibliographicEntity> bibliographicEntities = owningInstitutionId == null ?
-                bibliographicDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
-                bibliographicDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId);
+    public BibItemIndexCallable(String solrURL, String coreName, List<Integer> bibliographicIds, BibliographicDetailsRepository bibliographicDetailsRepository, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, bibliographicIds.size(), bibliographicDetailsRepository, null, indexPipeline, associationBatchLoader, emittedItemIds, emittedHoldingsIds, indexProgress);
+        this.bibliographicIds = bibliographicIds;
+    }
 
-        logger.info("Num Bibs Fetched : " + bibliographicEntities.getNumberOfElements());
-        List<Bib> bibsToIndex = new ArrayList<>();
-        List<Bib> holdingsToIndex = new ArrayList<>();
-        List<Item> itemsToIndex = new ArrayList<>();
+    public BibItemIndexCallable(String solrURL, String coreName, List<BibliographicEntity> bibliographicEntities, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, bibliographicEntities.size(), null, null, indexPipeline, associationBatchLoader, emittedItemIds, emittedHoldingsIds, indexProgress);
+        this.bibliographicEntities = bibliographicEntities;
+    }
 
-        Iterator<BibliographicEntity> iterator = bibliographicEntities.iterator();
+    @Override
+    public Object call() throws Exception {
+        if (null != bibliographicEntities) {
+            indexBibliographicEntities(bibliographicEntities);
+            return bibliographicEntities.size();
+        }
 
+        if (null != bibliographicIds) {
+            List<BibliographicEntity> bibliographicEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> bibliographicDetailsRepository.findByBibliographicIdIn(bibliographicIds));
+            indexBibliographicEntities(bibliographicEntities);
+            return bibliographicEntities.size();
+        }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(50);
-        List<Future> futures = new ArrayList<>();
-        while(iterator.hasNext()){
-            BibliographicEntity bibliographicEntity = iterator.next();
-            Future submit = executorService.submit(new BibItemRecordSetupCallable(bibliographicEntity));
-            futures.add(submit);
+        if (null != fromBibliographicId) {
+            return indexByBibliographicIdRange();
         }
 
-        logger.info("Num futures to prepare Bib and Associated data : " + futures.size());
+        Page<BibliographicEntity> bibliographicEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> owningInstitutionId == null ?
+                bibliographicDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
+                bibliographicDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId));
+
+        indexBibliographicEntities(bibliographicEntities.getContent());
+        return bibliographicEntities.getNumberOfElements();
+    }
+
+    private Integer indexByBibliographicIdRange() throws Exception {
+        int numberOfBibsFetched = indexPipeline.indexPages(fromBibliographicId - 1, docsPerPage, this::readNextPage,
+                BibliographicEntity::getBibliographicId, this::getRecordSetupCallable);
+        indexPipeline.flush();
+        return numberOfBibsFetched;
+    }
 
+    /**
+     * Reads the page of the key range after the given id. Runs on the page reader pool while the previous page is
+     * transformed.
+     */
+    private List<BibliographicEntity> readNextPage(Integer lastBibliographicId) {
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.DB_FETCH).time();
+        List<BibliographicEntity> bibliographicEntities;
         try {
-            for (Iterator<Future> futureIterator = futures.iterator(); futureIterator.hasNext(); ) {
-                Future future = futureIterator.next();
-
-                Map<String, List> stringListMap = (Map<String, List>) future.get();
-                List bibs = stringListMap.get("Bib");
-                bibsToIndex.addAll(bibs);
-                List holdings = stringListMap.get("Holdings");
-                holdingsToIndex.addAll(holdings);
-                List items = stringListMap.get("Item");
-                itemsToIndex.addAll(items);
-            }
-        } catch (Exception e) {
-            logger.error("Exception  : " +e.getMessage());
+            bibliographicEntities = owningInstitutionId == null ?
+                    bibliographicDetailsRepository.findNextPageByBibliographicIdRange(new PageRequest(0, docsPerPage), lastBibliographicId, toBibliographicId) :
+                    bibliographicDetailsRepository.findNextPageByBibliographicIdRangeAndOwningInstitutionId(new PageRequest(0, docsPerPage), lastBibliographicId, toBibliographicId, owningInstitutionId);
+        } finally {
+            context.stop();
         }
+        prepareBibliographicEntities(bibliographicEntities);
+        return bibliographicEntities;
+    }
 
-        logger.info("No of Bibs to index : " + bibsToIndex.size());
-        logger.info("No of Holdings to index : " + holdingsToIndex.size());
-        logger.info("No of Items to index : " + itemsToIndex.size());
+    private void indexBibliographicEntities(List<BibliographicEntity> bibliographicEntities) throws Exception {
+        prepareBibliographicEntities(bibliographicEntities);
+        for (BibliographicEntity bibliographicEntity : bibliographicEntities) {
+            indexPipeline.submit(getRecordSetupCallable(bibliographicEntity), bibliographicEntity);
+        }
+        indexPipeline.flush();
+    }
 
-        executorService.shutdown();
+    private Callable getRecordSetupCallable(BibliographicEntity bibliographicEntity) {
+        return new BibItemRecordSetupCallable(bibliographicEntity, emittedItemIds, emittedHoldingsIds);
+    }
 
-        if (!CollectionUtils.isEmpty(bibsToIndex)) {
-            producerTemplate.sendBody("seda:solrQ", bibsToIndex);
-        }
-        if (!CollectionUtils.isEmpty(holdingsToIndex)) {
-            producerTemplate.sendBody("seda:solrQ", holdingsToIndex);
-        }
-        if (!CollectionUtils.isEmpty(itemsToIndex)) {
-            producerTemplate.sendBody("seda:solrQ", itemsToIndex);
-        }
-        return bibliographicEntities.getNumberOfElements();
+    private void prepareBibliographicEntities(List<BibliographicEntity> bibliographicEntities) {
+        logger.info("Num Bibs Fetched : " + bibliographicEntities.size());
+        indexProgress.addRecordsFetched(bibliographicEntities.size());
+        IndexMetrics.histogram(IndexMetrics.DB_FETCH_SIZE).update(bibliographicEntities.size());
+        associationBatchLoader.loadBibAssociations(bibliographicEntities);
     }
 }
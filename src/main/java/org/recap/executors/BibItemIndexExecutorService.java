@@ -1,27 +1,100 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.solr.SolrIndexRequest;
 import org.recap.repository.jpa.BibliographicDetailsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * Created by chenchulakshmig on 21/6/16.
  */
 @Service
-public class BibItemIndexExecutorService extends IndexExecutorService {
+public class BibItemIndexExecutorService extends IndexExecutorService implements StreamingIndexExecutor<BibliographicEntity> {
 
     @Autowired
     BibliographicDetailsRepository bibliographicDetailsRepository;
 
     @Autowired
-    ProducerTemplate producerTemplate;
+    SolrIndexQueue solrIndexQueue;
 
+    /**
+     * Items and holdings shared by several bibs are built and sent once per run: the ids emitted so far are kept by
+     * the run.
+     */
     @Override
-    public Callable getCallable(String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
-        return new BibItemIndexCallable(solrUrl, coreName, pageNum, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, producerTemplate);
+    protected boolean indexByOwningInstitutionId(SolrIndexRequest solrIndexRequest, IndexRun indexRun) {
+        boolean completed = super.indexByOwningInstitutionId(solrIndexRequest, indexRun);
+        logger.info("Distinct items indexed : " + indexRun.getEmittedItemIds().size() + "   Distinct holdings indexed : " + indexRun.getEmittedHoldingsIds().size());
+        return completed;
+    }
+
+    @Override
+    public Callable getCallable(IndexRun indexRun, String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
+        return new BibItemIndexCallable(solrUrl, coreName, pageNum, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getEmittedItemIds(), indexRun.getEmittedHoldingsIds(), indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getKeysetCallable(IndexRun indexRun, String coreName, Integer fromId, Integer toId, int docsPerPage, Integer owningInstitutionId) {
+        return new BibItemIndexCallable(solrUrl, coreName, fromId, toId, docsPerPage, bibliographicDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getEmittedItemIds(), indexRun.getEmittedHoldingsIds(), indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getIdListCallable(IndexRun indexRun, String coreName, List<Integer> ids) {
+        return new BibItemIndexCallable(solrUrl, coreName, ids, bibliographicDetailsRepository, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getEmittedItemIds(), indexRun.getEmittedHoldingsIds(), indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Integer streamEntities(Integer owningInstitutionId, int batchSize, Consumer<List<BibliographicEntity>> batchConsumer) {
+        return bibliographicDetailsRepository.streamByOwningInstitutionId(owningInstitutionId, batchSize, batchConsumer);
+    }
+
+    @Override
+    public Callable<Integer> getStreamCallable(IndexRun indexRun, String coreName, List<BibliographicEntity> entities) {
+        BibItemIndexCallable bibItemIndexCallable = new BibItemIndexCallable(solrUrl, coreName, entities, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getEmittedItemIds(), indexRun.getEmittedHoldingsIds(), indexRun.getIndexProgress());
+        return () -> (Integer) bibItemIndexCallable.call();
+    }
+
+    @Override
+    protected List<Integer> getChangedIds(Date fromDate, Integer owningInstitutionId) {
+        Set<Integer> bibliographicIds = new TreeSet<>();
+        if (owningInstitutionId == null) {
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByLastUpdatedDate(fromDate));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByItemLastUpdatedDate(fromDate));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByHoldingsLastUpdatedDate(fromDate));
+        } else {
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByItemLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId));
+            bibliographicIds.addAll(bibliographicDetailsRepository.findBibliographicIdsByHoldingsLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId));
+        }
+        return new ArrayList<>(bibliographicIds);
+    }
+
+    @Override
+    protected String getDocType() {
+        return "BibItems";
+    }
+
+    @Override
+    protected String getSolrDocType() {
+        return RecapConstants.BIB;
+    }
+
+    /**
+     * Bibs are indexed with their items and holdings, so a build core written here holds every document type.
+     */
+    @Override
+    protected boolean isSwapBuildSupported() {
+        return true;
     }
 
     @Override
@@ -30,6 +103,16 @@ public class BibItemIndexExecutorService extends IndexExecutorService {
         return count.intValue();
     }
 
+    @Override
+    protected Integer getMinId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? bibliographicDetailsRepository.findMinBibliographicId() : bibliographicDetailsRepository.findMinBibliographicIdByOwningInstitutionId(owningInstitutionId);
+    }
+
+    @Override
+    protected Integer getMaxId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? bibliographicDetailsRepository.findMaxBibliographicId() : bibliographicDetailsRepository.findMaxBibliographicIdByOwningInstitutionId(owningInstitutionId);
+    }
+
     @Override
     protected String getResourceURL() {
         return bibResourceURL;
@@ -4,6 +4,7 @@ import org.recap.model.jpa.BibliographicEntity;
 import org.recap.model.jpa.HoldingsEntity;
 import org.recap.model.jpa.ItemEntity;
 import org.recap.util.BibJSONUtil;
+import org.recap.util.ConcurrentIdSet;
 
 import java.util.List;
 import java.util.Map;
@@ -15,14 +16,26 @@ import java.util.concurrent.Callable;
 public class BibItemRecordSetupCallable implements Callable {
 
     BibliographicEntity bibliographicEntity;
+    ConcurrentIdSet emittedItemIds;
+    ConcurrentIdSet emittedHoldingsIds;
 
     public BibItemRecordSetupCallable(BibliographicEntity bibliographicEntity) {
         this.bibliographicEntity = bibliographicEntity;
     }
 
+    /**
+     * Leaves out the items and holdings already emitted by the run, see
+     * {@link BibJSONUtil#generateBibAndItemsForIndex(BibliographicEntity, ConcurrentIdSet, ConcurrentIdSet)}.
+     */
+    public BibItemRecordSetupCallable(BibliographicEntity bibliographicEntity, ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds) {
+        this(bibliographicEntity);
+        this.emittedItemIds = emittedItemIds;
+        this.emittedHoldingsIds = emittedHoldingsIds;
+    }
+
     @Override
     public Object call() throws Exception {
-        Map<String, List> stringListMap = new BibJSONUtil().generateBibAndItemsForIndex(bibliographicEntity);
+        Map<String, List> stringListMap = new BibJSONUtil().generateBibAndItemsForIndex(bibliographicEntity, emittedItemIds, emittedHoldingsIds);
         return stringListMap ;
     }
 }
@@ -0,0 +1,174 @@
+package org.recap.executors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.camel.Exchange;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.recap.RecapConstants;
+import org.recap.model.solr.ChangeEvent;
+import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.repository.jpa.HoldingsDetailsRepository;
+import org.recap.repository.jpa.ItemDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Indexes the bib, holdings and item rows named by a batch of change feed events into the parent core. The rows of
+ * each document type are loaded in one go and mapped by the same callables and JSON utils as an index run, and their
+ * documents are written with change.feed.commit.within.millis, so a change is searchable within seconds. The documents
+ * of deleted rows are deleted by record id.
+ *
+ * Records that fail to transform are quarantined as they would be by an index run of their document type.
+ */
+@Component
+public class ChangeFeedIndexer {
+
+    Logger logger = LoggerFactory.getLogger(ChangeFeedIndexer.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    BibliographicDetailsRepository bibliographicDetailsRepository;
+
+    @Autowired
+    HoldingsDetailsRepository holdingsDetailsRepository;
+
+    @Autowired
+    ItemDetailsRepository itemDetailsRepository;
+
+    @Autowired
+    AssociationBatchLoader associationBatchLoader;
+
+    @Autowired
+    IndexExecutorRegistry indexExecutorRegistry;
+
+    @Autowired
+    IndexQuarantine indexQuarantine;
+
+    @Autowired
+    SolrBatchWriter solrBatchWriter;
+
+    @Autowired
+    SolrClient solrClient;
+
+    @Value("${solr.url}")
+    String solrUrl;
+
+    @Value("${solr.parent.core}")
+    String solrCore;
+
+    @Value("${solr.index.pipeline.transform.window}")
+    Integer pipelineTransformWindow;
+
+    @Value("${solr.index.pipeline.send.batch.size}")
+    Integer pipelineSendBatchSize;
+
+    @Value("${change.feed.commit.within.millis}")
+    Integer commitWithinMillis;
+
+    /**
+     * Reads a change event from its JSON form.
+     */
+    public static ChangeEvent parse(String message) throws IOException {
+        return objectMapper.readValue(message, ChangeEvent.class);
+    }
+
+    /**
+     * Aggregation strategy of the change feed route. Collects the events into a map by document type and id, so only
+     * the last event for a record within the window is kept.
+     */
+    public static Exchange coalesce(Exchange oldExchange, Exchange newExchange) {
+        ChangeEvent changeEvent = newExchange.getIn().getBody(ChangeEvent.class);
+        CoalescedChangeEvents changeEvents = null != oldExchange ? oldExchange.getIn().getBody(CoalescedChangeEvents.class) : new CoalescedChangeEvents();
+        String key = changeEvent.getDocType() + ":" + changeEvent.getId();
+        changeEvents.remove(key);
+        changeEvents.put(key, changeEvent);
+        Exchange exchange = null != oldExchange ? oldExchange : newExchange;
+        exchange.getIn().setBody(changeEvents);
+        return exchange;
+    }
+
+    /**
+     * Indexes or deletes the documents of the records the events name. A failure of one document type is logged and
+     * does not stop the others; its records are picked up by the next incremental run.
+     */
+    public IndexProgress index(Collection<ChangeEvent> changeEvents) {
+        Map<String, List<Integer>> changedIds = new LinkedHashMap<>();
+        Map<String, List<Integer>> deletedIds = new LinkedHashMap<>();
+        for (ChangeEvent changeEvent : changeEvents) {
+            if (null == changeEvent.getId() || null == getIdField(changeEvent.getDocType())) {
+                logger.info("Ignoring change event of " + changeEvent.getDocType() + " " + changeEvent.getId());
+                continue;
+            }
+            Map<String, List<Integer>> ids = RecapConstants.CHANGE_TYPE_DELETE.equalsIgnoreCase(changeEvent.getChangeType()) ? deletedIds : changedIds;
+            ids.computeIfAbsent(changeEvent.getDocType(), docType -> new ArrayList<>()).add(changeEvent.getId());
+        }
+
+        IndexProgress indexProgress = new IndexProgress(null, RecapConstants.CHANGE_FEED);
+        indexProgress.start();
+        boolean completed = true;
+        for (Map.Entry<String, List<Integer>> entry : changedIds.entrySet()) {
+            try {
+                indexProgress.setTotalRecords(indexProgress.getTotalRecords() + entry.getValue().size());
+                getIdListCallable(entry.getKey(), entry.getValue(), indexProgress).call();
+            } catch (Exception e) {
+                completed = false;
+                logger.error("Unable to index " + entry.getValue().size() + " changed " + entry.getKey() + " records : " + e.getMessage());
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : deletedIds.entrySet()) {
+            try {
+                solrClient.deleteByQuery(RecapConstants.DOCTYPE + ":" + entry.getKey() + " AND " + getIdField(entry.getKey())
+                        + ":(" + StringUtils.join(entry.getValue(), " OR ") + ")", commitWithinMillis);
+            } catch (Exception e) {
+                completed = false;
+                logger.error("Unable to delete the documents of " + entry.getValue().size() + " deleted " + entry.getKey() + " records : " + e.getMessage());
+            }
+        }
+        indexProgress.finish(completed);
+        logger.info("Change feed indexed " + changedIds + " and deleted " + deletedIds + " : " + indexProgress.getSummary());
+        return indexProgress;
+    }
+
+    private Callable<?> getIdListCallable(String docType, List<Integer> ids, IndexProgress indexProgress) {
+        if (RecapConstants.BIB.equals(docType)) {
+            return new BibIndexCallable(solrUrl, solrCore, ids, bibliographicDetailsRepository, newIndexPipeline("Bibs", indexProgress),
+                    associationBatchLoader, indexProgress);
+        } else if (RecapConstants.HOLDINGS.equals(docType)) {
+            return new HoldingsIndexCallable(solrCore, ids, holdingsDetailsRepository, newIndexPipeline("Holdings", indexProgress), indexProgress);
+        }
+        return new ItemIndexCallable(solrUrl, solrCore, ids, itemDetailsRepository, newIndexPipeline("Items", indexProgress),
+                associationBatchLoader, indexProgress);
+    }
+
+    private IndexPipeline newIndexPipeline(String quarantineDocType, IndexProgress indexProgress) {
+        IndexPipeline indexPipeline = new IndexPipeline(solrCore, indexExecutorRegistry.getRecordSetupExecutor(), indexExecutorRegistry.getPageReaderExecutor(),
+                new CommitWithinIndexQueue(solrBatchWriter, commitWithinMillis), indexProgress, pipelineTransformWindow, pipelineSendBatchSize);
+        indexPipeline.setIndexQuarantine(indexQuarantine, quarantineDocType);
+        return indexPipeline;
+    }
+
+    private String getIdField(String docType) {
+        if (RecapConstants.BIB.equals(docType)) {
+            return RecapConstants.BIB_ID;
+        } else if (RecapConstants.HOLDINGS.equals(docType)) {
+            return RecapConstants.HOLDING_ID;
+        } else if (RecapConstants.ITEM.equals(docType)) {
+            return RecapConstants.ITEM_ID;
+        }
+        return null;
+    }
+
+    /**
+     * The events of one change feed window by document type and id, the body the change feed route aggregates into.
+     */
+    public static class CoalescedChangeEvents extends LinkedHashMap<String, ChangeEvent> {
+    }
+}
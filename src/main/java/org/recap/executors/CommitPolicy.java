@@ -0,0 +1,26 @@
+package org.recap.executors;
+
+/**
+ * Decides how documents sent during an index run are made visible in Solr. Every run ends with a hard commit once all
+ * documents have been written; the policy covers what happens before that.
+ */
+public interface CommitPolicy {
+
+    String getName();
+
+    /**
+     * Whether index threads stop at the end of each commit interval until everything sent so far is in Solr. Only then
+     * does the commit made by {@link #afterInterval} cover all documents of the interval.
+     */
+    boolean isIntervalBarrier();
+
+    /**
+     * The commitWithin, in milliseconds, to send with every update request, or 0 for none.
+     */
+    int getCommitWithin();
+
+    /**
+     * Called each time a commit interval worth of callables has completed.
+     */
+    void afterInterval(SolrBatchWriter solrBatchWriter, String coreName) throws Exception;
+}
@@ -0,0 +1,47 @@
+package org.recap.executors;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A queue that writes each batch to Solr on the sending thread as one update request with its own commitWithin, in
+ * place of any batch settings it is sent with. A send returns once the batch is in Solr, so nothing is ever in flight.
+ */
+public class CommitWithinIndexQueue extends SolrIndexQueue {
+
+    private final SolrBatchWriter solrBatchWriter;
+    private final int commitWithin;
+
+    public CommitWithinIndexQueue(SolrBatchWriter solrBatchWriter, int commitWithin) {
+        this.solrBatchWriter = solrBatchWriter;
+        this.commitWithin = commitWithin;
+    }
+
+    @Override
+    public void send(String coreName, List<?> documents, SolrBatchSettings batchSettings) {
+        List<SolrInputDocument> batch = new ArrayList<>();
+        for (Object document : documents) {
+            batch.add(solrBatchWriter.toSolrInputDocument(document));
+        }
+        try {
+            solrBatchWriter.write(coreName, batch, commitWithin);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void acknowledge() {
+    }
+
+    @Override
+    public void awaitAcknowledged() {
+    }
+
+    @Override
+    public int getInFlightBatchCount() {
+        return 0;
+    }
+}
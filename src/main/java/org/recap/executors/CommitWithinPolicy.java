@@ -0,0 +1,34 @@
+package org.recap.executors;
+
+import org.recap.RecapConstants;
+
+/**
+ * Leaves commits during the run to Solr by sending commitWithin with every update request.
+ */
+public class CommitWithinPolicy implements CommitPolicy {
+
+    private int commitWithin;
+
+    public CommitWithinPolicy(int commitWithin) {
+        this.commitWithin = commitWithin;
+    }
+
+    @Override
+    public String getName() {
+        return RecapConstants.COMMIT_POLICY_COMMIT_WITHIN;
+    }
+
+    @Override
+    public boolean isIntervalBarrier() {
+        return false;
+    }
+
+    @Override
+    public int getCommitWithin() {
+        return commitWithin;
+    }
+
+    @Override
+    public void afterInterval(SolrBatchWriter solrBatchWriter, String coreName) throws Exception {
+    }
+}
@@ -0,0 +1,28 @@
+package org.recap.executors;
+
+import org.recap.RecapConstants;
+
+/**
+ * Makes no commits until the run is over. Fastest for a full rebuild of a core that is not being searched.
+ */
+public class EndOfRunCommitPolicy implements CommitPolicy {
+
+    @Override
+    public String getName() {
+        return RecapConstants.COMMIT_POLICY_END_OF_RUN;
+    }
+
+    @Override
+    public boolean isIntervalBarrier() {
+        return false;
+    }
+
+    @Override
+    public int getCommitWithin() {
+        return 0;
+    }
+
+    @Override
+    public void afterInterval(SolrBatchWriter solrBatchWriter, String coreName) throws Exception {
+    }
+}
@@ -0,0 +1,30 @@
+package org.recap.executors;
+
+import org.recap.RecapConstants;
+
+/**
+ * Stops the index threads at every commit interval and issues a hard commit that opens a new searcher. This is the
+ * behaviour index runs had before commit policies existed.
+ */
+public class HardCommitPolicy implements CommitPolicy {
+
+    @Override
+    public String getName() {
+        return RecapConstants.COMMIT_POLICY_HARD;
+    }
+
+    @Override
+    public boolean isIntervalBarrier() {
+        return true;
+    }
+
+    @Override
+    public int getCommitWithin() {
+        return 0;
+    }
+
+    @Override
+    public void afterInterval(SolrBatchWriter solrBatchWriter, String coreName) throws Exception {
+        solrBatchWriter.commit(coreName, false, true);
+    }
+}
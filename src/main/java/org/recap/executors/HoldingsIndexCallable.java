@@ -1,22 +1,16 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
-import org.apache.commons.collections.CollectionUtils;
+import com.codahale.metrics.Timer;
 import org.recap.model.jpa.HoldingsEntity;
-import org.recap.model.solr.Holdings;
 import org.recap.repository.jpa.HoldingsDetailsRepository;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Created by rajeshbabuk on 13/9/16.
@@ -25,54 +19,94 @@ public class HoldingsIndexCallable implements Callable {
 
     Logger logger = LoggerFactory.getLogger(HoldingsIndexCallable.class);
 
-    private final int pageNum;
-    private final int docsPerPage;
+    private String coreName;
+    private int pageNum;
+    private int docsPerPage;
+    private List<Integer> holdingsIds;
+    private Integer fromHoldingsId;
+    private Integer toHoldingsId;
     private Integer owningInstitutionId;
     private HoldingsDetailsRepository holdingsDetailsRepository;
-    private ProducerTemplate producerTemplate;
+    private IndexPipeline indexPipeline;
+    private IndexProgress indexProgress;
 
-    public HoldingsIndexCallable(int pageNum, int docsPerPage, HoldingsDetailsRepository holdingsDetailsRepository, Integer owningInstitutionId, ProducerTemplate producerTemplate) {
+    public HoldingsIndexCallable(String coreName, int pageNum, int docsPerPage, HoldingsDetailsRepository holdingsDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, IndexProgress indexProgress) {
+        this.coreName = coreName;
         this.pageNum = pageNum;
         this.docsPerPage = docsPerPage;
         this.holdingsDetailsRepository = holdingsDetailsRepository;
         this.owningInstitutionId = owningInstitutionId;
-        this.producerTemplate = producerTemplate;
+        this.indexPipeline = indexPipeline;
+        this.indexProgress = indexProgress;
+    }
+
+    public HoldingsIndexCallable(String coreName, Integer fromHoldingsId, Integer toHoldingsId, int docsPerPage, HoldingsDetailsRepository holdingsDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, IndexProgress indexProgress) {
+        this(coreName, 0, docsPerPage, holdingsDetailsRepository, owningInstitutionId, indexPipeline, indexProgress);
+        this.fromHoldingsId = fromHoldingsId;
+        this.toHoldingsId = toHoldingsId;
+    }
+
+    public HoldingsIndexCallable(String coreName, List<Integer> holdingsIds, HoldingsDetailsRepository holdingsDetailsRepository, IndexPipeline indexPipeline, IndexProgress indexProgress) {
+        this(coreName, 0, holdingsIds.size(), holdingsDetailsRepository, null, indexPipeline, indexProgress);
+        this.holdingsIds = holdingsIds;
     }
 
     @Override
     public Object call() throws Exception {
+        if (null != holdingsIds) {
+            List<HoldingsEntity> holdingsEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> holdingsDetailsRepository.findByHoldingsIdIn(holdingsIds));
+            indexHoldingsEntities(holdingsEntities);
+            return holdingsEntities.size();
+        }
 
-        Page<HoldingsEntity> holdingsEntities = owningInstitutionId == null ?
+        if (null != fromHoldingsId) {
+            return indexByHoldingsIdRange();
+        }
+
+        Page<HoldingsEntity> holdingsEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> owningInstitutionId == null ?
                 holdingsDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
-                holdingsDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId);
+                holdingsDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId));
 
-        logger.info("Num Holdings Fetched : " + holdingsEntities.getNumberOfElements());
-        List<Holdings> holdingsToIndex = new ArrayList<>();
+        indexHoldingsEntities(holdingsEntities.getContent());
+        return holdingsEntities.getNumberOfElements();
+    }
 
-        Iterator<HoldingsEntity> iterator = holdingsEntities.iterator();
+    private Integer indexByHoldingsIdRange() throws Exception {
+        int numberOfHoldingsFetched = indexPipeline.indexPages(fromHoldingsId - 1, docsPerPage, this::readNextPage,
+                HoldingsEntity::getHoldingsId, HoldingsRecordSetupCallable::new);
+        indexPipeline.flush();
+        return numberOfHoldingsFetched;
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(50);
-        List<Future> futures = new ArrayList<>();
-        while (iterator.hasNext()) {
-            HoldingsEntity holdingsEntity = iterator.next();
-            Future submit = executorService.submit(new HoldingsRecordSetupCallable(holdingsEntity));
-            futures.add(submit);
+    /**
+     * Reads the page of the key range after the given id. Runs on the page reader pool while the previous page is
+     * transformed.
+     */
+    private List<HoldingsEntity> readNextPage(Integer lastHoldingsId) {
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.DB_FETCH).time();
+        List<HoldingsEntity> holdingsEntities;
+        try {
+            holdingsEntities = owningInstitutionId == null ?
+                    holdingsDetailsRepository.findNextPageByHoldingsIdRange(new PageRequest(0, docsPerPage), lastHoldingsId, toHoldingsId) :
+                    holdingsDetailsRepository.findNextPageByHoldingsIdRangeAndOwningInstitutionId(new PageRequest(0, docsPerPage), lastHoldingsId, toHoldingsId, owningInstitutionId);
+        } finally {
+            context.stop();
         }
+        prepareHoldingsEntities(holdingsEntities);
+        return holdingsEntities;
+    }
 
-        for (Iterator<Future> futureIterator = futures.iterator(); futureIterator.hasNext(); ) {
-            Future future = futureIterator.next();
-
-            Holdings holdings = (Holdings) future.get();
-            holdingsToIndex.add(holdings);
+    private void indexHoldingsEntities(List<HoldingsEntity> holdingsEntities) throws Exception {
+        prepareHoldingsEntities(holdingsEntities);
+        for (HoldingsEntity holdingsEntity : holdingsEntities) {
+            indexPipeline.submit(new HoldingsRecordSetupCallable(holdingsEntity), holdingsEntity);
         }
+        indexPipeline.flush();
+    }
 
-        executorService.shutdown();
-
-        logger.info("No of Holdings to index : " + holdingsToIndex.size());
-
-        if (!CollectionUtils.isEmpty(holdingsToIndex)) {
-            producerTemplate.sendBody("seda:solrQ", holdingsToIndex);
-        }
-        return holdingsEntities.getNumberOfElements();
+    private void prepareHoldingsEntities(List<HoldingsEntity> holdingsEntities) {
+        logger.info("Num Holdings Fetched : " + holdingsEntities.size());
+        indexProgress.addRecordsFetched(holdingsEntities.size());
+        IndexMetrics.histogram(IndexMetrics.DB_FETCH_SIZE).update(holdingsEntities.size());
     }
 }
@@ -1,10 +1,12 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import org.recap.RecapConstants;
 import org.recap.repository.jpa.HoldingsDetailsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -17,12 +19,37 @@ public class HoldingsIndexExecutorService extends IndexExecutorService {
     HoldingsDetailsRepository holdingsDetailsRepository;
 
     @Autowired
-    ProducerTemplate producerTemplate;
+    SolrIndexQueue solrIndexQueue;
 
 
     @Override
-    public Callable getCallable(String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
-        return new HoldingsIndexCallable(pageNum, docsPerPage, holdingsDetailsRepository, owningInstitutionId, producerTemplate);
+    public Callable getCallable(IndexRun indexRun, String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
+        return new HoldingsIndexCallable(coreName, pageNum, docsPerPage, holdingsDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getKeysetCallable(IndexRun indexRun, String coreName, Integer fromId, Integer toId, int docsPerPage, Integer owningInstitutionId) {
+        return new HoldingsIndexCallable(coreName, fromId, toId, docsPerPage, holdingsDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getIdListCallable(IndexRun indexRun, String coreName, List<Integer> ids) {
+        return new HoldingsIndexCallable(coreName, ids, holdingsDetailsRepository, newIndexPipeline(indexRun, coreName), indexRun.getIndexProgress());
+    }
+
+    @Override
+    protected List<Integer> getChangedIds(Date fromDate, Integer owningInstitutionId) {
+        return owningInstitutionId == null ? holdingsDetailsRepository.findHoldingsIdsByLastUpdatedDate(fromDate) : holdingsDetailsRepository.findHoldingsIdsByLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId);
+    }
+
+    @Override
+    protected String getDocType() {
+        return "Holdings";
+    }
+
+    @Override
+    protected String getSolrDocType() {
+        return RecapConstants.HOLDINGS;
     }
 
     @Override
@@ -31,6 +58,16 @@ public class HoldingsIndexExecutorService extends IndexExecutorService {
         return count.intValue();
     }
 
+    @Override
+    protected Integer getMinId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? holdingsDetailsRepository.findMinHoldingsId() : holdingsDetailsRepository.findMinHoldingsIdByOwningInstitutionId(owningInstitutionId);
+    }
+
+    @Override
+    protected Integer getMaxId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? holdingsDetailsRepository.findMaxHoldingsId() : holdingsDetailsRepository.findMaxHoldingsIdByOwningInstitutionId(owningInstitutionId);
+    }
+
     @Override
     protected String getResourceURL() {
         return null;
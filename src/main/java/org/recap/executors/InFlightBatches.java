@@ -0,0 +1,51 @@
+package org.recap.executors;
+
+import java.util.TreeSet;
+
+/**
+ * Sequence numbers of the batches handed on and not yet acknowledged. A caller waiting for the batches handed on
+ * before it takes the last sequence number at call time and waits until none at or below it is left, so batches
+ * handed on after the call never hold it up, whatever order the acknowledgements come in.
+ */
+class InFlightBatches {
+
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long lastSequence;
+
+    /**
+     * Registers a batch and returns its sequence number.
+     */
+    synchronized long register() {
+        inFlight.add(++lastSequence);
+        return lastSequence;
+    }
+
+    synchronized void acknowledge(long sequence) {
+        if (inFlight.remove(sequence)) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Acknowledges the oldest batch still in flight, for consumers that take the batches in the order registered.
+     */
+    synchronized void acknowledgeOldest() {
+        if (null != inFlight.pollFirst()) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until every batch registered before the call has been acknowledged.
+     */
+    synchronized void awaitRegistered() throws InterruptedException {
+        long awaitedSequence = lastSequence;
+        while (!inFlight.isEmpty() && inFlight.first() <= awaitedSequence) {
+            wait();
+        }
+    }
+
+    synchronized int size() {
+        return inFlight.size();
+    }
+}
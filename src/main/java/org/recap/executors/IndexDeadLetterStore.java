@@ -0,0 +1,125 @@
+package org.recap.executors;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.IndexDeadLetterEntity;
+import org.recap.repository.jpa.IndexDeadLetterDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Keeps the Solr batches that failed every retry in index_dead_letter_t and replays them on request. A replayed batch
+ * is sent as it was built, so a record changed since will be out of date until it is indexed again.
+ */
+@Component
+public class IndexDeadLetterStore {
+
+    Logger logger = LoggerFactory.getLogger(IndexDeadLetterStore.class);
+
+    static final int MAX_ERROR_MESSAGE_LENGTH = 1000;
+
+    @Autowired
+    IndexDeadLetterDetailsRepository indexDeadLetterDetailsRepository;
+
+    @Autowired
+    SolrBatchWriter solrBatchWriter;
+
+    /**
+     * Saves the batch as a dead letter. When even that fails, the ids of its documents are logged so the gap can be
+     * found.
+     */
+    public void save(String coreName, List<SolrInputDocument> batch, int attempts, String errorMessage) {
+        String docIds = getDocIds(batch);
+        try {
+            IndexDeadLetterEntity indexDeadLetterEntity = new IndexDeadLetterEntity();
+            indexDeadLetterEntity.setCoreName(coreName);
+            indexDeadLetterEntity.setDocCount(batch.size());
+            indexDeadLetterEntity.setDocIds(docIds);
+            indexDeadLetterEntity.setPayload(encode(batch));
+            indexDeadLetterEntity.setAttempts(attempts);
+            indexDeadLetterEntity.setErrorMessage(truncate(errorMessage));
+            indexDeadLetterEntity.setStatus(RecapConstants.DEAD_LETTER_PENDING);
+            indexDeadLetterEntity.setCreatedDate(new Date());
+            indexDeadLetterEntity.setLastUpdatedDate(new Date());
+            indexDeadLetterEntity = indexDeadLetterDetailsRepository.save(indexDeadLetterEntity);
+            logger.info("Saved " + batch.size() + " docs for " + coreName + " as dead letter " + indexDeadLetterEntity.getDeadLetterId());
+        } catch (Exception e) {
+            logger.error("Unable to save dead letter of " + batch.size() + " docs for " + coreName + " : " + e.getMessage()
+                    + ". Doc ids : " + docIds);
+        }
+    }
+
+    public List<IndexDeadLetterEntity> getPendingDeadLetters() {
+        return indexDeadLetterDetailsRepository.findByStatusOrderByDeadLetterIdAsc(RecapConstants.DEAD_LETTER_PENDING);
+    }
+
+    /**
+     * Sends every pending dead letter to its core, oldest first, and commits the cores written to. Returns the number of
+     * dead letters replayed; one that fails again stays pending with its attempts and error updated.
+     */
+    public int replay() {
+        List<IndexDeadLetterEntity> deadLetters = getPendingDeadLetters();
+        logger.info("Replaying " + deadLetters.size() + " dead letters");
+        Set<String> replayedCoreNames = new LinkedHashSet<>();
+        int replayed = 0;
+        for (IndexDeadLetterEntity indexDeadLetterEntity : deadLetters) {
+            try {
+                List<SolrInputDocument> batch = decode(indexDeadLetterEntity.getPayload());
+                int attempts = solrBatchWriter.write(indexDeadLetterEntity.getCoreName(), batch);
+                indexDeadLetterEntity.setAttempts(indexDeadLetterEntity.getAttempts() + attempts);
+                indexDeadLetterEntity.setStatus(RecapConstants.DEAD_LETTER_REPLAYED);
+                replayedCoreNames.add(indexDeadLetterEntity.getCoreName());
+                replayed++;
+            } catch (Exception e) {
+                indexDeadLetterEntity.setAttempts(indexDeadLetterEntity.getAttempts() + 1);
+                indexDeadLetterEntity.setErrorMessage(truncate(e.getMessage()));
+                logger.error("Unable to replay dead letter " + indexDeadLetterEntity.getDeadLetterId() + " : " + e.getMessage());
+            }
+            indexDeadLetterEntity.setLastUpdatedDate(new Date());
+            indexDeadLetterDetailsRepository.save(indexDeadLetterEntity);
+        }
+        for (String coreName : replayedCoreNames) {
+            try {
+                solrBatchWriter.commit(coreName, false, true);
+            } catch (Exception e) {
+                logger.error("Unable to commit replayed dead letters to " + coreName + " : " + e.getMessage());
+            }
+        }
+        logger.info("Replayed " + replayed + " of " + deadLetters.size() + " dead letters");
+        return replayed;
+    }
+
+    static byte[] encode(List<SolrInputDocument> batch) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        new JavaBinCodec().marshal(batch, byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    static List<SolrInputDocument> decode(byte[] payload) throws IOException {
+        return (List<SolrInputDocument>) new JavaBinCodec().unmarshal(new ByteArrayInputStream(payload));
+    }
+
+    private String getDocIds(List<SolrInputDocument> batch) {
+        StringBuilder docIds = new StringBuilder();
+        for (SolrInputDocument solrInputDocument : batch) {
+            if (docIds.length() > 0) {
+                docIds.append(",");
+            }
+            docIds.append(solrInputDocument.getFieldValue("id"));
+        }
+        return docIds.toString();
+    }
+
+    private String truncate(String errorMessage) {
+        return null != errorMessage && errorMessage.length() > MAX_ERROR_MESSAGE_LENGTH ?
+                errorMessage.substring(0, MAX_ERROR_MESSAGE_LENGTH) : errorMessage;
+    }
+}
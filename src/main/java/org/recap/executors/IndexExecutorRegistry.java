@@ -0,0 +1,152 @@
+package org.recap.executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide thread pools for the CPU bound stages of indexing. The index callables share these pools instead
+ * of creating their own, so the number of transformation threads stays bounded no matter how many index threads a
+ * request asks for.
+ */
+@Component
+@ManagedResource(objectName = "org.recap:type=IndexExecutorRegistry")
+public class IndexExecutorRegistry {
+
+    Logger logger = LoggerFactory.getLogger(IndexExecutorRegistry.class);
+
+    public static final String RECORD_SETUP_POOL = "recordSetup";
+    public static final String PAGE_READER_POOL = "pageReader";
+
+    @Value("${solr.index.transform.threads}")
+    Integer transformThreads;
+
+    @Value("${solr.index.transform.queue.size}")
+    Integer transformQueueSize;
+
+    @Value("${solr.index.read.threads}")
+    Integer readThreads;
+
+    private final Map<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> rejections = new ConcurrentHashMap<>();
+
+    public ExecutorService getRecordSetupExecutor() {
+        return getExecutor(RECORD_SETUP_POOL, getTransformThreads(), transformQueueSize);
+    }
+
+    /**
+     * Threads that read the next page of a key range ahead of the index callables. When they are all busy the callable
+     * reads the page itself.
+     */
+    public ExecutorService getPageReaderExecutor() {
+        return getExecutor(PAGE_READER_POOL, readThreads, readThreads);
+    }
+
+    /**
+     * Returns the pool registered under the given name, creating it on first use. When the queue is full the task is
+     * run on the submitting thread, which slows producers down rather than dropping records; such hand-backs are
+     * counted as rejections.
+     */
+    public ThreadPoolExecutor getExecutor(String name, int poolSize, int queueSize) {
+        return executors.computeIfAbsent(name, poolName -> {
+            AtomicLong rejectionCount = new AtomicLong();
+            rejections.put(poolName, rejectionCount);
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    new ThreadFactoryBuilder().setNameFormat(poolName + "-%d").setDaemon(true).build(),
+                    (runnable, executor) -> {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException(poolName + " pool has been shut down");
+                        }
+                        rejectionCount.incrementAndGet();
+                        runnable.run();
+                    });
+            logger.info("Created " + poolName + " pool with " + poolSize + " threads and queue size " + queueSize);
+            return threadPoolExecutor;
+        });
+    }
+
+    /**
+     * Removes the pool registered under the given name and shuts it down once its queued tasks have run.
+     */
+    public void removeExecutor(String name) {
+        ThreadPoolExecutor threadPoolExecutor = executors.remove(name);
+        rejections.remove(name);
+        if (null != threadPoolExecutor) {
+            threadPoolExecutor.shutdown();
+            logger.info("Removed " + name + " pool");
+        }
+    }
+
+    public int getTransformThreads() {
+        return null == transformThreads || transformThreads <= 0 ? Runtime.getRuntime().availableProcessors() : transformThreads;
+    }
+
+    @ManagedAttribute(description = "Tasks waiting in the record setup queue")
+    public int getRecordSetupQueueDepth() {
+        return getQueueDepth(RECORD_SETUP_POOL);
+    }
+
+    @ManagedAttribute(description = "Record setup threads currently running a task")
+    public int getRecordSetupActiveThreads() {
+        return getActiveThreads(RECORD_SETUP_POOL);
+    }
+
+    @ManagedAttribute(description = "Record setup tasks run on the submitting thread because the queue was full")
+    public long getRecordSetupRejections() {
+        return getRejections(RECORD_SETUP_POOL);
+    }
+
+    @ManagedAttribute(description = "Record setup tasks completed")
+    public long getRecordSetupCompletedTasks() {
+        ThreadPoolExecutor threadPoolExecutor = executors.get(RECORD_SETUP_POOL);
+        return null != threadPoolExecutor ? threadPoolExecutor.getCompletedTaskCount() : 0;
+    }
+
+    public int getQueueDepth(String name) {
+        ThreadPoolExecutor threadPoolExecutor = executors.get(name);
+        return null != threadPoolExecutor ? threadPoolExecutor.getQueue().size() : 0;
+    }
+
+    public int getActiveThreads(String name) {
+        ThreadPoolExecutor threadPoolExecutor = executors.get(name);
+        return null != threadPoolExecutor ? threadPoolExecutor.getActiveCount() : 0;
+    }
+
+    public long getRejections(String name) {
+        AtomicLong rejectionCount = rejections.get(name);
+        return null != rejectionCount ? rejectionCount.get() : 0;
+    }
+
+    public Map<String, Map<String, Number>> getStatistics() {
+        Map<String, Map<String, Number>> statistics = new LinkedHashMap<>();
+        for (Map.Entry<String, ThreadPoolExecutor> entry : executors.entrySet()) {
+            ThreadPoolExecutor threadPoolExecutor = entry.getValue();
+            Map<String, Number> poolStatistics = new LinkedHashMap<>();
+            poolStatistics.put("poolSize", threadPoolExecutor.getPoolSize());
+            poolStatistics.put("activeThreads", threadPoolExecutor.getActiveCount());
+            poolStatistics.put("queueDepth", threadPoolExecutor.getQueue().size());
+            poolStatistics.put("completedTasks", threadPoolExecutor.getCompletedTaskCount());
+            poolStatistics.put("rejections", getRejections(entry.getKey()));
+            statistics.put(entry.getKey(), poolStatistics);
+        }
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor threadPoolExecutor : executors.values()) {
+            threadPoolExecutor.shutdown();
+        }
+    }
+}
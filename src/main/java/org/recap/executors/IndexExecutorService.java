@@ -1,22 +1,27 @@
 package org.recap.executors;
 
 import com.google.common.collect.Lists;
-import org.apache.camel.ProducerTemplate;
-import org.apache.camel.component.seda.SedaEndpoint;
-import org.apache.camel.component.solr.SolrConstants;
+import org.recap.RecapConstants;
 import org.recap.admin.SolrAdmin;
+import org.recap.model.jpa.IndexJobEntity;
+import org.recap.model.jpa.IndexQuarantineEntity;
+import org.recap.model.jpa.IndexWatermarkEntity;
+import org.recap.model.jpa.InstitutionEntity;
 import org.recap.model.solr.SolrIndexRequest;
+import org.recap.repository.jpa.IndexWatermarkDetailsRepository;
+import org.recap.repository.jpa.InstitutionDetailsRepository;
 import org.recap.repository.solr.temp.BibCrudRepositoryMultiCoreSupport;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.util.StopWatch;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by pvsubrah on 6/13/16.
@@ -30,7 +35,28 @@ public abstract class IndexExecutorService {
     SolrAdmin solrAdmin;
 
     @Autowired
-    ProducerTemplate producerTemplate;
+    SolrIndexQueue solrIndexQueue;
+
+    @Autowired
+    IndexExecutorRegistry indexExecutorRegistry;
+
+    @Autowired
+    AssociationBatchLoader associationBatchLoader;
+
+    @Autowired
+    IndexWatermarkDetailsRepository indexWatermarkDetailsRepository;
+
+    @Autowired
+    SolrBatchWriter solrBatchWriter;
+
+    @Autowired
+    IndexJobTracker indexJobTracker;
+
+    @Autowired
+    IndexQuarantine indexQuarantine;
+
+    @Autowired
+    InstitutionDetailsRepository institutionDetailsRepository;
 
     @Value("${solr.url}")
     String solrUrl;
@@ -50,54 +76,240 @@ public abstract class IndexExecutorService {
     @Value("${solr.router.uri.type}")
     String solrRouterURI;
 
-    private ExecutorService executorService;
-    private Integer loopCount;
-    private Integer callableCountByCommitInterval;
-    private long startTime;
-    private StopWatch stopWatch;
+    @Value("${solr.commit.within.millis}")
+    Integer commitWithinMillis;
+
+    @Value("${solr.index.pipeline.transform.window}")
+    Integer pipelineTransformWindow;
+
+    @Value("${solr.index.pipeline.send.batch.size}")
+    Integer pipelineSendBatchSize;
+
+    @Value("${solr.index.pipeline.fetch.size}")
+    Integer pipelineFetchSize;
+
+    @Value("${solr.index.retry.attempts}")
+    Integer indexRetryAttempts;
+
+    @Value("${solr.index.retry.backoff.millis}")
+    Long indexRetryBackoffMillis;
+
+    @Value("${solr.index.autotune.max.threads}")
+    Integer autoTuneMaxThreads;
+
+    @Value("${solr.index.autotune.interval.millis}")
+    Long autoTuneIntervalMillis;
+
+    @Value("${solr.index.autotune.latency.factor}")
+    Double autoTuneLatencyFactor;
+
+    @Value("${solr.index.autotune.max.batch.size}")
+    Integer autoTuneMaxBatchSize;
+
+    @Value("${solr.swap.min.doc.ratio}")
+    Double swapMinDocRatio;
+
+
+    /**
+     * Indexes the records selected by the request and returns whether every callable completed. When the request has a
+     * from date, only records changed since then are indexed.
+     */
+    public boolean indexByOwningInstitutionId(SolrIndexRequest solrIndexRequest) {
+        return indexByOwningInstitutionId(solrIndexRequest, newIndexRun(new IndexProgress(null, getDocType()), solrIndexRequest.isDryRun()));
+    }
 
-    public void indexByOwningInstitutionId(SolrIndexRequest solrIndexRequest) {
-        startProcess();
+    /**
+     * Same as {@link #indexByOwningInstitutionId(SolrIndexRequest)}, as the given run.
+     */
+    protected boolean indexByOwningInstitutionId(SolrIndexRequest solrIndexRequest, IndexRun indexRun) {
+        indexRun.stopWatch.start();
+        IndexProgress indexProgress = indexRun.getIndexProgress();
+        boolean completed = false;
 
         Integer numThreads = solrIndexRequest.getNumberOfThreads();
         Integer docsPerThread = solrIndexRequest.getNumberOfDocs();
         Integer commitIndexesInterval = solrIndexRequest.getCommitInterval();
         Integer owningInstitutionId = solrIndexRequest.getOwningInstitutionId();
+        Date fromDate = solrIndexRequest.getFromDate();
+
+        // A swap build indexes a full run of all institutions into an empty build core and swaps it with the parent
+        // core once it is complete, so searches use the parent core until then. Nothing searches the build core, so it
+        // is only committed at the end.
+        // A dry run sends the documents to a null sink instead of Solr, so it leaves the cores, the jobs and the watermark
+        // alone and has nothing to tune against.
+        boolean dryRun = indexRun.isDryRun();
+        boolean autoTune = solrIndexRequest.isAutoTune() && !dryRun;
+        boolean swapBuild = solrIndexRequest.isSwapBuild() && null == fromDate && null == owningInstitutionId && !dryRun
+                && isSwapBuildSupported();
+        if (solrIndexRequest.isSwapBuild() && !swapBuild) {
+            logger.info("Swap build is only supported for BibItems full index runs of all institutions that are not dry runs, indexing into " + solrCore);
+        }
+        indexRun.commitPolicy = getCommitPolicy(swapBuild ? RecapConstants.COMMIT_POLICY_END_OF_RUN : solrIndexRequest.getCommitPolicy());
+        indexRun.indexCore = solrCore;
+        boolean buildCoreSwapped = false;
 
         try {
-            ExecutorService executorService = getExecutorService(numThreads);
+            // An auto-tuned run sizes the pool for the most callables the tuner may allow to run at once.
+            ExecutorService executorService = Executors.newFixedThreadPool(autoTune ? Math.max(numThreads, autoTuneMaxThreads) : numThreads);
 
-            Integer totalDocCount = (null == owningInstitutionId ? getTotalDocCount(null) : getTotalDocCount(owningInstitutionId));
+            List<Integer> changedIds = null;
+            Integer totalDocCount;
+            if (null != fromDate) {
+                changedIds = getChangedIds(fromDate, owningInstitutionId);
+                totalDocCount = changedIds.size();
+                logger.info("Indexing records changed since : " + fromDate);
+            } else {
+                totalDocCount = (null == owningInstitutionId ? getTotalDocCount(null) : getTotalDocCount(owningInstitutionId));
+            }
 
             logger.info("Total Document Count From DB : " + totalDocCount);
+            indexProgress.setTotalRecords(totalDocCount);
 
             if (totalDocCount > 0) {
+                boolean streamRequested = RecapConstants.FETCH_MODE_STREAM.equalsIgnoreCase(solrIndexRequest.getFetchMode());
+                boolean streaming = streamRequested && this instanceof StreamingIndexExecutor;
+                boolean keysetRequested = RecapConstants.FETCH_MODE_KEYSET.equalsIgnoreCase(solrIndexRequest.getFetchMode());
+                boolean shardedBuild = solrIndexRequest.isShardedBuild() && null == changedIds && !swapBuild && !dryRun
+                        && isParentCoreEmpty();
+                String partitionScheduling = solrIndexRequest.getPartitionScheduling();
+                boolean partitionRequested = RecapConstants.PARTITION_SCHEDULING_FAIR.equalsIgnoreCase(partitionScheduling)
+                        || RecapConstants.PARTITION_SCHEDULING_WEIGHTED.equalsIgnoreCase(partitionScheduling);
+                boolean partitioned = partitionRequested && null == owningInstitutionId && null == changedIds
+                        && !streaming && !shardedBuild && !swapBuild && !dryRun;
+                if (partitionRequested && !partitioned) {
+                    logger.info("Institution partitions are only used by paged and keyset full runs of all institutions that are not dry runs");
+                }
+
                 int quotient = totalDocCount / (docsPerThread);
                 int remainder = totalDocCount % (docsPerThread);
-                loopCount = remainder == 0 ? quotient : quotient + 1;
+                int loopCount = remainder == 0 ? quotient : quotient + 1;
+
+                // Paged and keyset full runs are recorded as jobs. A resumed job rebuilds the ranges it was started with.
+                Integer minId = null;
+                Integer maxId = null;
+                Set<Integer> completedRangeNums = new HashSet<>();
+                if (null == changedIds && !streaming && !shardedBuild && !partitioned && !swapBuild && !dryRun) {
+                    String fetchMode = keysetRequested ? RecapConstants.FETCH_MODE_KEYSET : RecapConstants.FETCH_MODE_PAGED;
+                    if (solrIndexRequest.isResume()) {
+                        IndexJobEntity resumableJob = indexJobTracker.findResumableJob(getDocType(), owningInstitutionId);
+                        if (null != resumableJob && fetchMode.equals(resumableJob.getFetchMode())) {
+                            indexRun.indexJob = resumableJob;
+                            indexRun.resumedJobStartDate = resumableJob.getStartDate();
+                            docsPerThread = resumableJob.getDocsPerThread();
+                            loopCount = resumableJob.getLoopCount();
+                            minId = resumableJob.getMinId();
+                            maxId = resumableJob.getMaxId();
+                            completedRangeNums = indexJobTracker.getCompletedRangeNums(resumableJob);
+                            indexProgress.setTotalRecords(Math.max(totalDocCount - (long) completedRangeNums.size() * docsPerThread, 0));
+                            logger.info("Resuming index job " + resumableJob.getJobId() + ", " + completedRangeNums.size() + " of " + loopCount + " ranges already completed");
+                        } else {
+                            logger.info("No unfinished " + fetchMode + " index job of " + getDocType() + " to resume, starting a new one");
+                        }
+                    }
+                    if (null == indexRun.indexJob) {
+                        if (keysetRequested) {
+                            minId = getMinId(owningInstitutionId);
+                            maxId = getMaxId(owningInstitutionId);
+                        }
+                        indexRun.indexJob = indexJobTracker.startJob(getDocType(), owningInstitutionId, fetchMode, docsPerThread, loopCount, minId, maxId);
+                    }
+                } else if (solrIndexRequest.isResume() && !partitioned) {
+                    logger.info("Only paged and keyset full index runs that are not dry runs can be resumed, indexing from the beginning");
+                }
                 logger.info("Loop Count Value : " + loopCount);
                 logger.info("Commit Indexes Interval : " + commitIndexesInterval);
 
-                callableCountByCommitInterval = commitIndexesInterval / (docsPerThread);
-                if (callableCountByCommitInterval == 0) {
-                    callableCountByCommitInterval = 1;
+                indexRun.callableCountByCommitInterval = commitIndexesInterval / (docsPerThread);
+                if (indexRun.callableCountByCommitInterval == 0) {
+                    indexRun.callableCountByCommitInterval = 1;
+                }
+                logger.info("Number of callables to execute to commit indexes : " + indexRun.callableCountByCommitInterval);
+                logger.info("Commit Policy : " + indexRun.commitPolicy.getName());
+                if (dryRun) {
+                    logger.info("Dry run, documents are counted and dropped instead of being sent to Solr");
                 }
-                logger.info("Number of callables to execute to commit indexes : " + callableCountByCommitInterval);
 
+                indexRun.targetCoreNames = new ArrayList<>();
+                if (swapBuild) {
+                    indexRun.indexCore = solrAdmin.createBuildCore();
+                    logger.info("Swap build into " + indexRun.indexCore);
+                }
+                if (shardedBuild) {
+                    setupCoreNames(numThreads, indexRun.targetCoreNames);
+                    solrAdmin.createSolrCores(indexRun.targetCoreNames);
+                    logger.info("Sharded build into temp cores : " + indexRun.targetCoreNames);
+                } else {
+                    if (solrIndexRequest.isShardedBuild()) {
+                        logger.info("Sharded build is only supported for full index runs into an empty core without a swap build or a dry run, indexing into " + indexRun.indexCore);
+                    }
+                    indexRun.targetCoreNames.add(indexRun.indexCore);
+                }
+                indexRun.batchSettings = new SolrBatchSettings(solrBatchWriter.getBatchSize(), indexRun.commitPolicy.getCommitWithin());
+                if (!dryRun) {
+                    for (String coreName : indexRun.targetCoreNames) {
+                        if (!Objects.equals(coreName, solrCore)) {
+                            solrBatchWriter.setReplayCore(coreName, solrCore);
+                        }
+                        indexRun.deadLetterCounts.put(coreName, solrBatchWriter.getDeadLetterCount(coreName));
+                    }
+                }
+                if (autoTune) {
+                    indexRun.indexTuner = new AdaptiveIndexTuner(numThreads, autoTuneMaxThreads, autoTuneMaxBatchSize,
+                            autoTuneLatencyFactor, indexProgress, indexRun.batchSettings);
+                    indexRun.indexTuner.start(autoTuneIntervalMillis);
+                }
+
+                Map<String, Long> stageCountsBefore = IndexMetrics.getTimerCounts();
                 StopWatch stopWatch = new StopWatch();
                 stopWatch.start();
 
-                int coreNum = 0;
-                List<Callable<Integer>> callables = new ArrayList<>();
-                for (int pageNum = 0; pageNum < loopCount; pageNum++) {
-                    Callable callable = getCallable(solrCore, pageNum, docsPerThread, owningInstitutionId);
-                    callables.add(callable);
-                    coreNum = coreNum < numThreads - 1 ? coreNum + 1 : 0;
+                if (streamRequested && !streaming) {
+                    logger.info("Stream fetch mode is not supported for " + getClass().getSimpleName() + ", falling back to paged fetch");
                 }
 
                 int futureCount = 0;
+                int failedCount = 0;
                 int totalBibsProcessed = 0;
-                List<List<Callable<Integer>>> partitions = Lists.partition(new ArrayList<Callable<Integer>>(callables), callableCountByCommitInterval);
+                List<Callable<Integer>> callables = new ArrayList<>();
+                if (null != changedIds) {
+                    for (List<Integer> ids : Lists.partition(changedIds, docsPerThread)) {
+                        callables.add(getIdListCallable(indexRun, getTargetCoreName(indexRun, callables.size()), new ArrayList<>(ids)));
+                    }
+                } else if (streaming) {
+                    totalBibsProcessed = indexByStream(indexRun, (StreamingIndexExecutor<?>) this, executorService, null != indexRun.indexTuner ? Math.max(numThreads, autoTuneMaxThreads) : numThreads, docsPerThread, owningInstitutionId);
+                } else if (partitioned) {
+                    callables.addAll(getInstitutionPartitionCallables(indexRun, solrIndexRequest.isResume(), keysetRequested, docsPerThread,
+                            RecapConstants.PARTITION_SCHEDULING_WEIGHTED.equalsIgnoreCase(partitionScheduling)));
+                } else if (keysetRequested) {
+                    callables.addAll(getKeysetCallables(indexRun, docsPerThread, owningInstitutionId, minId, maxId, loopCount));
+                } else {
+                    int coreNum = 0;
+                    for (int pageNum = 0; pageNum < loopCount; pageNum++) {
+                        Callable callable = getCallable(indexRun, getTargetCoreName(indexRun, coreNum), pageNum, docsPerThread, owningInstitutionId);
+                        callables.add(callable);
+                        coreNum = coreNum < numThreads - 1 ? coreNum + 1 : 0;
+                    }
+                }
+                // Partition callables are already retried and checkpointed per institution.
+                if (!partitioned) {
+                    callables = getRetryingCallables(callables);
+                }
+                if (null != indexRun.indexJob) {
+                    callables = getCheckpointedCallables(indexRun, callables, completedRangeNums, indexRun.indexJob);
+                }
+                if (null != indexRun.indexTuner) {
+                    callables = indexRun.indexTuner.wrap(callables);
+                }
+
+                // Without an interval barrier every callable is submitted at once and interval commits are issued by the
+                // index threads as callables complete. Institution partitions never wait on a barrier, so a slow
+                // institution does not hold up the others.
+                int partitionSize = indexRun.callableCountByCommitInterval;
+                if (!indexRun.commitPolicy.isIntervalBarrier() || partitioned) {
+                    partitionSize = Math.max(callables.size(), 1);
+                    callables = wrapForCommitInterval(indexRun, callables);
+                }
+                List<List<Callable<Integer>>> partitions = Lists.partition(new ArrayList<Callable<Integer>>(callables), partitionSize);
                 for (List<Callable<Integer>> partitionCallables : partitions) {
                     List<Future<Integer>> futures = executorService.invokeAll(partitionCallables);
                     futures
@@ -121,69 +333,667 @@ public abstract class IndexExecutorService {
                             logger.info("Num of bibs fetched by thread : " + entitiesCount);
                             futureCount++;
                         } catch (InterruptedException e) {
-                            e.printStackTrace();
+                            failedCount++;
+                            indexProgress.addErrors(1);
+                            logger.error("Interrupted while waiting for index callable : " + e.getMessage());
                         } catch (ExecutionException e) {
-                            e.printStackTrace();
+                            failedCount++;
+                            indexProgress.addErrors(1);
+                            logger.error("Index callable failed after retries, its range will be indexed again on resume : " + e.getCause());
                         }
                     }
 
-                    SedaEndpoint solrQSedaEndPoint = (SedaEndpoint) producerTemplate.getCamelContext().getEndpoint("seda:solrQ");
-                    Integer solrQSize = solrQSedaEndPoint.getExchanges().size();
-                    while (solrQSize != 0) {
-                        solrQSize = solrQSedaEndPoint.getExchanges().size();
-                    }
-                    Future<Object> future = producerTemplate.asyncRequestBodyAndHeader(solrRouterURI + "://" + solrUri + "/" + solrCore, "", SolrConstants.OPERATION, SolrConstants.OPERATION_COMMIT);
-                    logger.info("Commit future done : " + future.isDone());
-                    while (!future.isDone()) {
-                        //NoOp.
+                    if (indexRun.commitPolicy.isIntervalBarrier() && !partitioned) {
+                        commitInterval(indexRun);
                     }
                     logger.info("Num of Bibs Processed and indexed to core on commit interval : " + numOfBibsProcessed);
                     logger.info("Total Num of Bibs Processed and indexed to core : " + totalBibsProcessed);
                 }
                 logger.info("Total futures executed: " + futureCount);
                 stopWatch.stop();
+                stopTuner(indexRun);
                 logger.info("Time taken to fetch " + totalBibsProcessed + " Bib Records and index : " + stopWatch.getTotalTimeSeconds() + " seconds");
+                logger.info("Transformation pool statistics : " + indexExecutorRegistry.getStatistics());
+                if (dryRun) {
+                    logDryRunThroughput(indexRun, stageCountsBefore, stopWatch.getTotalTimeMillis());
+                }
                 executorService.shutdown();
 
                 //Final commit
-                producerTemplate.asyncRequestBodyAndHeader(solrRouterURI + "://" + solrUri + "/" + solrCore, "", SolrConstants.OPERATION, SolrConstants.OPERATION_COMMIT);
+                commit(indexRun);
+                boolean merged = !shardedBuild || mergeTempCores(indexRun);
+                logger.info("Time spent in commits with " + indexRun.commitPolicy.getName() + " policy : " + indexRun.commitTime.get() + " ms");
+                if (!dryRun) {
+                    logger.info("Solr writer statistics : " + solrBatchWriter.getStatistics());
+                }
+                boolean allSent = failedCount == 0 && indexRun.deadLetteredBatches.get() == 0 && merged;
+                buildCoreSwapped = swapBuild && allSent && swapBuildCore(indexRun, totalDocCount);
+                completed = allSent && (!swapBuild || buildCoreSwapped);
+                if (null != indexRun.indexJob) {
+                    indexJobTracker.finishJob(indexRun.indexJob, completed);
+                }
+                finishInstitutionPartitions(indexRun);
             } else {
                 logger.info("No records found to index for the criteria");
+                completed = true;
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Index run of " + getDocType() + " failed", e);
+            failRun(indexRun);
+            completed = false;
+        }
+        stopTuner(indexRun);
+        removeTempCoreWriters(indexRun);
+        if (!Objects.equals(indexRun.indexCore, solrCore) && !buildCoreSwapped) {
+            solrAdmin.dropBuildCore(indexRun.indexCore);
+        }
+        indexRun.stopWatch.stop();
+        return completed;
+    }
+
+    /**
+     * Fails the progress and the jobs of a run that ended with an error, and of its institution partitions, so the status
+     * endpoints report the failure. The jobs can still be resumed.
+     */
+    private void failRun(IndexRun indexRun) {
+        indexRun.getIndexProgress().fail();
+        if (null != indexRun.indexJob) {
+            indexJobTracker.failJob(indexRun.indexJob);
+        }
+        for (InstitutionPartition institutionPartition : indexRun.institutionPartitions) {
+            institutionPartition.indexProgress.fail();
+            if (null != institutionPartition.indexJob) {
+                indexJobTracker.failJob(institutionPartition.indexJob);
+            }
         }
-        endProcess();
     }
 
+    /**
+     * Drops the Solr writers of the temp or build cores of the run, which nothing writes to once it has ended.
+     */
+    private void removeTempCoreWriters(IndexRun indexRun) {
+        if (null != indexRun.targetCoreNames && !indexRun.isDryRun()) {
+            for (String coreName : indexRun.targetCoreNames) {
+                if (!Objects.equals(coreName, solrCore)) {
+                    solrBatchWriter.removeCore(coreName);
+                }
+            }
+        }
+    }
+
+    private void stopTuner(IndexRun indexRun) {
+        if (null != indexRun.indexTuner) {
+            indexRun.indexTuner.stop();
+        }
+    }
+
+    /**
+     * Runs the index and, when every callable completed and no batch was dead-lettered, moves the watermark for this
+     * document type to the time the run started, so that the next incremental run picks up whatever changed while it
+     * was running. An incremental request without a from date starts at the stored watermark. The watermark is not moved when the from date is later than
+     * the stored one, since changes in between would otherwise be skipped.
+     */
     public void index(SolrIndexRequest solrIndexRequest) {
-        indexByOwningInstitutionId(solrIndexRequest);
+        index(solrIndexRequest, new IndexProgress(null, getDocType()));
+    }
+
+    /**
+     * Same as {@link #index(SolrIndexRequest)}, reporting the run on the given progress.
+     */
+    public void index(SolrIndexRequest solrIndexRequest, IndexProgress indexProgress) {
+        IndexRun indexRun = newIndexRun(indexProgress, solrIndexRequest.isDryRun());
+        indexProgress.start();
+        Date runStartDate = new Date();
+        Integer owningInstitutionId = solrIndexRequest.getOwningInstitutionId();
+        IndexWatermarkEntity indexWatermarkEntity = findWatermark(owningInstitutionId);
+        Date watermarkDate = null != indexWatermarkEntity ? indexWatermarkEntity.getWatermarkDate() : null;
+        if (solrIndexRequest.isIncremental() && null == solrIndexRequest.getFromDate()) {
+            solrIndexRequest.setFromDate(watermarkDate);
+            logger.info("Incremental index of " + getDocType() + " from watermark : " + watermarkDate);
+        }
+
+        boolean completed = indexByOwningInstitutionId(solrIndexRequest, indexRun);
+        if (!RecapConstants.INDEX_JOB_FAILED.equals(indexProgress.getStatus())) {
+            indexProgress.finish(completed);
+        }
+        logger.info("Total time taken : " + indexRun.stopWatch.getTotalTimeSeconds() + " secs");
+        if (null != indexRun.resumedJobStartDate) {
+            runStartDate = indexRun.resumedJobStartDate;
+        }
+
+        Date fromDate = solrIndexRequest.getFromDate();
+        if (completed && !solrIndexRequest.isDryRun() && (null == fromDate || null == watermarkDate || !fromDate.after(watermarkDate))) {
+            saveWatermark(indexWatermarkEntity, owningInstitutionId, runStartDate);
+        }
     }
 
-    private ExecutorService getExecutorService(Integer numThreads) {
-        if (null == executorService || executorService.isShutdown()) {
-            executorService = Executors.newFixedThreadPool(numThreads);
+    private IndexWatermarkEntity findWatermark(Integer owningInstitutionId) {
+        try {
+            return null == owningInstitutionId ?
+                    indexWatermarkDetailsRepository.findByDocTypeAndOwningInstitutionIdIsNull(getDocType()) :
+                    indexWatermarkDetailsRepository.findByDocTypeAndOwningInstitutionId(getDocType(), owningInstitutionId);
+        } catch (Exception e) {
+            logger.error("Unable to read index watermark : " + e.getMessage());
         }
-        return executorService;
+        return null;
     }
 
-    public ExecutorService getExecutorService() {
-        return executorService;
+    private void saveWatermark(IndexWatermarkEntity indexWatermarkEntity, Integer owningInstitutionId, Date watermarkDate) {
+        try {
+            if (null == indexWatermarkEntity) {
+                indexWatermarkEntity = new IndexWatermarkEntity();
+                indexWatermarkEntity.setDocType(getDocType());
+                indexWatermarkEntity.setOwningInstitutionId(owningInstitutionId);
+            }
+            indexWatermarkEntity.setWatermarkDate(watermarkDate);
+            indexWatermarkEntity.setLastUpdatedDate(new Date());
+            indexWatermarkDetailsRepository.save(indexWatermarkEntity);
+            logger.info("Index watermark for " + getDocType() + " moved to : " + watermarkDate);
+        } catch (Exception e) {
+            logger.error("Unable to save index watermark : " + e.getMessage());
+        }
     }
 
-    public long getStartTime() {
-        return startTime;
+    /**
+     * Waits until every batch handed to the Solr queue has been written to Solr, then issues a blocking hard commit.
+     */
+    private void commit(IndexRun indexRun) throws Exception {
+        Map<IndexProgress, Long> docsSent = getDocsSent(indexRun);
+        Map<IndexJobEntity, Set<Integer>> sentRanges = getPendingCheckpoints(indexRun);
+        indexRun.getIndexQueue().awaitAcknowledged();
+        if (!indexRun.isDryRun()) {
+            for (String coreName : indexRun.targetCoreNames) {
+                solrBatchWriter.flush(coreName);
+                indexRun.commitTime.addAndGet(solrBatchWriter.commit(coreName, false, true));
+            }
+            holdBackDeadLetteredRanges(indexRun, sentRanges);
+        }
+        logger.info("Commit done");
+        setDocsCommitted(docsSent);
+        saveCheckpoints(indexRun, sentRanges);
     }
 
-    public StopWatch getStopWatch() {
-        if (null == stopWatch) {
-            stopWatch = new StopWatch();
+    /**
+     * Wraps each callable not yet completed by the job so that, once it succeeds, its range is queued to be checkpointed
+     * by the next commit that covers it. The range number of a callable is its position in the full list.
+     */
+    private List<Callable<Integer>> getCheckpointedCallables(IndexRun indexRun, List<Callable<Integer>> callables, Set<Integer> completedRangeNums,
+                                                             IndexJobEntity indexJobEntity) {
+        Map<Integer, Integer> jobCheckpoints = indexRun.pendingCheckpoints.computeIfAbsent(indexJobEntity, job -> new ConcurrentHashMap<>());
+        List<Callable<Integer>> checkpointedCallables = new ArrayList<>();
+        for (int rangeNum = 0; rangeNum < callables.size(); rangeNum++) {
+            if (completedRangeNums.contains(rangeNum)) {
+                continue;
+            }
+            Callable<Integer> callable = callables.get(rangeNum);
+            int checkpointRangeNum = rangeNum;
+            checkpointedCallables.add(() -> {
+                Integer entitiesCount = callable.call();
+                jobCheckpoints.put(checkpointRangeNum, entitiesCount);
+                return entitiesCount;
+            });
         }
-        return stopWatch;
+        return checkpointedCallables;
     }
 
-    public void setExecutorService(ExecutorService executorService) {
-        this.executorService = executorService;
+    private List<Callable<Integer>> getRetryingCallables(List<Callable<Integer>> callables) {
+        List<Callable<Integer>> retryingCallables = new ArrayList<>();
+        for (int rangeNum = 0; rangeNum < callables.size(); rangeNum++) {
+            retryingCallables.add(getRetryingCallable(callables.get(rangeNum), "Index callable " + rangeNum));
+        }
+        return retryingCallables;
+    }
+
+    /**
+     * Retries the callable with a doubling backoff when it fails, for example on a lost database connection. Documents
+     * it sent before failing are sent again, which Solr overwrites by id. A callable whose records could not be
+     * transformed is not retried.
+     */
+    private Callable<Integer> getRetryingCallable(Callable<Integer> callable, String description) {
+        RetryWithBackoff retryWithBackoff = new RetryWithBackoff(indexRetryAttempts, indexRetryBackoffMillis);
+        return () -> retryWithBackoff.call(callable, description,
+                exception -> !(exception instanceof IndexPipeline.RecordsNotTransformedException));
+    }
+
+    /**
+     * Records the ranges completed since the last commit. Only called after a commit that all their documents had
+     * reached, so a resumed job never skips a range that is not in the index.
+     */
+    private void saveCheckpoints(IndexRun indexRun, Map<IndexJobEntity, Set<Integer>> sentRanges) {
+        for (Map.Entry<IndexJobEntity, Set<Integer>> entry : sentRanges.entrySet()) {
+            Map<Integer, Integer> jobCheckpoints = indexRun.pendingCheckpoints.get(entry.getKey());
+            Map<Integer, Integer> committedRanges = new HashMap<>();
+            for (Integer rangeNum : entry.getValue()) {
+                committedRanges.put(rangeNum, jobCheckpoints.remove(rangeNum));
+            }
+            if (!committedRanges.isEmpty()) {
+                indexJobTracker.saveCompletedRanges(entry.getKey(), committedRanges);
+            }
+        }
+    }
+
+    /**
+     * The ranges completed so far, per job. Read before a commit so a range completed while it runs waits for the next.
+     */
+    private Map<IndexJobEntity, Set<Integer>> getPendingCheckpoints(IndexRun indexRun) {
+        Map<IndexJobEntity, Set<Integer>> sentRanges = new HashMap<>();
+        for (Map.Entry<IndexJobEntity, Map<Integer, Integer>> entry : indexRun.pendingCheckpoints.entrySet()) {
+            sentRanges.put(entry.getKey(), new HashSet<>(entry.getValue().keySet()));
+        }
+        return sentRanges;
+    }
+
+    /**
+     * Counts the batches for the run's cores dead-lettered since the last check, which must come after everything sent
+     * has been written. When there are any, the ranges about to be checkpointed are dropped so a resumed job indexes
+     * them again, and the run is left incomplete so neither the watermark nor a build core moves past them. A run
+     * sharing a core with another counts the other's dead letters too, which only holds back more.
+     */
+    private void holdBackDeadLetteredRanges(IndexRun indexRun, Map<IndexJobEntity, Set<Integer>> sentRanges) {
+        long deadLetteredBatches = 0;
+        for (String coreName : indexRun.targetCoreNames) {
+            long deadLetterCount = solrBatchWriter.getDeadLetterCount(coreName);
+            Long previousCount = indexRun.deadLetterCounts.put(coreName, deadLetterCount);
+            deadLetteredBatches += deadLetterCount - (null != previousCount ? previousCount : 0);
+        }
+        if (deadLetteredBatches > 0) {
+            indexRun.deadLetteredBatches.addAndGet(deadLetteredBatches);
+            indexRun.getIndexProgress().addErrors((int) deadLetteredBatches);
+            logger.error(deadLetteredBatches + " batches were saved as dead letters, the ranges sent since the last commit are not checkpointed");
+            for (Map.Entry<IndexJobEntity, Set<Integer>> entry : sentRanges.entrySet()) {
+                indexRun.pendingCheckpoints.get(entry.getKey()).keySet().removeAll(entry.getValue());
+            }
+            sentRanges.clear();
+        }
+    }
+
+    private Map<IndexProgress, Long> getDocsSent(IndexRun indexRun) {
+        IndexProgress indexProgress = indexRun.getIndexProgress();
+        Map<IndexProgress, Long> docsSent = new HashMap<>();
+        docsSent.put(indexProgress, indexProgress.getDocsSent());
+        for (IndexProgress partitionProgress : indexProgress.getPartitions()) {
+            docsSent.put(partitionProgress, partitionProgress.getDocsSent());
+        }
+        return docsSent;
+    }
+
+    private void setDocsCommitted(Map<IndexProgress, Long> docsSent) {
+        for (Map.Entry<IndexProgress, Long> entry : docsSent.entrySet()) {
+            entry.getKey().setDocsCommitted(entry.getValue());
+        }
+    }
+
+    /**
+     * Merges the committed temp cores of a sharded build into the parent core in one mergeIndexes call, and unloads them
+     * once the parent core holds all their documents. The merge does not replace documents by id, so it is only done
+     * into an empty parent core. Returns whether the merge succeeded; when it did not, the temp cores are kept so their
+     * documents are not lost, until a clean unloads them.
+     */
+    private boolean mergeTempCores(IndexRun indexRun) {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        try {
+            long tempDocCount = 0;
+            for (String coreName : indexRun.targetCoreNames) {
+                tempDocCount += solrAdmin.getDocCount(coreName, "*:*");
+            }
+            solrAdmin.mergeCores(indexRun.targetCoreNames);
+            long docCount = solrAdmin.getDocCount(solrCore, "*:*");
+            if (docCount < tempDocCount) {
+                logger.error("Temp cores " + indexRun.targetCoreNames + " are kept, " + solrCore + " has " + docCount
+                        + " documents after the merge of " + tempDocCount);
+                return false;
+            }
+        } catch (Exception e) {
+            logger.error("Unable to merge " + indexRun.targetCoreNames + " into " + solrCore + ", the temp cores are kept", e);
+            return false;
+        }
+        stopWatch.stop();
+        logger.info("Time taken to merge " + indexRun.targetCoreNames + " into " + solrCore + " : " + stopWatch.getTotalTimeSeconds() + " seconds");
+        solrAdmin.unLoadCores(indexRun.targetCoreNames);
+        return true;
+    }
+
+    /**
+     * Whether the parent core holds no documents, as after a clean. A sharded build into a core that is not empty would
+     * duplicate every document it merges, so it is refused.
+     */
+    private boolean isParentCoreEmpty() throws Exception {
+        long docCount = solrAdmin.getDocCount(solrCore, "*:*");
+        if (docCount > 0) {
+            logger.info("Sharded build refused, " + solrCore + " has " + docCount + " documents; clean it first");
+        }
+        return docCount == 0;
+    }
+
+    /**
+     * Swaps the build core of a swap build with the parent core when it holds at least solr.swap.min.doc.ratio of the
+     * documents expected from the records counted at the start of the run. The previous index is left in the build
+     * core, so swapping the two again rolls the build back. Returns whether the cores were swapped; a build core that is
+     * not swapped is dropped at the end of the run.
+     */
+    private boolean swapBuildCore(IndexRun indexRun, Integer totalDocCount) throws Exception {
+        long expectedDocCount = Math.max(totalDocCount - indexRun.getIndexProgress().getQuarantined(), 0);
+        long docCount = solrAdmin.getDocCount(indexRun.indexCore, RecapConstants.DOCTYPE + ":" + getSolrDocType());
+        logger.info("Build core " + indexRun.indexCore + " has " + docCount + " " + getSolrDocType() + " documents of " + expectedDocCount + " expected");
+        if (docCount == 0 || docCount < expectedDocCount * swapMinDocRatio) {
+            logger.error("Build core " + indexRun.indexCore + " is not swapped with " + solrCore + ", it has too few documents");
+            return false;
+        }
+        solrAdmin.swapInBuildCore(indexRun.indexCore);
+        return true;
+    }
+
+    /**
+     * The core the n-th callable of the run writes to; callables are spread round-robin over the temp cores of a
+     * sharded build.
+     */
+    private String getTargetCoreName(IndexRun indexRun, int callableNum) {
+        return indexRun.targetCoreNames.get(callableNum % indexRun.targetCoreNames.size());
+    }
+
+    /**
+     * Applies the commit policy at the end of a commit interval. With an interval barrier, everything sent so far is
+     * written to Solr first.
+     */
+    private void commitInterval(IndexRun indexRun) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Map<IndexProgress, Long> docsSent = getDocsSent(indexRun);
+        Map<IndexJobEntity, Set<Integer>> sentRanges = getPendingCheckpoints(indexRun);
+        if (!indexRun.isDryRun()) {
+            if (indexRun.commitPolicy.isIntervalBarrier()) {
+                indexRun.getIndexQueue().awaitAcknowledged();
+                for (String coreName : indexRun.targetCoreNames) {
+                    solrBatchWriter.flush(coreName);
+                }
+                holdBackDeadLetteredRanges(indexRun, sentRanges);
+            }
+            for (String coreName : indexRun.targetCoreNames) {
+                indexRun.commitPolicy.afterInterval(solrBatchWriter, coreName);
+            }
+        }
+        if (indexRun.commitPolicy.isIntervalBarrier()) {
+            setDocsCommitted(docsSent);
+            saveCheckpoints(indexRun, sentRanges);
+        }
+        indexRun.commitTime.addAndGet(System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Makes every indexRun.callableCountByCommitInterval-th callable to complete apply the interval commit, so commits happen
+     * without stopping the other index threads.
+     */
+    private List<Callable<Integer>> wrapForCommitInterval(IndexRun indexRun, List<Callable<Integer>> callables) {
+        AtomicInteger completedCallables = new AtomicInteger();
+        List<Callable<Integer>> wrappedCallables = new ArrayList<>();
+        for (Callable<Integer> callable : callables) {
+            wrappedCallables.add(() -> {
+                try {
+                    return callable.call();
+                } finally {
+                    if (completedCallables.incrementAndGet() % indexRun.callableCountByCommitInterval == 0) {
+                        try {
+                            commitInterval(indexRun);
+                        } catch (Exception e) {
+                            logger.error("Interval commit failed : " + e.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+        return wrappedCallables;
+    }
+
+    protected CommitPolicy getCommitPolicy(String commitPolicyName) {
+        if (RecapConstants.COMMIT_POLICY_SOFT.equalsIgnoreCase(commitPolicyName)) {
+            return new SoftCommitPolicy();
+        } else if (RecapConstants.COMMIT_POLICY_COMMIT_WITHIN.equalsIgnoreCase(commitPolicyName)) {
+            return new CommitWithinPolicy(commitWithinMillis);
+        } else if (RecapConstants.COMMIT_POLICY_END_OF_RUN.equalsIgnoreCase(commitPolicyName)) {
+            return new EndOfRunCommitPolicy();
+        }
+        return new HardCommitPolicy();
+    }
+
+    /**
+     * Reads the records through a single database cursor and hands each batch to the index threads. At most two batches
+     * per thread are outstanding at a time, so the reader blocks rather than pulling the whole table into memory. Only
+     * a commit policy with an interval barrier makes the reader wait for the batches of an interval to complete.
+     */
+    private <E> int indexByStream(IndexRun indexRun, StreamingIndexExecutor<E> streamingIndexExecutor, ExecutorService executorService, Integer numThreads, Integer docsPerThread, Integer owningInstitutionId) throws Exception {
+        Semaphore outstandingBatches = new Semaphore(numThreads * 2);
+        List<Future<Integer>> futures = new ArrayList<>();
+        int[] totalBibsProcessed = new int[1];
+        int[] streamedBatchCount = new int[1];
+        Integer numberOfBibsRead = streamingIndexExecutor.streamEntities(owningInstitutionId, docsPerThread, entities -> {
+            outstandingBatches.acquireUninterruptibly();
+            Callable<Integer> streamCallable = getRetryingCallable(streamingIndexExecutor.getStreamCallable(indexRun, getTargetCoreName(indexRun, streamedBatchCount[0]), entities),
+                    "Stream callable " + streamedBatchCount[0]++);
+            Callable<Integer> callable = null != indexRun.indexTuner ? indexRun.indexTuner.wrap(streamCallable) : streamCallable;
+            futures.add(executorService.submit(() -> {
+                try {
+                    return callable.call();
+                } finally {
+                    outstandingBatches.release();
+                }
+            }));
+            if (futures.size() % indexRun.callableCountByCommitInterval == 0) {
+                if (indexRun.commitPolicy.isIntervalBarrier()) {
+                    totalBibsProcessed[0] += getStreamedCount(indexRun.getIndexProgress(), futures);
+                    futures.clear();
+                }
+                try {
+                    commitInterval(indexRun);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        totalBibsProcessed[0] += getStreamedCount(indexRun.getIndexProgress(), futures);
+        logger.info("Num of Bibs read from cursor : " + numberOfBibsRead);
+        logger.info("Total Num of Bibs Processed and indexed to core : " + totalBibsProcessed[0]);
+        return totalBibsProcessed[0];
+    }
+
+    private int getStreamedCount(IndexProgress indexProgress, List<Future<Integer>> futures) {
+        int numOfBibsProcessed = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                numOfBibsProcessed += future.get();
+            } catch (InterruptedException e) {
+                indexProgress.addErrors(1);
+                logger.error("Interrupted while waiting for stream callable : " + e.getMessage());
+            } catch (ExecutionException e) {
+                indexProgress.addErrors(1);
+                logger.error("Stream callable failed after retries : " + e.getCause());
+            }
+        }
+        return numOfBibsProcessed;
+    }
+
+    /**
+     * Splits the id space between the lowest and highest id into loopCount ranges. Each callable seeks through its own
+     * range by key, so the cost of a page does not grow with its position in the table the way offset paging does.
+     * Ranges are read in pages of at most solr.index.pipeline.fetch.size records, so memory does not grow with the
+     * range size.
+     */
+    private List<Callable<Integer>> getKeysetCallables(IndexRun indexRun, Integer docsPerThread, Integer owningInstitutionId, Integer minId, Integer maxId, int rangeCount) {
+        List<Callable<Integer>> callables = new ArrayList<>();
+        if (null == minId || null == maxId) {
+            minId = getMinId(owningInstitutionId);
+            maxId = getMaxId(owningInstitutionId);
+        }
+        if (null != minId && null != maxId) {
+            long idSpan = (long) maxId - minId + 1;
+            long rangeSize = (idSpan + rangeCount - 1) / rangeCount;
+            int fetchSize = Math.min(docsPerThread, pipelineFetchSize);
+            logger.info("Key Range : " + minId + " - " + maxId + "   Range Size : " + rangeSize + "   Fetch Size : " + fetchSize);
+            for (long fromId = minId; fromId <= maxId; fromId += rangeSize) {
+                int toId = (int) Math.min(fromId + rangeSize - 1, maxId);
+                Callable callable = getKeysetCallable(indexRun, getTargetCoreName(indexRun, callables.size()), (int) fromId, toId, fetchSize, owningInstitutionId);
+                callables.add(callable);
+            }
+        }
+        return callables;
+    }
+
+    /**
+     * Splits a full run of all institutions into one partition per institution, each recorded as its own job with its
+     * own checkpoints and progress, and interleaves their callables so every institution gets an even share of the
+     * index threads. Weighted scheduling gives each institution a share in proportion to its number of callables
+     * instead, so the institutions finish together.
+     */
+    private List<Callable<Integer>> getInstitutionPartitionCallables(IndexRun indexRun, boolean resume, boolean keysetRequested,
+                                                                     Integer docsPerThread, boolean weighted) {
+        String fetchMode = keysetRequested ? RecapConstants.FETCH_MODE_KEYSET : RecapConstants.FETCH_MODE_PAGED;
+        Map<String, List<Callable<Integer>>> callablesByInstitution = new LinkedHashMap<>();
+        Map<String, Double> weights = new HashMap<>();
+        long totalRecords = 0;
+        IndexProgress runProgress = indexRun.getIndexProgress();
+        for (InstitutionEntity institutionEntity : institutionDetailsRepository.findAll()) {
+            Integer institutionId = institutionEntity.getInstitutionId();
+            Integer docCount = getTotalDocCount(institutionId);
+            if (null == docCount || docCount == 0) {
+                continue;
+            }
+            int partitionDocsPerThread = docsPerThread;
+            int rangeCount = (docCount + docsPerThread - 1) / docsPerThread;
+            Integer minId = null;
+            Integer maxId = null;
+            Set<Integer> completedRangeNums = new HashSet<>();
+            IndexJobEntity partitionJob = null;
+            if (resume) {
+                IndexJobEntity resumableJob = indexJobTracker.findResumableJob(getDocType(), institutionId);
+                if (null != resumableJob && fetchMode.equals(resumableJob.getFetchMode())) {
+                    partitionJob = resumableJob;
+                    partitionDocsPerThread = resumableJob.getDocsPerThread();
+                    rangeCount = resumableJob.getLoopCount();
+                    minId = resumableJob.getMinId();
+                    maxId = resumableJob.getMaxId();
+                    completedRangeNums = indexJobTracker.getCompletedRangeNums(resumableJob);
+                    if (null == indexRun.resumedJobStartDate || resumableJob.getStartDate().before(indexRun.resumedJobStartDate)) {
+                        indexRun.resumedJobStartDate = resumableJob.getStartDate();
+                    }
+                    logger.info("Resuming index job " + resumableJob.getJobId() + " of " + institutionEntity.getInstitutionCode() + ", "
+                            + completedRangeNums.size() + " of " + rangeCount + " ranges already completed");
+                }
+            }
+            if (null == partitionJob) {
+                if (keysetRequested) {
+                    minId = getMinId(institutionId);
+                    maxId = getMaxId(institutionId);
+                }
+                partitionJob = indexJobTracker.startJob(getDocType(), institutionId, fetchMode, partitionDocsPerThread, rangeCount, minId, maxId);
+            }
+
+            long partitionRecords = Math.max(docCount - (long) completedRangeNums.size() * partitionDocsPerThread, 0);
+            IndexProgress partitionProgress = runProgress.addPartition(institutionEntity.getInstitutionCode());
+            partitionProgress.setTotalRecords(partitionRecords);
+            totalRecords += partitionRecords;
+            // The callables and their pipelines report to the progress of the partition, which adds to the run's.
+            IndexRun partitionRun = indexRun.forPartition(partitionProgress);
+            List<Callable<Integer>> partitionCallables = new ArrayList<>();
+            if (keysetRequested) {
+                partitionCallables.addAll(getKeysetCallables(partitionRun, partitionDocsPerThread, institutionId, minId, maxId, rangeCount));
+            } else {
+                for (int pageNum = 0; pageNum < rangeCount; pageNum++) {
+                    partitionCallables.add(getCallable(partitionRun, indexRun.indexCore, pageNum, partitionDocsPerThread, institutionId));
+                }
+            }
+
+            InstitutionPartition institutionPartition = new InstitutionPartition(partitionJob, partitionProgress);
+            indexRun.institutionPartitions.add(institutionPartition);
+            partitionCallables = getRetryingCallables(partitionCallables);
+            partitionCallables = getCheckpointedCallables(indexRun, partitionCallables, completedRangeNums, partitionJob);
+            partitionCallables = institutionPartition.track(partitionCallables);
+            logger.info("Institution partition " + institutionEntity.getInstitutionCode() + " : " + partitionRecords + " records in "
+                    + partitionCallables.size() + " callables");
+            callablesByInstitution.put(institutionEntity.getInstitutionCode(), partitionCallables);
+            weights.put(institutionEntity.getInstitutionCode(), weighted ? Math.max(partitionCallables.size(), 1) : 1.0);
+        }
+        runProgress.setTotalRecords(totalRecords);
+        return PartitionScheduler.interleave(callablesByInstitution, weights);
+    }
+
+    /**
+     * Finishes the job and progress of every institution partition of the run. Called after the final commit.
+     */
+    private void finishInstitutionPartitions(IndexRun indexRun) {
+        for (InstitutionPartition institutionPartition : indexRun.institutionPartitions) {
+            boolean completed = institutionPartition.failedCallables.get() == 0 && indexRun.deadLetteredBatches.get() == 0;
+            institutionPartition.indexProgress.finish(completed);
+            indexJobTracker.finishJob(institutionPartition.indexJob, completed);
+        }
+    }
+
+    /**
+     * The read, transform and write stages for one callable of the run writing to the given core.
+     */
+    protected IndexPipeline newIndexPipeline(IndexRun indexRun, String coreName) {
+        IndexPipeline indexPipeline = new IndexPipeline(coreName, indexExecutorRegistry.getRecordSetupExecutor(), indexExecutorRegistry.getPageReaderExecutor(),
+                indexRun.getIndexQueue(), indexRun.getIndexProgress(), pipelineTransformWindow, pipelineSendBatchSize);
+        indexPipeline.setIndexQuarantine(indexQuarantine, getDocType());
+        indexPipeline.setBatchSettings(indexRun.batchSettings);
+        indexPipeline.setEmittedIds(indexRun.getEmittedItemIds(), indexRun.getEmittedHoldingsIds());
+        return indexPipeline;
+    }
+
+    /**
+     * Indexes the records quarantined by runs of this document type into the parent core again and commits them. Records
+     * that fail again stay quarantined and the rest are marked reprocessed. Returns the number reprocessed. The records
+     * are indexed as a run of their own, so it can overlap index runs.
+     */
+    public int reprocessQuarantined(IndexProgress indexProgress) throws Exception {
+        IndexRun indexRun = newIndexRun(indexProgress, false);
+        List<IndexQuarantineEntity> quarantinedRecords = indexQuarantine.getQuarantinedRecords(getDocType());
+        if (quarantinedRecords.isEmpty()) {
+            return 0;
+        }
+        List<Integer> recordIds = new ArrayList<>();
+        for (IndexQuarantineEntity indexQuarantineEntity : quarantinedRecords) {
+            recordIds.add(indexQuarantineEntity.getRecordId());
+        }
+        logger.info("Reprocessing " + recordIds.size() + " quarantined " + getDocType() + " records");
+        indexProgress.setTotalRecords(indexProgress.getTotalRecords() + recordIds.size());
+        for (List<Integer> ids : Lists.partition(recordIds, pipelineFetchSize)) {
+            getIdListCallable(indexRun, solrCore, new ArrayList<>(ids)).call();
+        }
+        solrIndexQueue.awaitAcknowledged();
+        solrBatchWriter.flush(solrCore);
+        solrBatchWriter.commit(solrCore, false, true);
+        int reprocessed = indexQuarantine.markReprocessed(quarantinedRecords);
+        logger.info("Reprocessed " + reprocessed + " of " + recordIds.size() + " quarantined " + getDocType() + " records");
+        return reprocessed;
+    }
+
+    /**
+     * A new run reporting to the given progress. A dry run sends its documents to a null sink of its own.
+     */
+    protected IndexRun newIndexRun(IndexProgress indexProgress, boolean dryRun) {
+        return new IndexRun(indexProgress, solrIndexQueue, dryRun ? new NullSinkIndexQueue(solrBatchWriter) : null);
+    }
+
+    /**
+     * Logs the rate of each indexing stage timed during a dry run over the run's wall time, with the rates of the records
+     * read and of the documents that reached the null sink.
+     */
+    private void logDryRunThroughput(IndexRun indexRun, Map<String, Long> stageCountsBefore, long elapsedMillis) {
+        IndexProgress indexProgress = indexRun.getIndexProgress();
+        NullSinkIndexQueue nullSinkIndexQueue = indexRun.getNullSinkIndexQueue();
+        double elapsedSeconds = Math.max(elapsedMillis, 1) / 1000.0;
+        Map<String, Map<String, Number>> snapshot = IndexMetrics.getSnapshot();
+        for (Map.Entry<String, Long> entry : IndexMetrics.getTimerCounts().entrySet()) {
+            Long countBefore = stageCountsBefore.get(entry.getKey());
+            long count = entry.getValue() - (null != countBefore ? countBefore : 0);
+            if (count > 0) {
+                logger.info("Dry run stage " + entry.getKey() + " : " + count + " calls, " + String.format("%.1f", count / elapsedSeconds)
+                        + " per second, mean " + String.format("%.3f", snapshot.get(entry.getKey()).get("meanMillis").doubleValue()) + " ms");
+            }
+        }
+        logger.info("Dry run read " + indexProgress.getRecordsFetched() + " records, " + String.format("%.1f", indexProgress.getRecordsFetched() / elapsedSeconds)
+                + " per second, and made " + nullSinkIndexQueue.getDocumentCount() + " documents in " + nullSinkIndexQueue.getBatchCount() + " batches, "
+                + String.format("%.1f", nullSinkIndexQueue.getDocumentCount() / elapsedSeconds) + " per second, of about "
+                + nullSinkIndexQueue.getByteCount() / 1024 + " KB in " + elapsedSeconds + " seconds");
     }
 
     private void deleteTempIndexes(List<String> coreNames, String solrUrl) {
@@ -204,22 +1014,72 @@ public abstract class IndexExecutorService {
         }
     }
 
-    private void startProcess() {
-        startTime = System.currentTimeMillis();
-        getStopWatch().start();
-    }
-
-    private void endProcess() {
-        getStopWatch().stop();
-    }
-
     public void setSolrAdmin(SolrAdmin solrAdmin) {
         this.solrAdmin = solrAdmin;
     }
 
-    public abstract Callable getCallable(String coreName, int pageNum, int docsPerpage, Integer owningInstitutionId);
+    public abstract Callable getCallable(IndexRun indexRun, String coreName, int pageNum, int docsPerpage, Integer owningInstitutionId);
+
+    public abstract Callable getKeysetCallable(IndexRun indexRun, String coreName, Integer fromId, Integer toId, int docsPerPage, Integer owningInstitutionId);
+
+    public abstract Callable getIdListCallable(IndexRun indexRun, String coreName, List<Integer> ids);
+
+    /**
+     * Ids of the records whose documents are out of date because they, or records embedded in their documents, were
+     * updated at or after the given date.
+     */
+    protected abstract List<Integer> getChangedIds(Date fromDate, Integer owningInstitutionId);
+
+    protected abstract String getDocType();
 
     protected abstract Integer getTotalDocCount(Integer owningInstitutionId);
 
+    /**
+     * The DocType of the Solr documents made one per record of this document type.
+     */
+    protected abstract String getSolrDocType();
+
+    /**
+     * Whether a swap build may replace the parent core with a build core written by this service. The swap drops every
+     * document the build core does not hold, so only a service that writes every document type of the core may.
+     */
+    protected boolean isSwapBuildSupported() {
+        return false;
+    }
+
+    protected abstract Integer getMinId(Integer owningInstitutionId);
+
+    protected abstract Integer getMaxId(Integer owningInstitutionId);
+
     protected abstract String getResourceURL();
+
+    /**
+     * The job and progress of one institution of a partitioned run, and the number of its callables that failed.
+     */
+    static class InstitutionPartition {
+
+        private final IndexJobEntity indexJob;
+        private final IndexProgress indexProgress;
+        private final AtomicInteger failedCallables = new AtomicInteger();
+
+        InstitutionPartition(IndexJobEntity indexJob, IndexProgress indexProgress) {
+            this.indexJob = indexJob;
+            this.indexProgress = indexProgress;
+        }
+
+        List<Callable<Integer>> track(List<Callable<Integer>> callables) {
+            List<Callable<Integer>> trackedCallables = new ArrayList<>();
+            for (Callable<Integer> callable : callables) {
+                trackedCallables.add(() -> {
+                    try {
+                        return callable.call();
+                    } catch (Exception e) {
+                        failedCallables.incrementAndGet();
+                        throw e;
+                    }
+                });
+            }
+            return trackedCallables;
+        }
+    }
 }
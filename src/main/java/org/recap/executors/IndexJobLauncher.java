@@ -0,0 +1,143 @@
+package org.recap.executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs index jobs in the background, in the order submitted, so that HTTP requests return as soon as a job is queued.
+ * Up to solr.index.jobs.concurrent jobs run at once; the index services keep the state of each run in its own
+ * {@link IndexRun}. An exclusive job, such as a clean or a build that replaces cores, waits for the jobs submitted
+ * before it and holds back the jobs submitted after it until it ends. The progress of the last solr.index.jobs.retained
+ * jobs is kept for the status endpoints.
+ */
+@Component
+public class IndexJobLauncher {
+
+    Logger logger = LoggerFactory.getLogger(IndexJobLauncher.class);
+
+    @Value("${solr.index.jobs.retained}")
+    Integer jobsRetained;
+
+    @Value("${solr.index.jobs.concurrent}")
+    Integer concurrentJobs;
+
+    private final AtomicInteger jobIdSequence = new AtomicInteger();
+    private final Map<Integer, IndexProgress> jobs = new LinkedHashMap<>();
+    private final Deque<QueuedJob> queuedJobs = new ArrayDeque<>();
+    private int runningJobs;
+    private boolean exclusiveJobRunning;
+    private final ExecutorService jobExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("indexJob-%d").setDaemon(true).build());
+
+    /**
+     * Queues the job and returns its id. The job gets the progress to update while it runs.
+     */
+    public Integer submit(String docType, Consumer<IndexProgress> job) {
+        return submit(docType, job, false);
+    }
+
+    /**
+     * Same as {@link #submit(String, Consumer)}, for a job that must not overlap any other.
+     */
+    public Integer submitExclusive(String docType, Consumer<IndexProgress> job) {
+        return submit(docType, job, true);
+    }
+
+    private Integer submit(String docType, Consumer<IndexProgress> job, boolean exclusive) {
+        IndexProgress indexProgress = new IndexProgress(jobIdSequence.incrementAndGet(), docType);
+        synchronized (jobs) {
+            jobs.put(indexProgress.getJobId(), indexProgress);
+            Iterator<Integer> jobIds = jobs.keySet().iterator();
+            while (jobs.size() > jobsRetained && jobIds.hasNext()) {
+                jobIds.next();
+                jobIds.remove();
+            }
+        }
+        synchronized (queuedJobs) {
+            queuedJobs.add(new QueuedJob(() -> {
+                try {
+                    job.accept(indexProgress);
+                } catch (Exception e) {
+                    indexProgress.fail();
+                    logger.error("Index job " + indexProgress.getJobId() + " failed : " + e.getMessage());
+                }
+            }, exclusive));
+            startQueuedJobs();
+        }
+        logger.info("Submitted " + (exclusive ? "exclusive " : "") + "index job " + indexProgress.getJobId() + " for " + docType);
+        return indexProgress.getJobId();
+    }
+
+    /**
+     * Starts the queued jobs in order for as long as the next one may run alongside the running ones.
+     */
+    private void startQueuedJobs() {
+        while (!queuedJobs.isEmpty() && !exclusiveJobRunning && !jobExecutor.isShutdown()) {
+            QueuedJob queuedJob = queuedJobs.peek();
+            if (queuedJob.exclusive ? runningJobs > 0 : runningJobs >= Math.max(concurrentJobs, 1)) {
+                return;
+            }
+            queuedJobs.poll();
+            runningJobs++;
+            exclusiveJobRunning = queuedJob.exclusive;
+            jobExecutor.execute(() -> {
+                try {
+                    queuedJob.job.run();
+                } finally {
+                    synchronized (queuedJobs) {
+                        runningJobs--;
+                        exclusiveJobRunning = false;
+                        startQueuedJobs();
+                    }
+                }
+            });
+        }
+    }
+
+    public IndexProgress getJob(Integer jobId) {
+        synchronized (jobs) {
+            return jobs.get(jobId);
+        }
+    }
+
+    /**
+     * The retained jobs, most recently submitted first.
+     */
+    public List<IndexProgress> getJobs() {
+        List<IndexProgress> indexProgresses;
+        synchronized (jobs) {
+            indexProgresses = new ArrayList<>(jobs.values());
+        }
+        Collections.reverse(indexProgresses);
+        return indexProgresses;
+    }
+
+    public IndexProgress getLatestJob() {
+        List<IndexProgress> indexProgresses = getJobs();
+        return indexProgresses.isEmpty() ? null : indexProgresses.get(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private static class QueuedJob {
+        private final Runnable job;
+        private final boolean exclusive;
+
+        QueuedJob(Runnable job, boolean exclusive) {
+            this.job = job;
+            this.exclusive = exclusive;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.recap.executors;
+
+import org.recap.RecapConstants;
+import org.recap.model.jpa.IndexJobEntity;
+import org.recap.model.jpa.IndexJobRangeEntity;
+import org.recap.repository.jpa.IndexJobDetailsRepository;
+import org.recap.repository.jpa.IndexJobRangeDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Records full index jobs and the ranges of them that have been committed, so a job that dies part way can be resumed
+ * without indexing those ranges again. Failing to read or write the job tables is logged and never stops an index run.
+ */
+@Component
+public class IndexJobTracker {
+
+    Logger logger = LoggerFactory.getLogger(IndexJobTracker.class);
+
+    @Autowired
+    IndexJobDetailsRepository indexJobDetailsRepository;
+
+    @Autowired
+    IndexJobRangeDetailsRepository indexJobRangeDetailsRepository;
+
+    /**
+     * Returns the latest job for the document type and owning institution if it did not complete, otherwise null.
+     */
+    public IndexJobEntity findResumableJob(String docType, Integer owningInstitutionId) {
+        try {
+            IndexJobEntity indexJobEntity = null == owningInstitutionId ?
+                    indexJobDetailsRepository.findFirstByDocTypeAndOwningInstitutionIdIsNullOrderByJobIdDesc(docType) :
+                    indexJobDetailsRepository.findFirstByDocTypeAndOwningInstitutionIdOrderByJobIdDesc(docType, owningInstitutionId);
+            if (null != indexJobEntity && !RecapConstants.INDEX_JOB_COMPLETED.equals(indexJobEntity.getStatus())) {
+                return indexJobEntity;
+            }
+        } catch (Exception e) {
+            logger.error("Unable to read index jobs : " + e.getMessage());
+        }
+        return null;
+    }
+
+    public IndexJobEntity startJob(String docType, Integer owningInstitutionId, String fetchMode, Integer docsPerThread,
+                                   Integer loopCount, Integer minId, Integer maxId) {
+        IndexJobEntity indexJobEntity = new IndexJobEntity();
+        indexJobEntity.setDocType(docType);
+        indexJobEntity.setOwningInstitutionId(owningInstitutionId);
+        indexJobEntity.setFetchMode(fetchMode);
+        indexJobEntity.setDocsPerThread(docsPerThread);
+        indexJobEntity.setLoopCount(loopCount);
+        indexJobEntity.setMinId(minId);
+        indexJobEntity.setMaxId(maxId);
+        indexJobEntity.setStatus(RecapConstants.INDEX_JOB_RUNNING);
+        indexJobEntity.setStartDate(new Date());
+        indexJobEntity.setLastUpdatedDate(new Date());
+        try {
+            indexJobEntity = indexJobDetailsRepository.save(indexJobEntity);
+            logger.info("Started index job " + indexJobEntity.getJobId() + " for " + docType + " with " + loopCount + " ranges");
+            return indexJobEntity;
+        } catch (Exception e) {
+            logger.error("Unable to save index job, the run will not be resumable : " + e.getMessage());
+        }
+        return null;
+    }
+
+    public Set<Integer> getCompletedRangeNums(IndexJobEntity indexJobEntity) {
+        try {
+            return new HashSet<>(indexJobRangeDetailsRepository.findRangeNumsByJobId(indexJobEntity.getJobId()));
+        } catch (Exception e) {
+            logger.error("Unable to read completed ranges of index job " + indexJobEntity.getJobId() + " : " + e.getMessage());
+        }
+        return new HashSet<>();
+    }
+
+    /**
+     * Records the given ranges, with their document counts, as completed. Must only be called once a commit covering
+     * them has succeeded.
+     */
+    public void saveCompletedRanges(IndexJobEntity indexJobEntity, Map<Integer, Integer> docCountByRangeNum) {
+        if (docCountByRangeNum.isEmpty()) {
+            return;
+        }
+        List<IndexJobRangeEntity> indexJobRangeEntities = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : docCountByRangeNum.entrySet()) {
+            IndexJobRangeEntity indexJobRangeEntity = new IndexJobRangeEntity();
+            indexJobRangeEntity.setJobId(indexJobEntity.getJobId());
+            indexJobRangeEntity.setRangeNum(entry.getKey());
+            indexJobRangeEntity.setDocCount(entry.getValue());
+            indexJobRangeEntity.setCompletedDate(new Date());
+            indexJobRangeEntities.add(indexJobRangeEntity);
+        }
+        try {
+            indexJobRangeDetailsRepository.save(indexJobRangeEntities);
+            logger.info("Checkpointed " + indexJobRangeEntities.size() + " ranges of index job " + indexJobEntity.getJobId());
+        } catch (Exception e) {
+            logger.error("Unable to checkpoint ranges of index job " + indexJobEntity.getJobId() + " : " + e.getMessage());
+        }
+    }
+
+    public void finishJob(IndexJobEntity indexJobEntity, boolean completed) {
+        updateStatus(indexJobEntity, completed ? RecapConstants.INDEX_JOB_COMPLETED : RecapConstants.INDEX_JOB_INCOMPLETE);
+    }
+
+    /**
+     * Marks the job failed by an error of the run itself. Like an incomplete job, it can be resumed.
+     */
+    public void failJob(IndexJobEntity indexJobEntity) {
+        updateStatus(indexJobEntity, RecapConstants.INDEX_JOB_FAILED);
+    }
+
+    private void updateStatus(IndexJobEntity indexJobEntity, String status) {
+        indexJobEntity.setStatus(status);
+        indexJobEntity.setLastUpdatedDate(new Date());
+        try {
+            indexJobDetailsRepository.save(indexJobEntity);
+            logger.info("Index job " + indexJobEntity.getJobId() + " finished with status " + indexJobEntity.getStatus());
+        } catch (Exception e) {
+            logger.error("Unable to update index job " + indexJobEntity.getJobId() + " : " + e.getMessage());
+        }
+    }
+}
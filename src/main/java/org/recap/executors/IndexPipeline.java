@@ -0,0 +1,288 @@
+package org.recap.executors;
+
+import org.recap.model.solr.Holdings;
+import org.recap.model.solr.Item;
+import org.recap.util.ConcurrentIdSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.CollectionUtils;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * The read, transform and write stages of one index callable, connected so that memory is bounded by the stage sizes
+ * rather than by the number of records the callable indexes.
+ *
+ * Read: pages of a key range are read one ahead on the page reader pool, so the next page is fetched while the current
+ * one is transformed. Transform: each record is set up on the shared record setup pool, with at most transformWindow
+ * records of the callable in flight; submitting another waits for the oldest. Write: documents are collected per
+ * document type in the order their records were submitted and handed to the Solr queue every sendBatchSize documents,
+ * instead of once per page.
+ *
+ * A record that cannot be transformed is counted as an error and skipped, and the rest of its page is still indexed.
+ * When the pipeline has a quarantine and the record was submitted with its entity, the record is quarantined and the
+ * callable carries on. Otherwise {@link #flush()} fails once everything else has been sent, so the callable still fails
+ * and the run is not marked complete.
+ *
+ * Items and holdings shared by several bibs are marked emitted when their first bib is transformed. When the pipeline
+ * fails before they are handed to the Solr queue, they are un-marked again, so a retry of the range sends them.
+ */
+public class IndexPipeline {
+
+    Logger logger = LoggerFactory.getLogger(IndexPipeline.class);
+
+    private final String coreName;
+    private final ExecutorService recordSetupExecutorService;
+    private final ExecutorService pageReaderExecutorService;
+    private final SolrIndexQueue solrIndexQueue;
+    private final IndexProgress indexProgress;
+    private final int transformWindow;
+    private final int sendBatchSize;
+
+    private IndexQuarantine indexQuarantine;
+    private String docType;
+    private SolrBatchSettings batchSettings;
+    private ConcurrentIdSet emittedItemIds;
+    private ConcurrentIdSet emittedHoldingsIds;
+
+    private final Deque<InFlightRecord> inFlightRecords = new ArrayDeque<>();
+    private final Map<String, List<Object>> documentsByType = new LinkedHashMap<>();
+    private int failedRecords;
+
+    public IndexPipeline(String coreName, ExecutorService recordSetupExecutorService, ExecutorService pageReaderExecutorService,
+                         SolrIndexQueue solrIndexQueue, IndexProgress indexProgress, int transformWindow, int sendBatchSize) {
+        this.coreName = coreName;
+        this.recordSetupExecutorService = recordSetupExecutorService;
+        this.pageReaderExecutorService = pageReaderExecutorService;
+        this.solrIndexQueue = solrIndexQueue;
+        this.indexProgress = indexProgress;
+        this.transformWindow = Math.max(transformWindow, 1);
+        this.sendBatchSize = Math.max(sendBatchSize, 1);
+    }
+
+    /**
+     * Quarantines the records that fail to transform for an index run of the given document type.
+     */
+    public void setIndexQuarantine(IndexQuarantine indexQuarantine, String docType) {
+        this.indexQuarantine = indexQuarantine;
+        this.docType = docType;
+    }
+
+    /**
+     * Has the Solr writer batch and send the documents of the pipeline with the settings of its run rather than the
+     * defaults of the core.
+     */
+    public void setBatchSettings(SolrBatchSettings batchSettings) {
+        this.batchSettings = batchSettings;
+    }
+
+    /**
+     * The ids the record setup callables of the pipeline mark items and holdings emitted in, to un-mark the ones the
+     * pipeline fails to send.
+     */
+    public void setEmittedIds(ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds) {
+        this.emittedItemIds = emittedItemIds;
+        this.emittedHoldingsIds = emittedHoldingsIds;
+    }
+
+    /**
+     * Reads the pages of a key range through the page reader, one page ahead, and submits every record of them.
+     * Returns the number of records read. Reading stops at the first page shorter than pageSize.
+     *
+     * @param afterId     the id after which the first page starts
+     * @param pageReader  reads the page of up to pageSize records after the given id, in id order
+     * @param idFunction  the id of a record
+     * @param recordSetup the setup callable that transforms a record
+     */
+    public <E> int indexPages(Integer afterId, int pageSize, Function<Integer, List<E>> pageReader,
+                              Function<E, Integer> idFunction, Function<E, Callable<?>> recordSetup) throws Exception {
+        int recordsRead = 0;
+        try {
+            List<E> page = pageReader.apply(afterId);
+            while (!CollectionUtils.isEmpty(page)) {
+                recordsRead += page.size();
+                Future<List<E>> nextPage = null;
+                if (page.size() == pageSize) {
+                    Integer lastId = idFunction.apply(page.get(page.size() - 1));
+                    nextPage = pageReaderExecutorService.submit(() -> pageReader.apply(lastId));
+                }
+                for (E entity : page) {
+                    submit(recordSetup.apply(entity), entity);
+                }
+                page = null != nextPage ? getPage(nextPage) : null;
+            }
+        } catch (Exception e) {
+            discard();
+            throw e;
+        }
+        return recordsRead;
+    }
+
+    /**
+     * Submits a record setup callable, first collecting the oldest in-flight records while transformWindow are in
+     * flight. The callable returns a solr bean, or a map of lists of solr beans by document type.
+     */
+    public void submit(Callable<?> recordSetupCallable) throws InterruptedException {
+        submit(recordSetupCallable, null);
+    }
+
+    /**
+     * Same as {@link #submit(Callable)}, with the entity the callable transforms so it can be quarantined if it fails.
+     */
+    public void submit(Callable<?> recordSetupCallable, Object record) throws InterruptedException {
+        try {
+            while (inFlightRecords.size() >= transformWindow) {
+                collect(inFlightRecords.peek());
+                inFlightRecords.poll();
+            }
+            inFlightRecords.add(new InFlightRecord(recordSetupExecutorService.submit(recordSetupCallable), record));
+        } catch (InterruptedException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for every submitted record and sends the documents still collected. Fails if any record could not be
+     * transformed.
+     */
+    public void flush() throws InterruptedException {
+        try {
+            while (!inFlightRecords.isEmpty()) {
+                collect(inFlightRecords.peek());
+                inFlightRecords.poll();
+            }
+            Iterator<List<Object>> collectedDocuments = documentsByType.values().iterator();
+            while (collectedDocuments.hasNext()) {
+                send(collectedDocuments.next());
+                collectedDocuments.remove();
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+        if (failedRecords > 0) {
+            int failed = failedRecords;
+            failedRecords = 0;
+            throw new RecordsNotTransformedException(failed + " records could not be transformed for " + coreName);
+        }
+    }
+
+    private <E> List<E> getPage(Future<List<E>> page) throws Exception {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private void collect(InFlightRecord inFlightRecord) throws InterruptedException {
+        try {
+            Object result = inFlightRecord.future.get();
+            if (result instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+                    add(String.valueOf(entry.getKey()), (List<?>) entry.getValue());
+                }
+            } else if (null != result) {
+                add(result.getClass().getSimpleName(), Collections.singletonList(result));
+            }
+        } catch (ExecutionException e) {
+            indexProgress.addErrors(1);
+            if (null != indexQuarantine && null != inFlightRecord.record && indexQuarantine.quarantine(docType, inFlightRecord.record, e.getCause())) {
+                indexProgress.addQuarantined(1);
+            } else {
+                failedRecords++;
+                logger.error("Unable to transform record for " + coreName + " : " + e.getCause());
+            }
+        }
+    }
+
+    private void add(String docType, List<?> documents) {
+        if (CollectionUtils.isEmpty(documents)) {
+            return;
+        }
+        indexProgress.addDocsTransformed(documents.size());
+        List<Object> collected = documentsByType.computeIfAbsent(docType, type -> new ArrayList<>());
+        collected.addAll(documents);
+        if (collected.size() >= sendBatchSize) {
+            send(collected);
+            documentsByType.remove(docType);
+        }
+    }
+
+    /**
+     * Drops everything the pipeline has not handed to the Solr queue after it failed: waits for the records still in
+     * flight and un-marks the items and holdings among their documents and the collected ones.
+     */
+    private void discard() {
+        List<Object> unsentDocuments = new ArrayList<>();
+        for (List<Object> documents : documentsByType.values()) {
+            unsentDocuments.addAll(documents);
+        }
+        documentsByType.clear();
+        while (!inFlightRecords.isEmpty()) {
+            try {
+                Object result = inFlightRecords.poll().future.get();
+                if (result instanceof Map) {
+                    for (Object documents : ((Map<?, ?>) result).values()) {
+                        unsentDocuments.addAll((List<?>) documents);
+                    }
+                } else if (null != result) {
+                    unsentDocuments.add(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // The record failed, so it marked nothing emitted.
+            }
+        }
+        int unmarked = 0;
+        for (Object document : unsentDocuments) {
+            if (document instanceof Item && null != emittedItemIds && null != ((Item) document).getItemId()) {
+                unmarked += emittedItemIds.remove(((Item) document).getItemId()) ? 1 : 0;
+            } else if (document instanceof Holdings && null != emittedHoldingsIds && null != ((Holdings) document).getHoldingsId()) {
+                unmarked += emittedHoldingsIds.remove(((Holdings) document).getHoldingsId()) ? 1 : 0;
+            }
+        }
+        if (unmarked > 0) {
+            logger.info("Un-marked " + unmarked + " items and holdings not sent to " + coreName + " so a retry sends them");
+        }
+    }
+
+    private void send(List<Object> documents) {
+        if (!documents.isEmpty()) {
+            solrIndexQueue.send(coreName, documents, batchSettings);
+            indexProgress.addDocsSent(documents.size());
+        }
+    }
+
+    private static class InFlightRecord {
+        private final Future<?> future;
+        private final Object record;
+
+        InFlightRecord(Future<?> future, Object record) {
+            this.future = future;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Thrown by {@link #flush()} when records failed to transform. Reading them again fails the same way, so callables
+     * failing with it are not retried.
+     */
+    public static class RecordsNotTransformedException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        public RecordsNotTransformedException(String message) {
+            super(message);
+        }
+    }
+}
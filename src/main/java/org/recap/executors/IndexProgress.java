@@ -0,0 +1,253 @@
+package org.recap.executors;
+
+import org.recap.RecapConstants;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of one index run. Records are counted as fetched when read from the database; the Solr documents made
+ * from them are counted as transformed, sent once handed to the Solr queue and committed once a commit has covered
+ * them. A Bib+Items run makes several documents per record.
+ *
+ * The current rate is measured over the time since it was last sampled, at least RATE_SAMPLE_MILLIS apart, and the ETA
+ * is the number of records left to fetch at the current fetch rate.
+ *
+ * A run split into partitions, one per institution, has a progress per partition as well. Counts added to a partition
+ * are added to the run too.
+ */
+public class IndexProgress {
+
+    static final long RATE_SAMPLE_MILLIS = 5000;
+
+    private final Integer jobId;
+    private final String docType;
+    private final IndexProgress parent;
+    private final String partition;
+    private final List<IndexProgress> partitions = new CopyOnWriteArrayList<>();
+    private final Date submittedDate = new Date();
+    private volatile String status = RecapConstants.INDEX_JOB_QUEUED;
+    private volatile Date startDate;
+    private volatile Date endDate;
+    private volatile long totalRecords;
+
+    private final AtomicLong recordsFetched = new AtomicLong();
+    private final AtomicLong docsTransformed = new AtomicLong();
+    private final AtomicLong docsSent = new AtomicLong();
+    private final AtomicLong docsCommitted = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+
+    private long lastSampleTime;
+    private long lastSampleRecords;
+    private long lastSampleDocs;
+    private double recordsPerSecond;
+    private double docsPerSecond;
+
+    public IndexProgress(Integer jobId, String docType) {
+        this(jobId, docType, null, null);
+    }
+
+    private IndexProgress(Integer jobId, String docType, IndexProgress parent, String partition) {
+        this.jobId = jobId;
+        this.docType = docType;
+        this.parent = parent;
+        this.partition = partition;
+    }
+
+    /**
+     * Adds a started partition of the run with the given name.
+     */
+    public IndexProgress addPartition(String partition) {
+        IndexProgress indexProgress = new IndexProgress(jobId, docType, this, partition);
+        indexProgress.start();
+        partitions.add(indexProgress);
+        return indexProgress;
+    }
+
+    public synchronized void start() {
+        status = RecapConstants.INDEX_JOB_RUNNING;
+        startDate = new Date();
+        lastSampleTime = startDate.getTime();
+    }
+
+    public void finish(boolean completed) {
+        status = completed ? RecapConstants.INDEX_JOB_COMPLETED : RecapConstants.INDEX_JOB_INCOMPLETE;
+        endDate = new Date();
+    }
+
+    public void fail() {
+        status = RecapConstants.INDEX_JOB_FAILED;
+        endDate = new Date();
+    }
+
+    public void addRecordsFetched(int count) {
+        recordsFetched.addAndGet(count);
+        if (null != parent) {
+            parent.addRecordsFetched(count);
+        }
+    }
+
+    public void addDocsTransformed(int count) {
+        docsTransformed.addAndGet(count);
+        if (null != parent) {
+            parent.addDocsTransformed(count);
+        }
+    }
+
+    public void addDocsSent(int count) {
+        docsSent.addAndGet(count);
+        if (null != parent) {
+            parent.addDocsSent(count);
+        }
+    }
+
+    public void addErrors(int count) {
+        errors.addAndGet(count);
+        if (null != parent) {
+            parent.addErrors(count);
+        }
+    }
+
+    /**
+     * Counts records that failed and were quarantined. They are also counted as errors.
+     */
+    public void addQuarantined(int count) {
+        quarantined.addAndGet(count);
+        if (null != parent) {
+            parent.addQuarantined(count);
+        }
+    }
+
+    /**
+     * Marks the documents sent before a commit started as committed once it has succeeded.
+     */
+    public void setDocsCommitted(long count) {
+        docsCommitted.accumulateAndGet(count, Math::max);
+    }
+
+    public void setTotalRecords(long totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public Integer getJobId() {
+        return jobId;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public String getPartition() {
+        return partition;
+    }
+
+    public List<IndexProgress> getPartitions() {
+        return partitions;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Date getSubmittedDate() {
+        return submittedDate;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    public long getRecordsFetched() {
+        return recordsFetched.get();
+    }
+
+    public long getDocsTransformed() {
+        return docsTransformed.get();
+    }
+
+    public long getDocsSent() {
+        return docsSent.get();
+    }
+
+    public long getDocsCommitted() {
+        return docsCommitted.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getQuarantined() {
+        return quarantined.get();
+    }
+
+    public synchronized double getDocsPerSecond() {
+        sampleRates();
+        return docsPerSecond;
+    }
+
+    /**
+     * Seconds left until every record has been fetched at the current rate, or null when it cannot be estimated.
+     */
+    public synchronized Long getEtaSeconds() {
+        sampleRates();
+        long recordsLeft = totalRecords - recordsFetched.get();
+        if (!RecapConstants.INDEX_JOB_RUNNING.equals(status) || recordsLeft < 0 || recordsPerSecond <= 0) {
+            return null;
+        }
+        return (long) Math.ceil(recordsLeft / recordsPerSecond);
+    }
+
+    private void sampleRates() {
+        if (null == startDate) {
+            return;
+        }
+        long now = null != endDate ? endDate.getTime() : System.currentTimeMillis();
+        long elapsed = now - lastSampleTime;
+        boolean firstSample = lastSampleTime == startDate.getTime();
+        if (elapsed >= RATE_SAMPLE_MILLIS || (firstSample && elapsed > 0)) {
+            long records = recordsFetched.get();
+            long docs = docsSent.get();
+            recordsPerSecond = (records - lastSampleRecords) * 1000.0 / elapsed;
+            docsPerSecond = (docs - lastSampleDocs) * 1000.0 / elapsed;
+            if (elapsed >= RATE_SAMPLE_MILLIS) {
+                lastSampleTime = now;
+                lastSampleRecords = records;
+                lastSampleDocs = docs;
+            }
+        }
+    }
+
+    public String getSummary() {
+        Long etaSeconds = getEtaSeconds();
+        return "Job " + jobId + " (" + docType + ") " + status
+                + "\nRecords fetched : " + getRecordsFetched() + " of " + totalRecords
+                + "\nDocs transformed : " + getDocsTransformed() + "   sent : " + getDocsSent() + "   committed : " + getDocsCommitted()
+                + "\nDocs/sec : " + String.format("%.1f", getDocsPerSecond())
+                + "   ETA : " + (null != etaSeconds ? etaSeconds + " secs" : "-")
+                + "   Errors : " + getErrors() + "   Quarantined : " + getQuarantined()
+                + getPartitionSummary();
+    }
+
+    private String getPartitionSummary() {
+        StringBuilder partitionSummary = new StringBuilder();
+        for (IndexProgress indexProgress : partitions) {
+            partitionSummary.append("\n").append(indexProgress.getPartition()).append(" ").append(indexProgress.getStatus())
+                    .append(" : ").append(indexProgress.getRecordsFetched()).append(" of ").append(indexProgress.getTotalRecords())
+                    .append(" records   committed docs : ").append(indexProgress.getDocsCommitted())
+                    .append("   errors : ").append(indexProgress.getErrors());
+        }
+        return partitionSummary.toString();
+    }
+}
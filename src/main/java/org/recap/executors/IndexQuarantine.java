@@ -0,0 +1,111 @@
+package org.recap.executors;
+
+import com.google.common.hash.Hashing;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.jpa.HoldingsEntity;
+import org.recap.model.jpa.IndexQuarantineEntity;
+import org.recap.model.jpa.ItemEntity;
+import org.recap.repository.jpa.IndexQuarantineDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Keeps the records an index run could not transform in index_quarantine_t, so the rest of their page is indexed and
+ * the run can complete. A record quarantined again while it is still quarantined updates the same row.
+ */
+@Component
+public class IndexQuarantine {
+
+    Logger logger = LoggerFactory.getLogger(IndexQuarantine.class);
+
+    static final int MAX_EXCEPTION_LENGTH = 1000;
+
+    @Autowired
+    IndexQuarantineDetailsRepository indexQuarantineDetailsRepository;
+
+    /**
+     * Quarantines a bib, holdings or item entity that failed for an index run of the given document type. Returns
+     * false when the record is of another type or could not be saved, in which case the caller should treat it as a
+     * failure.
+     */
+    public boolean quarantine(String docType, Object record, Throwable cause) {
+        Integer recordId;
+        Integer owningInstitutionId;
+        byte[] content = null;
+        if (record instanceof BibliographicEntity) {
+            BibliographicEntity bibliographicEntity = (BibliographicEntity) record;
+            recordId = bibliographicEntity.getBibliographicId();
+            owningInstitutionId = bibliographicEntity.getOwningInstitutionId();
+            content = bibliographicEntity.getContent();
+        } else if (record instanceof HoldingsEntity) {
+            HoldingsEntity holdingsEntity = (HoldingsEntity) record;
+            recordId = holdingsEntity.getHoldingsId();
+            owningInstitutionId = holdingsEntity.getOwningInstitutionId();
+            content = holdingsEntity.getContent();
+        } else if (record instanceof ItemEntity) {
+            ItemEntity itemEntity = (ItemEntity) record;
+            recordId = itemEntity.getItemId();
+            owningInstitutionId = itemEntity.getOwningInstitutionId();
+        } else {
+            return false;
+        }
+        try {
+            IndexQuarantineEntity indexQuarantineEntity = indexQuarantineDetailsRepository.findFirstByDocTypeAndRecordIdAndStatus(docType, recordId, RecapConstants.QUARANTINED);
+            if (null == indexQuarantineEntity) {
+                indexQuarantineEntity = new IndexQuarantineEntity();
+                indexQuarantineEntity.setDocType(docType);
+                indexQuarantineEntity.setRecordId(recordId);
+                indexQuarantineEntity.setAttempts(0);
+                indexQuarantineEntity.setStatus(RecapConstants.QUARANTINED);
+                indexQuarantineEntity.setCreatedDate(new Date());
+            }
+            indexQuarantineEntity.setOwningInstitutionId(owningInstitutionId);
+            indexQuarantineEntity.setException(truncate(String.valueOf(cause)));
+            indexQuarantineEntity.setContentHash(null != content ? Hashing.sha256().hashBytes(content).toString() : null);
+            indexQuarantineEntity.setAttempts(indexQuarantineEntity.getAttempts() + 1);
+            indexQuarantineEntity.setLastUpdatedDate(new Date());
+            indexQuarantineDetailsRepository.save(indexQuarantineEntity);
+            logger.info("Quarantined " + docType + " record " + recordId + " : " + cause);
+            return true;
+        } catch (Exception e) {
+            logger.error("Unable to quarantine " + docType + " record " + recordId + " : " + e.getMessage());
+        }
+        return false;
+    }
+
+    public List<IndexQuarantineEntity> getQuarantinedRecords() {
+        return indexQuarantineDetailsRepository.findByStatusOrderByQuarantineIdAsc(RecapConstants.QUARANTINED);
+    }
+
+    public List<IndexQuarantineEntity> getQuarantinedRecords(String docType) {
+        return indexQuarantineDetailsRepository.findByDocTypeAndStatusOrderByRecordIdAsc(docType, RecapConstants.QUARANTINED);
+    }
+
+    /**
+     * Marks the given records, read before they were reprocessed, as reprocessed unless they have been quarantined
+     * again since. Returns the number marked.
+     */
+    public int markReprocessed(List<IndexQuarantineEntity> quarantinedRecords) {
+        int reprocessed = 0;
+        for (IndexQuarantineEntity quarantinedRecord : quarantinedRecords) {
+            IndexQuarantineEntity indexQuarantineEntity = indexQuarantineDetailsRepository.findOne(quarantinedRecord.getQuarantineId());
+            if (null != indexQuarantineEntity && RecapConstants.QUARANTINED.equals(indexQuarantineEntity.getStatus())
+                    && indexQuarantineEntity.getAttempts().equals(quarantinedRecord.getAttempts())) {
+                indexQuarantineEntity.setStatus(RecapConstants.QUARANTINE_REPROCESSED);
+                indexQuarantineEntity.setLastUpdatedDate(new Date());
+                indexQuarantineDetailsRepository.save(indexQuarantineEntity);
+                reprocessed++;
+            }
+        }
+        return reprocessed;
+    }
+
+    private String truncate(String exception) {
+        return exception.length() > MAX_EXCEPTION_LENGTH ? exception.substring(0, MAX_EXCEPTION_LENGTH) : exception;
+    }
+}
@@ -0,0 +1,152 @@
+package org.recap.executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded hand-off of document batches from many producers to one consumer thread, in the style of a Disruptor ring
+ * buffer. The slots are allocated up front and reused. A producer claims the next sequence with a single atomic
+ * increment, waits while its slot still holds a batch the consumer has not taken, fills the slot, and publishes it by
+ * writing the sequence into the slot's availability entry. The consumer drains every contiguous published slot in one
+ * pass and only then moves its sequence on, so a burst of batches costs it one update of the shared sequence rather
+ * than one per batch. No locks are taken; waiting producers and the idle consumer park for a short while.
+ */
+public class IndexRingBuffer {
+
+    Logger logger = LoggerFactory.getLogger(IndexRingBuffer.class);
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int capacity;
+    private final int mask;
+    private final String[] coreNames;
+    private final List<?>[] batches;
+    private final SolrBatchSettings[] batchSettings;
+    private final long[] batchSequences;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final BatchHandler handler;
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    /**
+     * A ring of at least the given number of slots, rounded up to a power of two, whose batches are passed to the handler
+     * on the consumer thread in the order they were claimed.
+     */
+    public IndexRingBuffer(int minCapacity, BatchHandler handler) {
+        this.capacity = Integer.highestOneBit(Math.max(minCapacity, 1) * 2 - 1);
+        this.mask = capacity - 1;
+        this.coreNames = new String[capacity];
+        this.batches = new List<?>[capacity];
+        this.batchSettings = new SolrBatchSettings[capacity];
+        this.batchSequences = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            published.set(slot, -1);
+        }
+        this.handler = handler;
+    }
+
+    public synchronized void start(String threadName) {
+        if (!running) {
+            running = true;
+            consumerThread = new Thread(this::consume, threadName);
+            consumerThread.setDaemon(true);
+            consumerThread.start();
+        }
+    }
+
+    /**
+     * Stops the consumer thread once it has drained what has been published.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (running) {
+            running = false;
+            LockSupport.unpark(consumerThread);
+            consumerThread.join();
+        }
+    }
+
+    /**
+     * Publishes a batch for the given core, waiting while the ring is full. The batch sequence is handed to the handler
+     * with the batch, so the sender can tell which batch it was.
+     */
+    public void publish(String coreName, List<?> documents, long batchSequence) {
+        publish(coreName, documents, null, batchSequence);
+    }
+
+    /**
+     * Same as {@link #publish(String, List, long)}, handing the batch settings to the handler with the batch.
+     */
+    public void publish(String coreName, List<?> documents, SolrBatchSettings settings, long batchSequence) {
+        long sequence = claimed.incrementAndGet();
+        while (sequence - capacity > consumed.get()) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        int slot = (int) sequence & mask;
+        coreNames[slot] = coreName;
+        batches[slot] = documents;
+        batchSettings[slot] = settings;
+        batchSequences[slot] = batchSequence;
+        published.lazySet(slot, sequence);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of batches published or being published that the consumer has not taken yet.
+     */
+    public long getPendingCount() {
+        return claimed.get() - consumed.get();
+    }
+
+    private void consume() {
+        long next = consumed.get() + 1;
+        while (true) {
+            long available = next - 1;
+            while (published.get((int) (available + 1) & mask) == available + 1) {
+                available++;
+            }
+            if (available < next) {
+                if (!running && claimed.get() < next) {
+                    return;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+            for (long sequence = next; sequence <= available; sequence++) {
+                int slot = (int) sequence & mask;
+                String coreName = coreNames[slot];
+                List<?> documents = batches[slot];
+                SolrBatchSettings settings = batchSettings[slot];
+                long batchSequence = batchSequences[slot];
+                coreNames[slot] = null;
+                batches[slot] = null;
+                batchSettings[slot] = null;
+                try {
+                    handler.handle(coreName, documents, settings, batchSequence);
+                } catch (RuntimeException e) {
+                    logger.error("Unable to hand " + documents.size() + " docs to the Solr writer : " + e.getMessage());
+                }
+            }
+            consumed.lazySet(available);
+            next = available + 1;
+        }
+    }
+
+    /**
+     * Takes the batches off the ring, on the consumer thread.
+     */
+    public interface BatchHandler {
+        void handle(String coreName, List<?> documents, SolrBatchSettings batchSettings, long batchSequence);
+    }
+}
@@ -0,0 +1,105 @@
+package org.recap.executors;
+
+import org.recap.model.jpa.IndexJobEntity;
+import org.recap.util.ConcurrentIdSet;
+import org.springframework.util.StopWatch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of one index run: its progress, where its documents go and the batch settings they are written with, the
+ * cores and jobs it writes to, the ranges it has sent but not yet committed and its dead-lettered batches. The index
+ * services are singletons, so everything that belongs to a run is kept here and handed to the callables the run
+ * creates, which lets runs overlap.
+ */
+public class IndexRun {
+
+    private final IndexProgress indexProgress;
+    private final SolrIndexQueue indexQueue;
+    private final NullSinkIndexQueue nullSinkIndexQueue;
+    private final ConcurrentIdSet emittedItemIds;
+    private final ConcurrentIdSet emittedHoldingsIds;
+
+    CommitPolicy commitPolicy;
+    SolrBatchSettings batchSettings;
+    int callableCountByCommitInterval = 1;
+    List<String> targetCoreNames;
+    String indexCore;
+    IndexJobEntity indexJob;
+    AdaptiveIndexTuner indexTuner;
+    Date resumedJobStartDate;
+    final List<IndexExecutorService.InstitutionPartition> institutionPartitions = new ArrayList<>();
+    final Map<IndexJobEntity, Map<Integer, Integer>> pendingCheckpoints = new ConcurrentHashMap<>();
+    final Map<String, Long> deadLetterCounts = new HashMap<>();
+    final AtomicLong deadLetteredBatches = new AtomicLong();
+    final AtomicLong commitTime = new AtomicLong();
+    final StopWatch stopWatch = new StopWatch();
+
+    /**
+     * A run that sends its documents to the given null sink when there is one, to the Solr queue otherwise.
+     */
+    IndexRun(IndexProgress indexProgress, SolrIndexQueue solrIndexQueue, NullSinkIndexQueue nullSinkIndexQueue) {
+        this(indexProgress, null != nullSinkIndexQueue ? nullSinkIndexQueue : solrIndexQueue, nullSinkIndexQueue,
+                new ConcurrentIdSet(), new ConcurrentIdSet());
+    }
+
+    private IndexRun(IndexProgress indexProgress, SolrIndexQueue indexQueue, NullSinkIndexQueue nullSinkIndexQueue,
+                     ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds) {
+        this.indexProgress = indexProgress;
+        this.indexQueue = indexQueue;
+        this.nullSinkIndexQueue = nullSinkIndexQueue;
+        this.emittedItemIds = emittedItemIds;
+        this.emittedHoldingsIds = emittedHoldingsIds;
+    }
+
+    /**
+     * The run as seen by the callables of one of its institution partitions: they report to the partition's progress
+     * and share the run's queue, cores and emitted ids. Only used to create those callables.
+     */
+    IndexRun forPartition(IndexProgress partitionProgress) {
+        IndexRun partitionRun = new IndexRun(partitionProgress, indexQueue, nullSinkIndexQueue, emittedItemIds, emittedHoldingsIds);
+        partitionRun.indexCore = indexCore;
+        partitionRun.targetCoreNames = targetCoreNames;
+        partitionRun.batchSettings = batchSettings;
+        return partitionRun;
+    }
+
+    public IndexProgress getIndexProgress() {
+        return indexProgress;
+    }
+
+    /**
+     * The null sink during a dry run, the Solr queue otherwise.
+     */
+    public SolrIndexQueue getIndexQueue() {
+        return indexQueue;
+    }
+
+    public boolean isDryRun() {
+        return null != nullSinkIndexQueue;
+    }
+
+    NullSinkIndexQueue getNullSinkIndexQueue() {
+        return nullSinkIndexQueue;
+    }
+
+    /**
+     * Ids of the items sent so far by the run, so items shared by several bibs are built and sent once.
+     */
+    public ConcurrentIdSet getEmittedItemIds() {
+        return emittedItemIds;
+    }
+
+    /**
+     * Ids of the holdings sent so far by the run, so holdings shared by several bibs are built and sent once.
+     */
+    public ConcurrentIdSet getEmittedHoldingsIds() {
+        return emittedHoldingsIds;
+    }
+}
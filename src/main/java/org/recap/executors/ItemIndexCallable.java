@@ -1,22 +1,16 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import com.codahale.metrics.Timer;
 import org.recap.model.jpa.ItemEntity;
-import org.recap.model.solr.Item;
 import org.recap.repository.jpa.ItemDetailsRepository;
+import org.recap.util.IndexMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Created by angelind on 15/6/16.
@@ -27,55 +21,97 @@ public class ItemIndexCallable implements Callable {
 
     private int pageNum;
     private int docsPerPage;
+    private List<Integer> itemIds;
+    private Integer fromItemId;
+    private Integer toItemId;
     private String coreName;
     private String solrURL;
     private Integer owningInstitutionId;
     private ItemDetailsRepository itemDetailsRepository;
-    private ProducerTemplate producerTemplate;
+    private IndexPipeline indexPipeline;
+    private AssociationBatchLoader associationBatchLoader;
+    private IndexProgress indexProgress;
 
-    public ItemIndexCallable(String solrURL, String coreName, int pageNum, int docsPerPage, ItemDetailsRepository itemDetailsRepository, Integer owningInstitutionId, ProducerTemplate producerTemplate) {
+    public ItemIndexCallable(String solrURL, String coreName, int pageNum, int docsPerPage, ItemDetailsRepository itemDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
         this.coreName = coreName;
         this.solrURL = solrURL;
         this.pageNum = pageNum;
         this.docsPerPage = docsPerPage;
         this.itemDetailsRepository = itemDetailsRepository;
         this.owningInstitutionId = owningInstitutionId;
-        this.producerTemplate = producerTemplate;
+        this.indexPipeline = indexPipeline;
+        this.associationBatchLoader = associationBatchLoader;
+        this.indexProgress = indexProgress;
     }
 
-    @Override
-    public Object call() throws Exception {
-        Page<ItemEntity> itemEntities = owningInstitutionId == null ?
-                itemDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
-                itemDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId);
+    public ItemIndexCallable(String solrURL, String coreName, Integer fromItemId, Integer toItemId, int docsPerPage, ItemDetailsRepository itemDetailsRepository, Integer owningInstitutionId, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, docsPerPage, itemDetailsRepository, owningInstitutionId, indexPipeline, associationBatchLoader, indexProgress);
+        this.fromItemId = fromItemId;
+        this.toItemId = toItemId;
+    }
 
-        logger.info("Num Items Fetched : " + itemEntities.getNumberOfElements());
-        List<Item> itemsToIndex = new ArrayList<>();
+    public ItemIndexCallable(String solrURL, String coreName, List<Integer> itemIds, ItemDetailsRepository itemDetailsRepository, IndexPipeline indexPipeline, AssociationBatchLoader associationBatchLoader, IndexProgress indexProgress) {
+        this(solrURL, coreName, 0, itemIds.size(), itemDetailsRepository, null, indexPipeline, associationBatchLoader, indexProgress);
+        this.itemIds = itemIds;
+    }
 
-        Iterator<ItemEntity> iterator = itemEntities.iterator();
+    @Override
+    public Object call() throws Exception {
+        if (null != itemIds) {
+            List<ItemEntity> itemEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> itemDetailsRepository.findByItemIdIn(itemIds));
+            indexItemEntities(itemEntities);
+            return itemEntities.size();
+        }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(50);
-        List<Future> futures = new ArrayList<>();
-        while (iterator.hasNext()) {
-            ItemEntity itemEntity = iterator.next();
-            Future submit = executorService.submit(new ItemRecordSetupCallable(itemEntity));
-            futures.add(submit);
+        if (null != fromItemId) {
+            return indexByItemIdRange();
         }
 
-        for (Iterator<Future> futureIterator = futures.iterator(); futureIterator.hasNext(); ) {
-            Future future = futureIterator.next();
+        Page<ItemEntity> itemEntities = IndexMetrics.time(IndexMetrics.DB_FETCH, () -> owningInstitutionId == null ?
+                itemDetailsRepository.findAll(new PageRequest(pageNum, docsPerPage)) :
+                itemDetailsRepository.findByOwningInstitutionId(new PageRequest(pageNum, docsPerPage), owningInstitutionId));
 
-            Item item = (Item) future.get();
-            itemsToIndex.add(item);
-        }
+        indexItemEntities(itemEntities.getContent());
+        return itemEntities.getNumberOfElements();
+    }
 
-        executorService.shutdown();
+    private Integer indexByItemIdRange() throws Exception {
+        int numberOfItemsFetched = indexPipeline.indexPages(fromItemId - 1, docsPerPage, this::readNextPage,
+                ItemEntity::getItemId, ItemRecordSetupCallable::new);
+        indexPipeline.flush();
+        return numberOfItemsFetched;
+    }
 
-        logger.info("No of Items to index : " + itemsToIndex.size());
+    /**
+     * Reads the page of the key range after the given id. Runs on the page reader pool while the previous page is
+     * transformed.
+     */
+    private List<ItemEntity> readNextPage(Integer lastItemId) {
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.DB_FETCH).time();
+        List<ItemEntity> itemEntities;
+        try {
+            itemEntities = owningInstitutionId == null ?
+                    itemDetailsRepository.findNextPageByItemIdRange(new PageRequest(0, docsPerPage), lastItemId, toItemId) :
+                    itemDetailsRepository.findNextPageByItemIdRangeAndOwningInstitutionId(new PageRequest(0, docsPerPage), lastItemId, toItemId, owningInstitutionId);
+        } finally {
+            context.stop();
+        }
+        prepareItemEntities(itemEntities);
+        return itemEntities;
+    }
 
-        if (!CollectionUtils.isEmpty(itemsToIndex)) {
-            producerTemplate.sendBody("seda:solrQ", itemsToIndex);
+    private void indexItemEntities(List<ItemEntity> itemEntities) throws Exception {
+        prepareItemEntities(itemEntities);
+        for (ItemEntity itemEntity : itemEntities) {
+            indexPipeline.submit(new ItemRecordSetupCallable(itemEntity), itemEntity);
         }
-        return itemEntities.getNumberOfElements();
+        indexPipeline.flush();
+    }
+
+    private void prepareItemEntities(List<ItemEntity> itemEntities) {
+        logger.info("Num Items Fetched : " + itemEntities.size());
+        indexProgress.addRecordsFetched(itemEntities.size());
+        IndexMetrics.histogram(IndexMetrics.DB_FETCH_SIZE).update(itemEntities.size());
+        associationBatchLoader.loadItemAssociations(itemEntities);
     }
 }
@@ -1,10 +1,12 @@
 package org.recap.executors;
 
-import org.apache.camel.ProducerTemplate;
+import org.recap.RecapConstants;
 import org.recap.repository.jpa.ItemDetailsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -17,11 +19,36 @@ public class ItemIndexExecutorService extends IndexExecutorService {
     ItemDetailsRepository itemDetailsRepository;
 
     @Autowired
-    ProducerTemplate producerTemplate;
+    SolrIndexQueue solrIndexQueue;
 
     @Override
-    public Callable getCallable(String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
-        return new ItemIndexCallable(solrUrl, coreName, pageNum, docsPerPage, itemDetailsRepository, owningInstitutionId, producerTemplate);
+    public Callable getCallable(IndexRun indexRun, String coreName, int pageNum, int docsPerPage, Integer owningInstitutionId) {
+        return new ItemIndexCallable(solrUrl, coreName, pageNum, docsPerPage, itemDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getKeysetCallable(IndexRun indexRun, String coreName, Integer fromId, Integer toId, int docsPerPage, Integer owningInstitutionId) {
+        return new ItemIndexCallable(solrUrl, coreName, fromId, toId, docsPerPage, itemDetailsRepository, owningInstitutionId, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+    }
+
+    @Override
+    public Callable getIdListCallable(IndexRun indexRun, String coreName, List<Integer> ids) {
+        return new ItemIndexCallable(solrUrl, coreName, ids, itemDetailsRepository, newIndexPipeline(indexRun, coreName), associationBatchLoader, indexRun.getIndexProgress());
+    }
+
+    @Override
+    protected List<Integer> getChangedIds(Date fromDate, Integer owningInstitutionId) {
+        return owningInstitutionId == null ? itemDetailsRepository.findItemIdsByLastUpdatedDate(fromDate) : itemDetailsRepository.findItemIdsByLastUpdatedDateAndOwningInstitutionId(fromDate, owningInstitutionId);
+    }
+
+    @Override
+    protected String getDocType() {
+        return "Items";
+    }
+
+    @Override
+    protected String getSolrDocType() {
+        return RecapConstants.ITEM;
     }
 
     @Override
@@ -30,6 +57,16 @@ public class ItemIndexExecutorService extends IndexExecutorService {
         return count.intValue();
     }
 
+    @Override
+    protected Integer getMinId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? itemDetailsRepository.findMinItemId() : itemDetailsRepository.findMinItemIdByOwningInstitutionId(owningInstitutionId);
+    }
+
+    @Override
+    protected Integer getMaxId(Integer owningInstitutionId) {
+        return owningInstitutionId == null ? itemDetailsRepository.findMaxItemId() : itemDetailsRepository.findMaxItemIdByOwningInstitutionId(owningInstitutionId);
+    }
+
     @Override
     protected String getResourceURL() {
         return itemResourceURL;
@@ -0,0 +1,110 @@
+package org.recap.executors;
+
+import com.google.common.collect.Lists;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.recap.RecapConstants;
+import org.recap.repository.jpa.ItemDetailsRepository;
+import org.recap.util.ItemJSONUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Brings the Availability, CollectionGroupDesignation and UseRestriction of item documents in the parent core up to
+ * date with atomic set updates, so a circulation change does not rebuild the item document or re-parse the MARC of its
+ * bib. The items are taken solr.item.update.batch.size at a time: one query reads their status from the database,
+ * one query finds their documents by ItemId and one update request sets the three fields on all of them.
+ *
+ * Items without a document are left for the next index run to add.
+ */
+@Component
+public class ItemStatusUpdater {
+
+    Logger logger = LoggerFactory.getLogger(ItemStatusUpdater.class);
+
+    @Autowired
+    ItemDetailsRepository itemDetailsRepository;
+
+    @Autowired
+    SolrClient solrClient;
+
+    @Autowired
+    SolrBatchWriter solrBatchWriter;
+
+    @Value("${solr.parent.core}")
+    String solrCore;
+
+    @Value("${solr.item.update.batch.size}")
+    Integer batchSize;
+
+    /**
+     * Updates the documents of the given items, soft commits them and returns the number of documents updated.
+     */
+    public int update(List<Integer> itemIds) throws Exception {
+        int updated = 0;
+        for (List<Integer> batchItemIds : Lists.partition(new ArrayList<>(new LinkedHashSet<>(itemIds)), batchSize)) {
+            List<SolrInputDocument> updates = getUpdates(batchItemIds);
+            if (!updates.isEmpty()) {
+                solrBatchWriter.write(solrCore, updates);
+                updated += updates.size();
+            }
+        }
+        if (updated > 0) {
+            solrBatchWriter.commit(solrCore, true, false);
+        }
+        logger.info("Updated the status of " + updated + " item documents for " + itemIds.size() + " items");
+        return updated;
+    }
+
+    /**
+     * The atomic updates of the documents of the given items, one per document found.
+     */
+    List<SolrInputDocument> getUpdates(List<Integer> itemIds) throws Exception {
+        Map<Integer, Object[]> itemStatusByItemId = new HashMap<>();
+        for (Object[] itemStatus : itemDetailsRepository.findItemStatusByItemIdIn(itemIds)) {
+            itemStatusByItemId.put((Integer) itemStatus[0], itemStatus);
+        }
+        List<SolrInputDocument> updates = new ArrayList<>();
+        if (itemStatusByItemId.isEmpty()) {
+            return updates;
+        }
+        for (SolrDocument solrDocument : findItemDocuments(itemStatusByItemId.keySet())) {
+            Object itemId = solrDocument.getFirstValue(RecapConstants.ITEM_ID);
+            Object[] itemStatus = itemId instanceof Number ? itemStatusByItemId.get(((Number) itemId).intValue()) : null;
+            if (null != itemStatus) {
+                SolrInputDocument update = new SolrInputDocument();
+                update.setField("id", solrDocument.getFieldValue("id"));
+                update.setField(RecapConstants.AVAILABILITY, Collections.singletonMap("set", itemStatus[1]));
+                update.setField(RecapConstants.COLLECTION_GROUP_DESIGNATION, Collections.singletonMap("set", itemStatus[2]));
+                update.setField(RecapConstants.USE_RESTRICTION, Collections.singletonMap("set", ItemJSONUtil.getUseRestriction((String) itemStatus[3])));
+                updates.add(update);
+            }
+        }
+        return updates;
+    }
+
+    private SolrDocumentList findItemDocuments(Collection<Integer> itemIds) throws Exception {
+        StringBuilder itemIdTerms = new StringBuilder();
+        for (Integer itemId : itemIds) {
+            itemIdTerms.append(itemIdTerms.length() > 0 ? "," : "").append(itemId);
+        }
+        SolrQuery solrQuery = new SolrQuery(RecapConstants.DOCTYPE + ":" + RecapConstants.ITEM);
+        solrQuery.addFilterQuery("{!terms f=" + RecapConstants.ITEM_ID + "}" + itemIdTerms);
+        solrQuery.setFields("id", RecapConstants.ITEM_ID);
+        solrQuery.setRows(itemIds.size());
+        SolrDocumentList solrDocuments = solrClient.query(solrQuery).getResults();
+        if (solrDocuments.getNumFound() > solrDocuments.size()) {
+            solrQuery.setRows((int) solrDocuments.getNumFound());
+            solrDocuments = solrClient.query(solrQuery).getResults();
+        }
+        return solrDocuments;
+    }
+}
@@ -0,0 +1,67 @@
+package org.recap.executors;
+
+import com.codahale.metrics.Timer;
+import org.apache.solr.common.SolrInputDocument;
+import org.recap.util.IndexMetrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The queue of a dry run. Each batch is turned into SolrInputDocuments on the sending thread, as the Solr writer would,
+ * and then counted and dropped, so a dry run measures everything up to the Solr request without a Solr core. Nothing is
+ * ever in flight.
+ */
+public class NullSinkIndexQueue extends SolrIndexQueue {
+
+    private final SolrBatchWriter solrBatchWriter;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    public NullSinkIndexQueue(SolrBatchWriter solrBatchWriter) {
+        this.solrBatchWriter = solrBatchWriter;
+    }
+
+    @Override
+    public void send(String coreName, List<?> documents, SolrBatchSettings batchSettings) {
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.DOCUMENT_CONVERSION).time();
+        try {
+            long batchBytes = 0;
+            for (Object document : documents) {
+                SolrInputDocument solrInputDocument = solrBatchWriter.toSolrInputDocument(document);
+                batchBytes += SolrBatchWriter.estimateSize(solrInputDocument);
+            }
+            batches.incrementAndGet();
+            this.documents.addAndGet(documents.size());
+            bytes.addAndGet(batchBytes);
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Override
+    public void acknowledge() {
+    }
+
+    @Override
+    public void awaitAcknowledged() {
+    }
+
+    @Override
+    public int getInFlightBatchCount() {
+        return 0;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getDocumentCount() {
+        return documents.get();
+    }
+
+    public long getByteCount() {
+        return bytes.get();
+    }
+}
@@ -0,0 +1,46 @@
+package org.recap.executors;
+
+import java.util.*;
+
+/**
+ * Orders the callables of several partitions for one shared pool by stride scheduling: each next callable is taken
+ * from the partition that has had the fewest callables for its weight so far. Equal weights take the partitions in
+ * turn, so a small partition is not queued behind a large one. Weights proportional to partition size make every
+ * partition advance at the same rate, so they finish at about the same time.
+ */
+public class PartitionScheduler {
+
+    private PartitionScheduler() {
+    }
+
+    /**
+     * Interleaves the partitions by the given weights. A partition without a weight, or with a weight of 0 or less,
+     * gets a weight of 1. Ties go to the partition that comes first.
+     */
+    public static <T> List<T> interleave(Map<String, List<T>> partitions, Map<String, Double> weights) {
+        List<T> ordered = new ArrayList<>();
+        Map<String, Integer> taken = new HashMap<>();
+        while (true) {
+            String nextPartition = null;
+            double nextPass = 0;
+            for (Map.Entry<String, List<T>> entry : partitions.entrySet()) {
+                int takenCount = taken.getOrDefault(entry.getKey(), 0);
+                if (takenCount >= entry.getValue().size()) {
+                    continue;
+                }
+                Double weight = weights.get(entry.getKey());
+                double pass = (takenCount + 1) / (null != weight && weight > 0 ? weight : 1);
+                if (null == nextPartition || pass < nextPass) {
+                    nextPartition = entry.getKey();
+                    nextPass = pass;
+                }
+            }
+            if (null == nextPartition) {
+                return ordered;
+            }
+            int takenCount = taken.getOrDefault(nextPartition, 0);
+            ordered.add(partitions.get(nextPartition).get(takenCount));
+            taken.put(nextPartition, takenCount + 1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.recap.executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+
+/**
+ * Calls a callable up to a number of attempts in all, waiting backoffMillis before the first retry and doubling the
+ * wait for each one after, up to MAX_BACKOFF_MILLIS. The exception of the last attempt is thrown.
+ */
+public class RetryWithBackoff {
+
+    Logger logger = LoggerFactory.getLogger(RetryWithBackoff.class);
+
+    static final long MAX_BACKOFF_MILLIS = 60000;
+
+    private final int attempts;
+    private final long backoffMillis;
+
+    public RetryWithBackoff(int attempts, long backoffMillis) {
+        this.attempts = Math.max(attempts, 1);
+        this.backoffMillis = Math.max(backoffMillis, 0);
+    }
+
+    public <T> T call(Callable<T> callable, String description) throws Exception {
+        return call(callable, description, exception -> true);
+    }
+
+    /**
+     * Same as {@link #call(Callable, String)}, retrying only the exceptions the given predicate accepts. Interrupts are
+     * never retried.
+     */
+    public <T> T call(Callable<T> callable, String description, Predicate<Exception> retryable) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return callable.call();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= attempts || !retryable.test(e)) {
+                    throw e;
+                }
+                long delay = getBackoffMillis(attempt);
+                logger.warn(description + " failed on attempt " + attempt + " of " + attempts + ", retrying in " + delay + " ms : " + e.getMessage());
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * The wait after the given failed attempt.
+     */
+    long getBackoffMillis(int attempt) {
+        return Math.min(backoffMillis << Math.min(attempt - 1, 20), MAX_BACKOFF_MILLIS);
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
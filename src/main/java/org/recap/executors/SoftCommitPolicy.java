@@ -0,0 +1,30 @@
+package org.recap.executors;
+
+import org.recap.RecapConstants;
+
+/**
+ * Issues a soft commit at every commit interval without waiting for the new searcher, so documents become visible
+ * while the index threads keep running. Durability comes from the hard commit at the end of the run.
+ */
+public class SoftCommitPolicy implements CommitPolicy {
+
+    @Override
+    public String getName() {
+        return RecapConstants.COMMIT_POLICY_SOFT;
+    }
+
+    @Override
+    public boolean isIntervalBarrier() {
+        return false;
+    }
+
+    @Override
+    public int getCommitWithin() {
+        return 0;
+    }
+
+    @Override
+    public void afterInterval(SolrBatchWriter solrBatchWriter, String coreName) throws Exception {
+        solrBatchWriter.commit(coreName, true, false);
+    }
+}
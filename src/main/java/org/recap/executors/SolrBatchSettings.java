@@ -0,0 +1,30 @@
+package org.recap.executors;
+
+/**
+ * The settings one index run writes to Solr with: the number of documents that cuts a batch and the commitWithin sent
+ * with every update request, 0 or less for none. They travel with each batch the run sends, and the Solr writer buffers
+ * the batches of each settings apart, so runs writing to the same core never change each other's batch size or
+ * commitWithin. The batch size can change while the run is going.
+ */
+public class SolrBatchSettings {
+
+    private volatile int batchSize;
+    private final int commitWithin;
+
+    public SolrBatchSettings(int batchSize, int commitWithin) {
+        this.batchSize = batchSize;
+        this.commitWithin = commitWithin;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getCommitWithin() {
+        return commitWithin;
+    }
+}
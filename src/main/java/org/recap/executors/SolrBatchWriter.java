@@ -0,0 +1,388 @@
+package org.recap.executors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.beans.DocumentObjectBinder;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.recap.util.IndexMetrics;
+import org.recap.util.SolrInputDocumentBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes documents to Solr in batches sized for Solr rather than for the database pages they were read in. Documents
+ * are buffered per core and a batch is cut once it reaches solr.writer.batch.size documents or an estimated
+ * solr.writer.batch.bytes. Each core has solr.writer.threads update streams sending batches in javabin format; when
+ * all of them are busy and the queue is full the caller sends the batch itself.
+ *
+ * Each index run cuts its batches with the batch size and sends them with the commitWithin of its own
+ * {@link SolrBatchSettings}, so the documents of runs writing to the same core are buffered apart. Documents added
+ * without settings use solr.writer.batch.size and no commitWithin.
+ *
+ * A batch that fails is retried with a doubling backoff, solr.writer.retry.attempts times in all; if it still fails it
+ * is saved as a dead letter so it can be replayed rather than silently missing from the index.
+ *
+ * With solr.writer.direct.documents the Bib, Item and Holdings beans are turned into documents by
+ * SolrInputDocumentBuilder; other beans, and all beans without it, go through SolrJ's DocumentObjectBinder.
+ */
+@Component
+public class SolrBatchWriter {
+
+    Logger logger = LoggerFactory.getLogger(SolrBatchWriter.class);
+
+    @Autowired
+    IndexExecutorRegistry indexExecutorRegistry;
+
+    @Autowired
+    IndexDeadLetterStore indexDeadLetterStore;
+
+    @Value("${solr.server.protocol}")
+    String solrServerProtocol;
+
+    @Value("${solr.url}")
+    String solrUrl;
+
+    @Value("${solr.writer.batch.size}")
+    Integer batchSize;
+
+    @Value("${solr.writer.batch.bytes}")
+    Long batchBytes;
+
+    @Value("${solr.writer.threads}")
+    Integer writerThreads;
+
+    @Value("${solr.writer.queue.size}")
+    Integer writerQueueSize;
+
+    @Value("${solr.writer.retry.attempts}")
+    Integer retryAttempts;
+
+    @Value("${solr.writer.retry.backoff.millis}")
+    Long retryBackoffMillis;
+
+    @Value("${solr.writer.direct.documents}")
+    Boolean directDocuments;
+
+    private final DocumentObjectBinder documentObjectBinder = new DocumentObjectBinder();
+    private final Map<String, CoreWriter> coreWriters = new ConcurrentHashMap<>();
+
+    /**
+     * Adds solr beans or SolrInputDocuments to the buffer of the given core, sending full batches as they are cut.
+     */
+    public void add(String coreName, List<?> documents) {
+        add(coreName, documents, null);
+    }
+
+    /**
+     * Same as {@link #add(String, List)}, buffering the documents with others added with the same settings and cutting
+     * and sending their batches by those settings. Null settings are the defaults of the core.
+     */
+    public void add(String coreName, List<?> documents, SolrBatchSettings batchSettings) {
+        getCoreWriter(coreName).add(documents, batchSettings);
+    }
+
+    /**
+     * Sends whatever is buffered for the core, whatever its settings, and waits until every batch sent to it before the call has completed.
+     * Batches other threads send in the meantime are not waited for.
+     */
+    public void flush(String coreName) throws InterruptedException {
+        getCoreWriter(coreName).flush();
+    }
+
+    /**
+     * Sends the documents to the core right away as one batch, retrying as usual, and returns the number of attempts it
+     * took. The error of the last attempt is thrown and the batch is not saved as a dead letter.
+     */
+    public int write(String coreName, List<SolrInputDocument> batch) throws Exception {
+        return write(coreName, batch, 0);
+    }
+
+    /**
+     * Same as {@link #write(String, List)}, sending the given commitWithin with the batch.
+     */
+    public int write(String coreName, List<SolrInputDocument> batch, int commitWithin) throws Exception {
+        return getCoreWriter(coreName).writeWithRetry(batch, commitWithin);
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the core that dead letters of the core are replayed into, for a temp or build core that is merged, swapped
+     * or unloaded before they are replayed.
+     */
+    public void setReplayCore(String coreName, String replayCoreName) {
+        getCoreWriter(coreName).replayCoreName = replayCoreName;
+    }
+
+    /**
+     * The number of batches for the core that failed every retry and were saved as dead letters.
+     */
+    public long getDeadLetterCount(String coreName) {
+        CoreWriter coreWriter = coreWriters.get(coreName);
+        return null != coreWriter ? coreWriter.failedBatches.get() : 0;
+    }
+
+    /**
+     * Commits the core and returns the time the commit took in milliseconds. Does not flush buffered documents.
+     */
+    public long commit(String coreName, boolean softCommit, boolean waitSearcher) throws IOException, SolrServerException {
+        return getCoreWriter(coreName).commit(softCommit, waitSearcher);
+    }
+
+    public Map<String, Map<String, Number>> getStatistics() {
+        Map<String, Map<String, Number>> statistics = new LinkedHashMap<>();
+        for (Map.Entry<String, CoreWriter> entry : coreWriters.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    protected SolrClient createSolrClient(String coreName) {
+        HttpSolrClient httpSolrClient = new HttpSolrClient(solrServerProtocol + solrUrl + "/" + coreName);
+        httpSolrClient.setRequestWriter(new BinaryRequestWriter());
+        return httpSolrClient;
+    }
+
+    /**
+     * Drops the writer of a core that is no longer written to, such as a temp core that has been merged and unloaded
+     * or a build core that has been swapped, shutting down its update streams and closing its client. Anything still
+     * buffered for the core is dropped with it; a later write to the core starts a new writer.
+     */
+    public void removeCore(String coreName) {
+        CoreWriter coreWriter = coreWriters.remove(coreName);
+        if (null != coreWriter) {
+            indexExecutorRegistry.removeExecutor(getExecutorName(coreName));
+            try {
+                coreWriter.solrClient.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+    private CoreWriter getCoreWriter(String coreName) {
+        return coreWriters.computeIfAbsent(coreName, name -> new CoreWriter(name, createSolrClient(name),
+                indexExecutorRegistry.getExecutor(getExecutorName(name), writerThreads, writerQueueSize)));
+    }
+
+    private String getExecutorName(String coreName) {
+        return "solrWriter-" + coreName;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (CoreWriter coreWriter : coreWriters.values()) {
+            try {
+                coreWriter.solrClient.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+    SolrInputDocument toSolrInputDocument(Object document) {
+        if (document instanceof SolrInputDocument) {
+            return (SolrInputDocument) document;
+        }
+        if (Boolean.TRUE.equals(directDocuments)) {
+            SolrInputDocument solrInputDocument = SolrInputDocumentBuilder.build(document);
+            if (null != solrInputDocument) {
+                return solrInputDocument;
+            }
+        }
+        return documentObjectBinder.toSolrInputDocument(document);
+    }
+
+    /**
+     * Rough size of a document on the wire: field names plus the string form of every value.
+     */
+    static long estimateSize(SolrInputDocument solrInputDocument) {
+        long size = 0;
+        for (SolrInputField solrInputField : solrInputDocument) {
+            size += solrInputField.getName().length();
+            Collection<Object> values = solrInputField.getValues();
+            if (null != values) {
+                for (Object value : values) {
+                    size += null != value ? value.toString().length() : 0;
+                }
+            }
+        }
+        return size;
+    }
+
+    private class CoreWriter {
+        private final String coreName;
+        private final SolrClient solrClient;
+        private final ExecutorService executorService;
+        private final RetryWithBackoff retryWithBackoff = new RetryWithBackoff(retryAttempts, retryBackoffMillis);
+        private final InFlightBatches inFlightBatches = new InFlightBatches();
+
+        private final SolrBatchSettings defaultBatchSettings = new SolrBatchSettings(batchSize, 0);
+        private final Map<SolrBatchSettings, Buffer> buffers = new IdentityHashMap<>();
+        private volatile String replayCoreName;
+
+        private final AtomicLong batchesSent = new AtomicLong();
+        private final AtomicLong documentsSent = new AtomicLong();
+        private final AtomicLong failedBatches = new AtomicLong();
+        private final AtomicLong totalLatency = new AtomicLong();
+        private final AtomicLong maxLatency = new AtomicLong();
+        private final AtomicLong commits = new AtomicLong();
+        private final AtomicLong commitTime = new AtomicLong();
+
+        CoreWriter(String coreName, SolrClient solrClient, ExecutorService executorService) {
+            this.coreName = coreName;
+            this.replayCoreName = coreName;
+            this.solrClient = solrClient;
+            this.executorService = executorService;
+        }
+
+        void add(List<?> documents, SolrBatchSettings batchSettings) {
+            SolrBatchSettings settings = null != batchSettings ? batchSettings : defaultBatchSettings;
+            for (Object document : documents) {
+                SolrInputDocument solrInputDocument = toSolrInputDocument(document);
+                List<SolrInputDocument> batch = null;
+                synchronized (this) {
+                    Buffer buffer = buffers.computeIfAbsent(settings, key -> new Buffer());
+                    buffer.documents.add(solrInputDocument);
+                    buffer.bytes += estimateSize(solrInputDocument);
+                    if (buffer.documents.size() >= settings.getBatchSize() || buffer.bytes >= batchBytes) {
+                        batch = buffer.cutBatch();
+                    }
+                }
+                if (null != batch) {
+                    send(batch, settings.getCommitWithin());
+                }
+            }
+        }
+
+        /**
+         * Sends the buffer of every settings and drops the buffers, so the settings of runs that have ended are not kept.
+         */
+        void flush() throws InterruptedException {
+            Map<SolrBatchSettings, Buffer> flushedBuffers;
+            synchronized (this) {
+                flushedBuffers = new IdentityHashMap<>(buffers);
+                buffers.clear();
+            }
+            for (Map.Entry<SolrBatchSettings, Buffer> entry : flushedBuffers.entrySet()) {
+                List<SolrInputDocument> batch = entry.getValue().cutBatch();
+                if (!batch.isEmpty()) {
+                    send(batch, entry.getKey().getCommitWithin());
+                }
+            }
+            inFlightBatches.awaitRegistered();
+        }
+
+        private void send(List<SolrInputDocument> batch, int commitWithin) {
+            long batchSequence = inFlightBatches.register();
+            try {
+                executorService.execute(() -> {
+                    try {
+                        write(batch, commitWithin);
+                    } finally {
+                        inFlightBatches.acknowledge(batchSequence);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlightBatches.acknowledge(batchSequence);
+                throw e;
+            }
+        }
+
+        private void write(List<SolrInputDocument> batch, int commitWithin) {
+            try {
+                writeWithRetry(batch, commitWithin);
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                logger.error("Failed to send " + batch.size() + " docs to " + coreName + " after "
+                        + retryWithBackoff.getAttempts() + " attempts : " + e.getMessage());
+                indexDeadLetterStore.save(replayCoreName, batch, retryWithBackoff.getAttempts(), e.getMessage());
+            }
+        }
+
+        int writeWithRetry(List<SolrInputDocument> batch, int commitWithin) throws Exception {
+            int[] attempts = new int[1];
+            retryWithBackoff.call(() -> {
+                attempts[0]++;
+                writeOnce(batch, commitWithin);
+                return null;
+            }, "Sending " + batch.size() + " docs to " + coreName);
+            return attempts[0];
+        }
+
+        private void writeOnce(List<SolrInputDocument> batch, int commitWithin) throws IOException, SolrServerException {
+            long startTime = System.currentTimeMillis();
+            UpdateRequest updateRequest = new UpdateRequest();
+            updateRequest.add(batch);
+            if (commitWithin > 0) {
+                updateRequest.setCommitWithin(commitWithin);
+            }
+            updateRequest.process(solrClient);
+            long latency = System.currentTimeMillis() - startTime;
+            IndexMetrics.timer(IndexMetrics.SOLR_UPDATE).update(latency, TimeUnit.MILLISECONDS);
+            IndexMetrics.histogram(IndexMetrics.SOLR_UPDATE_SIZE).update(batch.size());
+            batchesSent.incrementAndGet();
+            documentsSent.addAndGet(batch.size());
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            logger.info("Sent " + batch.size() + " docs to " + coreName + " in " + latency + " ms");
+        }
+
+        long commit(boolean softCommit, boolean waitSearcher) throws IOException, SolrServerException {
+            long startTime = System.currentTimeMillis();
+            new UpdateRequest().setAction(AbstractUpdateRequest.ACTION.COMMIT, true, waitSearcher, softCommit).process(solrClient);
+            long elapsed = System.currentTimeMillis() - startTime;
+            IndexMetrics.timer(IndexMetrics.COMMIT).update(elapsed, TimeUnit.MILLISECONDS);
+            commits.incrementAndGet();
+            commitTime.addAndGet(elapsed);
+            logger.info((softCommit ? "Soft" : "Hard") + " commit of " + coreName + " took " + elapsed + " ms");
+            return elapsed;
+        }
+
+        Map<String, Number> getStatistics() {
+            Map<String, Number> statistics = new LinkedHashMap<>();
+            long batches = batchesSent.get();
+            statistics.put("batchesSent", batches);
+            statistics.put("documentsSent", documentsSent.get());
+            statistics.put("failedBatches", failedBatches.get());
+            statistics.put("averageLatencyMillis", batches > 0 ? totalLatency.get() / batches : 0);
+            statistics.put("maxLatencyMillis", maxLatency.get());
+            statistics.put("commits", commits.get());
+            statistics.put("commitMillis", commitTime.get());
+            return statistics;
+        }
+    }
+
+    /**
+     * The documents buffered for a core with one settings, and their estimated size.
+     */
+    private static class Buffer {
+        private List<SolrInputDocument> documents = new ArrayList<>();
+        private long bytes;
+
+        List<SolrInputDocument> cutBatch() {
+            List<SolrInputDocument> batch = documents;
+            documents = new ArrayList<>();
+            bytes = 0;
+            return batch;
+        }
+    }
+}
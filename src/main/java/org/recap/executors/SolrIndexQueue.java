@@ -0,0 +1,147 @@
+package org.recap.executors;
+
+import com.codahale.metrics.Timer;
+import org.apache.camel.ProducerTemplate;
+import org.recap.RecapConstants;
+import org.recap.util.IndexMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded hand-off between the index callables and the Solr route. Producers block while the queue is full. Every
+ * batch is sent with a sequence number and stays in flight until the route acknowledges that number once the batch
+ * has been handed to the Solr writer, so a commit can wait for the batches sent before it without polling the queue
+ * and without waiting for those other index threads keep sending.
+ *
+ * With the ringBuffer solr.index.queue.transport the batches skip Camel and go through an IndexRingBuffer of
+ * solr.index.queue.size slots straight to the Solr writer, acknowledged the same way.
+ */
+@Component
+public class SolrIndexQueue {
+
+    Logger logger = LoggerFactory.getLogger(SolrIndexQueue.class);
+
+    @Autowired
+    ProducerTemplate producerTemplate;
+
+    @Autowired
+    SolrBatchWriter solrBatchWriter;
+
+    @Value("${solr.index.queue.size}")
+    Integer queueSize;
+
+    @Value("${solr.index.queue.transport}")
+    String transport;
+
+    @Value("${solr.parent.core}")
+    String solrCore;
+
+    private IndexRingBuffer indexRingBuffer;
+
+    private final InFlightBatches inFlightBatches = new InFlightBatches();
+
+    @PostConstruct
+    public void startRingBuffer() {
+        if (RecapConstants.INDEX_QUEUE_TRANSPORT_RING_BUFFER.equalsIgnoreCase(transport)) {
+            indexRingBuffer = new IndexRingBuffer(queueSize, (coreName, documents, batchSettings, batchSequence) -> {
+                try {
+                    solrBatchWriter.add(null != coreName ? coreName : solrCore, documents, batchSettings);
+                } finally {
+                    acknowledge(batchSequence);
+                }
+            });
+            indexRingBuffer.start("solrIndexRingBuffer");
+            logger.info("Solr index queue uses a ring buffer of " + indexRingBuffer.getCapacity() + " slots");
+        }
+    }
+
+    @PreDestroy
+    public void stopRingBuffer() throws InterruptedException {
+        if (null != indexRingBuffer) {
+            indexRingBuffer.stop();
+        }
+    }
+
+    public String getEndpointUri() {
+        return RecapConstants.SOLR_QUEUE + "?size=" + queueSize + "&blockWhenFull=true";
+    }
+
+    public void send(List<?> documents) {
+        send(null, documents);
+    }
+
+    /**
+     * Sends the documents to the given core. A null core name sends them to the parent core. The time spent blocked on
+     * a full queue is recorded as the queue wait.
+     */
+    public void send(String coreName, List<?> documents) {
+        send(coreName, documents, null);
+    }
+
+    /**
+     * Same as {@link #send(String, List)}, for documents the Solr writer batches and sends with the given settings.
+     */
+    public void send(String coreName, List<?> documents, SolrBatchSettings batchSettings) {
+        long batchSequence = inFlightBatches.register();
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.QUEUE_WAIT).time();
+        try {
+            if (null != indexRingBuffer) {
+                indexRingBuffer.publish(coreName, documents, batchSettings, batchSequence);
+            } else {
+                Map<String, Object> headers = new HashMap<>();
+                headers.put(RecapConstants.SOLR_BATCH_SEQUENCE, batchSequence);
+                if (null != coreName) {
+                    headers.put(RecapConstants.SOLR_CORE, coreName);
+                }
+                if (null != batchSettings) {
+                    headers.put(RecapConstants.SOLR_BATCH_SETTINGS, batchSettings);
+                }
+                producerTemplate.sendBodyAndHeaders(getEndpointUri(), documents, headers);
+            }
+        } catch (RuntimeException e) {
+            inFlightBatches.acknowledge(batchSequence);
+            throw e;
+        } finally {
+            context.stop();
+        }
+    }
+
+    /**
+     * Acknowledges the batch sent with the given sequence number.
+     */
+    public void acknowledge(long batchSequence) {
+        inFlightBatches.acknowledge(batchSequence);
+    }
+
+    /**
+     * Acknowledges the oldest batch in flight, for a consumer that takes the batches in the order they were sent.
+     */
+    public void acknowledge() {
+        inFlightBatches.acknowledgeOldest();
+    }
+
+    /**
+     * Blocks until every batch sent before this method was called has been acknowledged. Batches sent after the call
+     * are not waited for.
+     */
+    public void awaitAcknowledged() throws InterruptedException {
+        int inFlightBatchCount = inFlightBatches.size();
+        if (inFlightBatchCount > 0) {
+            logger.info("Waiting for up to " + inFlightBatchCount + " in-flight batches to reach Solr");
+            inFlightBatches.awaitRegistered();
+        }
+    }
+
+    public int getInFlightBatchCount() {
+        return inFlightBatches.size();
+    }
+}
@@ -0,0 +1,173 @@
+package org.recap.executors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.recap.RecapConstants;
+import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.repository.jpa.HoldingsDetailsRepository;
+import org.recap.repository.jpa.ItemDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Deletes the documents of the parent core whose bib, holdings or item row is gone from the database. The documents of
+ * each type are read in chunks of solr.sweeper.chunk.size sorted by record id with a cursorMark, and each chunk is
+ * checked against the ids the database has between its first and last record id. The orphans of a chunk are deleted
+ * by id in one request. A cursorMark is not moved by deletes, so the walk can delete as it goes.
+ *
+ * The sweep runs as an exclusive index job, so it never overlaps an index run, and with solr.sweeper.scheduled it is
+ * queued on the solr.sweeper.cron schedule. Scheduling is off by default and meant to be turned on where wanted.
+ */
+@Component
+public class SolrOrphanSweeper {
+
+    Logger logger = LoggerFactory.getLogger(SolrOrphanSweeper.class);
+
+    static final String SWEEP_JOB = "Orphan Sweep";
+
+    @Autowired
+    BibliographicDetailsRepository bibliographicDetailsRepository;
+
+    @Autowired
+    HoldingsDetailsRepository holdingsDetailsRepository;
+
+    @Autowired
+    ItemDetailsRepository itemDetailsRepository;
+
+    @Autowired
+    SolrClient solrClient;
+
+    @Autowired
+    IndexJobLauncher indexJobLauncher;
+
+    @Value("${solr.sweeper.chunk.size}")
+    Integer chunkSize;
+
+    @Value("${solr.sweeper.scheduled}")
+    Boolean scheduled;
+
+    /**
+     * Queues a sweep and returns its job id. The sweep waits for the jobs queued before it and holds back the ones
+     * queued after it.
+     */
+    public Integer submit() {
+        return indexJobLauncher.submitExclusive(SWEEP_JOB, indexProgress -> {
+            indexProgress.start();
+            try {
+                sweep(indexProgress);
+                indexProgress.finish(true);
+            } catch (Exception e) {
+                logger.error("Orphan sweep failed : " + e.getMessage());
+                indexProgress.fail();
+            }
+        });
+    }
+
+    @Scheduled(cron = "${solr.sweeper.cron}")
+    public void submitScheduled() {
+        if (Boolean.TRUE.equals(scheduled)) {
+            submit();
+        }
+    }
+
+    /**
+     * Sweeps the Bib, Holdings and Item documents in turn and commits the deletes. Returns the number of documents
+     * deleted per document type.
+     */
+    public Map<String, Integer> sweep(IndexProgress indexProgress) throws Exception {
+        Map<String, Integer> deletedByDocType = new LinkedHashMap<>();
+        deletedByDocType.put(RecapConstants.BIB, sweep(RecapConstants.BIB, RecapConstants.BIB_ID,
+                bibliographicDetailsRepository::findBibliographicIdsBetween, indexProgress));
+        deletedByDocType.put(RecapConstants.HOLDINGS, sweep(RecapConstants.HOLDINGS, RecapConstants.HOLDING_ID,
+                holdingsDetailsRepository::findHoldingsIdsBetween, indexProgress));
+        deletedByDocType.put(RecapConstants.ITEM, sweep(RecapConstants.ITEM, RecapConstants.ITEM_ID,
+                itemDetailsRepository::findItemIdsBetween, indexProgress));
+        int deleted = 0;
+        for (Integer count : deletedByDocType.values()) {
+            deleted += count;
+        }
+        if (deleted > 0) {
+            solrClient.commit();
+        }
+        logger.info("Orphan sweep deleted : " + deletedByDocType);
+        return deletedByDocType;
+    }
+
+    private int sweep(String docType, String idField, BiFunction<Integer, Integer, List<Integer>> findIdsBetween,
+                      IndexProgress indexProgress) throws Exception {
+        String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        int deleted = 0;
+        while (true) {
+            SolrQuery solrQuery = new SolrQuery(RecapConstants.DOCTYPE + ":" + docType);
+            solrQuery.setFields("id", idField);
+            solrQuery.setRows(chunkSize);
+            solrQuery.setSort(idField, SolrQuery.ORDER.asc);
+            solrQuery.addSort("id", SolrQuery.ORDER.asc);
+            solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            QueryResponse queryResponse = solrClient.query(solrQuery);
+            SolrDocumentList solrDocuments = queryResponse.getResults();
+            if (CursorMarkParams.CURSOR_MARK_START.equals(cursorMark)) {
+                indexProgress.setTotalRecords(indexProgress.getTotalRecords() + solrDocuments.getNumFound());
+            }
+            indexProgress.addRecordsFetched(solrDocuments.size());
+
+            List<String> orphanIds = getOrphanIds(solrDocuments, idField, findIdsBetween);
+            if (!orphanIds.isEmpty()) {
+                solrClient.deleteById(orphanIds);
+                deleted += orphanIds.size();
+                logger.info("Deleted " + orphanIds.size() + " orphan " + docType + " documents : " + orphanIds);
+            }
+
+            String nextCursorMark = queryResponse.getNextCursorMark();
+            if (solrDocuments.size() < chunkSize || null == nextCursorMark || cursorMark.equals(nextCursorMark)) {
+                return deleted;
+            }
+            cursorMark = nextCursorMark;
+        }
+    }
+
+    /**
+     * The ids of the documents in the chunk whose record id the database does not have. Documents without a record id
+     * are left alone.
+     */
+    private List<String> getOrphanIds(SolrDocumentList solrDocuments, String idField,
+                                      BiFunction<Integer, Integer, List<Integer>> findIdsBetween) {
+        Integer fromId = null;
+        Integer toId = null;
+        for (SolrDocument solrDocument : solrDocuments) {
+            Integer recordId = getRecordId(solrDocument, idField);
+            if (null != recordId) {
+                fromId = null == fromId ? recordId : Math.min(fromId, recordId);
+                toId = null == toId ? recordId : Math.max(toId, recordId);
+            }
+        }
+        List<String> orphanIds = new ArrayList<>();
+        if (null == fromId) {
+            return orphanIds;
+        }
+        Set<Integer> existingIds = new HashSet<>(findIdsBetween.apply(fromId, toId));
+        for (SolrDocument solrDocument : solrDocuments) {
+            Integer recordId = getRecordId(solrDocument, idField);
+            if (null != recordId && !existingIds.contains(recordId)) {
+                orphanIds.add(String.valueOf(solrDocument.getFieldValue("id")));
+            }
+        }
+        return orphanIds;
+    }
+
+    private Integer getRecordId(SolrDocument solrDocument, String idField) {
+        Object recordId = solrDocument.getFirstValue(idField);
+        return recordId instanceof Number ? ((Number) recordId).intValue() : null;
+    }
+}
@@ -0,0 +1,24 @@
+package org.recap.executors;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * An index service that can read its records, of the entity type E, through a single database cursor for the stream
+ * fetch mode. Services that are not streaming fall back to paged fetching when the stream fetch mode is requested.
+ */
+public interface StreamingIndexExecutor<E> {
+
+    /**
+     * Reads the records of the institution, or of all institutions when it is null, and hands them to the consumer in
+     * batches of the given size. Returns the number of records read.
+     */
+    Integer streamEntities(Integer owningInstitutionId, int batchSize, Consumer<List<E>> batchConsumer);
+
+    /**
+     * The callable that indexes one streamed batch of the run into the given core and returns the number of records
+     * it indexed.
+     */
+    Callable<Integer> getStreamCallable(IndexRun indexRun, String coreName, List<E> entities);
+}
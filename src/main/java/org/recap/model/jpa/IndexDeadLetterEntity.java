@@ -0,0 +1,132 @@
+package org.recap.model.jpa;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A batch of Solr documents that could not be sent after every retry. The documents are kept in javabin form so the
+ * batch can be replayed as it was; their ids are listed for lookup.
+ */
+@Entity
+@Table(name = "index_dead_letter_t", schema = "recap", catalog = "")
+public class IndexDeadLetterEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "DEAD_LETTER_ID")
+    private Integer deadLetterId;
+
+    @Column(name = "CORE_NAME")
+    private String coreName;
+
+    @Column(name = "DOC_COUNT")
+    private Integer docCount;
+
+    @Lob
+    @Column(name = "DOC_IDS")
+    private String docIds;
+
+    @JsonIgnore
+    @Lob
+    @Column(name = "PAYLOAD")
+    private byte[] payload;
+
+    @Column(name = "ERROR_MESSAGE")
+    private String errorMessage;
+
+    @Column(name = "ATTEMPTS")
+    private Integer attempts;
+
+    @Column(name = "STATUS")
+    private String status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "CREATED_DATE")
+    private Date createdDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "LAST_UPDATED_DATE")
+    private Date lastUpdatedDate;
+
+    public Integer getDeadLetterId() {
+        return deadLetterId;
+    }
+
+    public void setDeadLetterId(Integer deadLetterId) {
+        this.deadLetterId = deadLetterId;
+    }
+
+    public String getCoreName() {
+        return coreName;
+    }
+
+    public void setCoreName(String coreName) {
+        this.coreName = coreName;
+    }
+
+    public Integer getDocCount() {
+        return docCount;
+    }
+
+    public void setDocCount(Integer docCount) {
+        this.docCount = docCount;
+    }
+
+    public String getDocIds() {
+        return docIds;
+    }
+
+    public void setDocIds(String docIds) {
+        this.docIds = docIds;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Date createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Date getLastUpdatedDate() {
+        return lastUpdatedDate;
+    }
+
+    public void setLastUpdatedDate(Date lastUpdatedDate) {
+        this.lastUpdatedDate = lastUpdatedDate;
+    }
+}
@@ -0,0 +1,138 @@
+package org.recap.model.jpa;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A full index run that can be resumed. It holds what is needed to rebuild the same ranges on resume; the ranges
+ * completed so far are in index_job_range_t.
+ */
+@Entity
+@Table(name = "index_job_t", schema = "recap", catalog = "")
+public class IndexJobEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "JOB_ID")
+    private Integer jobId;
+
+    @Column(name = "DOC_TYPE")
+    private String docType;
+
+    @Column(name = "OWNING_INST_ID")
+    private Integer owningInstitutionId;
+
+    @Column(name = "FETCH_MODE")
+    private String fetchMode;
+
+    @Column(name = "DOCS_PER_THREAD")
+    private Integer docsPerThread;
+
+    @Column(name = "LOOP_COUNT")
+    private Integer loopCount;
+
+    @Column(name = "MIN_ID")
+    private Integer minId;
+
+    @Column(name = "MAX_ID")
+    private Integer maxId;
+
+    @Column(name = "STATUS")
+    private String status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "START_DATE")
+    private Date startDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "LAST_UPDATED_DATE")
+    private Date lastUpdatedDate;
+
+    public Integer getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Integer jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public void setDocType(String docType) {
+        this.docType = docType;
+    }
+
+    public Integer getOwningInstitutionId() {
+        return owningInstitutionId;
+    }
+
+    public void setOwningInstitutionId(Integer owningInstitutionId) {
+        this.owningInstitutionId = owningInstitutionId;
+    }
+
+    public String getFetchMode() {
+        return fetchMode;
+    }
+
+    public void setFetchMode(String fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    public Integer getDocsPerThread() {
+        return docsPerThread;
+    }
+
+    public void setDocsPerThread(Integer docsPerThread) {
+        this.docsPerThread = docsPerThread;
+    }
+
+    public Integer getLoopCount() {
+        return loopCount;
+    }
+
+    public void setLoopCount(Integer loopCount) {
+        this.loopCount = loopCount;
+    }
+
+    public Integer getMinId() {
+        return minId;
+    }
+
+    public void setMinId(Integer minId) {
+        this.minId = minId;
+    }
+
+    public Integer getMaxId() {
+        return maxId;
+    }
+
+    public void setMaxId(Integer maxId) {
+        this.maxId = maxId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getLastUpdatedDate() {
+        return lastUpdatedDate;
+    }
+
+    public void setLastUpdatedDate(Date lastUpdatedDate) {
+        this.lastUpdatedDate = lastUpdatedDate;
+    }
+}
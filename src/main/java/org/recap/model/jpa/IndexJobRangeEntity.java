@@ -0,0 +1,70 @@
+package org.recap.model.jpa;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A page or key range of an index job whose documents are covered by a successful commit.
+ */
+@Entity
+@Table(name = "index_job_range_t", schema = "recap", catalog = "")
+public class IndexJobRangeEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "RANGE_ID")
+    private Integer rangeId;
+
+    @Column(name = "JOB_ID")
+    private Integer jobId;
+
+    @Column(name = "RANGE_NUM")
+    private Integer rangeNum;
+
+    @Column(name = "DOC_COUNT")
+    private Integer docCount;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "COMPLETED_DATE")
+    private Date completedDate;
+
+    public Integer getRangeId() {
+        return rangeId;
+    }
+
+    public void setRangeId(Integer rangeId) {
+        this.rangeId = rangeId;
+    }
+
+    public Integer getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Integer jobId) {
+        this.jobId = jobId;
+    }
+
+    public Integer getRangeNum() {
+        return rangeNum;
+    }
+
+    public void setRangeNum(Integer rangeNum) {
+        this.rangeNum = rangeNum;
+    }
+
+    public Integer getDocCount() {
+        return docCount;
+    }
+
+    public void setDocCount(Integer docCount) {
+        this.docCount = docCount;
+    }
+
+    public Date getCompletedDate() {
+        return completedDate;
+    }
+
+    public void setCompletedDate(Date completedDate) {
+        this.completedDate = completedDate;
+    }
+}
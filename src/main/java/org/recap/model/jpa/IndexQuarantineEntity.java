@@ -0,0 +1,127 @@
+package org.recap.model.jpa;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A record that could not be turned into Solr documents, left out of the index until it is reprocessed. The content
+ * hash tells whether the record has been corrected since it was quarantined.
+ */
+@Entity
+@Table(name = "index_quarantine_t", schema = "recap", catalog = "")
+public class IndexQuarantineEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "QUARANTINE_ID")
+    private Integer quarantineId;
+
+    @Column(name = "DOC_TYPE")
+    private String docType;
+
+    @Column(name = "RECORD_ID")
+    private Integer recordId;
+
+    @Column(name = "OWNING_INST_ID")
+    private Integer owningInstitutionId;
+
+    @Column(name = "EXCEPTION")
+    private String exception;
+
+    @Column(name = "CONTENT_HASH")
+    private String contentHash;
+
+    @Column(name = "ATTEMPTS")
+    private Integer attempts;
+
+    @Column(name = "STATUS")
+    private String status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "CREATED_DATE")
+    private Date createdDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "LAST_UPDATED_DATE")
+    private Date lastUpdatedDate;
+
+    public Integer getQuarantineId() {
+        return quarantineId;
+    }
+
+    public void setQuarantineId(Integer quarantineId) {
+        this.quarantineId = quarantineId;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public void setDocType(String docType) {
+        this.docType = docType;
+    }
+
+    public Integer getRecordId() {
+        return recordId;
+    }
+
+    public void setRecordId(Integer recordId) {
+        this.recordId = recordId;
+    }
+
+    public Integer getOwningInstitutionId() {
+        return owningInstitutionId;
+    }
+
+    public void setOwningInstitutionId(Integer owningInstitutionId) {
+        this.owningInstitutionId = owningInstitutionId;
+    }
+
+    public String getException() {
+        return exception;
+    }
+
+    public void setException(String exception) {
+        this.exception = exception;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Date createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Date getLastUpdatedDate() {
+        return lastUpdatedDate;
+    }
+
+    public void setLastUpdatedDate(Date lastUpdatedDate) {
+        this.lastUpdatedDate = lastUpdatedDate;
+    }
+}
@@ -0,0 +1,72 @@
+package org.recap.model.jpa;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Point in time up to which records of a document type have been indexed. Incremental runs pick up records whose
+ * LAST_UPDATED_DATE is at or after it.
+ */
+@Entity
+@Table(name = "index_watermark_t", schema = "recap", catalog = "")
+public class IndexWatermarkEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "WATERMARK_ID")
+    private Integer watermarkId;
+
+    @Column(name = "DOC_TYPE")
+    private String docType;
+
+    @Column(name = "OWNING_INST_ID")
+    private Integer owningInstitutionId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "WATERMARK_DATE")
+    private Date watermarkDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "LAST_UPDATED_DATE")
+    private Date lastUpdatedDate;
+
+    public Integer getWatermarkId() {
+        return watermarkId;
+    }
+
+    public void setWatermarkId(Integer watermarkId) {
+        this.watermarkId = watermarkId;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public void setDocType(String docType) {
+        this.docType = docType;
+    }
+
+    public Integer getOwningInstitutionId() {
+        return owningInstitutionId;
+    }
+
+    public void setOwningInstitutionId(Integer owningInstitutionId) {
+        this.owningInstitutionId = owningInstitutionId;
+    }
+
+    public Date getWatermarkDate() {
+        return watermarkDate;
+    }
+
+    public void setWatermarkDate(Date watermarkDate) {
+        this.watermarkDate = watermarkDate;
+    }
+
+    public Date getLastUpdatedDate() {
+        return lastUpdatedDate;
+    }
+
+    public void setLastUpdatedDate(Date lastUpdatedDate) {
+        this.lastUpdatedDate = lastUpdatedDate;
+    }
+}
@@ -0,0 +1,45 @@
+package org.recap.model.solr;
+
+/**
+ * A change to a bib, holdings or item row, as published on the change feed queue, e.g.
+ * {"docType":"Item","id":42,"changeType":"Update"}. The doc type is Bib, Holdings or Item and the change type is
+ * Create, Update or Delete.
+ */
+public class ChangeEvent {
+    private String docType;
+    private Integer id;
+    private String changeType;
+
+    public ChangeEvent() {
+    }
+
+    public ChangeEvent(String docType, Integer id, String changeType) {
+        this.docType = docType;
+        this.id = id;
+        this.changeType = changeType;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public void setDocType(String docType) {
+        this.docType = docType;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getChangeType() {
+        return changeType;
+    }
+
+    public void setChangeType(String changeType) {
+        this.changeType = changeType;
+    }
+}
@@ -13,6 +13,16 @@ public class SolrIndexRequest {
     private Integer owningInstitutionId;
     private boolean doClean;
     private String dateFrom;
+    private String fetchMode;
+    private boolean incremental;
+    private Date fromDate;
+    private String commitPolicy;
+    private boolean shardedBuild;
+    private boolean swapBuild;
+    private boolean resume;
+    private boolean autoTune;
+    private boolean dryRun;
+    private String partitionScheduling;
 
     private String matchingCriteria;
     private String reportType;
@@ -106,4 +116,84 @@ public class SolrIndexRequest {
     public void setDateFrom(String dateFrom) {
         this.dateFrom = dateFrom;
     }
+
+    public String getFetchMode() {
+        return fetchMode;
+    }
+
+    public void setFetchMode(String fetchMode) {
+        this.fetchMode = fetchMode;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public Date getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(Date fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public String getCommitPolicy() {
+        return commitPolicy;
+    }
+
+    public void setCommitPolicy(String commitPolicy) {
+        this.commitPolicy = commitPolicy;
+    }
+
+    public boolean isShardedBuild() {
+        return shardedBuild;
+    }
+
+    public void setShardedBuild(boolean shardedBuild) {
+        this.shardedBuild = shardedBuild;
+    }
+
+    public boolean isSwapBuild() {
+        return swapBuild;
+    }
+
+    public void setSwapBuild(boolean swapBuild) {
+        this.swapBuild = swapBuild;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public boolean isAutoTune() {
+        return autoTune;
+    }
+
+    public void setAutoTune(boolean autoTune) {
+        this.autoTune = autoTune;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public String getPartitionScheduling() {
+        return partitionScheduling;
+    }
+
+    public void setPartitionScheduling(String partitionScheduling) {
+        this.partitionScheduling = partitionScheduling;
+    }
 }
@@ -5,18 +5,60 @@ import org.recap.model.jpa.BibliographicPK;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Date;
 import java.util.List;
 
 /**
  * Created by pvsubrah on 6/10/16.
  */
-public interface BibliographicDetailsRepository extends JpaRepository<BibliographicEntity, BibliographicPK> {
+public interface BibliographicDetailsRepository extends JpaRepository<BibliographicEntity, BibliographicPK>, BibliographicDetailsRepositoryCustom {
     Long countByOwningInstitutionId(Integer institutionId);
     Page<BibliographicEntity> findByOwningInstitutionId(Pageable pageable, Integer institutionId);
     BibliographicEntity findByOwningInstitutionIdAndOwningInstitutionBibId(Integer owningInstitutionId, String owningInstitutionBibId);
     BibliographicEntity findByBibliographicId(Integer bibId);
     List<BibliographicEntity> findByOwningInstitutionBibId(String owningInstitutionBibId);
 
+    @Query(value = "select min(bib.bibliographicId) from BibliographicEntity bib")
+    Integer findMinBibliographicId();
+
+    @Query(value = "select max(bib.bibliographicId) from BibliographicEntity bib")
+    Integer findMaxBibliographicId();
+
+    @Query(value = "select min(bib.bibliographicId) from BibliographicEntity bib where bib.owningInstitutionId = ?1")
+    Integer findMinBibliographicIdByOwningInstitutionId(Integer owningInstitutionId);
+
+    @Query(value = "select max(bib.bibliographicId) from BibliographicEntity bib where bib.owningInstitutionId = ?1")
+    Integer findMaxBibliographicIdByOwningInstitutionId(Integer owningInstitutionId);
+
+    @Query(value = "select bib from BibliographicEntity bib where bib.bibliographicId > ?1 and bib.bibliographicId <= ?2 order by bib.bibliographicId")
+    List<BibliographicEntity> findNextPageByBibliographicIdRange(Pageable pageable, Integer lastBibliographicId, Integer toBibliographicId);
+
+    @Query(value = "select bib from BibliographicEntity bib where bib.bibliographicId > ?1 and bib.bibliographicId <= ?2 and bib.owningInstitutionId = ?3 order by bib.bibliographicId")
+    List<BibliographicEntity> findNextPageByBibliographicIdRangeAndOwningInstitutionId(Pageable pageable, Integer lastBibliographicId, Integer toBibliographicId, Integer owningInstitutionId);
+
+    List<BibliographicEntity> findByBibliographicIdIn(List<Integer> bibliographicIds);
+
+    @Query(value = "select bib.bibliographicId from BibliographicEntity bib where bib.bibliographicId >= ?1 and bib.bibliographicId <= ?2")
+    List<Integer> findBibliographicIdsBetween(Integer fromBibliographicId, Integer toBibliographicId);
+
+    @Query(value = "select bib.bibliographicId from BibliographicEntity bib where bib.lastUpdatedDate >= ?1")
+    List<Integer> findBibliographicIdsByLastUpdatedDate(Date fromDate);
+
+    @Query(value = "select bib.bibliographicId from BibliographicEntity bib where bib.lastUpdatedDate >= ?1 and bib.owningInstitutionId = ?2")
+    List<Integer> findBibliographicIdsByLastUpdatedDateAndOwningInstitutionId(Date fromDate, Integer owningInstitutionId);
+
+    @Query(value = "select distinct bib.bibliographicId from BibliographicEntity bib join bib.itemEntities item where item.lastUpdatedDate >= ?1")
+    List<Integer> findBibliographicIdsByItemLastUpdatedDate(Date fromDate);
+
+    @Query(value = "select distinct bib.bibliographicId from BibliographicEntity bib join bib.itemEntities item where item.lastUpdatedDate >= ?1 and bib.owningInstitutionId = ?2")
+    List<Integer> findBibliographicIdsByItemLastUpdatedDateAndOwningInstitutionId(Date fromDate, Integer owningInstitutionId);
+
+    @Query(value = "select distinct bib.bibliographicId from BibliographicEntity bib join bib.holdingsEntities holdings where holdings.lastUpdatedDate >= ?1")
+    List<Integer> findBibliographicIdsByHoldingsLastUpdatedDate(Date fromDate);
+
+    @Query(value = "select distinct bib.bibliographicId from BibliographicEntity bib join bib.holdingsEntities holdings where holdings.lastUpdatedDate >= ?1 and bib.owningInstitutionId = ?2")
+    List<Integer> findBibliographicIdsByHoldingsLastUpdatedDateAndOwningInstitutionId(Date fromDate, Integer owningInstitutionId);
 }
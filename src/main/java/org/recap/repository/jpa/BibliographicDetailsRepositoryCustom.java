@@ -0,0 +1,20 @@
+package org.recap.repository.jpa;
+
+import org.recap.model.jpa.BibliographicEntity;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Queries on bibliographic records that cannot be expressed as derived or annotated repository methods.
+ */
+public interface BibliographicDetailsRepositoryCustom {
+
+    /**
+     * Reads bibliographic records through a forward-only cursor and hands them to the consumer in batches. Records are
+     * evicted from the persistence context as soon as they are read, so memory use does not grow with the catalog.
+     *
+     * @return the number of records read
+     */
+    Integer streamByOwningInstitutionId(Integer owningInstitutionId, int batchSize, Consumer<List<BibliographicEntity>> batchConsumer);
+}
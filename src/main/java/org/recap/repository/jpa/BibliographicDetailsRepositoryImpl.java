@@ -0,0 +1,71 @@
+package org.recap.repository.jpa;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.recap.model.jpa.BibliographicEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cursor based reads of bibliographic records, picked up by Spring Data as the implementation of
+ * {@link BibliographicDetailsRepositoryCustom}.
+ */
+public class BibliographicDetailsRepositoryImpl implements BibliographicDetailsRepositoryCustom {
+
+    /**
+     * The institution is fetched in the same select: MySQL does not allow other statements on a connection while a
+     * streaming result set is open, so no association may be loaded through the cursor's session.
+     */
+    private static final String STREAM_QUERY = "select bib from BibliographicEntity bib left join fetch bib.institutionEntity";
+
+    @PersistenceUnit
+    EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Integer streamByOwningInstitutionId(Integer owningInstitutionId, int batchSize, Consumer<List<BibliographicEntity>> batchConsumer) {
+        int numberOfBibsRead = 0;
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        ScrollableResults scrollableResults = null;
+        try {
+            Session session = entityManager.unwrap(Session.class);
+            Query query = owningInstitutionId == null ?
+                    session.createQuery(STREAM_QUERY) :
+                    session.createQuery(STREAM_QUERY + " where bib.owningInstitutionId = :owningInstitutionId").setParameter("owningInstitutionId", owningInstitutionId);
+            // Integer.MIN_VALUE makes the MySQL driver stream rows one at a time instead of buffering the result set.
+            scrollableResults = query
+                    .setFetchSize(Integer.MIN_VALUE)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+
+            List<BibliographicEntity> bibliographicEntities = new ArrayList<>(batchSize);
+            while (scrollableResults.next()) {
+                BibliographicEntity bibliographicEntity = (BibliographicEntity) scrollableResults.get(0);
+                session.evict(bibliographicEntity);
+                bibliographicEntities.add(bibliographicEntity);
+                numberOfBibsRead++;
+                if (bibliographicEntities.size() == batchSize) {
+                    batchConsumer.accept(bibliographicEntities);
+                    bibliographicEntities = new ArrayList<>(batchSize);
+                }
+            }
+            if (!bibliographicEntities.isEmpty()) {
+                batchConsumer.accept(bibliographicEntities);
+            }
+        } finally {
+            if (null != scrollableResults) {
+                scrollableResults.close();
+            }
+            entityManager.close();
+        }
+        return numberOfBibsRead;
+    }
+}
@@ -4,6 +4,10 @@ import org.recap.model.jpa.HoldingsEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * Created by hemalathas on 21/6/16.
@@ -13,4 +17,33 @@ public interface HoldingsDetailsRepository extends JpaRepository<HoldingsEntity,
     HoldingsEntity findByHoldingsId(Integer holdingsId);
     Long countByOwningInstitutionId(Integer institutionId);
     Page<HoldingsEntity> findByOwningInstitutionId(Pageable pageable, Integer institutionId);
+
+    @Query(value = "select min(holdings.holdingsId) from HoldingsEntity holdings")
+    Integer findMinHoldingsId();
+
+    @Query(value = "select max(holdings.holdingsId) from HoldingsEntity holdings")
+    Integer findMaxHoldingsId();
+
+    @Query(value = "select min(holdings.holdingsId) from HoldingsEntity holdings where holdings.owningInstitutionId = ?1")
+    Integer findMinHoldingsIdByOwningInstitutionId(Integer owningInstitutionId);
+
+    @Query(value = "select max(holdings.holdingsId) from HoldingsEntity holdings where holdings.owningInstitutionId = ?1")
+    Integer findMaxHoldingsIdByOwningInstitutionId(Integer owningInstitutionId);
+
+    @Query(value = "select holdings from HoldingsEntity holdings where holdings.holdingsId > ?1 and holdings.holdingsId <= ?2 order by holdings.holdingsId")
+    List<HoldingsEntity> findNextPageByHoldingsIdRange(Pageable pageable, Integer lastHoldingsId, Integer toHoldingsId);
+
+    @Query(value = "select holdings from HoldingsEntity holdings where holdings.holdingsId > ?1 and holdings.holdingsId <= ?2 and holdings.owningInstitutionId = ?3 order by holdings.holdingsId")
+    List<HoldingsEntity> findNextPageByHoldingsIdRangeAndOwningInstitutionId(Pageable pageable, Integer lastHoldingsId, Integer toHoldingsId, Integer owningInstitutionId);
+
+    List<HoldingsEntity> findByHoldingsIdIn(List<Integer> holdingsIds);
+
+    @Query(value = "select holdings.holdingsId from HoldingsEntity holdings where holdings.holdingsId >= ?1 and holdings.holdingsId <= ?2")
+    List<Integer> findHoldingsIdsBetween(Integer fromHoldingsId, Integer toHoldingsId);
+
+    @Query(value = "select holdings.holdingsId from HoldingsEntity holdings where holdings.lastUpdatedDate >= ?1")
+    List<Integer> findHoldingsIdsByLastUpdatedDate(Date fromDate);
+
+    @Query(value = "select holdings.holdingsId from HoldingsEntity holdings where holdings.lastUpdatedDate >= ?1 and holdings.owningInstitutionId = ?2")
+    List<Integer> findHoldingsIdsByLastUpdatedDateAndOwningInstitutionId(Date fromDate, Integer owningInstitutionId);
 }
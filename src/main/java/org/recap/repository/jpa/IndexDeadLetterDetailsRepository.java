@@ -0,0 +1,14 @@
+package org.recap.repository.jpa;
+
+import org.recap.model.jpa.IndexDeadLetterEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * Solr batches that failed every retry, oldest first.
+ */
+public interface IndexDeadLetterDetailsRepository extends JpaRepository<IndexDeadLetterEntity, Integer> {
+
+    List<IndexDeadLetterEntity> findByStatusOrderByDeadLetterIdAsc(String status);
+}
@@ -0,0 +1,14 @@
+package org.recap.repository.jpa;
+
+import org.recap.model.jpa.IndexJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Full index jobs, newest last, per document type and owning institution.
+ */
+public interface IndexJobDetailsRepository extends JpaRepository<IndexJobEntity, Integer> {
+
+    IndexJobEntity findFirstByDocTypeAndOwningInstitutionIdOrderByJobIdDesc(String docType, Integer owningInstitutionId);
+
+    IndexJobEntity findFirstByDocTypeAndOwningInstitutionIdIsNullOrderByJobIdDesc(String docType);
+}
@@ -0,0 +1,16 @@
+package org.recap.repository.jpa;
+
+import org.recap.model.jpa.IndexJobRangeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * Ranges of full index jobs that have been committed to Solr.
+ */
+public interface IndexJobRangeDetailsRepository extends JpaRepository<IndexJobRangeEntity, Integer> {
+
+    @Query(value = "select jobRange.rangeNum from IndexJobRangeEntity jobRange where jobRange.jobId = ?1")
+    List<Integer> findRangeNumsByJobId(Integer jobId);
+}
@@ -0,0 +1,18 @@
+package org.recap.repository.jpa;
+
+import org.recap.model.jpa.IndexQuarantineEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * Records quarantined by index runs, per document type of the run.
+ */
+public interface IndexQuarantineDetailsRepository extends JpaRepository<IndexQuarantineEntity, Integer> {
+
+    List<IndexQuarantineEntity> findByStatusOrderByQuarantineIdAsc(String status);
+
+    List<IndexQuarantineEntity> findByDocTypeAndStatusOrderByRecordIdAsc(String docType, String status);
+
+    IndexQuarantineEntity findFirstByDocTypeAndRecordIdAndStatus(String docType, Integer recordId, String status);
+}
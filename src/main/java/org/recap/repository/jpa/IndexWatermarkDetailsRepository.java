@@ -0,0 +1,14 @@
+package org.recap.repository.jpa;
+
+import org.recap.model.jpa.IndexWatermarkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Watermarks of incremental index runs, one per document type and owning institution.
+ */
+public interface IndexWatermarkDetailsRepository extends JpaRepository<IndexWatermarkEntity, Integer> {
+
+    IndexWatermarkEntity findByDocTypeAndOwningInstitutionId(String docType, Integer owningInstitutionId);
+
+    IndexWatermarkEntity findByDocTypeAndOwningInstitutionIdIsNull(String docType);
+}
@@ -3,8 +3,10 @@ package org.recap.repository.jpa;
 import org.recap.model.jpa.ItemEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -16,4 +18,41 @@ public interface ItemDetailsRepository extends PagingAndSortingRepository<ItemEn
     Page<ItemEntity> findByOwningInstitutionId(Pageable pageable, Integer institutionId);
     List<ItemEntity> findByOwningInstitutionId(Integer owningInstitutionId);
     ItemEntity findByOwningInstitutionItemId(String owningInstitutionItemId);
+
+    @Query(value = "select min(item.itemId) from ItemEntity item")
+    Integer findMinItemId();
+
+    @Query(value = "select max(item.itemId) from ItemEntity item")
+    Integer findMaxItemId();
+
+    @Query(value = "select min(item.itemId) from ItemEntity item where item.owningInstitutionId = ?1")
+    Integer findMinItemIdByOwningInstitutionId(Integer owningInstitutionId);
+
+    @Query(value = "select max(item.itemId) from ItemEntity item where item.owningInstitutionId = ?1")
+    Integer findMaxItemIdByOwningInstitutionId(Integer owningInstitutionId);
+
+    @Query(value = "select item from ItemEntity item where item.itemId > ?1 and item.itemId <= ?2 order by item.itemId")
+    List<ItemEntity> findNextPageByItemIdRange(Pageable pageable, Integer lastItemId, Integer toItemId);
+
+    @Query(value = "select item from ItemEntity item where item.itemId > ?1 and item.itemId <= ?2 and item.owningInstitutionId = ?3 order by item.itemId")
+    List<ItemEntity> findNextPageByItemIdRangeAndOwningInstitutionId(Pageable pageable, Integer lastItemId, Integer toItemId, Integer owningInstitutionId);
+
+    List<ItemEntity> findByItemIdIn(List<Integer> itemIds);
+
+    @Query(value = "select item.itemId from ItemEntity item where item.itemId >= ?1 and item.itemId <= ?2")
+    List<Integer> findItemIdsBetween(Integer fromItemId, Integer toItemId);
+
+    /**
+     * The item id, status code, collection group code and use restrictions of each of the given items, without loading
+     * the items.
+     */
+    @Query(value = "select item.itemId, itemStatus.statusCode, collectionGroup.collectionGroupCode, item.useRestrictions from ItemEntity item " +
+            "left join item.itemStatusEntity itemStatus left join item.collectionGroupEntity collectionGroup where item.itemId in ?1")
+    List<Object[]> findItemStatusByItemIdIn(List<Integer> itemIds);
+
+    @Query(value = "select item.itemId from ItemEntity item where item.lastUpdatedDate >= ?1")
+    List<Integer> findItemIdsByLastUpdatedDate(Date fromDate);
+
+    @Query(value = "select item.itemId from ItemEntity item where item.lastUpdatedDate >= ?1 and item.owningInstitutionId = ?2")
+    List<Integer> findItemIdsByLastUpdatedDateAndOwningInstitutionId(Date fromDate, Integer owningInstitutionId);
 }
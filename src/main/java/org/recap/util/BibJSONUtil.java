@@ -1,5 +1,6 @@
 package org.recap.util;
 
+import com.codahale.metrics.Timer;
 import org.apache.commons.lang3.StringUtils;
 import org.marc4j.marc.Leader;
 import org.marc4j.marc.Record;
@@ -104,6 +105,16 @@ public class BibJSONUtil extends MarcUtil {
     }
 
     public Map<String, List> generateBibAndItemsForIndex(BibliographicEntity bibliographicEntity) {
+        return generateBibAndItemsForIndex(bibliographicEntity, null, null);
+    }
+
+    /**
+     * Same as {@link #generateBibAndItemsForIndex(BibliographicEntity)}, leaving out the items and holdings whose ids
+     * are already in the given sets of emitted ids. Items and holdings shared by several bibs are built once per set.
+     * Ids are only added to the sets once the whole bib has been built, so a bib that fails does not take its items and
+     * holdings with it. Null sets leave nothing out.
+     */
+    public Map<String, List> generateBibAndItemsForIndex(BibliographicEntity bibliographicEntity, ConcurrentIdSet emittedItemIds, ConcurrentIdSet emittedHoldingsIds) {
         Map map = new HashMap();
         List<Holdings> holdingsList = new ArrayList<>();
         List<Item> items = new ArrayList<>();
@@ -116,15 +127,23 @@ public class BibJSONUtil extends MarcUtil {
         List<ItemEntity> itemEntities = bibliographicEntity.getItemEntities();
         for (ItemEntity itemEntity : itemEntities) {
             itemIds.add(itemEntity.getItemId());
-            Item item = new ItemJSONUtil().generateItemForIndex(itemEntity);
-            items.add(item);
+            if (!isEmitted(itemEntity.getItemId(), emittedItemIds)) {
+                Item item = new ItemJSONUtil().generateItemForIndex(itemEntity);
+                items.add(item);
+            }
         }
         List<HoldingsEntity> holdingsEntities = bibliographicEntity.getHoldingsEntities();
         for (HoldingsEntity holdingsEntity : holdingsEntities) {
             holdingsIds.add(holdingsEntity.getHoldingsId());
-            Holdings holdings = new HoldingsJSONUtil().generateHoldingsForIndex(holdingsEntity);
-            holdingsList.add(holdings);
+            if (!isEmitted(holdingsEntity.getHoldingsId(), emittedHoldingsIds)) {
+                Holdings holdings = new HoldingsJSONUtil().generateHoldingsForIndex(holdingsEntity);
+                holdingsList.add(holdings);
+            }
         }
+        // Of bibs built concurrently that share an item or holdings, only the one that marks it emitted sends it. The
+        // index pipeline un-marks it again if it fails before the item or holdings reaches the Solr queue.
+        items.removeIf(item -> !markEmitted(item.getItemId(), emittedItemIds));
+        holdingsList.removeIf(holdings -> !markEmitted(holdings.getHoldingsId(), emittedHoldingsIds));
 
         bib.setHoldingsIdList(holdingsIds);
         bib.setBibItemIdList(itemIds);
@@ -135,6 +154,14 @@ public class BibJSONUtil extends MarcUtil {
         return map;
     }
 
+    private boolean isEmitted(Integer id, ConcurrentIdSet emittedIds) {
+        return null != emittedIds && null != id && emittedIds.contains(id);
+    }
+
+    private boolean markEmitted(Integer id, ConcurrentIdSet emittedIds) {
+        return null == emittedIds || null == id || emittedIds.add(id);
+    }
+
     public Bib generateBibForIndex(BibliographicEntity bibliographicEntity) {
         Bib bib = generateBib(bibliographicEntity);
 
@@ -165,28 +192,33 @@ public class BibJSONUtil extends MarcUtil {
         List<Record> records = convertMarcXmlToRecord(bibContent);
         Record marcRecord = records.get(0);
 
-        InstitutionEntity institutionEntity = bibliographicEntity.getInstitutionEntity();
-        String institutionCode = null != institutionEntity ? institutionEntity.getInstitutionCode() : "";
-
-        bib.setOwningInstitution(institutionCode);
-        bib.setTitle(getTitle(marcRecord));
-        bib.setTitleDisplay(getTitleDisplay(marcRecord));
-        bib.setTitleStartsWith(getTitleStartsWith(marcRecord));
-        bib.setTitleSort(getTitleSort(marcRecord, bib.getTitleDisplay()));
-        bib.setAuthorDisplay(getAuthorDisplayValue(marcRecord));
-        bib.setAuthorSearch(getAuthorSearchValue(marcRecord));
-        bib.setPublisher(getPublisherValue(marcRecord));
-        bib.setPublicationPlace(getPublicationPlaceValue(marcRecord));
-        bib.setPublicationDate(getPublicationDateValue(marcRecord));
-        bib.setSubject(getDataFieldValueStartsWith(marcRecord, "6"));
-        bib.setIsbn(getISBNNumber(marcRecord));
-        bib.setIssn(getISSNNumber(marcRecord));
-        bib.setOclcNumber(getOCLCNumbers(marcRecord, institutionCode.toString()));
-        bib.setMaterialType(getDataFieldValue(marcRecord, "245", null, null, "h"));
-        bib.setNotes(getDataFieldValueStartsWith(marcRecord, "5"));
-        bib.setLccn(getLCCNValue(marcRecord));
-        bib.setOwningInstitutionBibId(bibliographicEntity.getOwningInstitutionBibId());
-        bib.setLeaderMaterialType(getLeaderMaterialType(marcRecord.getLeader()));
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.FIELD_EXTRACTION).time();
+        try {
+            InstitutionEntity institutionEntity = bibliographicEntity.getInstitutionEntity();
+            String institutionCode = null != institutionEntity ? institutionEntity.getInstitutionCode() : "";
+
+            bib.setOwningInstitution(institutionCode);
+            bib.setTitle(getTitle(marcRecord));
+            bib.setTitleDisplay(getTitleDisplay(marcRecord));
+            bib.setTitleStartsWith(getTitleStartsWith(marcRecord));
+            bib.setTitleSort(getTitleSort(marcRecord, bib.getTitleDisplay()));
+            bib.setAuthorDisplay(getAuthorDisplayValue(marcRecord));
+            bib.setAuthorSearch(getAuthorSearchValue(marcRecord));
+            bib.setPublisher(getPublisherValue(marcRecord));
+            bib.setPublicationPlace(getPublicationPlaceValue(marcRecord));
+            bib.setPublicationDate(getPublicationDateValue(marcRecord));
+            bib.setSubject(getDataFieldValueStartsWith(marcRecord, "6"));
+            bib.setIsbn(getISBNNumber(marcRecord));
+            bib.setIssn(getISSNNumber(marcRecord));
+            bib.setOclcNumber(getOCLCNumbers(marcRecord, institutionCode.toString()));
+            bib.setMaterialType(getDataFieldValue(marcRecord, "245", null, null, "h"));
+            bib.setNotes(getDataFieldValueStartsWith(marcRecord, "5"));
+            bib.setLccn(getLCCNValue(marcRecord));
+            bib.setOwningInstitutionBibId(bibliographicEntity.getOwningInstitutionBibId());
+            bib.setLeaderMaterialType(getLeaderMaterialType(marcRecord.getLeader()));
+        } finally {
+            context.stop();
+        }
         return bib;
     }
 
@@ -0,0 +1,94 @@
+package org.recap.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe set of non-negative int ids, kept as bits rather than boxed Integers. The record tables use dense
+ * auto-increment ids, so the set takes about one bit per id up to the highest id added. The bits are allocated in
+ * segments of SEGMENT_SIZE ids the first time an id in the segment is added.
+ */
+public class ConcurrentIdSet {
+
+    private static final int SEGMENT_SHIFT = 16;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_COUNT = (Integer.MAX_VALUE >>> SEGMENT_SHIFT) + 1;
+
+    private final AtomicReferenceArray<AtomicLongArray> segments = new AtomicReferenceArray<>(SEGMENT_COUNT);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Adds the id and returns true if it was not in the set already. Of several threads adding the same id, exactly
+     * one gets true.
+     */
+    public boolean add(int id) {
+        checkId(id);
+        AtomicLongArray segment = segments.get(id >>> SEGMENT_SHIFT);
+        if (null == segment) {
+            segments.compareAndSet(id >>> SEGMENT_SHIFT, null, new AtomicLongArray(SEGMENT_SIZE / 64));
+            segment = segments.get(id >>> SEGMENT_SHIFT);
+        }
+        int word = (id & (SEGMENT_SIZE - 1)) >>> 6;
+        long mask = 1L << (id & 63);
+        while (true) {
+            long bits = segment.get(word);
+            if ((bits & mask) != 0) {
+                return false;
+            }
+            if (segment.compareAndSet(word, bits, bits | mask)) {
+                size.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the id and returns true if it was in the set.
+     */
+    public boolean remove(int id) {
+        checkId(id);
+        AtomicLongArray segment = segments.get(id >>> SEGMENT_SHIFT);
+        if (null == segment) {
+            return false;
+        }
+        int word = (id & (SEGMENT_SIZE - 1)) >>> 6;
+        long mask = 1L << (id & 63);
+        while (true) {
+            long bits = segment.get(word);
+            if ((bits & mask) == 0) {
+                return false;
+            }
+            if (segment.compareAndSet(word, bits, bits & ~mask)) {
+                size.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public boolean contains(int id) {
+        checkId(id);
+        AtomicLongArray segment = segments.get(id >>> SEGMENT_SHIFT);
+        return null != segment && (segment.get((id & (SEGMENT_SIZE - 1)) >>> 6) & (1L << (id & 63))) != 0;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Empties the set. Must not be called while other threads are adding to it.
+     */
+    public void clear() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments.set(i, null);
+        }
+        size.set(0);
+    }
+
+    private void checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id : " + id);
+        }
+    }
+}
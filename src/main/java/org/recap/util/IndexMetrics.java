@@ -0,0 +1,154 @@
+package org.recap.util;
+
+import com.codahale.metrics.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timers and histograms of the indexing stages, kept in one shared metric registry. The registry is also the
+ * metricRegistry bean, so camel-metrics endpoints, the JMX reporter and the metrics endpoint all see the same metrics,
+ * and classes that are not Spring beans, like the JSON utils, can record to it.
+ */
+public class IndexMetrics {
+
+    public static final String METRIC_REGISTRY = "metricRegistry";
+
+    public static final String DB_FETCH = "index.db.fetch";
+    public static final String DB_FETCH_SIZE = "index.db.fetch.size";
+    public static final String ASSOCIATION_LOAD = "index.association.load";
+    public static final String MARC_PARSE = "index.marc.parse";
+    public static final String FIELD_EXTRACTION = "index.field.extraction";
+    public static final String QUEUE_WAIT = "index.queue.wait";
+    public static final String SOLR_ADD = "index.solr.add";
+    public static final String SOLR_UPDATE = "index.solr.update";
+    public static final String SOLR_UPDATE_SIZE = "index.solr.update.size";
+    public static final String COMMIT = "index.commit";
+    public static final String DOCUMENT_CONVERSION = "index.document.conversion";
+
+    private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private IndexMetrics() {
+    }
+
+    public static MetricRegistry getRegistry() {
+        return SharedMetricRegistries.getOrCreate(METRIC_REGISTRY);
+    }
+
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, IndexMetrics::registerTimer);
+    }
+
+    private static Timer registerTimer(String name) {
+        try {
+            return getRegistry().register(name, new TotalTimeTimer());
+        } catch (IllegalArgumentException e) {
+            // Registered before through the registry itself, e.g. by a camel-metrics endpoint.
+            return getRegistry().timer(name);
+        }
+    }
+
+    /**
+     * Sum in nanoseconds of every duration the timer has recorded so far, or 0 when it does not keep one.
+     */
+    public static long getTotalNanos(String name) {
+        Timer timer = timer(name);
+        return timer instanceof TotalTimeTimer ? ((TotalTimeTimer) timer).getTotalNanos() : 0;
+    }
+
+    public static Histogram histogram(String name) {
+        return getRegistry().histogram(name);
+    }
+
+    public static <T> T time(String name, Supplier<T> supplier) {
+        Timer.Context context = timer(name).time();
+        try {
+            return supplier.get();
+        } finally {
+            context.stop();
+        }
+    }
+
+    /**
+     * The number of times each timer has been updated so far.
+     */
+    public static Map<String, Long> getTimerCounts() {
+        Map<String, Long> timerCounts = new LinkedHashMap<>();
+        for (Map.Entry<String, Timer> entry : getRegistry().getTimers().entrySet()) {
+            timerCounts.put(entry.getKey(), entry.getValue().getCount());
+        }
+        return timerCounts;
+    }
+
+    /**
+     * Count, rate and latency percentiles in milliseconds of every timer, and count and percentiles of every histogram.
+     */
+    public static Map<String, Map<String, Number>> getSnapshot() {
+        Map<String, Map<String, Number>> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, Timer> entry : getRegistry().getTimers().entrySet()) {
+            Timer timer = entry.getValue();
+            Snapshot timerSnapshot = timer.getSnapshot();
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("count", timer.getCount());
+            values.put("oneMinuteRate", timer.getOneMinuteRate());
+            values.put("meanMillis", toMillis(timerSnapshot.getMean()));
+            values.put("p50Millis", toMillis(timerSnapshot.getMedian()));
+            values.put("p95Millis", toMillis(timerSnapshot.get95thPercentile()));
+            values.put("p99Millis", toMillis(timerSnapshot.get99thPercentile()));
+            values.put("maxMillis", toMillis(timerSnapshot.getMax()));
+            snapshot.put(entry.getKey(), values);
+        }
+        for (Map.Entry<String, Histogram> entry : getRegistry().getHistograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            Snapshot histogramSnapshot = histogram.getSnapshot();
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("count", histogram.getCount());
+            values.put("mean", histogramSnapshot.getMean());
+            values.put("p95", histogramSnapshot.get95thPercentile());
+            values.put("max", histogramSnapshot.getMax());
+            snapshot.put(entry.getKey(), values);
+        }
+        return snapshot;
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * A timer that also keeps the total of the durations recorded, so the mean over any period can be taken from the
+     * change in count and total, where the snapshot only has the decaying reservoir.
+     */
+    static class TotalTimeTimer extends Timer {
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        @Override
+        public void update(long duration, TimeUnit unit) {
+            super.update(duration, unit);
+            if (duration >= 0) {
+                totalNanos.add(unit.toNanos(duration));
+            }
+        }
+
+        @Override
+        public <T> T time(Callable<T> event) throws Exception {
+            Context context = time();
+            try {
+                return event.call();
+            } finally {
+                context.stop();
+            }
+        }
+
+        long getTotalNanos() {
+            return totalNanos.sum();
+        }
+    }
+}
@@ -29,8 +29,7 @@ public class ItemJSONUtil extends MarcUtil{
             item.setBarcode(itemEntity.getBarcode());
             item.setDocType("Item");
             item.setCustomerCode(itemEntity.getCustomerCode());
-            String useRestrictions = itemEntity.getUseRestrictions();
-            item.setUseRestriction(StringUtils.isNotBlank(useRestrictions) ? useRestrictions : RecapConstants.NO_RESTRICTIONS);
+            item.setUseRestriction(getUseRestriction(itemEntity.getUseRestrictions()));
             item.setVolumePartYear(itemEntity.getVolumePartYear());
             item.setCallNumber(itemEntity.getCallNumber());
 
@@ -67,4 +66,11 @@ public class ItemJSONUtil extends MarcUtil{
         }
         return item;
     }
+
+    /**
+     * The UseRestriction of an item document, which is No Restrictions for an item without use restrictions.
+     */
+    public static String getUseRestriction(String useRestrictions) {
+        return StringUtils.isNotBlank(useRestrictions) ? useRestrictions : RecapConstants.NO_RESTRICTIONS;
+    }
 }
@@ -1,5 +1,6 @@
 package org.recap.util;
 
+import com.codahale.metrics.Timer;
 import info.freelibrary.marc4j.impl.ControlFieldImpl;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -21,13 +22,18 @@ import java.util.List;
 public class MarcUtil {
 
     public List<Record> convertMarcXmlToRecord(String marcXml) {
-        List<Record> records = new ArrayList<>();
-        MarcReader reader = new MarcXmlReader(IOUtils.toInputStream(marcXml));
-        while (reader.hasNext()) {
-            Record record = reader.next();
-            records.add(record);
+        Timer.Context context = IndexMetrics.timer(IndexMetrics.MARC_PARSE).time();
+        try {
+            List<Record> records = new ArrayList<>();
+            MarcReader reader = new MarcXmlReader(IOUtils.toInputStream(marcXml));
+            while (reader.hasNext()) {
+                Record record = reader.next();
+                records.add(record);
+            }
+            return records;
+        } finally {
+            context.stop();
         }
-        return records;
     }
 
     public String getDataFieldValueStartsWith(Record record, String dataFieldStartTag) {
@@ -0,0 +1,99 @@
+package org.recap.util;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.recap.model.solr.Bib;
+import org.recap.model.solr.Holdings;
+import org.recap.model.solr.Item;
+
+/**
+ * Builds the SolrInputDocuments of the Bib, Item and Holdings solr beans field by field, in place of SolrJ's
+ * DocumentObjectBinder, which reads every @Field of every bean by reflection. The field names and order are those of
+ * the @Field annotations, so a field added to one of the beans has to be added here too. Null values are left out;
+ * Solr drops them on add anyway.
+ */
+public class SolrInputDocumentBuilder {
+
+    private SolrInputDocumentBuilder() {
+    }
+
+    /**
+     * The document of a Bib, Item or Holdings bean, or null for any other object, including subclasses of those beans.
+     */
+    public static SolrInputDocument build(Object document) {
+        Class<?> documentClass = document.getClass();
+        if (documentClass == Bib.class) {
+            return build((Bib) document);
+        } else if (documentClass == Item.class) {
+            return build((Item) document);
+        } else if (documentClass == Holdings.class) {
+            return build((Holdings) document);
+        }
+        return null;
+    }
+
+    public static SolrInputDocument build(Bib bib) {
+        SolrInputDocument solrInputDocument = new SolrInputDocument();
+        addField(solrInputDocument, "id", bib.getId());
+        addField(solrInputDocument, "BibId", bib.getBibId());
+        addField(solrInputDocument, "DocType", bib.getDocType());
+        addField(solrInputDocument, "Barcode", bib.getBarcode());
+        addField(solrInputDocument, "Title_search", bib.getTitle());
+        addField(solrInputDocument, "Title_display", bib.getTitleDisplay());
+        addField(solrInputDocument, "TitleStartsWith", bib.getTitleStartsWith());
+        addField(solrInputDocument, "Author_display", bib.getAuthorDisplay());
+        addField(solrInputDocument, "Author_search", bib.getAuthorSearch());
+        addField(solrInputDocument, "OwningInstitution", bib.getOwningInstitution());
+        addField(solrInputDocument, "Publisher", bib.getPublisher());
+        addField(solrInputDocument, "PublicationPlace", bib.getPublicationPlace());
+        addField(solrInputDocument, "PublicationDate", bib.getPublicationDate());
+        addField(solrInputDocument, "Subject", bib.getSubject());
+        addField(solrInputDocument, "ISBN", bib.getIsbn());
+        addField(solrInputDocument, "ISSN", bib.getIssn());
+        addField(solrInputDocument, "OCLCNumber", bib.getOclcNumber());
+        addField(solrInputDocument, "MaterialType", bib.getMaterialType());
+        addField(solrInputDocument, "Notes", bib.getNotes());
+        addField(solrInputDocument, "LCCN", bib.getLccn());
+        addField(solrInputDocument, "Imprint", bib.getImprint());
+        addField(solrInputDocument, "HoldingsId", bib.getHoldingsIdList());
+        addField(solrInputDocument, "OwningInstHoldingsId", bib.getOwningInstHoldingsIdList());
+        addField(solrInputDocument, "BibItemId", bib.getBibItemIdList());
+        addField(solrInputDocument, "OwningInstitutionBibId", bib.getOwningInstitutionBibId());
+        addField(solrInputDocument, "LeaderMaterialType", bib.getLeaderMaterialType());
+        addField(solrInputDocument, "Title_sort", bib.getTitleSort());
+        return solrInputDocument;
+    }
+
+    public static SolrInputDocument build(Item item) {
+        SolrInputDocument solrInputDocument = new SolrInputDocument();
+        addField(solrInputDocument, "id", item.getId());
+        addField(solrInputDocument, "ItemId", item.getItemId());
+        addField(solrInputDocument, "Barcode", item.getBarcode());
+        addField(solrInputDocument, "Availability", item.getAvailability());
+        addField(solrInputDocument, "CollectionGroupDesignation", item.getCollectionGroupDesignation());
+        addField(solrInputDocument, "DocType", item.getDocType());
+        addField(solrInputDocument, "CustomerCode", item.getCustomerCode());
+        addField(solrInputDocument, "UseRestriction", item.getUseRestriction());
+        addField(solrInputDocument, "VolumePartYear", item.getVolumePartYear());
+        addField(solrInputDocument, "CallNumber", item.getCallNumber());
+        addField(solrInputDocument, "OwningInstitution", item.getOwningInstitution());
+        addField(solrInputDocument, "ItemBibId", item.getItemBibIdList());
+        addField(solrInputDocument, "HoldingsId", item.getHoldingsIdList());
+        return solrInputDocument;
+    }
+
+    public static SolrInputDocument build(Holdings holdings) {
+        SolrInputDocument solrInputDocument = new SolrInputDocument();
+        addField(solrInputDocument, "id", holdings.getId());
+        addField(solrInputDocument, "HoldingId", holdings.getHoldingsId());
+        addField(solrInputDocument, "DocType", holdings.getDocType());
+        addField(solrInputDocument, "SummaryHoldings", holdings.getSummaryHoldings());
+        addField(solrInputDocument, "OwningInstitution", holdings.getOwningInstitution());
+        return solrInputDocument;
+    }
+
+    private static void addField(SolrInputDocument solrInputDocument, String name, Object value) {
+        if (null != value) {
+            solrInputDocument.setField(name, value);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- A batch that failed every retry to Solr, kept with its documents so it can be replayed into its core.
+CREATE TABLE IF NOT EXISTS `index_dead_letter_t` (
+  `DEAD_LETTER_ID` INT NOT NULL AUTO_INCREMENT,
+  `CORE_NAME` VARCHAR(100) NOT NULL,
+  `DOC_COUNT` INT NULL,
+  `DOC_IDS` LONGTEXT NULL,
+  `PAYLOAD` LONGBLOB NULL,
+  `ERROR_MESSAGE` VARCHAR(1000) NULL,
+  `ATTEMPTS` INT NULL,
+  `STATUS` VARCHAR(45) NOT NULL,
+  `CREATED_DATE` DATETIME NOT NULL,
+  `LAST_UPDATED_DATE` DATETIME NULL,
+  PRIMARY KEY (`DEAD_LETTER_ID`),
+  INDEX `index_dead_letter_status` (`STATUS`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8;
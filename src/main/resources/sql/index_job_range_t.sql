@@ -0,0 +1,11 @@
+-- A range of an index_job_t run that has been indexed and committed.
+CREATE TABLE IF NOT EXISTS `index_job_range_t` (
+  `RANGE_ID` INT NOT NULL AUTO_INCREMENT,
+  `JOB_ID` INT NOT NULL,
+  `RANGE_NUM` INT NOT NULL,
+  `DOC_COUNT` INT NULL,
+  `COMPLETED_DATE` DATETIME NULL,
+  PRIMARY KEY (`RANGE_ID`),
+  INDEX `index_job_range_job_id` (`JOB_ID`),
+  CONSTRAINT `index_job_range_job_fk` FOREIGN KEY (`JOB_ID`) REFERENCES `index_job_t` (`JOB_ID`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8;
@@ -0,0 +1,16 @@
+-- A checkpointed full index run: how its key space was cut into ranges, so an interrupted run can be resumed.
+CREATE TABLE IF NOT EXISTS `index_job_t` (
+  `JOB_ID` INT NOT NULL AUTO_INCREMENT,
+  `DOC_TYPE` VARCHAR(45) NOT NULL,
+  `OWNING_INST_ID` INT NULL,
+  `FETCH_MODE` VARCHAR(45) NULL,
+  `DOCS_PER_THREAD` INT NULL,
+  `LOOP_COUNT` INT NULL,
+  `MIN_ID` INT NULL,
+  `MAX_ID` INT NULL,
+  `STATUS` VARCHAR(45) NOT NULL,
+  `START_DATE` DATETIME NOT NULL,
+  `LAST_UPDATED_DATE` DATETIME NULL,
+  PRIMARY KEY (`JOB_ID`),
+  INDEX `index_job_doc_type_inst` (`DOC_TYPE`, `OWNING_INST_ID`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8;
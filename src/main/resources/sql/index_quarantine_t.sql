@@ -0,0 +1,16 @@
+-- A record that failed to transform during an index run, kept until it is reprocessed.
+CREATE TABLE IF NOT EXISTS `index_quarantine_t` (
+  `QUARANTINE_ID` INT NOT NULL AUTO_INCREMENT,
+  `DOC_TYPE` VARCHAR(45) NOT NULL,
+  `RECORD_ID` INT NOT NULL,
+  `OWNING_INST_ID` INT NULL,
+  `EXCEPTION` VARCHAR(1000) NULL,
+  `CONTENT_HASH` VARCHAR(64) NULL,
+  `ATTEMPTS` INT NULL,
+  `STATUS` VARCHAR(45) NOT NULL,
+  `CREATED_DATE` DATETIME NOT NULL,
+  `LAST_UPDATED_DATE` DATETIME NULL,
+  PRIMARY KEY (`QUARANTINE_ID`),
+  INDEX `index_quarantine_doc_type_record` (`DOC_TYPE`, `RECORD_ID`, `STATUS`),
+  INDEX `index_quarantine_status` (`STATUS`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8;
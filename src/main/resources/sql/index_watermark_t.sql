@@ -0,0 +1,10 @@
+-- The LAST_UPDATED_DATE up to which each document type, optionally of one owning institution, has been indexed.
+CREATE TABLE IF NOT EXISTS `index_watermark_t` (
+  `WATERMARK_ID` INT NOT NULL AUTO_INCREMENT,
+  `DOC_TYPE` VARCHAR(45) NOT NULL,
+  `OWNING_INST_ID` INT NULL,
+  `WATERMARK_DATE` DATETIME NOT NULL,
+  `LAST_UPDATED_DATE` DATETIME NOT NULL,
+  PRIMARY KEY (`WATERMARK_ID`),
+  INDEX `index_watermark_doc_type_inst` (`DOC_TYPE`, `OWNING_INST_ID`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8;
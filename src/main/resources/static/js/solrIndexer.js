@@ -42,8 +42,9 @@ function fullIndex() {
         url: $form.attr('action'),
         type: 'post',
         data: $form.serialize(),
-        success: function (response) {
-            console.log("completed");
+        success: function (jobId) {
+            console.log("Submitted index job " + jobId);
+            document.getElementById("fullIndexingStatus").value = "Submitted index job " + jobId;
             $("#submit").removeAttr('disabled');
         }
     });
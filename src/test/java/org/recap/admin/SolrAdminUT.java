@@ -0,0 +1,127 @@
+package org.recap.admin;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.params.CoreAdminParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SolrAdminUT {
+
+    @Mock
+    SolrClient solrAdminClient;
+
+    @Mock
+    SolrClient solrClient;
+
+    @InjectMocks
+    SolrAdmin solrAdmin;
+
+    /**
+     * Instance directory of every loaded core, by core name, as CoreAdmin keeps them.
+     */
+    private final Map<String, String> instanceDirs = new LinkedHashMap<>();
+    private final List<String> deletedInstanceDirs = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        solrAdmin.solrHome = "/solr/";
+        solrAdmin.solrParentCore = "recap";
+        instanceDirs.put("recap", "/solr/recap");
+        Mockito.when(solrAdminClient.request(Mockito.any(SolrRequest.class), Mockito.any()))
+                .thenAnswer(invocation -> coreAdmin(((SolrRequest) invocation.getArguments()[0]).getParams()));
+    }
+
+    @Test
+    public void swapBuildsBackToBackKeepTheLiveAndRollbackIndexes() throws Exception {
+        String firstBuildCore = solrAdmin.createBuildCore();
+        String firstBuildDir = instanceDirs.get(firstBuildCore);
+        solrAdmin.swapInBuildCore(firstBuildCore);
+        assertEquals(firstBuildDir, instanceDirs.get("recap"));
+        assertEquals("/solr/recap", instanceDirs.get(firstBuildCore));
+
+        Thread.sleep(5);
+        String secondBuildCore = solrAdmin.createBuildCore();
+        String secondBuildDir = instanceDirs.get(secondBuildCore);
+        assertNotEquals(firstBuildCore, secondBuildCore);
+        assertEquals("/solr/recap", instanceDirs.get(firstBuildCore));
+        assertTrue(deletedInstanceDirs.isEmpty());
+
+        solrAdmin.swapInBuildCore(secondBuildCore);
+        assertEquals(secondBuildDir, instanceDirs.get("recap"));
+        assertEquals(firstBuildDir, instanceDirs.get(secondBuildCore));
+        assertEquals(Collections.singletonList(secondBuildCore), solrAdmin.getBuildCoreNames());
+        assertEquals(Collections.singletonList("/solr/recap"), deletedInstanceDirs);
+
+        solrAdmin.swapBack();
+        assertEquals(firstBuildDir, instanceDirs.get("recap"));
+    }
+
+    @Test
+    public void droppedBuildCoreLeavesTheRollbackCore() throws Exception {
+        String firstBuildCore = solrAdmin.createBuildCore();
+        solrAdmin.swapInBuildCore(firstBuildCore);
+        Thread.sleep(5);
+        String secondBuildCore = solrAdmin.createBuildCore();
+        String secondBuildDir = instanceDirs.get(secondBuildCore);
+
+        solrAdmin.dropBuildCore(secondBuildCore);
+        assertEquals(Collections.singletonList(firstBuildCore), solrAdmin.getBuildCoreNames());
+        assertEquals(Collections.singletonList(secondBuildDir), deletedInstanceDirs);
+    }
+
+    private NamedList<Object> coreAdmin(SolrParams params) throws SolrServerException {
+        String coreName = params.get(CoreAdminParams.CORE);
+        NamedList<Object> response = new NamedList<>();
+        switch (CoreAdminParams.CoreAdminAction.get(params.get(CoreAdminParams.ACTION))) {
+            case CREATE:
+                coreName = params.get(CoreAdminParams.NAME);
+                String instanceDir = params.get(CoreAdminParams.INSTANCE_DIR);
+                if (instanceDirs.containsKey(coreName) || instanceDirs.containsValue(instanceDir)) {
+                    throw new SolrServerException("Core " + coreName + " or directory " + instanceDir + " already in use");
+                }
+                instanceDirs.put(coreName, instanceDir);
+                break;
+            case UNLOAD:
+                String unloadedDir = instanceDirs.remove(coreName);
+                if (params.getBool(CoreAdminParams.DELETE_INSTANCE_DIR, false)) {
+                    deletedInstanceDirs.add(unloadedDir);
+                }
+                break;
+            case SWAP:
+                String otherCoreName = params.get(CoreAdminParams.OTHER);
+                String coreDir = instanceDirs.get(coreName);
+                instanceDirs.put(coreName, instanceDirs.get(otherCoreName));
+                instanceDirs.put(otherCoreName, coreDir);
+                break;
+            case STATUS:
+                NamedList<Object> status = new NamedList<>();
+                for (String loadedCoreName : instanceDirs.keySet()) {
+                    status.add(loadedCoreName, new NamedList<>());
+                }
+                response.add("status", status);
+                break;
+            default:
+                throw new SolrServerException("Unexpected CoreAdmin request " + params);
+        }
+        return response;
+    }
+}
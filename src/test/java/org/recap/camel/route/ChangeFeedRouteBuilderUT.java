@@ -0,0 +1,65 @@
+package org.recap.camel.route;
+
+import org.apache.activemq.camel.component.ActiveMQComponent;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.executors.ChangeFeedIndexer;
+import org.recap.model.solr.ChangeEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChangeFeedRouteBuilderUT {
+
+    @Mock
+    ChangeFeedIndexer mockChangeFeedIndexer;
+
+    private CamelContext camelContext;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        camelContext = new DefaultCamelContext();
+        camelContext.addComponent(RecapConstants.ACTIVEMQ,
+                ActiveMQComponent.activeMQComponent("vm://changeFeedUT?broker.persistent=false&broker.useJmx=false"));
+        new ChangeFeedRouteBuilder(camelContext, mockChangeFeedIndexer, true, "changeFeedQ", 500L, 100);
+        camelContext.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        camelContext.stop();
+    }
+
+    @Test
+    public void coalescesEventsOfTheSameRecordIntoOneBatch() throws Exception {
+        ProducerTemplate producerTemplate = camelContext.createProducerTemplate();
+        String endpointUri = RecapConstants.ACTIVEMQ + ":queue:changeFeedQ";
+        producerTemplate.sendBody(endpointUri, "{\"docType\":\"Item\",\"id\":1,\"changeType\":\"Update\"}");
+        producerTemplate.sendBody(endpointUri, "{\"docType\":\"Bib\",\"id\":1,\"changeType\":\"Update\"}");
+        producerTemplate.sendBody(endpointUri, "{\"docType\":\"Item\",\"id\":1,\"changeType\":\"Delete\"}");
+        producerTemplate.sendBody(endpointUri, "{\"docType\":\"Item\",\"id\":2,\"changeType\":\"Create\"}");
+
+        ArgumentCaptor<Collection> changeEvents = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(mockChangeFeedIndexer, Mockito.timeout(10000)).index(changeEvents.capture());
+        List<ChangeEvent> batch = new ArrayList<ChangeEvent>(changeEvents.getValue());
+        assertEquals(3, batch.size());
+        assertEquals(RecapConstants.BIB, batch.get(0).getDocType());
+        assertEquals(RecapConstants.ITEM, batch.get(1).getDocType());
+        assertEquals(Integer.valueOf(1), batch.get(1).getId());
+        assertEquals(RecapConstants.CHANGE_TYPE_DELETE, batch.get(1).getChangeType());
+        assertEquals(Integer.valueOf(2), batch.get(2).getId());
+    }
+}
@@ -7,16 +7,22 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.recap.admin.SolrAdmin;
 import org.recap.executors.BibItemIndexExecutorService;
+import org.recap.executors.IndexJobLauncher;
+import org.recap.executors.IndexProgress;
 import org.recap.model.solr.SolrIndexRequest;
 import org.recap.repository.solr.main.BibSolrCrudRepository;
 import org.recap.repository.solr.main.ItemCrudRepository;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.ui.Model;
-import org.springframework.util.StopWatch;
 import org.springframework.validation.BindingResult;
 
+import java.util.function.Consumer;
+
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
@@ -46,6 +52,9 @@ public class SolrIndexControllerUT extends BaseControllerUT{
     @Mock
     SolrAdmin solrAdmin;
 
+    @Mock
+    IndexJobLauncher indexJobLauncher;
+
     @Before
     public void setUp()throws Exception {
         MockitoAnnotations.initMocks(this);
@@ -53,7 +62,6 @@ public class SolrIndexControllerUT extends BaseControllerUT{
         doNothing().when(itemCrudRepository).deleteAll();
         doNothing().when(solrAdmin).unloadTempCores();
         doNothing().when(bibItemIndexExecutorService).index(getSolrIndexRequest());
-        when(bibItemIndexExecutorService.getStopWatch()).thenReturn(new StopWatch());
     }
 
     @Test
@@ -69,16 +77,22 @@ public class SolrIndexControllerUT extends BaseControllerUT{
 
     @Test
     public void fullIndex()throws Exception{
-        String response =solrIndexController.fullIndex(getSolrIndexRequest(),bindingResult,model);
+        when(indexJobLauncher.submit(eq(""), any(Consumer.class))).thenReturn(3);
+        Integer response =solrIndexController.fullIndex(getSolrIndexRequest(),bindingResult,model);
         assertNotNull(response);
-        assertEquals("solrIndexer",response);
+        assertEquals(Integer.valueOf(3),response);
+        verify(indexJobLauncher).submit(eq(""), any(Consumer.class));
     }
 
     @Test
     public void report()throws Exception{
         String response =solrIndexController.report();
         assertNotNull(response);
-        assertTrue(response.contains("Index process initiated!"));
+        assertTrue(response.contains("No index job has been submitted"));
+
+        when(indexJobLauncher.getLatestJob()).thenReturn(new IndexProgress(1, "Bibs"));
+        response =solrIndexController.report();
+        assertTrue(response.contains("Job 1 (Bibs) Queued"));
     }
 
     private SolrIndexRequest getSolrIndexRequest(){
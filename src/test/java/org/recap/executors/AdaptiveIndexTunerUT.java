@@ -0,0 +1,120 @@
+package org.recap.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.recap.util.IndexMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveIndexTunerUT {
+
+    private SolrBatchSettings batchSettings;
+
+    @Before
+    public void setUp() throws Exception {
+        batchSettings = new SolrBatchSettings(500, 0);
+    }
+
+    @Test
+    public void stepsUpWhileThroughputImproves() throws Exception {
+        AdaptiveIndexTuner adaptiveIndexTuner = getTuner();
+        adaptiveIndexTuner.adjust(100, 10, 10);
+        adaptiveIndexTuner.adjust(200, 10, 10);
+        assertEquals(4, adaptiveIndexTuner.getConcurrency());
+        assertEquals(1000, adaptiveIndexTuner.getBatchSize());
+        assertEquals(1000, batchSettings.getBatchSize());
+    }
+
+    @Test
+    public void backsOffWhenSolrLatencyClimbs() throws Exception {
+        AdaptiveIndexTuner adaptiveIndexTuner = getTuner();
+        adaptiveIndexTuner.adjust(100, 10, 10);
+        adaptiveIndexTuner.adjust(200, 10, 10);
+        adaptiveIndexTuner.adjust(250, 30, 10);
+        assertEquals(2, adaptiveIndexTuner.getConcurrency());
+        assertEquals(500, adaptiveIndexTuner.getBatchSize());
+    }
+
+    @Test
+    public void backsOffOnlyConcurrencyWhenDbLatencyClimbs() throws Exception {
+        AdaptiveIndexTuner adaptiveIndexTuner = getTuner();
+        adaptiveIndexTuner.adjust(100, 10, 10);
+        adaptiveIndexTuner.adjust(200, 10, 30);
+        assertEquals(1, adaptiveIndexTuner.getConcurrency());
+        assertEquals(750, adaptiveIndexTuner.getBatchSize());
+    }
+
+    @Test
+    public void takesBackStepThatHurtThroughputAndHolds() throws Exception {
+        AdaptiveIndexTuner adaptiveIndexTuner = getTuner();
+        adaptiveIndexTuner.adjust(100, 10, 10);
+        adaptiveIndexTuner.adjust(50, 10, 10);
+        assertEquals(2, adaptiveIndexTuner.getConcurrency());
+        assertEquals(500, adaptiveIndexTuner.getBatchSize());
+        adaptiveIndexTuner.adjust(100, 10, 10);
+        assertEquals(2, adaptiveIndexTuner.getConcurrency());
+        assertEquals(2, adaptiveIndexTuner.getBestConcurrency());
+        assertEquals(500, adaptiveIndexTuner.getBestBatchSize());
+    }
+
+    @Test
+    public void backsOffInTheIntervalSolrLatencyStepsUp() throws Exception {
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        AdaptiveIndexTuner adaptiveIndexTuner = new AdaptiveIndexTuner(2, 8, 5000, 2.0, indexProgress, batchSettings);
+        adaptiveIndexTuner.start(TimeUnit.HOURS.toMillis(1));
+        try {
+            runInterval(adaptiveIndexTuner, indexProgress, 500, 10);
+            runInterval(adaptiveIndexTuner, indexProgress, 500, 10);
+            int concurrency = adaptiveIndexTuner.getConcurrency();
+            int batchSize = adaptiveIndexTuner.getBatchSize();
+            // Too few slow updates to move the median of the timer's reservoir, but the interval's mean is 30 times higher.
+            runInterval(adaptiveIndexTuner, indexProgress, 20, 300);
+            assertEquals(Math.max(concurrency / 2, 1), adaptiveIndexTuner.getConcurrency());
+            assertEquals(batchSize / 2, adaptiveIndexTuner.getBatchSize());
+        } finally {
+            adaptiveIndexTuner.stop();
+        }
+    }
+
+    @Test
+    public void limitsCallablesRunningAtOnce() throws Exception {
+        AdaptiveIndexTuner adaptiveIndexTuner = getTuner();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> callables = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            callables.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return 1;
+            });
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        executorService.invokeAll(adaptiveIndexTuner.wrap(callables));
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+        assertEquals(2, maxRunning.get());
+    }
+
+    private void runInterval(AdaptiveIndexTuner adaptiveIndexTuner, IndexProgress indexProgress, int updates, long updateMillis) throws Exception {
+        for (int update = 0; update < updates; update++) {
+            IndexMetrics.timer(IndexMetrics.SOLR_UPDATE).update(updateMillis, TimeUnit.MILLISECONDS);
+        }
+        indexProgress.addDocsSent(updates * 100);
+        Thread.sleep(5);
+        adaptiveIndexTuner.sample();
+    }
+
+    private AdaptiveIndexTuner getTuner() {
+        return new AdaptiveIndexTuner(2, 8, 5000, 2.0, new IndexProgress(null, "Bibs"), batchSettings);
+    }
+}
@@ -0,0 +1,109 @@
+package org.recap.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.jpa.HoldingsEntity;
+import org.recap.model.jpa.ItemEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AssociationBatchLoaderUT {
+
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    TypedQuery<Object[]> query;
+
+    private AssociationBatchLoader associationBatchLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        Mockito.when(entityManager.createQuery(Mockito.anyString(), Mockito.eq(Object[].class))).thenReturn(query);
+        Mockito.when(query.setParameter(Mockito.eq("ids"), Mockito.any())).thenReturn(query);
+        associationBatchLoader = new AssociationBatchLoader();
+        associationBatchLoader.entityManagerFactory = entityManagerFactory;
+        associationBatchLoader.idBatchSize = 1000;
+    }
+
+    @Test
+    public void loadBibAssociationsUsesOneQueryPerAssociation() throws Exception {
+        ItemEntity itemEntity = new ItemEntity();
+        itemEntity.setItemId(100);
+        HoldingsEntity holdingsEntity = new HoldingsEntity();
+        holdingsEntity.setHoldingsId(200);
+        Mockito.when(query.getResultList()).thenReturn(
+                rows(new Object[]{1, itemEntity}, new Object[]{2, itemEntity}),
+                rows(new Object[]{1, holdingsEntity}),
+                rows(new Object[]{100, 1}, new Object[]{100, 2}),
+                rows(new Object[]{100, 200}));
+
+        BibliographicEntity firstBib = getBibliographicEntity(1);
+        BibliographicEntity secondBib = getBibliographicEntity(2);
+        associationBatchLoader.loadBibAssociations(Arrays.asList(firstBib, secondBib));
+
+        assertSame(itemEntity, firstBib.getItemEntities().get(0));
+        assertSame(itemEntity, secondBib.getItemEntities().get(0));
+        assertSame(holdingsEntity, firstBib.getHoldingsEntities().get(0));
+        assertTrue(secondBib.getHoldingsEntities().isEmpty());
+        assertEquals(2, itemEntity.getBibliographicEntities().size());
+        assertEquals(new Integer(200), itemEntity.getHoldingsEntities().get(0).getHoldingsId());
+        Mockito.verify(entityManager, Mockito.times(4)).createQuery(Mockito.anyString(), Mockito.eq(Object[].class));
+        Mockito.verify(entityManager).close();
+    }
+
+    @Test
+    public void idsAreQueriedInBatches() throws Exception {
+        associationBatchLoader.idBatchSize = 2;
+        Mockito.when(query.getResultList()).thenReturn(new ArrayList<>());
+        List<ItemEntity> itemEntities = new ArrayList<>();
+        for (int itemId = 1; itemId <= 5; itemId++) {
+            ItemEntity itemEntity = new ItemEntity();
+            itemEntity.setItemId(itemId);
+            itemEntities.add(itemEntity);
+        }
+
+        associationBatchLoader.loadItemAssociations(itemEntities);
+
+        Mockito.verify(query, Mockito.times(6)).getResultList();
+        for (ItemEntity itemEntity : itemEntities) {
+            assertTrue(itemEntity.getBibliographicEntities().isEmpty());
+            assertTrue(itemEntity.getHoldingsEntities().isEmpty());
+        }
+    }
+
+    @Test
+    public void emptyPageRunsNoQueries() throws Exception {
+        associationBatchLoader.loadBibAssociationIds(Collections.emptyList());
+        Mockito.verifyZeroInteractions(entityManagerFactory);
+    }
+
+    private BibliographicEntity getBibliographicEntity(Integer bibliographicId) {
+        BibliographicEntity bibliographicEntity = new BibliographicEntity();
+        bibliographicEntity.setBibliographicId(bibliographicId);
+        return bibliographicEntity;
+    }
+
+    private List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(Arrays.asList(rows));
+    }
+}
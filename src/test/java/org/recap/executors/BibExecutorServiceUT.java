@@ -1,24 +1,47 @@
 package org.recap.executors;
 
+import org.apache.solr.client.solrj.SolrServerException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
 import org.recap.admin.SolrAdmin;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.jpa.IndexJobEntity;
+import org.recap.model.jpa.IndexWatermarkEntity;
+import org.recap.model.jpa.InstitutionEntity;
+import org.recap.model.solr.Bib;
 import org.recap.model.solr.SolrIndexRequest;
 import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.repository.jpa.IndexWatermarkDetailsRepository;
+import org.recap.repository.jpa.InstitutionDetailsRepository;
 import org.recap.repository.solr.temp.BibCrudRepositoryMultiCoreSupport;
+import org.recap.util.SolrInputDocumentBuilder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 
 /**
  * Created by pvsubrah on 6/19/16.
  */
 public class BibExecutorServiceUT {
 
+    private static final String BUILD_CORE = "recap_build_20261018093000000";
+
     @Mock
     BibliographicDetailsRepository mockBibliographicDetailsRepository;
 
@@ -31,9 +54,41 @@ public class BibExecutorServiceUT {
     @Mock
     BibCrudRepositoryMultiCoreSupport mockBibCrudRepositoryMultiCoreSupport;
 
+    @Mock
+    SolrIndexQueue mockSolrIndexQueue;
+
+    @Mock
+    IndexWatermarkDetailsRepository mockIndexWatermarkDetailsRepository;
+
+    @Mock
+    SolrBatchWriter mockSolrBatchWriter;
+
+    @Mock
+    IndexJobTracker mockIndexJobTracker;
+
+    @Mock
+    InstitutionDetailsRepository mockInstitutionDetailsRepository;
+
+    private MockBibIndexExecutorService bibIndexExecutorService;
+
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        bibIndexExecutorService = new MockBibIndexExecutorService();
+        bibIndexExecutorService.setBibliographicDetailsRepository(mockBibliographicDetailsRepository);
+        bibIndexExecutorService.setSolrAdmin(mockSolrAdmin);
+        ((IndexExecutorService) bibIndexExecutorService).solrIndexQueue = mockSolrIndexQueue;
+        bibIndexExecutorService.solrBatchWriter = mockSolrBatchWriter;
+        bibIndexExecutorService.indexExecutorRegistry = new IndexExecutorRegistry();
+        bibIndexExecutorService.indexJobTracker = mockIndexJobTracker;
+        bibIndexExecutorService.indexWatermarkDetailsRepository = mockIndexWatermarkDetailsRepository;
+        bibIndexExecutorService.institutionDetailsRepository = mockInstitutionDetailsRepository;
+        bibIndexExecutorService.solrCore = "recap";
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bibIndexExecutorService.indexExecutorRegistry.shutdown();
     }
 
     @Test
@@ -42,9 +97,6 @@ public class BibExecutorServiceUT {
         Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(500000L);
         Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
 
-        BibIndexExecutorService bibIndexExecutorService = new MockBibIndexExecutorService();
-        bibIndexExecutorService.setBibliographicDetailsRepository(mockBibliographicDetailsRepository);
-        bibIndexExecutorService.setSolrAdmin(mockSolrAdmin);
         SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
         solrIndexRequest.setNumberOfThreads(5);
         solrIndexRequest.setNumberOfDocs(1000);
@@ -53,12 +105,446 @@ public class BibExecutorServiceUT {
         assertEquals(1000,mockBibIndexCallable.call());
     }
 
+    @Test
+    public void keysetRangesCoverIdSpace() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(4500L);
+        Mockito.when(mockBibliographicDetailsRepository.findMinBibliographicId()).thenReturn(11);
+        Mockito.when(mockBibliographicDetailsRepository.findMaxBibliographicId()).thenReturn(5010);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+
+        bibIndexExecutorService.pipelineFetchSize = 500;
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(5);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(10000);
+        solrIndexRequest.setFetchMode(RecapConstants.FETCH_MODE_KEYSET);
+        bibIndexExecutorService.index(solrIndexRequest);
+
+        List<Integer[]> keyRanges = bibIndexExecutorService.keyRanges;
+        assertEquals(5, keyRanges.size());
+        assertEquals(new Integer(11), keyRanges.get(0)[0]);
+        for (int i = 1; i < keyRanges.size(); i++) {
+            assertEquals(keyRanges.get(i - 1)[1] + 1, keyRanges.get(i)[0].intValue());
+        }
+        assertEquals(new Integer(5010), keyRanges.get(keyRanges.size() - 1)[1]);
+    }
+
+    @Test
+    public void streamHandsEveryBatchToIndexThreads() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(2500L);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(2000);
+        solrIndexRequest.setFetchMode(RecapConstants.FETCH_MODE_STREAM);
+        bibIndexExecutorService.index(solrIndexRequest);
+
+        assertEquals(Arrays.asList(1000, 1000, 500), bibIndexExecutorService.streamedBatchSizes);
+        Mockito.verify(mockSolrIndexQueue, Mockito.times(2)).awaitAcknowledged();
+    }
+
+    @Test
+    public void incrementalIndexesChangedBibsAndMovesWatermark() throws Exception {
+        Date watermarkDate = new Date(System.currentTimeMillis() - 86400000L);
+        IndexWatermarkEntity indexWatermarkEntity = new IndexWatermarkEntity();
+        indexWatermarkEntity.setDocType("Bibs");
+        indexWatermarkEntity.setWatermarkDate(watermarkDate);
+        Mockito.when(mockIndexWatermarkDetailsRepository.findByDocTypeAndOwningInstitutionIdIsNull("Bibs")).thenReturn(indexWatermarkEntity);
+        Mockito.when(mockBibliographicDetailsRepository.findBibliographicIdsByLastUpdatedDate(watermarkDate)).thenReturn(Arrays.asList(5, 1));
+        Mockito.when(mockBibliographicDetailsRepository.findBibliographicIdsByItemLastUpdatedDate(watermarkDate)).thenReturn(Arrays.asList(3, 5));
+        Mockito.when(mockBibliographicDetailsRepository.findBibliographicIdsByHoldingsLastUpdatedDate(watermarkDate)).thenReturn(Arrays.asList(2));
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(2);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(2);
+        solrIndexRequest.setCommitInterval(10000);
+        solrIndexRequest.setIncremental(true);
+        Date runStartDate = new Date();
+        bibIndexExecutorService.index(solrIndexRequest);
+
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 5)), bibIndexExecutorService.idLists);
+        Mockito.verify(mockBibliographicDetailsRepository, Mockito.never()).count();
+        Mockito.verify(mockIndexWatermarkDetailsRepository).save(indexWatermarkEntity);
+        assertTrue(!indexWatermarkEntity.getWatermarkDate().before(runStartDate));
+    }
+
+    @Test
+    public void softCommitDoesNotWaitForIntervals() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(4000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(2000);
+        solrIndexRequest.setCommitPolicy(RecapConstants.COMMIT_POLICY_SOFT);
+        bibIndexExecutorService.index(solrIndexRequest);
+
+        Mockito.verify(mockSolrBatchWriter, Mockito.times(2)).commit(Mockito.any(), Mockito.eq(true), Mockito.eq(false));
+        Mockito.verify(mockSolrBatchWriter).commit(Mockito.any(), Mockito.eq(false), Mockito.eq(true));
+        Mockito.verify(mockSolrIndexQueue, Mockito.times(1)).awaitAcknowledged();
+    }
+
+    @Test
+    public void shardedBuildWritesToTempCoresAndMergesThem() throws Exception {
+        indexShardedBuild();
+
+        List<String> tempCores = Arrays.asList("temp0", "temp1");
+        assertEquals(Arrays.asList("temp0", "temp1", "temp0"), bibIndexExecutorService.callableCoreNames);
+        Mockito.verify(mockSolrAdmin).createSolrCores(tempCores);
+        Mockito.verify(mockSolrBatchWriter).commit("temp0", false, true);
+        Mockito.verify(mockSolrBatchWriter).commit("temp1", false, true);
+        Mockito.verify(mockSolrAdmin).mergeCores(tempCores);
+        Mockito.verify(mockSolrAdmin).unLoadCores(tempCores);
+        Mockito.verify(mockSolrBatchWriter).removeCore("temp0");
+        Mockito.verify(mockSolrBatchWriter).removeCore("temp1");
+    }
+
+    @Test
+    public void failedMergeKeepsTempCoresAndLeavesRunIncomplete() throws Exception {
+        Mockito.doThrow(new SolrServerException("merge failed")).when(mockSolrAdmin).mergeCores(Mockito.anyList());
+        IndexProgress indexProgress = indexShardedBuild();
+
+        Mockito.verify(mockSolrAdmin, Mockito.never()).unLoadCores(Mockito.anyList());
+        assertEquals(RecapConstants.INDEX_JOB_INCOMPLETE, indexProgress.getStatus());
+        Mockito.verify(mockIndexWatermarkDetailsRepository, Mockito.never()).save(Mockito.any(IndexWatermarkEntity.class));
+    }
+
+    @Test
+    public void mergeMissingDocumentsKeepsTempCores() throws Exception {
+        Mockito.when(mockSolrAdmin.getDocCount("temp0", "*:*")).thenReturn(2000L);
+        Mockito.when(mockSolrAdmin.getDocCount("temp1", "*:*")).thenReturn(1000L);
+        Mockito.when(mockSolrAdmin.getDocCount("recap", "*:*")).thenReturn(0L, 2000L);
+        IndexProgress indexProgress = indexShardedBuild();
+
+        Mockito.verify(mockSolrAdmin).mergeCores(Arrays.asList("temp0", "temp1"));
+        Mockito.verify(mockSolrAdmin, Mockito.never()).unLoadCores(Mockito.anyList());
+        assertEquals(RecapConstants.INDEX_JOB_INCOMPLETE, indexProgress.getStatus());
+    }
+
+    @Test
+    public void shardedBuildIntoCoreWithDocumentsIsRefused() throws Exception {
+        Mockito.when(mockSolrAdmin.getDocCount("recap", "*:*")).thenReturn(3000L);
+        indexShardedBuild();
+
+        assertEquals(Arrays.asList("recap", "recap", "recap"), bibIndexExecutorService.callableCoreNames);
+        Mockito.verify(mockSolrAdmin, Mockito.never()).createSolrCores(Mockito.anyList());
+        Mockito.verify(mockSolrAdmin, Mockito.never()).mergeCores(Mockito.anyList());
+        Mockito.verify(mockSolrBatchWriter).commit("recap", false, true);
+    }
+
+    @Test
+    public void resumeSkipsCommittedRangesAndCheckpointsTheRest() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(5000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+        IndexJobEntity indexJobEntity = new IndexJobEntity();
+        indexJobEntity.setJobId(7);
+        indexJobEntity.setFetchMode(RecapConstants.FETCH_MODE_PAGED);
+        indexJobEntity.setDocsPerThread(1000);
+        indexJobEntity.setLoopCount(4);
+        indexJobEntity.setStatus(RecapConstants.INDEX_JOB_RUNNING);
+        indexJobEntity.setStartDate(new Date(System.currentTimeMillis() - 3600000L));
+        Mockito.when(mockIndexJobTracker.findResumableJob("Bibs", null)).thenReturn(indexJobEntity);
+        Mockito.when(mockIndexJobTracker.getCompletedRangeNums(indexJobEntity)).thenReturn(new HashSet<>(Arrays.asList(0, 1)));
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(500);
+        solrIndexRequest.setCommitInterval(1000);
+        solrIndexRequest.setResume(true);
+        bibIndexExecutorService.index(solrIndexRequest);
+
+        assertEquals(4, bibIndexExecutorService.callableCoreNames.size());
+        Map<Integer, Integer> committedRanges = new HashMap<>();
+        committedRanges.put(2, 1000);
+        Mockito.verify(mockIndexJobTracker).saveCompletedRanges(indexJobEntity, committedRanges);
+        committedRanges.clear();
+        committedRanges.put(3, 1000);
+        Mockito.verify(mockIndexJobTracker).saveCompletedRanges(indexJobEntity, committedRanges);
+        Mockito.verify(mockIndexJobTracker, Mockito.never()).startJob(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+        Mockito.verify(mockIndexJobTracker).finishJob(indexJobEntity, true);
+        Mockito.verify(mockBibIndexCallable, Mockito.times(2)).call();
+    }
+
+    @Test
+    public void deadLetteredBatchHoldsBackCheckpointsAndLeavesRunIncomplete() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(2000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+        IndexJobEntity indexJobEntity = new IndexJobEntity();
+        indexJobEntity.setJobId(8);
+        Mockito.when(mockIndexJobTracker.startJob(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(indexJobEntity);
+        Mockito.when(mockSolrBatchWriter.getDeadLetterCount("recap")).thenReturn(0L, 1L);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(1);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(1000);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+
+        Map<Integer, Integer> committedRanges = new HashMap<>();
+        committedRanges.put(1, 1000);
+        Mockito.verify(mockIndexJobTracker).saveCompletedRanges(indexJobEntity, committedRanges);
+        Mockito.verify(mockIndexJobTracker, Mockito.times(1)).saveCompletedRanges(Mockito.eq(indexJobEntity), Mockito.anyMap());
+        Mockito.verify(mockIndexJobTracker).finishJob(indexJobEntity, false);
+        Mockito.verify(mockIndexWatermarkDetailsRepository, Mockito.never()).save(Mockito.any(IndexWatermarkEntity.class));
+        assertEquals(1, indexProgress.getErrors());
+        assertEquals(RecapConstants.INDEX_JOB_INCOMPLETE, indexProgress.getStatus());
+    }
+
+    @Test
+    public void runThatThrowsFailsItsProgressAndJob() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(2000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+        IndexJobEntity indexJobEntity = new IndexJobEntity();
+        indexJobEntity.setJobId(9);
+        Mockito.when(mockIndexJobTracker.startJob(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(indexJobEntity);
+        Mockito.when(mockSolrBatchWriter.commit("recap", false, true)).thenThrow(new SolrServerException("Solr is down"));
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(1);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(1000);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+
+        assertEquals(RecapConstants.INDEX_JOB_FAILED, indexProgress.getStatus());
+        Mockito.verify(mockIndexJobTracker).failJob(indexJobEntity);
+        Mockito.verify(mockIndexJobTracker, Mockito.never()).finishJob(Mockito.eq(indexJobEntity), Mockito.anyBoolean());
+        Mockito.verify(mockIndexWatermarkDetailsRepository, Mockito.never()).save(Mockito.any(IndexWatermarkEntity.class));
+    }
+
+    @Test
+    public void failedCallableIsRetried() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(1000L);
+        Mockito.when(mockBibIndexCallable.call()).thenThrow(new IllegalStateException("Connection reset")).thenReturn(1000);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(1);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(1000);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+
+        Mockito.verify(mockBibIndexCallable, Mockito.times(2)).call();
+        assertEquals(0, indexProgress.getErrors());
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexProgress.getStatus());
+    }
+
+    @Test
+    public void institutionPartitionsTakeTurnsOnIndexThreads() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(4000L);
+        Mockito.when(mockBibliographicDetailsRepository.countByOwningInstitutionId(1)).thenReturn(3000L);
+        Mockito.when(mockBibliographicDetailsRepository.countByOwningInstitutionId(2)).thenReturn(1000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+        Mockito.when(mockInstitutionDetailsRepository.findAll()).thenReturn(Arrays.asList(getInstitutionEntity(1, "PUL"), getInstitutionEntity(2, "CUL")));
+        IndexJobEntity pulJob = new IndexJobEntity();
+        pulJob.setJobId(1);
+        IndexJobEntity culJob = new IndexJobEntity();
+        culJob.setJobId(2);
+        Mockito.when(mockIndexJobTracker.startJob("Bibs", 1, RecapConstants.FETCH_MODE_PAGED, 1000, 3, null, null)).thenReturn(pulJob);
+        Mockito.when(mockIndexJobTracker.startJob("Bibs", 2, RecapConstants.FETCH_MODE_PAGED, 1000, 1, null, null)).thenReturn(culJob);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(1);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(1000);
+        solrIndexRequest.setPartitionScheduling(RecapConstants.PARTITION_SCHEDULING_FAIR);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+
+        assertEquals(Arrays.asList(1, 2, 1, 1), bibIndexExecutorService.executedInstitutionIds);
+        Mockito.verify(mockIndexJobTracker).finishJob(pulJob, true);
+        Mockito.verify(mockIndexJobTracker).finishJob(culJob, true);
+        Mockito.verify(mockIndexJobTracker, Mockito.times(3)).saveCompletedRanges(Mockito.eq(pulJob), Mockito.anyMap());
+        Mockito.verify(mockIndexJobTracker, Mockito.times(1)).saveCompletedRanges(Mockito.eq(culJob), Mockito.anyMap());
+        assertEquals(2, indexProgress.getPartitions().size());
+        assertEquals("PUL", indexProgress.getPartitions().get(0).getPartition());
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexProgress.getPartitions().get(1).getStatus());
+    }
+
+    @Test
+    public void swapBuildIndexesIntoBuildCoreAndSwapsIt() throws Exception {
+        Mockito.when(mockSolrAdmin.createBuildCore()).thenReturn(BUILD_CORE);
+        Mockito.when(mockSolrAdmin.getDocCount(BUILD_CORE, "DocType:Bib")).thenReturn(3000L);
+        bibIndexExecutorService.swapBuildSupported = true;
+        IndexProgress indexProgress = indexSwapBuild();
+
+        assertEquals(Arrays.asList(BUILD_CORE, BUILD_CORE, BUILD_CORE), bibIndexExecutorService.callableCoreNames);
+        Mockito.verify(mockSolrBatchWriter).commit(BUILD_CORE, false, true);
+        Mockito.verify(mockSolrBatchWriter, Mockito.never()).commit(Mockito.eq("recap"), Mockito.anyBoolean(), Mockito.anyBoolean());
+        Mockito.verify(mockSolrAdmin).swapInBuildCore(BUILD_CORE);
+        Mockito.verify(mockSolrAdmin, Mockito.never()).dropBuildCore(Mockito.anyString());
+        Mockito.verify(mockSolrBatchWriter).removeCore(BUILD_CORE);
+        Mockito.verify(mockSolrBatchWriter, Mockito.never()).removeCore("recap");
+        Mockito.verify(mockIndexJobTracker, Mockito.never()).startJob(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexProgress.getStatus());
+    }
+
+    @Test
+    public void swapBuildWithTooFewDocumentsIsNotSwapped() throws Exception {
+        Mockito.when(mockSolrAdmin.createBuildCore()).thenReturn(BUILD_CORE);
+        Mockito.when(mockSolrAdmin.getDocCount(BUILD_CORE, "DocType:Bib")).thenReturn(2000L);
+        bibIndexExecutorService.swapBuildSupported = true;
+        IndexProgress indexProgress = indexSwapBuild();
+
+        Mockito.verify(mockSolrAdmin, Mockito.never()).swapInBuildCore(Mockito.anyString());
+        Mockito.verify(mockSolrAdmin).dropBuildCore(BUILD_CORE);
+        assertEquals(RecapConstants.INDEX_JOB_INCOMPLETE, indexProgress.getStatus());
+    }
+
+    @Test
+    public void swapBuildOfBibsAloneIsRefused() throws Exception {
+        IndexProgress indexProgress = indexSwapBuild();
+
+        Mockito.verify(mockSolrAdmin, Mockito.never()).createBuildCore();
+        Mockito.verify(mockSolrAdmin, Mockito.never()).swapInBuildCore(Mockito.anyString());
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexProgress.getStatus());
+    }
+
+    @Test
+    public void dryRunSendsDocumentsToNullSinkAndLeavesSolrAlone() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(3000L);
+        Mockito.when(mockSolrBatchWriter.toSolrInputDocument(Mockito.any())).thenAnswer(invocation -> SolrInputDocumentBuilder.build(invocation.getArguments()[0]));
+        Mockito.when(mockBibIndexCallable.call()).thenAnswer(invocation -> {
+            IndexPipeline indexPipeline = bibIndexExecutorService.newIndexPipeline(bibIndexExecutorService.indexRun, "recap");
+            for (int i = 0; i < 5; i++) {
+                indexPipeline.submit(() -> new Bib());
+            }
+            indexPipeline.flush();
+            return 1000;
+        });
+
+        bibIndexExecutorService.indexExecutorRegistry.transformThreads = 2;
+        bibIndexExecutorService.indexExecutorRegistry.transformQueueSize = 10;
+        bibIndexExecutorService.indexExecutorRegistry.readThreads = 1;
+        bibIndexExecutorService.pipelineTransformWindow = 10;
+        bibIndexExecutorService.pipelineSendBatchSize = 2;
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(1000);
+        solrIndexRequest.setDryRun(true);
+        solrIndexRequest.setShardedBuild(true);
+        solrIndexRequest.setAutoTune(true);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexProgress.getStatus());
+        assertEquals(15, indexProgress.getDocsSent());
+        assertEquals(Arrays.asList("recap", "recap", "recap"), bibIndexExecutorService.callableCoreNames);
+        Mockito.verify(mockSolrBatchWriter, Mockito.times(15)).toSolrInputDocument(Mockito.any(Bib.class));
+        Mockito.verify(mockSolrIndexQueue, Mockito.never()).send(Mockito.anyString(), Mockito.anyList(), Mockito.any(SolrBatchSettings.class));
+        Mockito.verify(mockSolrBatchWriter, Mockito.never()).commit(Mockito.anyString(), Mockito.anyBoolean(), Mockito.anyBoolean());
+        Mockito.verify(mockSolrAdmin, Mockito.never()).createSolrCores(Mockito.anyList());
+        Mockito.verify(mockIndexJobTracker, Mockito.never()).startJob(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+        Mockito.verify(mockIndexWatermarkDetailsRepository, Mockito.never()).save(Mockito.any(IndexWatermarkEntity.class));
+    }
+
+    private IndexProgress indexShardedBuild() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(3000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(10000);
+        solrIndexRequest.setShardedBuild(true);
+        solrIndexRequest.setCommitPolicy(RecapConstants.COMMIT_POLICY_END_OF_RUN);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+        return indexProgress;
+    }
+
+    private IndexProgress indexSwapBuild() throws Exception {
+        Mockito.when(mockBibliographicDetailsRepository.count()).thenReturn(3000L);
+        Mockito.when(mockBibIndexCallable.call()).thenReturn(1000);
+
+        bibIndexExecutorService.swapMinDocRatio = 0.99;
+        SolrIndexRequest solrIndexRequest = new SolrIndexRequest();
+        solrIndexRequest.setNumberOfThreads(2);
+        solrIndexRequest.setNumberOfDocs(1000);
+        solrIndexRequest.setCommitInterval(1000);
+        solrIndexRequest.setSwapBuild(true);
+        solrIndexRequest.setShardedBuild(true);
+        IndexProgress indexProgress = new IndexProgress(null, "Bibs");
+        bibIndexExecutorService.index(solrIndexRequest, indexProgress);
+        return indexProgress;
+    }
+
+    private InstitutionEntity getInstitutionEntity(Integer institutionId, String institutionCode) {
+        InstitutionEntity institutionEntity = new InstitutionEntity();
+        institutionEntity.setInstitutionId(institutionId);
+        institutionEntity.setInstitutionCode(institutionCode);
+        return institutionEntity;
+    }
+
     private class MockBibIndexExecutorService extends BibIndexExecutorService {
+        List<Integer[]> keyRanges = new ArrayList<>();
+        List<Integer> streamedBatchSizes = new ArrayList<>();
+        List<List<Integer>> idLists = new ArrayList<>();
+        List<String> callableCoreNames = new ArrayList<>();
+        List<Integer> executedInstitutionIds = Collections.synchronizedList(new ArrayList<>());
+        IndexRun indexRun;
+        boolean swapBuildSupported;
+
+        {
+            indexRetryAttempts = 2;
+            indexRetryBackoffMillis = 0L;
+        }
+
+        /**
+         * Set by the swap build tests in place of BibItems, the only document type a swap build is done for.
+         */
+        @Override
+        protected boolean isSwapBuildSupported() {
+            return swapBuildSupported;
+        }
+
+        @Override
+        public Callable getIdListCallable(IndexRun indexRun, String coreName, List<Integer> ids) {
+            idLists.add(ids);
+            return mockBibIndexCallable;
+        }
+
+        @Override
+        public Integer streamEntities(Integer owningInstitutionId, int batchSize, Consumer<List<BibliographicEntity>> batchConsumer) {
+            batchConsumer.accept(Collections.nCopies(batchSize, new BibliographicEntity()));
+            batchConsumer.accept(Collections.nCopies(batchSize, new BibliographicEntity()));
+            batchConsumer.accept(Collections.nCopies(batchSize / 2, new BibliographicEntity()));
+            return batchSize * 2 + batchSize / 2;
+        }
+
+        @Override
+        public Callable<Integer> getStreamCallable(IndexRun indexRun, String coreName, List<BibliographicEntity> entities) {
+            return () -> {
+                synchronized (streamedBatchSizes) {
+                    streamedBatchSizes.add(entities.size());
+                }
+                return entities.size();
+            };
+        }
+
         @Override
-        public Callable getCallable(String coreName, int startingPage, int numRecordsPerPage, Integer owningInstitutionId) {
+        public Callable getKeysetCallable(IndexRun indexRun, String coreName, Integer fromId, Integer toId, int docsPerPage, Integer owningInstitutionId) {
+            keyRanges.add(new Integer[]{fromId, toId});
             return mockBibIndexCallable;
         }
 
+        @Override
+        public Callable getCallable(IndexRun indexRun, String coreName, int startingPage, int numRecordsPerPage, Integer owningInstitutionId) {
+            this.indexRun = indexRun;
+            callableCoreNames.add(coreName);
+            return () -> {
+                executedInstitutionIds.add(owningInstitutionId);
+                return mockBibIndexCallable.call();
+            };
+        }
+
         @Override
         protected BibCrudRepositoryMultiCoreSupport getBibCrudRepositoryMultiCoreSupport(String solrUrl, String coreName) {
             return mockBibCrudRepositoryMultiCoreSupport;
@@ -58,7 +58,7 @@ public class BibItemIndexExecutorServiceUT extends BaseTestCase{
 
     private class MockBibItemIndexExecutorService extends BibItemIndexExecutorService {
         @Override
-        public Callable getCallable(String coreName, int startingPage, int numRecordsPerPage, Integer owningInstitutionId) {
+        public Callable getCallable(IndexRun indexRun, String coreName, int startingPage, int numRecordsPerPage, Integer owningInstitutionId) {
             return mockBibItemIndexCallable;
         }
 
@@ -7,8 +7,10 @@ import org.recap.model.jpa.ItemEntity;
 import org.recap.model.solr.Bib;
 import org.recap.model.solr.Holdings;
 import org.recap.model.solr.Item;
+import org.recap.util.ConcurrentIdSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -186,4 +188,50 @@ public class BibItemRecordSetupCallableUT {
         assertEquals(new Integer(1),new Integer(holdings.get(0).getHoldingsId()));
         assertEquals(new Integer(1),new Integer(item.get(0).getItemId()));
     }
+
+    @Test
+    public void sharedItemsAndHoldingsAreBuiltOnce() throws Exception {
+        ConcurrentIdSet emittedItemIds = new ConcurrentIdSet();
+        ConcurrentIdSet emittedHoldingsIds = new ConcurrentIdSet();
+        ItemEntity itemEntity = new ItemEntity();
+        itemEntity.setItemId(1);
+        itemEntity.setBarcode("CU54519993");
+        itemEntity.setCustomerCode("NA");
+        itemEntity.setItemAvailabilityStatusId(1);
+        itemEntity.setOwningInstitutionId(1);
+        HoldingsEntity holdingsEntity = new HoldingsEntity();
+        holdingsEntity.setHoldingsId(1);
+        holdingsEntity.setContent(holdingContent.getBytes());
+        List<BibliographicEntity> bibliographicEntities = new ArrayList<>();
+        itemEntity.setBibliographicEntities(bibliographicEntities);
+        holdingsEntity.setBibliographicEntities(bibliographicEntities);
+
+        bibliographicEntities.add(getBibliographicEntity(1, itemEntity, holdingsEntity));
+        bibliographicEntities.add(getBibliographicEntity(2, itemEntity, holdingsEntity));
+
+        Map<String, List> firstBibItem = (Map<String, List>) new BibItemRecordSetupCallable(
+                bibliographicEntities.get(0), emittedItemIds, emittedHoldingsIds).call();
+        Map<String, List> secondBibItem = (Map<String, List>) new BibItemRecordSetupCallable(
+                bibliographicEntities.get(1), emittedItemIds, emittedHoldingsIds).call();
+
+        assertEquals(1, firstBibItem.get("Item").size());
+        assertEquals(1, firstBibItem.get("Holdings").size());
+        assertEquals(1, secondBibItem.get("Bib").size());
+        assertEquals(0, secondBibItem.get("Item").size());
+        assertEquals(0, secondBibItem.get("Holdings").size());
+        Bib secondBib = (Bib) secondBibItem.get("Bib").get(0);
+        assertEquals(Arrays.asList(1), secondBib.getBibItemIdList());
+        assertEquals(Arrays.asList(1), secondBib.getHoldingsIdList());
+        assertEquals(1, emittedItemIds.size());
+        assertEquals(1, emittedHoldingsIds.size());
+    }
+
+    private BibliographicEntity getBibliographicEntity(Integer bibId, ItemEntity itemEntity, HoldingsEntity holdingsEntity) {
+        BibliographicEntity bibliographicEntity = new BibliographicEntity();
+        bibliographicEntity.setBibliographicId(bibId);
+        bibliographicEntity.setContent(bibContent.getBytes());
+        bibliographicEntity.setItemEntities(new ArrayList<>(Arrays.asList(itemEntity)));
+        bibliographicEntity.setHoldingsEntities(new ArrayList<>(Arrays.asList(holdingsEntity)));
+        return bibliographicEntity;
+    }
 }
@@ -0,0 +1,102 @@
+package org.recap.executors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.ItemEntity;
+import org.recap.model.solr.ChangeEvent;
+import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.repository.jpa.HoldingsDetailsRepository;
+import org.recap.repository.jpa.ItemDetailsRepository;
+import org.recap.util.SolrInputDocumentBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChangeFeedIndexerUT {
+
+    @Mock
+    BibliographicDetailsRepository mockBibliographicDetailsRepository;
+
+    @Mock
+    HoldingsDetailsRepository mockHoldingsDetailsRepository;
+
+    @Mock
+    ItemDetailsRepository mockItemDetailsRepository;
+
+    @Mock
+    AssociationBatchLoader mockAssociationBatchLoader;
+
+    @Mock
+    SolrBatchWriter mockSolrBatchWriter;
+
+    @Mock
+    SolrClient mockSolrClient;
+
+    private ChangeFeedIndexer changeFeedIndexer;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        changeFeedIndexer = new ChangeFeedIndexer();
+        changeFeedIndexer.bibliographicDetailsRepository = mockBibliographicDetailsRepository;
+        changeFeedIndexer.holdingsDetailsRepository = mockHoldingsDetailsRepository;
+        changeFeedIndexer.itemDetailsRepository = mockItemDetailsRepository;
+        changeFeedIndexer.associationBatchLoader = mockAssociationBatchLoader;
+        changeFeedIndexer.solrBatchWriter = mockSolrBatchWriter;
+        changeFeedIndexer.solrClient = mockSolrClient;
+        changeFeedIndexer.indexExecutorRegistry = new IndexExecutorRegistry();
+        changeFeedIndexer.indexExecutorRegistry.transformThreads = 2;
+        changeFeedIndexer.indexExecutorRegistry.transformQueueSize = 10;
+        changeFeedIndexer.indexExecutorRegistry.readThreads = 1;
+        changeFeedIndexer.solrCore = "recap";
+        changeFeedIndexer.pipelineTransformWindow = 10;
+        changeFeedIndexer.pipelineSendBatchSize = 100;
+        changeFeedIndexer.commitWithinMillis = 1000;
+        Mockito.when(mockSolrBatchWriter.toSolrInputDocument(Mockito.any())).thenAnswer(invocation -> SolrInputDocumentBuilder.build(invocation.getArguments()[0]));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        changeFeedIndexer.indexExecutorRegistry.shutdown();
+    }
+
+    @Test
+    public void indexesChangedRecordsAndDeletesDocumentsOfDeletedOnes() throws Exception {
+        Mockito.when(mockItemDetailsRepository.findByItemIdIn(Arrays.asList(1, 2))).thenReturn(Arrays.asList(getItemEntity(1), getItemEntity(2)));
+
+        IndexProgress indexProgress = changeFeedIndexer.index(Arrays.asList(
+                new ChangeEvent(RecapConstants.ITEM, 1, "Update"),
+                new ChangeEvent(RecapConstants.BIB, 3, RecapConstants.CHANGE_TYPE_DELETE),
+                new ChangeEvent(RecapConstants.ITEM, 2, "Create"),
+                new ChangeEvent("Unknown", 4, "Update")));
+
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockSolrBatchWriter).write(Mockito.eq("recap"), batch.capture(), Mockito.eq(1000));
+        assertEquals(2, batch.getValue().size());
+        assertEquals(1, ((SolrInputDocument) batch.getValue().get(0)).getFieldValue(RecapConstants.ITEM_ID));
+        Mockito.verify(mockSolrClient).deleteByQuery("DocType:Bib AND BibId:(3)", 1000);
+        Mockito.verify(mockBibliographicDetailsRepository, Mockito.never()).findByBibliographicIdIn(Mockito.anyListOf(Integer.class));
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexProgress.getStatus());
+        assertEquals(2, indexProgress.getDocsSent());
+    }
+
+    private ItemEntity getItemEntity(Integer itemId) {
+        ItemEntity itemEntity = new ItemEntity();
+        itemEntity.setItemId(itemId);
+        itemEntity.setBarcode("32101" + itemId);
+        itemEntity.setBibliographicEntities(new ArrayList<>());
+        itemEntity.setHoldingsEntities(new ArrayList<>());
+        return itemEntity;
+    }
+}
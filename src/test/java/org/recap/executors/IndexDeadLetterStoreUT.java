@@ -0,0 +1,96 @@
+package org.recap.executors;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.IndexDeadLetterEntity;
+import org.recap.repository.jpa.IndexDeadLetterDetailsRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndexDeadLetterStoreUT {
+
+    @Mock
+    IndexDeadLetterDetailsRepository indexDeadLetterDetailsRepository;
+
+    @Mock
+    SolrBatchWriter solrBatchWriter;
+
+    private IndexDeadLetterStore indexDeadLetterStore;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        indexDeadLetterStore = new IndexDeadLetterStore();
+        indexDeadLetterStore.indexDeadLetterDetailsRepository = indexDeadLetterDetailsRepository;
+        indexDeadLetterStore.solrBatchWriter = solrBatchWriter;
+        Mockito.when(indexDeadLetterDetailsRepository.save(Mockito.any(IndexDeadLetterEntity.class))).then(invocation -> invocation.getArguments()[0]);
+    }
+
+    @Test
+    public void savesBatchWithItsDocIds() throws Exception {
+        indexDeadLetterStore.save("recap", getBatch(), 4, "Connection refused");
+
+        ArgumentCaptor<IndexDeadLetterEntity> captor = ArgumentCaptor.forClass(IndexDeadLetterEntity.class);
+        Mockito.verify(indexDeadLetterDetailsRepository).save(captor.capture());
+        IndexDeadLetterEntity indexDeadLetterEntity = captor.getValue();
+        assertEquals("recap", indexDeadLetterEntity.getCoreName());
+        assertEquals("BibId1,ItemId2", indexDeadLetterEntity.getDocIds());
+        assertEquals(new Integer(2), indexDeadLetterEntity.getDocCount());
+        assertEquals(new Integer(4), indexDeadLetterEntity.getAttempts());
+        assertEquals(RecapConstants.DEAD_LETTER_PENDING, indexDeadLetterEntity.getStatus());
+        List<SolrInputDocument> decodedBatch = IndexDeadLetterStore.decode(indexDeadLetterEntity.getPayload());
+        assertEquals(2, decodedBatch.size());
+        assertEquals("ItemId2", decodedBatch.get(1).getFieldValue("id"));
+        assertEquals(Arrays.asList("33210000000021"), new ArrayList<>(decodedBatch.get(1).getFieldValues("Barcode")));
+    }
+
+    @Test
+    public void replayedDeadLettersAreSentAndCommitted() throws Exception {
+        IndexDeadLetterEntity replayable = getDeadLetter(1);
+        IndexDeadLetterEntity failing = getDeadLetter(2);
+        failing.setCoreName("temp0");
+        Mockito.when(indexDeadLetterDetailsRepository.findByStatusOrderByDeadLetterIdAsc(RecapConstants.DEAD_LETTER_PENDING))
+                .thenReturn(Arrays.asList(replayable, failing));
+        Mockito.when(solrBatchWriter.write(Mockito.eq("recap"), Mockito.anyList())).thenReturn(1);
+        Mockito.when(solrBatchWriter.write(Mockito.eq("temp0"), Mockito.anyList())).thenThrow(new IllegalStateException("Core not found"));
+
+        assertEquals(1, indexDeadLetterStore.replay());
+
+        assertEquals(RecapConstants.DEAD_LETTER_REPLAYED, replayable.getStatus());
+        assertEquals(new Integer(5), replayable.getAttempts());
+        assertEquals(RecapConstants.DEAD_LETTER_PENDING, failing.getStatus());
+        assertEquals("Core not found", failing.getErrorMessage());
+        Mockito.verify(solrBatchWriter).commit("recap", false, true);
+        Mockito.verify(solrBatchWriter, Mockito.never()).commit(Mockito.eq("temp0"), Mockito.anyBoolean(), Mockito.anyBoolean());
+    }
+
+    private IndexDeadLetterEntity getDeadLetter(Integer deadLetterId) throws Exception {
+        IndexDeadLetterEntity indexDeadLetterEntity = new IndexDeadLetterEntity();
+        indexDeadLetterEntity.setDeadLetterId(deadLetterId);
+        indexDeadLetterEntity.setCoreName("recap");
+        indexDeadLetterEntity.setPayload(IndexDeadLetterStore.encode(getBatch()));
+        indexDeadLetterEntity.setAttempts(4);
+        indexDeadLetterEntity.setStatus(RecapConstants.DEAD_LETTER_PENDING);
+        return indexDeadLetterEntity;
+    }
+
+    private List<SolrInputDocument> getBatch() {
+        SolrInputDocument bib = new SolrInputDocument();
+        bib.addField("id", "BibId1");
+        bib.addField("DocType", "Bib");
+        SolrInputDocument item = new SolrInputDocument();
+        item.addField("id", "ItemId2");
+        item.addField("Barcode", "33210000000021");
+        return Arrays.asList(bib, item);
+    }
+}
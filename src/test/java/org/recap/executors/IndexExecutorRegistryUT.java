@@ -0,0 +1,71 @@
+package org.recap.executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexExecutorRegistryUT {
+
+    private IndexExecutorRegistry indexExecutorRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        indexExecutorRegistry = new IndexExecutorRegistry();
+        indexExecutorRegistry.transformThreads = 1;
+        indexExecutorRegistry.transformQueueSize = 1;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexExecutorRegistry.shutdown();
+    }
+
+    @Test
+    public void recordSetupExecutorIsShared() throws Exception {
+        ExecutorService recordSetupExecutor = indexExecutorRegistry.getRecordSetupExecutor();
+        assertSame(recordSetupExecutor, indexExecutorRegistry.getRecordSetupExecutor());
+    }
+
+    @Test
+    public void poolSizeDefaultsToAvailableCores() throws Exception {
+        indexExecutorRegistry.transformThreads = 0;
+        assertEquals(Runtime.getRuntime().availableProcessors(), indexExecutorRegistry.getTransformThreads());
+    }
+
+    @Test
+    public void fullQueueRunsTaskOnCallerAndCountsRejection() throws Exception {
+        ExecutorService recordSetupExecutor = indexExecutorRegistry.getRecordSetupExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        futures.add(recordSetupExecutor.submit(() -> {
+            release.await();
+            return Thread.currentThread().getName();
+        }));
+        futures.add(recordSetupExecutor.submit(() -> Thread.currentThread().getName()));
+        Future<String> callerRunFuture = recordSetupExecutor.submit(() -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), callerRunFuture.get(5, TimeUnit.SECONDS));
+        assertEquals(1, indexExecutorRegistry.getRecordSetupRejections());
+        assertEquals(1, indexExecutorRegistry.getRecordSetupQueueDepth());
+        assertEquals(1, indexExecutorRegistry.getRecordSetupActiveThreads());
+
+        release.countDown();
+        for (Future<String> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS).startsWith(IndexExecutorRegistry.RECORD_SETUP_POOL));
+        }
+        Map<String, Map<String, Number>> statistics = indexExecutorRegistry.getStatistics();
+        assertEquals(1L, statistics.get(IndexExecutorRegistry.RECORD_SETUP_POOL).get("rejections"));
+    }
+}
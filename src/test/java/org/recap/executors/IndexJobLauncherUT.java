@@ -0,0 +1,125 @@
+package org.recap.executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.recap.RecapConstants;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IndexJobLauncherUT {
+
+    private IndexJobLauncher indexJobLauncher;
+
+    @Before
+    public void setUp() throws Exception {
+        indexJobLauncher = new IndexJobLauncher();
+        indexJobLauncher.jobsRetained = 2;
+        indexJobLauncher.concurrentJobs = 1;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexJobLauncher.shutdown();
+    }
+
+    @Test
+    public void jobsRunInTheBackgroundInSubmissionOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Integer firstJobId = indexJobLauncher.submit("Bibs", indexProgress -> {
+            indexProgress.start();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            indexProgress.finish(true);
+        });
+        Integer secondJobId = indexJobLauncher.submit("Items", indexProgress -> done.countDown());
+
+        assertEquals(RecapConstants.INDEX_JOB_QUEUED, indexJobLauncher.getJob(secondJobId).getStatus());
+        assertEquals(secondJobId, indexJobLauncher.getLatestJob().getJobId());
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(RecapConstants.INDEX_JOB_COMPLETED, indexJobLauncher.getJob(firstJobId).getStatus());
+    }
+
+    @Test
+    public void failedJobIsMarkedFailed() throws Exception {
+        Integer jobId = indexJobLauncher.submit("Bibs", indexProgress -> {
+            throw new IllegalStateException("solr down");
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        indexJobLauncher.submit("Bibs", indexProgress -> done.countDown());
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(RecapConstants.INDEX_JOB_FAILED, indexJobLauncher.getJob(jobId).getStatus());
+    }
+
+    @Test
+    public void onlyRecentJobsAreRetained() throws Exception {
+        Integer firstJobId = indexJobLauncher.submit("Bibs", indexProgress -> {
+        });
+        indexJobLauncher.submit("Bibs", indexProgress -> {
+        });
+        indexJobLauncher.submit("Bibs", indexProgress -> {
+        });
+        assertNull(indexJobLauncher.getJob(firstJobId));
+        assertEquals(2, indexJobLauncher.getJobs().size());
+    }
+
+    @Test
+    public void jobsRunAtOnceUpToTheConcurrentLimit() throws Exception {
+        indexJobLauncher.concurrentJobs = 2;
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Integer firstJobId = indexJobLauncher.submit("Bibs", indexProgress -> awaitRelease(bothStarted, release));
+        Integer secondJobId = indexJobLauncher.submit("Items", indexProgress -> awaitRelease(bothStarted, release));
+        Integer thirdJobId = indexJobLauncher.submit("Holdings", indexProgress -> {
+        });
+
+        assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(RecapConstants.INDEX_JOB_QUEUED, indexJobLauncher.getJob(thirdJobId).getStatus());
+        release.countDown();
+        assertNotNull(firstJobId);
+        assertNotNull(secondJobId);
+    }
+
+    @Test
+    public void exclusiveJobRunsAlone() throws Exception {
+        indexJobLauncher.concurrentJobs = 2;
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch exclusiveStarted = new CountDownLatch(1);
+        CountDownLatch releaseExclusive = new CountDownLatch(1);
+        CountDownLatch lastDone = new CountDownLatch(1);
+        indexJobLauncher.submit("Bibs", indexProgress -> awaitRelease(firstStarted, releaseFirst));
+        Integer exclusiveJobId = indexJobLauncher.submitExclusive("BibItems", indexProgress -> awaitRelease(exclusiveStarted, releaseExclusive));
+        Integer lastJobId = indexJobLauncher.submit("Items", indexProgress -> lastDone.countDown());
+
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(RecapConstants.INDEX_JOB_QUEUED, indexJobLauncher.getJob(exclusiveJobId).getStatus());
+        assertEquals(RecapConstants.INDEX_JOB_QUEUED, indexJobLauncher.getJob(lastJobId).getStatus());
+        releaseFirst.countDown();
+        assertTrue(exclusiveStarted.await(5, TimeUnit.SECONDS));
+        assertFalse(lastDone.await(200, TimeUnit.MILLISECONDS));
+        releaseExclusive.countDown();
+        assertTrue(lastDone.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitRelease(CountDownLatch started, CountDownLatch release) {
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.recap.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.IndexJobEntity;
+import org.recap.model.jpa.IndexJobRangeEntity;
+import org.recap.repository.jpa.IndexJobDetailsRepository;
+import org.recap.repository.jpa.IndexJobRangeDetailsRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class IndexJobTrackerUT {
+
+    @Mock
+    IndexJobDetailsRepository indexJobDetailsRepository;
+
+    @Mock
+    IndexJobRangeDetailsRepository indexJobRangeDetailsRepository;
+
+    private IndexJobTracker indexJobTracker;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        indexJobTracker = new IndexJobTracker();
+        indexJobTracker.indexJobDetailsRepository = indexJobDetailsRepository;
+        indexJobTracker.indexJobRangeDetailsRepository = indexJobRangeDetailsRepository;
+    }
+
+    @Test
+    public void onlyUnfinishedJobsAreResumable() throws Exception {
+        IndexJobEntity indexJobEntity = new IndexJobEntity();
+        indexJobEntity.setStatus(RecapConstants.INDEX_JOB_INCOMPLETE);
+        Mockito.when(indexJobDetailsRepository.findFirstByDocTypeAndOwningInstitutionIdOrderByJobIdDesc("Bibs", 1)).thenReturn(indexJobEntity);
+        assertSame(indexJobEntity, indexJobTracker.findResumableJob("Bibs", 1));
+
+        indexJobEntity.setStatus(RecapConstants.INDEX_JOB_COMPLETED);
+        assertNull(indexJobTracker.findResumableJob("Bibs", 1));
+    }
+
+    @Test
+    public void completedRangesAreSavedWithTheirJob() throws Exception {
+        IndexJobEntity indexJobEntity = new IndexJobEntity();
+        indexJobEntity.setJobId(3);
+        indexJobTracker.saveCompletedRanges(indexJobEntity, Collections.singletonMap(5, 1000));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(indexJobRangeDetailsRepository).save(captor.capture());
+        IndexJobRangeEntity indexJobRangeEntity = (IndexJobRangeEntity) captor.getValue().get(0);
+        assertEquals(new Integer(3), indexJobRangeEntity.getJobId());
+        assertEquals(new Integer(5), indexJobRangeEntity.getRangeNum());
+        assertEquals(new Integer(1000), indexJobRangeEntity.getDocCount());
+    }
+
+    @Test
+    public void failedSaveDoesNotStopTheRun() throws Exception {
+        Mockito.when(indexJobDetailsRepository.save(Mockito.any(IndexJobEntity.class))).thenThrow(new RuntimeException("database down"));
+        assertNull(indexJobTracker.startJob("Bibs", null, RecapConstants.FETCH_MODE_PAGED, 1000, 10, null, null));
+    }
+}
@@ -0,0 +1,184 @@
+package org.recap.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.solr.Bib;
+import org.recap.model.solr.Item;
+import org.recap.util.ConcurrentIdSet;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexPipelineUT {
+
+    @Mock
+    SolrIndexQueue mockSolrIndexQueue;
+
+    @Mock
+    IndexQuarantine mockIndexQuarantine;
+
+    private ExecutorService recordSetupExecutorService;
+    private ExecutorService pageReaderExecutorService;
+    private IndexProgress indexProgress;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        recordSetupExecutorService = Executors.newFixedThreadPool(4);
+        pageReaderExecutorService = Executors.newSingleThreadExecutor();
+        indexProgress = new IndexProgress(null, "Bibs");
+    }
+
+    @Test
+    public void sendsDocumentsInBatchesPerDocType() throws Exception {
+        IndexPipeline indexPipeline = newIndexPipeline(3, 4);
+        SolrBatchSettings batchSettings = new SolrBatchSettings(100, 0);
+        indexPipeline.setBatchSettings(batchSettings);
+        for (int i = 0; i < 5; i++) {
+            indexPipeline.submit(() -> {
+                Map<String, List> documents = new LinkedHashMap<>();
+                documents.put("Bib", Arrays.asList(new Bib()));
+                documents.put("Item", Arrays.asList(new Item(), new Item()));
+                return documents;
+            });
+        }
+        indexPipeline.flush();
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockSolrIndexQueue, Mockito.times(5)).send(Mockito.eq("recap"), batches.capture(), Mockito.same(batchSettings));
+        List<Integer> batchSizes = new ArrayList<>();
+        for (List batch : batches.getAllValues()) {
+            assertTrue(batch.size() <= 4);
+            batchSizes.add(batch.size());
+        }
+        assertEquals(Arrays.asList(4, 4, 4, 1, 2), batchSizes);
+        assertEquals(15, indexProgress.getDocsTransformed());
+        assertEquals(15, indexProgress.getDocsSent());
+    }
+
+    @Test
+    public void keepsAtMostTransformWindowRecordsInFlight() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        IndexPipeline indexPipeline = newIndexPipeline(2, 100);
+        for (int i = 0; i < 20; i++) {
+            indexPipeline.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(2);
+                running.decrementAndGet();
+                return new Bib();
+            });
+        }
+        indexPipeline.flush();
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(20, indexProgress.getDocsSent());
+    }
+
+    @Test
+    public void readsPagesAheadUntilShortPage() throws Exception {
+        List<Integer> readAfterIds = Collections.synchronizedList(new ArrayList<>());
+        IndexPipeline indexPipeline = newIndexPipeline(10, 100);
+        int recordsRead = indexPipeline.indexPages(0, 3, afterId -> {
+            readAfterIds.add(afterId);
+            List<Integer> page = new ArrayList<>();
+            for (int id = afterId + 1; id <= Math.min(afterId + 3, 7); id++) {
+                page.add(id);
+            }
+            return page;
+        }, id -> id, id -> () -> new Bib());
+        indexPipeline.flush();
+
+        assertEquals(7, recordsRead);
+        assertEquals(Arrays.asList(0, 3, 6), readAfterIds);
+        assertEquals(7, indexProgress.getDocsSent());
+    }
+
+    @Test
+    public void failsAfterSendingTheRecordsThatWereTransformed() throws Exception {
+        IndexPipeline indexPipeline = newIndexPipeline(10, 100);
+        indexPipeline.submit(() -> new Bib());
+        indexPipeline.submit(() -> {
+            throw new IllegalArgumentException("bad marc");
+        });
+        indexPipeline.submit(() -> new Bib());
+        try {
+            indexPipeline.flush();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(1, indexProgress.getErrors());
+        }
+        assertEquals(2, indexProgress.getDocsSent());
+    }
+
+    @Test
+    public void quarantinesFailedRecordAndCarriesOn() throws Exception {
+        IndexPipeline indexPipeline = newIndexPipeline(10, 100);
+        indexPipeline.setIndexQuarantine(mockIndexQuarantine, "BibItems");
+        BibliographicEntity badRecord = new BibliographicEntity();
+        badRecord.setBibliographicId(2);
+        Mockito.when(mockIndexQuarantine.quarantine(Mockito.eq("BibItems"), Mockito.eq(badRecord), Mockito.any(Throwable.class))).thenReturn(true);
+        indexPipeline.submit(() -> new Bib(), new BibliographicEntity());
+        indexPipeline.submit(() -> {
+            throw new IllegalArgumentException("bad marc");
+        }, badRecord);
+        indexPipeline.submit(() -> new Bib(), new BibliographicEntity());
+        indexPipeline.flush();
+
+        assertEquals(2, indexProgress.getDocsSent());
+        assertEquals(1, indexProgress.getErrors());
+        assertEquals(1, indexProgress.getQuarantined());
+    }
+
+    @Test
+    public void itemsThatFailToSendAreUnmarkedForARetry() throws Exception {
+        ConcurrentIdSet emittedItemIds = new ConcurrentIdSet();
+        IndexPipeline indexPipeline = newIndexPipeline(10, 2);
+        indexPipeline.setEmittedIds(emittedItemIds, new ConcurrentIdSet());
+        Mockito.doThrow(new IllegalStateException("Queue stopped")).when(mockSolrIndexQueue)
+                .send(Mockito.eq("recap"), Mockito.argThat(new ArgumentMatcher<List>() {
+                    @Override
+                    public boolean matches(Object documents) {
+                        return ((List) documents).get(0) instanceof Item;
+                    }
+                }), Mockito.any());
+        for (int itemId = 1; itemId <= 3; itemId++) {
+            int id = itemId;
+            indexPipeline.submit(() -> {
+                emittedItemIds.add(id);
+                Item item = new Item();
+                item.setItemId(id);
+                Map<String, List> documents = new LinkedHashMap<>();
+                documents.put("Item", Arrays.asList(item));
+                return documents;
+            });
+        }
+        try {
+            indexPipeline.flush();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Queue stopped", e.getMessage());
+        }
+        assertFalse(emittedItemIds.contains(1));
+        assertFalse(emittedItemIds.contains(2));
+        assertFalse(emittedItemIds.contains(3));
+        assertEquals(0, indexProgress.getDocsSent());
+    }
+
+    private IndexPipeline newIndexPipeline(int transformWindow, int sendBatchSize) {
+        return new IndexPipeline("recap", recordSetupExecutorService, pageReaderExecutorService, mockSolrIndexQueue,
+                indexProgress, transformWindow, sendBatchSize);
+    }
+}
@@ -0,0 +1,62 @@
+package org.recap.executors;
+
+import org.junit.Test;
+import org.recap.RecapConstants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IndexProgressUT {
+
+    @Test
+    public void etaFollowsFetchRate() throws Exception {
+        IndexProgress indexProgress = new IndexProgress(1, "Bibs");
+        indexProgress.setTotalRecords(100000);
+        assertNull(indexProgress.getEtaSeconds());
+
+        indexProgress.start();
+        Thread.sleep(50);
+        indexProgress.addRecordsFetched(1000);
+        indexProgress.addDocsTransformed(1000);
+        indexProgress.addDocsSent(1000);
+
+        assertTrue(indexProgress.getDocsPerSecond() > 0);
+        Long etaSeconds = indexProgress.getEtaSeconds();
+        assertTrue(etaSeconds > 0);
+        assertTrue(indexProgress.getSummary().contains("Records fetched : 1000 of 100000"));
+    }
+
+    @Test
+    public void committedNeverGoesBack() throws Exception {
+        IndexProgress indexProgress = new IndexProgress(1, "Bibs");
+        indexProgress.setDocsCommitted(500);
+        indexProgress.setDocsCommitted(200);
+        assertEquals(500, indexProgress.getDocsCommitted());
+
+        indexProgress.start();
+        indexProgress.finish(false);
+        assertEquals(RecapConstants.INDEX_JOB_INCOMPLETE, indexProgress.getStatus());
+        assertNull(indexProgress.getEtaSeconds());
+    }
+
+    @Test
+    public void partitionCountsAddToTheRun() throws Exception {
+        IndexProgress indexProgress = new IndexProgress(1, "Bibs");
+        indexProgress.start();
+        IndexProgress pul = indexProgress.addPartition("PUL");
+        IndexProgress cul = indexProgress.addPartition("CUL");
+        pul.addRecordsFetched(10);
+        pul.addDocsSent(10);
+        cul.addRecordsFetched(5);
+        cul.addErrors(1);
+
+        assertEquals(15, indexProgress.getRecordsFetched());
+        assertEquals(10, indexProgress.getDocsSent());
+        assertEquals(1, indexProgress.getErrors());
+        assertEquals(5, cul.getRecordsFetched());
+        assertEquals("CUL", cul.getPartition());
+        assertEquals(RecapConstants.INDEX_JOB_RUNNING, cul.getStatus());
+        assertTrue(indexProgress.getSummary().contains("PUL"));
+    }
+}
@@ -0,0 +1,98 @@
+package org.recap.executors;
+
+import com.google.common.hash.Hashing;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.model.jpa.BibliographicEntity;
+import org.recap.model.jpa.IndexQuarantineEntity;
+import org.recap.repository.jpa.IndexQuarantineDetailsRepository;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexQuarantineUT {
+
+    @Mock
+    IndexQuarantineDetailsRepository indexQuarantineDetailsRepository;
+
+    private IndexQuarantine indexQuarantine;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        indexQuarantine = new IndexQuarantine();
+        indexQuarantine.indexQuarantineDetailsRepository = indexQuarantineDetailsRepository;
+    }
+
+    @Test
+    public void quarantinesBibWithContentHash() throws Exception {
+        BibliographicEntity bibliographicEntity = new BibliographicEntity();
+        bibliographicEntity.setBibliographicId(12);
+        bibliographicEntity.setOwningInstitutionId(3);
+        bibliographicEntity.setContent("<collection><record>".getBytes());
+
+        assertTrue(indexQuarantine.quarantine("BibItems", bibliographicEntity, new IllegalArgumentException("bad marc")));
+
+        ArgumentCaptor<IndexQuarantineEntity> captor = ArgumentCaptor.forClass(IndexQuarantineEntity.class);
+        Mockito.verify(indexQuarantineDetailsRepository).save(captor.capture());
+        IndexQuarantineEntity indexQuarantineEntity = captor.getValue();
+        assertEquals("BibItems", indexQuarantineEntity.getDocType());
+        assertEquals(new Integer(12), indexQuarantineEntity.getRecordId());
+        assertEquals(new Integer(3), indexQuarantineEntity.getOwningInstitutionId());
+        assertEquals("java.lang.IllegalArgumentException: bad marc", indexQuarantineEntity.getException());
+        assertEquals(Hashing.sha256().hashBytes("<collection><record>".getBytes()).toString(), indexQuarantineEntity.getContentHash());
+        assertEquals(new Integer(1), indexQuarantineEntity.getAttempts());
+        assertEquals(RecapConstants.QUARANTINED, indexQuarantineEntity.getStatus());
+    }
+
+    @Test
+    public void quarantiningAgainUpdatesTheSameRecord() throws Exception {
+        IndexQuarantineEntity quarantined = getQuarantined(1, 12, 1);
+        Mockito.when(indexQuarantineDetailsRepository.findFirstByDocTypeAndRecordIdAndStatus("Bibs", 12, RecapConstants.QUARANTINED)).thenReturn(quarantined);
+        BibliographicEntity bibliographicEntity = new BibliographicEntity();
+        bibliographicEntity.setBibliographicId(12);
+
+        assertTrue(indexQuarantine.quarantine("Bibs", bibliographicEntity, new IllegalStateException("still bad")));
+        Mockito.verify(indexQuarantineDetailsRepository).save(quarantined);
+        assertEquals(new Integer(2), quarantined.getAttempts());
+    }
+
+    @Test
+    public void unknownRecordsAreNotQuarantined() throws Exception {
+        assertFalse(indexQuarantine.quarantine("Bibs", "not an entity", new IllegalStateException()));
+        Mockito.verifyZeroInteractions(indexQuarantineDetailsRepository);
+    }
+
+    @Test
+    public void recordsQuarantinedAgainAreNotMarkedReprocessed() throws Exception {
+        IndexQuarantineEntity fixed = getQuarantined(1, 12, 1);
+        IndexQuarantineEntity stillBad = getQuarantined(2, 13, 1);
+        Mockito.when(indexQuarantineDetailsRepository.findOne(1)).thenReturn(getQuarantined(1, 12, 1));
+        Mockito.when(indexQuarantineDetailsRepository.findOne(2)).thenReturn(getQuarantined(2, 13, 2));
+
+        assertEquals(1, indexQuarantine.markReprocessed(Arrays.asList(fixed, stillBad)));
+
+        ArgumentCaptor<IndexQuarantineEntity> captor = ArgumentCaptor.forClass(IndexQuarantineEntity.class);
+        Mockito.verify(indexQuarantineDetailsRepository).save(captor.capture());
+        assertEquals(new Integer(12), captor.getValue().getRecordId());
+        assertEquals(RecapConstants.QUARANTINE_REPROCESSED, captor.getValue().getStatus());
+    }
+
+    private IndexQuarantineEntity getQuarantined(Integer quarantineId, Integer recordId, Integer attempts) {
+        IndexQuarantineEntity indexQuarantineEntity = new IndexQuarantineEntity();
+        indexQuarantineEntity.setQuarantineId(quarantineId);
+        indexQuarantineEntity.setDocType("Bibs");
+        indexQuarantineEntity.setRecordId(recordId);
+        indexQuarantineEntity.setAttempts(attempts);
+        indexQuarantineEntity.setStatus(RecapConstants.QUARANTINED);
+        return indexQuarantineEntity;
+    }
+}
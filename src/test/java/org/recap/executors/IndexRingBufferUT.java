@@ -0,0 +1,93 @@
+package org.recap.executors;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexRingBufferUT {
+
+    @Test
+    public void roundsCapacityUpToAPowerOfTwo() throws Exception {
+        assertEquals(16, new IndexRingBuffer(10, (coreName, documents, batchSettings, batchSequence) -> {}).getCapacity());
+        assertEquals(8, new IndexRingBuffer(8, (coreName, documents, batchSettings, batchSequence) -> {}).getCapacity());
+        assertEquals(1, new IndexRingBuffer(0, (coreName, documents, batchSettings, batchSequence) -> {}).getCapacity());
+    }
+
+    @Test
+    public void deliversEveryBatchOfEveryProducerInOrder() throws Exception {
+        int producers = 4;
+        int batchesPerProducer = 5000;
+        List<List<Integer>> received = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            received.add(new ArrayList<>());
+        }
+        IndexRingBuffer indexRingBuffer = new IndexRingBuffer(8, (coreName, documents, batchSettings, batchSequence) ->
+                received.get(Integer.parseInt(coreName)).add((Integer) documents.get(0)));
+        indexRingBuffer.start("indexRingBufferUT");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            String coreName = String.valueOf(producer);
+            futures.add(executorService.submit(() -> {
+                for (int batch = 0; batch < batchesPerProducer; batch++) {
+                    indexRingBuffer.publish(coreName, Collections.singletonList(batch), batch);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        indexRingBuffer.stop();
+        executorService.shutdown();
+
+        for (List<Integer> batches : received) {
+            assertEquals(batchesPerProducer, batches.size());
+            for (int batch = 0; batch < batchesPerProducer; batch++) {
+                assertEquals(Integer.valueOf(batch), batches.get(batch));
+            }
+        }
+        assertEquals(0, indexRingBuffer.getPendingCount());
+    }
+
+    @Test
+    public void publishWaitsWhileTheRingIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        IndexRingBuffer indexRingBuffer = new IndexRingBuffer(2, (coreName, documents, batchSettings, batchSequence) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(documents.get(0));
+        });
+        indexRingBuffer.start("indexRingBufferUT");
+
+        indexRingBuffer.publish(null, Arrays.asList("doc1"), 1);
+        indexRingBuffer.publish(null, Arrays.asList("doc2"), 2);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> publishFuture = executorService.submit(() -> indexRingBuffer.publish(null, Arrays.asList("doc3"), 3));
+        Thread.sleep(100);
+        assertFalse(publishFuture.isDone());
+
+        release.countDown();
+        publishFuture.get(5, TimeUnit.SECONDS);
+        assertTrue(publishFuture.isDone());
+        indexRingBuffer.stop();
+        executorService.shutdown();
+        assertEquals(Arrays.asList("doc1", "doc2", "doc3"), received);
+    }
+}
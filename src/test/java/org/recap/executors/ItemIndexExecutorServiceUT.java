@@ -63,8 +63,13 @@ public class ItemIndexExecutorServiceUT {
     }
 
     private class MockIndexExecutorService extends ItemIndexExecutorService{
+        {
+            indexRetryAttempts = 2;
+            indexRetryBackoffMillis = 0L;
+        }
+
         @Override
-        public Callable getCallable(String coreName, int startingPage, int numRecordsPerPage, Integer owningInstitutionId){
+        public Callable getCallable(IndexRun indexRun, String coreName, int startingPage, int numRecordsPerPage, Integer owningInstitutionId){
             return mockItemIndexCallable;
         }
 
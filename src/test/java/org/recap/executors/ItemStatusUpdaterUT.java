@@ -0,0 +1,105 @@
+package org.recap.executors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.repository.jpa.ItemDetailsRepository;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class ItemStatusUpdaterUT {
+
+    @Mock
+    ItemDetailsRepository mockItemDetailsRepository;
+
+    @Mock
+    SolrClient mockSolrClient;
+
+    @Mock
+    SolrBatchWriter mockSolrBatchWriter;
+
+    private ItemStatusUpdater itemStatusUpdater;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        itemStatusUpdater = new ItemStatusUpdater();
+        itemStatusUpdater.itemDetailsRepository = mockItemDetailsRepository;
+        itemStatusUpdater.solrClient = mockSolrClient;
+        itemStatusUpdater.solrBatchWriter = mockSolrBatchWriter;
+        itemStatusUpdater.solrCore = "recap";
+        itemStatusUpdater.batchSize = 2;
+    }
+
+    @Test
+    public void setsStatusFieldsOfItemDocumentsBatchByBatch() throws Exception {
+        Mockito.when(mockItemDetailsRepository.findItemStatusByItemIdIn(Arrays.asList(1, 2))).thenReturn(Arrays.asList(
+                new Object[]{1, "Available", "Shared", null},
+                new Object[]{2, "Not Available", "Private", "In Library Use"}));
+        Mockito.when(mockItemDetailsRepository.findItemStatusByItemIdIn(Collections.singletonList(3))).thenReturn(
+                Collections.singletonList(new Object[]{3, "Available", "Open", null}));
+        Mockito.when(mockSolrClient.query(Mockito.any(SolrParams.class))).thenAnswer(invocation -> {
+            SolrParams solrParams = (SolrParams) invocation.getArguments()[0];
+            assertEquals(RecapConstants.DOCTYPE + ":" + RecapConstants.ITEM, solrParams.get(CommonParams.Q));
+            if (solrParams.get(CommonParams.FQ).endsWith("}1,2")) {
+                return getQueryResponse(getSolrDocument("a", 1), getSolrDocument("b", 2));
+            }
+            return getQueryResponse();
+        });
+
+        int updated = itemStatusUpdater.update(Arrays.asList(1, 2, 3, 2));
+
+        assertEquals(2, updated);
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockSolrBatchWriter).write(Mockito.eq("recap"), batches.capture());
+        List<SolrInputDocument> updates = batches.getValue();
+        assertEquals("a", updates.get(0).getFieldValue("id"));
+        assertEquals(Collections.singletonMap("set", "Available"), updates.get(0).getFieldValue(RecapConstants.AVAILABILITY));
+        assertEquals(Collections.singletonMap("set", "Shared"), updates.get(0).getFieldValue(RecapConstants.COLLECTION_GROUP_DESIGNATION));
+        assertEquals(Collections.singletonMap("set", RecapConstants.NO_RESTRICTIONS), updates.get(0).getFieldValue(RecapConstants.USE_RESTRICTION));
+        assertEquals(Collections.singletonMap("set", "In Library Use"), updates.get(1).getFieldValue(RecapConstants.USE_RESTRICTION));
+        assertEquals(4, updates.get(0).getFieldNames().size());
+        Mockito.verify(mockSolrBatchWriter).commit("recap", true, false);
+    }
+
+    @Test
+    public void doesNotCommitWhenNoDocumentIsFound() throws Exception {
+        Mockito.when(mockItemDetailsRepository.findItemStatusByItemIdIn(Collections.singletonList(7))).thenReturn(
+                Collections.singletonList(new Object[]{7, "Available", "Shared", null}));
+        QueryResponse queryResponse = getQueryResponse();
+        Mockito.when(mockSolrClient.query(Mockito.any(SolrParams.class))).thenReturn(queryResponse);
+
+        assertEquals(0, itemStatusUpdater.update(Collections.singletonList(7)));
+        Mockito.verify(mockSolrBatchWriter, Mockito.never()).write(Mockito.anyString(), Mockito.anyList());
+        Mockito.verify(mockSolrBatchWriter, Mockito.never()).commit(Mockito.anyString(), Mockito.anyBoolean(), Mockito.anyBoolean());
+    }
+
+    private QueryResponse getQueryResponse(SolrDocument... solrDocuments) {
+        SolrDocumentList solrDocumentList = new SolrDocumentList();
+        solrDocumentList.addAll(Arrays.asList(solrDocuments));
+        solrDocumentList.setNumFound(solrDocuments.length);
+        QueryResponse queryResponse = Mockito.mock(QueryResponse.class);
+        Mockito.when(queryResponse.getResults()).thenReturn(solrDocumentList);
+        return queryResponse;
+    }
+
+    private SolrDocument getSolrDocument(String id, Integer itemId) {
+        SolrDocument solrDocument = new SolrDocument();
+        solrDocument.setField("id", id);
+        solrDocument.setField(RecapConstants.ITEM_ID, itemId);
+        return solrDocument;
+    }
+}
@@ -0,0 +1,38 @@
+package org.recap.executors;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PartitionSchedulerUT {
+
+    @Test
+    public void equalWeightsTakePartitionsInTurn() throws Exception {
+        Map<String, List<String>> partitions = new LinkedHashMap<>();
+        partitions.put("PUL", Arrays.asList("P1", "P2", "P3", "P4"));
+        partitions.put("CUL", Arrays.asList("C1"));
+        partitions.put("NYPL", Arrays.asList("N1", "N2"));
+
+        List<String> ordered = PartitionScheduler.interleave(partitions, new HashMap<>());
+        assertEquals(Arrays.asList("P1", "C1", "N1", "P2", "N2", "P3", "P4"), ordered);
+    }
+
+    @Test
+    public void weightsSetTheShareOfEachPartition() throws Exception {
+        Map<String, List<String>> partitions = new LinkedHashMap<>();
+        partitions.put("PUL", Arrays.asList("P1", "P2", "P3", "P4"));
+        partitions.put("CUL", Arrays.asList("C1", "C2"));
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("PUL", 4.0);
+        weights.put("CUL", 2.0);
+
+        List<String> ordered = PartitionScheduler.interleave(partitions, weights);
+        assertEquals(Arrays.asList("P1", "P2", "C1", "P3", "P4", "C2"), ordered);
+    }
+}
@@ -0,0 +1,60 @@
+package org.recap.executors;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RetryWithBackoffUT {
+
+    @Test
+    public void retriesUntilTheCallSucceeds() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        String result = new RetryWithBackoff(3, 1).call(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("Solr unavailable");
+            }
+            return "sent";
+        }, "Sending batch");
+        assertEquals("sent", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void throwsTheLastErrorOnceAttemptsAreUsedUp() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            new RetryWithBackoff(2, 1).call(() -> {
+                throw new IllegalStateException("attempt " + calls.incrementAndGet());
+            }, "Sending batch");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("attempt 2", e.getMessage());
+        }
+    }
+
+    @Test
+    public void doesNotRetryErrorsThatAreNotRetryable() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            new RetryWithBackoff(3, 1).call(() -> {
+                calls.incrementAndGet();
+                throw new IllegalArgumentException("bad marc");
+            }, "Index callable", exception -> !(exception instanceof IllegalArgumentException));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void backoffDoublesUpToTheMaximum() throws Exception {
+        RetryWithBackoff retryWithBackoff = new RetryWithBackoff(30, 1000);
+        assertEquals(1000, retryWithBackoff.getBackoffMillis(1));
+        assertEquals(2000, retryWithBackoff.getBackoffMillis(2));
+        assertEquals(8000, retryWithBackoff.getBackoffMillis(4));
+        assertEquals(RetryWithBackoff.MAX_BACKOFF_MILLIS, retryWithBackoff.getBackoffMillis(25));
+    }
+}
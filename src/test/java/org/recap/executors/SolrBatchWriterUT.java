@@ -0,0 +1,182 @@
+package org.recap.executors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.beans.DocumentObjectBinder;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.model.solr.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SolrBatchWriterUT {
+
+    @Mock
+    SolrClient solrClient;
+
+    @Mock
+    IndexDeadLetterStore indexDeadLetterStore;
+
+    private IndexExecutorRegistry indexExecutorRegistry;
+    private SolrBatchWriter solrBatchWriter;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(solrClient.request(Mockito.any(SolrRequest.class), Mockito.anyString())).thenReturn(new NamedList<>());
+        indexExecutorRegistry = new IndexExecutorRegistry();
+        solrBatchWriter = new SolrBatchWriter() {
+            @Override
+            protected SolrClient createSolrClient(String coreName) {
+                return solrClient;
+            }
+        };
+        solrBatchWriter.indexExecutorRegistry = indexExecutorRegistry;
+        solrBatchWriter.batchSize = 3;
+        solrBatchWriter.batchBytes = 1024L * 1024L;
+        solrBatchWriter.writerThreads = 2;
+        solrBatchWriter.writerQueueSize = 2;
+        solrBatchWriter.retryAttempts = 2;
+        solrBatchWriter.retryBackoffMillis = 0L;
+        solrBatchWriter.indexDeadLetterStore = indexDeadLetterStore;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexExecutorRegistry.shutdown();
+    }
+
+    @Test
+    public void pagesAreRebatchedByCount() throws Exception {
+        solrBatchWriter.add("recap", getItems(0, 4));
+        solrBatchWriter.add("recap", getItems(4, 8));
+        solrBatchWriter.flush("recap");
+
+        assertEquals(new ArrayList<>(Arrays.asList(3, 3, 2)), getSentBatchSizes());
+        Map<String, Number> statistics = solrBatchWriter.getStatistics().get("recap");
+        assertEquals(3L, statistics.get("batchesSent"));
+        assertEquals(8L, statistics.get("documentsSent"));
+        assertEquals(0L, statistics.get("failedBatches"));
+    }
+
+    @Test
+    public void batchIsCutWhenEstimatedBytesAreReached() throws Exception {
+        solrBatchWriter.batchSize = 100;
+        List<Item> items = getItems(0, 4);
+        solrBatchWriter.batchBytes = SolrBatchWriter.estimateSize(toSolrInputDocument(items.get(0))) * 2;
+        solrBatchWriter.add("recap", items);
+        solrBatchWriter.flush("recap");
+
+        assertEquals(new ArrayList<>(Arrays.asList(2, 2)), getSentBatchSizes());
+    }
+
+    @Test
+    public void runsWritingToTheSameCoreKeepTheirOwnBatchSizeAndCommitWithin() throws Exception {
+        SolrBatchSettings softRunSettings = new SolrBatchSettings(2, 1000);
+        SolrBatchSettings endOfRunSettings = new SolrBatchSettings(5, 0);
+        solrBatchWriter.add("recap", getItems(0, 3), softRunSettings);
+        solrBatchWriter.add("recap", getItems(3, 7), endOfRunSettings);
+        softRunSettings.setBatchSize(4);
+        solrBatchWriter.add("recap", getItems(7, 10), softRunSettings);
+        solrBatchWriter.flush("recap");
+
+        ArgumentCaptor<SolrRequest> requestCaptor = ArgumentCaptor.forClass(SolrRequest.class);
+        Mockito.verify(solrClient, Mockito.times(3)).request(requestCaptor.capture(), Mockito.anyString());
+        List<String> sentBatches = new ArrayList<>();
+        for (SolrRequest solrRequest : requestCaptor.getAllValues()) {
+            UpdateRequest updateRequest = (UpdateRequest) solrRequest;
+            sentBatches.add(updateRequest.getDocuments().size() + "@" + updateRequest.getCommitWithin());
+        }
+        sentBatches.sort(null);
+        assertEquals(Arrays.asList("2@1000", "4@-1", "4@1000"), sentBatches);
+    }
+
+    @Test
+    public void failedBatchIsRetriedThenSavedAsDeadLetter() throws Exception {
+        Mockito.when(solrClient.request(Mockito.any(SolrRequest.class), Mockito.anyString()))
+                .thenThrow(new SolrServerException("Connection refused"))
+                .thenReturn(new NamedList<>())
+                .thenThrow(new SolrServerException("Connection refused"));
+        solrBatchWriter.add("recap", getItems(0, 3));
+        solrBatchWriter.flush("recap");
+        Mockito.verify(indexDeadLetterStore, Mockito.never()).save(Mockito.anyString(), Mockito.anyList(), Mockito.anyInt(), Mockito.anyString());
+
+        solrBatchWriter.add("recap", getItems(3, 6));
+        solrBatchWriter.flush("recap");
+        ArgumentCaptor<List> batchCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(indexDeadLetterStore).save(Mockito.eq("recap"), batchCaptor.capture(), Mockito.eq(2), Mockito.eq("Connection refused"));
+        assertEquals(3, batchCaptor.getValue().size());
+        Map<String, Number> statistics = solrBatchWriter.getStatistics().get("recap");
+        assertEquals(1L, statistics.get("batchesSent"));
+        assertEquals(1L, statistics.get("failedBatches"));
+    }
+
+    @Test
+    public void deadLetterOfTempCoreIsSavedForItsReplayCore() throws Exception {
+        Mockito.when(solrClient.request(Mockito.any(SolrRequest.class), Mockito.anyString()))
+                .thenThrow(new SolrServerException("Connection refused"));
+        solrBatchWriter.setReplayCore("temp0", "recap");
+        assertEquals(0L, solrBatchWriter.getDeadLetterCount("temp0"));
+
+        solrBatchWriter.add("temp0", getItems(0, 3));
+        solrBatchWriter.flush("temp0");
+        Mockito.verify(indexDeadLetterStore).save(Mockito.eq("recap"), Mockito.anyList(), Mockito.eq(2), Mockito.eq("Connection refused"));
+        assertEquals(1L, solrBatchWriter.getDeadLetterCount("temp0"));
+        assertEquals(0L, solrBatchWriter.getDeadLetterCount("recap"));
+    }
+
+    @Test
+    public void removedCoreWriterShutsDownItsPool() throws Exception {
+        solrBatchWriter.add("temp0", getItems(0, 3));
+        solrBatchWriter.flush("temp0");
+        assertTrue(indexExecutorRegistry.getStatistics().containsKey("solrWriter-temp0"));
+
+        solrBatchWriter.removeCore("temp0");
+        assertFalse(solrBatchWriter.getStatistics().containsKey("temp0"));
+        assertFalse(indexExecutorRegistry.getStatistics().containsKey("solrWriter-temp0"));
+        Mockito.verify(solrClient).close();
+    }
+
+    private List<Integer> getSentBatchSizes() throws Exception {
+        ArgumentCaptor<SolrRequest> requestCaptor = ArgumentCaptor.forClass(SolrRequest.class);
+        Mockito.verify(solrClient, Mockito.atLeastOnce()).request(requestCaptor.capture(), Mockito.anyString());
+        List<Integer> batchSizes = new ArrayList<>();
+        for (SolrRequest solrRequest : requestCaptor.getAllValues()) {
+            batchSizes.add(((UpdateRequest) solrRequest).getDocuments().size());
+        }
+        batchSizes.sort((first, second) -> second - first);
+        return batchSizes;
+    }
+
+    private SolrInputDocument toSolrInputDocument(Item item) {
+        return new DocumentObjectBinder().toSolrInputDocument(item);
+    }
+
+    private List<Item> getItems(int fromItemId, int toItemId) {
+        List<Item> items = new ArrayList<>();
+        for (int itemId = fromItemId; itemId < toItemId; itemId++) {
+            Item item = new Item();
+            item.setItemId(itemId);
+            item.setBarcode("3321000000000" + itemId);
+            item.setDocType("Item");
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,140 @@
+package org.recap.executors;
+
+import org.apache.camel.ProducerTemplate;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SolrIndexQueueUT {
+
+    @Mock
+    ProducerTemplate producerTemplate;
+
+    @Mock
+    SolrBatchWriter solrBatchWriter;
+
+    private SolrIndexQueue solrIndexQueue;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        solrIndexQueue = new SolrIndexQueue();
+        solrIndexQueue.producerTemplate = producerTemplate;
+        solrIndexQueue.queueSize = 10;
+    }
+
+    @Test
+    public void awaitReturnsImmediatelyWhenNothingInFlight() throws Exception {
+        solrIndexQueue.awaitAcknowledged();
+        assertEquals(0, solrIndexQueue.getInFlightBatchCount());
+    }
+
+    @Test
+    public void awaitBlocksUntilBatchesAreAcknowledged() throws Exception {
+        solrIndexQueue.send(Arrays.asList("doc1"));
+        solrIndexQueue.send(Arrays.asList("doc2"));
+        assertEquals(2, solrIndexQueue.getInFlightBatchCount());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> commitFuture = executorService.submit(() -> {
+            solrIndexQueue.awaitAcknowledged();
+            return null;
+        });
+
+        solrIndexQueue.acknowledge();
+        Thread.sleep(100);
+        assertFalse(commitFuture.isDone());
+
+        solrIndexQueue.acknowledge();
+        commitFuture.get(5, TimeUnit.SECONDS);
+        assertTrue(commitFuture.isDone());
+        assertEquals(0, solrIndexQueue.getInFlightBatchCount());
+        executorService.shutdown();
+    }
+
+    @Test
+    public void awaitDoesNotWaitForBatchesSentAfterIt() throws Exception {
+        solrIndexQueue.send(Arrays.asList("doc1"));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> commitFuture = executorService.submit(() -> {
+            solrIndexQueue.awaitAcknowledged();
+            return null;
+        });
+        Thread.sleep(100);
+        solrIndexQueue.send(Arrays.asList("doc2"));
+        assertFalse(commitFuture.isDone());
+
+        List<Long> batchSequences = getBatchSequences(2);
+        solrIndexQueue.acknowledge(batchSequences.get(0));
+        commitFuture.get(5, TimeUnit.SECONDS);
+        assertEquals(1, solrIndexQueue.getInFlightBatchCount());
+        executorService.shutdown();
+    }
+
+    @Test
+    public void batchesAcknowledgedOutOfOrderAreTrackedBySequence() throws Exception {
+        solrIndexQueue.send(Arrays.asList("doc1"));
+        solrIndexQueue.send("recap_build", Arrays.asList("doc2"));
+        List<Long> batchSequences = getBatchSequences(2);
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> commitFuture = executorService.submit(() -> {
+            solrIndexQueue.awaitAcknowledged();
+            return null;
+        });
+        solrIndexQueue.acknowledge(batchSequences.get(1));
+        Thread.sleep(100);
+        assertFalse(commitFuture.isDone());
+
+        solrIndexQueue.acknowledge(batchSequences.get(0));
+        commitFuture.get(5, TimeUnit.SECONDS);
+        assertEquals(0, solrIndexQueue.getInFlightBatchCount());
+        executorService.shutdown();
+    }
+
+    @Test
+    public void ringBufferTransportHandsBatchesToTheWriterAndAcknowledgesThem() throws Exception {
+        solrIndexQueue.solrBatchWriter = solrBatchWriter;
+        solrIndexQueue.transport = RecapConstants.INDEX_QUEUE_TRANSPORT_RING_BUFFER;
+        solrIndexQueue.solrCore = "recap";
+        solrIndexQueue.startRingBuffer();
+
+        SolrBatchSettings batchSettings = new SolrBatchSettings(100, 1000);
+        solrIndexQueue.send(Arrays.asList("doc1"));
+        solrIndexQueue.send("recap_build", Arrays.asList("doc2"), batchSettings);
+        solrIndexQueue.awaitAcknowledged();
+        solrIndexQueue.stopRingBuffer();
+
+        assertEquals(0, solrIndexQueue.getInFlightBatchCount());
+        Mockito.verify(solrBatchWriter).add("recap", Arrays.asList("doc1"), null);
+        Mockito.verify(solrBatchWriter).add("recap_build", Arrays.asList("doc2"), batchSettings);
+        Mockito.verifyZeroInteractions(producerTemplate);
+    }
+
+    private List<Long> getBatchSequences(int batchCount) {
+        ArgumentCaptor<Map> headers = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(producerTemplate, Mockito.times(batchCount)).sendBodyAndHeaders(Mockito.anyString(), Mockito.any(), headers.capture());
+        List<Long> batchSequences = new ArrayList<>();
+        for (Map batchHeaders : headers.getAllValues()) {
+            batchSequences.add((Long) batchHeaders.get(RecapConstants.SOLR_BATCH_SEQUENCE));
+        }
+        return batchSequences;
+    }
+}
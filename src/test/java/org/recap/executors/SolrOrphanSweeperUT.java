@@ -0,0 +1,126 @@
+package org.recap.executors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.recap.RecapConstants;
+import org.recap.repository.jpa.BibliographicDetailsRepository;
+import org.recap.repository.jpa.HoldingsDetailsRepository;
+import org.recap.repository.jpa.ItemDetailsRepository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+
+public class SolrOrphanSweeperUT {
+
+    @Mock
+    BibliographicDetailsRepository mockBibliographicDetailsRepository;
+
+    @Mock
+    HoldingsDetailsRepository mockHoldingsDetailsRepository;
+
+    @Mock
+    ItemDetailsRepository mockItemDetailsRepository;
+
+    @Mock
+    SolrClient mockSolrClient;
+
+    @Mock
+    IndexJobLauncher mockIndexJobLauncher;
+
+    private SolrOrphanSweeper solrOrphanSweeper;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        solrOrphanSweeper = new SolrOrphanSweeper();
+        solrOrphanSweeper.bibliographicDetailsRepository = mockBibliographicDetailsRepository;
+        solrOrphanSweeper.holdingsDetailsRepository = mockHoldingsDetailsRepository;
+        solrOrphanSweeper.itemDetailsRepository = mockItemDetailsRepository;
+        solrOrphanSweeper.solrClient = mockSolrClient;
+        solrOrphanSweeper.indexJobLauncher = mockIndexJobLauncher;
+        solrOrphanSweeper.chunkSize = 2;
+    }
+
+    @Test
+    public void sweepIsSubmittedAsAnExclusiveJob() throws Exception {
+        Mockito.when(mockIndexJobLauncher.submitExclusive(Mockito.eq(SolrOrphanSweeper.SWEEP_JOB), Mockito.any(Consumer.class))).thenReturn(4);
+        assertEquals(Integer.valueOf(4), solrOrphanSweeper.submit());
+        Mockito.verify(mockIndexJobLauncher, Mockito.never()).submit(Mockito.anyString(), Mockito.any(Consumer.class));
+    }
+
+    @Test
+    public void deletesDocumentsOfMissingRowsChunkByChunk() throws Exception {
+        Mockito.when(mockSolrClient.query(Mockito.any(SolrParams.class))).thenAnswer(invocation -> {
+            SolrParams solrParams = (SolrParams) invocation.getArguments()[0];
+            String cursorMark = solrParams.get(CursorMarkParams.CURSOR_MARK_PARAM);
+            if (!solrParams.get(CommonParams.Q).equals(RecapConstants.DOCTYPE + ":" + RecapConstants.BIB)) {
+                return getQueryResponse(cursorMark);
+            } else if (CursorMarkParams.CURSOR_MARK_START.equals(cursorMark)) {
+                return getQueryResponse("AoE2", getSolrDocument("1", 1), getSolrDocument("2", 2));
+            }
+            return getQueryResponse("AoE5", getSolrDocument("5", 5));
+        });
+        Mockito.when(mockBibliographicDetailsRepository.findBibliographicIdsBetween(1, 2)).thenReturn(Collections.singletonList(1));
+        Mockito.when(mockBibliographicDetailsRepository.findBibliographicIdsBetween(5, 5)).thenReturn(Collections.emptyList());
+        IndexProgress indexProgress = new IndexProgress(1, SolrOrphanSweeper.SWEEP_JOB);
+
+        Map<String, Integer> deletedByDocType = solrOrphanSweeper.sweep(indexProgress);
+
+        assertEquals(new Integer(2), deletedByDocType.get(RecapConstants.BIB));
+        assertEquals(new Integer(0), deletedByDocType.get(RecapConstants.ITEM));
+        Mockito.verify(mockSolrClient).deleteById(Collections.singletonList("2"));
+        Mockito.verify(mockSolrClient).deleteById(Collections.singletonList("5"));
+        Mockito.verify(mockSolrClient).commit();
+        Mockito.verify(mockItemDetailsRepository, Mockito.never()).findItemIdsBetween(Mockito.anyInt(), Mockito.anyInt());
+        assertEquals(3, indexProgress.getRecordsFetched());
+    }
+
+    @Test
+    public void doesNotCommitWithoutOrphans() throws Exception {
+        Mockito.when(mockSolrClient.query(Mockito.any(SolrParams.class))).thenAnswer(invocation -> {
+            SolrParams solrParams = (SolrParams) invocation.getArguments()[0];
+            if (solrParams.get(CommonParams.Q).equals(RecapConstants.DOCTYPE + ":" + RecapConstants.ITEM)) {
+                return getQueryResponse("AoE7", getSolrDocument("7", 7));
+            }
+            return getQueryResponse(solrParams.get(CursorMarkParams.CURSOR_MARK_PARAM));
+        });
+        Mockito.when(mockItemDetailsRepository.findItemIdsBetween(7, 7)).thenReturn(Collections.singletonList(7));
+
+        solrOrphanSweeper.sweep(new IndexProgress(1, SolrOrphanSweeper.SWEEP_JOB));
+
+        Mockito.verify(mockSolrClient, Mockito.never()).deleteById(Mockito.anyListOf(String.class));
+        Mockito.verify(mockSolrClient, Mockito.never()).commit();
+    }
+
+    private QueryResponse getQueryResponse(String nextCursorMark, SolrDocument... solrDocuments) {
+        SolrDocumentList solrDocumentList = new SolrDocumentList();
+        solrDocumentList.addAll(Arrays.asList(solrDocuments));
+        solrDocumentList.setNumFound(solrDocuments.length);
+        QueryResponse queryResponse = Mockito.mock(QueryResponse.class);
+        Mockito.when(queryResponse.getResults()).thenReturn(solrDocumentList);
+        Mockito.when(queryResponse.getNextCursorMark()).thenReturn(nextCursorMark);
+        return queryResponse;
+    }
+
+    private SolrDocument getSolrDocument(String id, Integer recordId) {
+        SolrDocument solrDocument = new SolrDocument();
+        solrDocument.setField("id", id);
+        solrDocument.setField(RecapConstants.BIB_ID, recordId);
+        solrDocument.setField(RecapConstants.ITEM_ID, recordId);
+        return solrDocument;
+    }
+}
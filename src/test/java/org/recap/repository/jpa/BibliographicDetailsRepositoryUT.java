@@ -20,6 +20,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Random;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -129,4 +130,34 @@ public class BibliographicDetailsRepositoryUT extends BaseTestCase {
         assertNotNull(byItemId);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void findNextPageByBibliographicIdRange() throws Exception {
+        Random random = new Random();
+        int owningInstitutionId = 1;
+
+        BibliographicEntity bibliographicEntity = new BibliographicEntity();
+        bibliographicEntity.setContent("Mock Bib Content".getBytes());
+        bibliographicEntity.setCreatedDate(new Date());
+        bibliographicEntity.setCreatedBy("etl");
+        bibliographicEntity.setLastUpdatedBy("etl");
+        bibliographicEntity.setLastUpdatedDate(new Date());
+        bibliographicEntity.setOwningInstitutionBibId(String.valueOf(random.nextInt()));
+        bibliographicEntity.setOwningInstitutionId(owningInstitutionId);
+
+        BibliographicEntity savedBibliographicEntity = bibliographicDetailsRepository.saveAndFlush(bibliographicEntity);
+        entityManager.refresh(savedBibliographicEntity);
+        Integer bibliographicId = savedBibliographicEntity.getBibliographicId();
+        assertNotNull(bibliographicId);
+
+        Integer maxBibliographicId = bibliographicDetailsRepository.findMaxBibliographicIdByOwningInstitutionId(owningInstitutionId);
+        assertTrue(maxBibliographicId >= bibliographicId);
+
+        List<BibliographicEntity> bibliographicEntities = bibliographicDetailsRepository.findNextPageByBibliographicIdRangeAndOwningInstitutionId(new PageRequest(0, 10), bibliographicId - 1, bibliographicId, owningInstitutionId);
+        assertEquals(1, bibliographicEntities.size());
+        assertEquals(bibliographicId, bibliographicEntities.get(0).getBibliographicId());
+
+        List<BibliographicEntity> nextPage = bibliographicDetailsRepository.findNextPageByBibliographicIdRange(new PageRequest(0, 10), bibliographicId, bibliographicId);
+        assertTrue(nextPage.isEmpty());
+    }
+
+}
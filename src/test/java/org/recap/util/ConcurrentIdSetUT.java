@@ -0,0 +1,88 @@
+package org.recap.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentIdSetUT {
+
+    @Test
+    public void addsEachIdOnce() throws Exception {
+        ConcurrentIdSet concurrentIdSet = new ConcurrentIdSet();
+        assertTrue(concurrentIdSet.add(7));
+        assertFalse(concurrentIdSet.add(7));
+        assertTrue(concurrentIdSet.contains(7));
+        assertFalse(concurrentIdSet.contains(8));
+        assertEquals(1, concurrentIdSet.size());
+    }
+
+    @Test
+    public void removesIds() throws Exception {
+        ConcurrentIdSet concurrentIdSet = new ConcurrentIdSet();
+        concurrentIdSet.add(7);
+        concurrentIdSet.add(8);
+        assertTrue(concurrentIdSet.remove(7));
+        assertFalse(concurrentIdSet.remove(7));
+        assertFalse(concurrentIdSet.remove(ConcurrentIdSet.SEGMENT_SIZE));
+        assertFalse(concurrentIdSet.contains(7));
+        assertTrue(concurrentIdSet.contains(8));
+        assertEquals(1, concurrentIdSet.size());
+        assertTrue(concurrentIdSet.add(7));
+    }
+
+    @Test
+    public void keepsIdsAcrossSegments() throws Exception {
+        ConcurrentIdSet concurrentIdSet = new ConcurrentIdSet();
+        assertTrue(concurrentIdSet.add(0));
+        assertTrue(concurrentIdSet.add(ConcurrentIdSet.SEGMENT_SIZE + 63));
+        assertTrue(concurrentIdSet.add(Integer.MAX_VALUE));
+        assertTrue(concurrentIdSet.contains(ConcurrentIdSet.SEGMENT_SIZE + 63));
+        assertFalse(concurrentIdSet.contains(ConcurrentIdSet.SEGMENT_SIZE + 62));
+        assertTrue(concurrentIdSet.contains(Integer.MAX_VALUE));
+        assertEquals(3, concurrentIdSet.size());
+
+        concurrentIdSet.clear();
+        assertFalse(concurrentIdSet.contains(0));
+        assertFalse(concurrentIdSet.contains(Integer.MAX_VALUE));
+        assertEquals(0, concurrentIdSet.size());
+    }
+
+    @Test
+    public void onlyOneThreadAddsAnId() throws Exception {
+        ConcurrentIdSet concurrentIdSet = new ConcurrentIdSet();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Callable<Integer>> callables = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callables.add(() -> {
+                int added = 0;
+                for (int id = 0; id < 10000; id++) {
+                    if (concurrentIdSet.add(id)) {
+                        added++;
+                    }
+                }
+                return added;
+            });
+        }
+        int added = 0;
+        for (Future<Integer> future : executorService.invokeAll(callables)) {
+            added += future.get();
+        }
+        executorService.shutdown();
+        assertEquals(10000, added);
+        assertEquals(10000, concurrentIdSet.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeIds() throws Exception {
+        new ConcurrentIdSet().add(-1);
+    }
+}
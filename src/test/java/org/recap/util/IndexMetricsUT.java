@@ -0,0 +1,47 @@
+package org.recap.util;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexMetricsUT {
+
+    @Test
+    public void timeRecordsTheCallAndReturnsItsResult() throws Exception {
+        long count = IndexMetrics.timer("index.test.time").getCount();
+        String result = IndexMetrics.time("index.test.time", () -> "done");
+        assertEquals("done", result);
+        assertEquals(count + 1, IndexMetrics.timer("index.test.time").getCount());
+    }
+
+    @Test
+    public void timerKeepsTheTotalOfItsDurations() throws Exception {
+        long totalNanos = IndexMetrics.getTotalNanos("index.test.total");
+        IndexMetrics.timer("index.test.total").update(3, TimeUnit.MILLISECONDS);
+        IndexMetrics.timer("index.test.total").update(5, TimeUnit.MILLISECONDS);
+        assertEquals(totalNanos + TimeUnit.MILLISECONDS.toNanos(8), IndexMetrics.getTotalNanos("index.test.total"));
+    }
+
+    @Test
+    public void snapshotHasTimersAndHistograms() throws Exception {
+        IndexMetrics.time("index.test.snapshot", () -> null);
+        IndexMetrics.histogram("index.test.snapshot.size").update(100);
+        Map<String, Map<String, Number>> snapshot = IndexMetrics.getSnapshot();
+        Map<String, Number> timerValues = snapshot.get("index.test.snapshot");
+        assertNotNull(timerValues);
+        assertTrue(timerValues.containsKey("p95Millis"));
+        assertTrue(timerValues.get("count").longValue() >= 1);
+        assertEquals(100L, snapshot.get("index.test.snapshot.size").get("max"));
+    }
+
+    @Test
+    public void registryIsShared() throws Exception {
+        assertSame(IndexMetrics.getRegistry(), IndexMetrics.getRegistry());
+    }
+}
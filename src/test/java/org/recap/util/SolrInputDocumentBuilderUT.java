@@ -0,0 +1,80 @@
+package org.recap.util;
+
+import org.apache.solr.client.solrj.beans.DocumentObjectBinder;
+import org.apache.solr.client.solrj.beans.Field;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.junit.Test;
+import org.recap.model.solr.Bib;
+import org.recap.model.solr.BibItem;
+import org.recap.model.solr.Holdings;
+import org.recap.model.solr.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SolrInputDocumentBuilderUT {
+
+    private final DocumentObjectBinder documentObjectBinder = new DocumentObjectBinder();
+
+    @Test
+    public void buildsTheSameFieldsAsTheBinder() throws Exception {
+        for (Object document : Arrays.asList(populate(new Bib()), populate(new Item()), populate(new Holdings()))) {
+            assertEquals(document.getClass().getSimpleName(), getFields(documentObjectBinder.toSolrInputDocument(document)),
+                    getFields(SolrInputDocumentBuilder.build(document)));
+        }
+    }
+
+    @Test
+    public void leavesOutNullValues() throws Exception {
+        Item item = new Item();
+        item.setId("12");
+        item.setBarcode("CU12345");
+        SolrInputDocument solrInputDocument = SolrInputDocumentBuilder.build(item);
+        assertEquals(Arrays.asList("id", "Barcode"), new ArrayList<>(solrInputDocument.getFieldNames()));
+    }
+
+    @Test
+    public void buildsNoDocumentForOtherBeans() throws Exception {
+        assertNull(SolrInputDocumentBuilder.build(new BibItem()));
+        assertNull(SolrInputDocumentBuilder.build("Bib"));
+    }
+
+    private Map<String, Object> getFields(SolrInputDocument solrInputDocument) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (SolrInputField solrInputField : solrInputDocument) {
+            if (null != solrInputField.getValue()) {
+                fields.put(solrInputField.getName(), solrInputField.getValue());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Sets every @Field of the bean, so a field added to a bean but not to the builder fails the comparison.
+     */
+    private Object populate(Object bean) throws Exception {
+        int value = 1;
+        for (java.lang.reflect.Field field : bean.getClass().getDeclaredFields()) {
+            if (!field.isAnnotationPresent(Field.class)) {
+                continue;
+            }
+            field.setAccessible(true);
+            if (field.getType() == String.class) {
+                field.set(bean, field.getName() + value);
+            } else if (field.getType() == Integer.class) {
+                field.set(bean, value);
+            } else if (field.getType() == List.class) {
+                field.set(bean, Arrays.asList(value, value + 1));
+            }
+            value++;
+        }
+        return bean;
+    }
+}